@@ -0,0 +1,92 @@
+package com.kkvat.automation.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Two connection pools on the same database. The primary pool (spring.datasource.hikari) serves logins,
+ * JPA and other OLTP work; report queries, exports and catalog lookups run on the report pool
+ * (report.datasource.hikari), so long scans cannot take the connections interactive requests need.
+ * With read replicas configured both are wrapped in a {@link ReplicaRoutingDataSource}.
+ */
+@Configuration
+@EnableConfigurationProperties(ReplicaProperties.class)
+public class DataSourceConfig {
+
+    @Bean
+    @Primary
+    @ConfigurationProperties("spring.datasource")
+    public DataSourceProperties dataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryPool(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    /**
+     * Same URL and credentials as the primary pool, with its own limits, statement timeout and read-only sessions.
+     */
+    @Bean
+    @ConfigurationProperties("report.datasource.hikari")
+    public HikariDataSource reportPool(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ReplicaSet replicaSet(ReplicaProperties replicaProperties, DataSourceProperties properties,
+                                 @Qualifier("primaryPool") HikariDataSource primaryPool,
+                                 @Qualifier("reportPool") HikariDataSource reportPool) {
+        return new ReplicaSet(replicaProperties, primaryPool, reportPool, properties.determineUsername(),
+                properties.determinePassword());
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryPool") HikariDataSource primaryPool, ReplicaSet replicaSet) {
+        if (replicaSet.isEmpty()) return primaryPool;
+        // connections are taken on first use, once a read-only transaction has been marked as such
+        return new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(primaryPool, replicaSet, false));
+    }
+
+    @Bean
+    public DataSource reportDataSource(@Qualifier("reportPool") HikariDataSource reportPool, ReplicaSet replicaSet) {
+        if (replicaSet.isEmpty()) return reportPool;
+        return new ReplicaRoutingDataSource(reportPool, replicaSet, true);
+    }
+
+    @Bean
+    @Primary
+    public JdbcTemplate jdbcTemplate(DataSource dataSource) {
+        return new JdbcTemplate(dataSource);
+    }
+
+    @Bean
+    @Primary
+    public NamedParameterJdbcTemplate namedParameterJdbcTemplate(DataSource dataSource) {
+        return new NamedParameterJdbcTemplate(dataSource);
+    }
+
+    @Bean
+    public JdbcTemplate reportJdbcTemplate(@Qualifier("reportDataSource") DataSource reportDataSource) {
+        return new JdbcTemplate(reportDataSource);
+    }
+
+    @Bean
+    public NamedParameterJdbcTemplate reportNamedParameterJdbcTemplate(@Qualifier("reportDataSource") DataSource reportDataSource) {
+        return new NamedParameterJdbcTemplate(reportDataSource);
+    }
+}
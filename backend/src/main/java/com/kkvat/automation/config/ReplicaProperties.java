@@ -0,0 +1,31 @@
+package com.kkvat.automation.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read replicas for read-only work, see {@link ReplicaRoutingDataSource}. With no nodes every
+ * query goes to spring.datasource as before.
+ */
+@Data
+@ConfigurationProperties(prefix = "replicas")
+public class ReplicaProperties {
+    private boolean enabled = false;
+    private long healthCheckMs = 5000;
+    private long healthTimeoutMs = 2000;
+    private long maxLagSeconds = 30; // replicas further behind the primary are skipped, 0 disables the bound
+    private String lagQuery = "SHOW REPLICA STATUS"; // blank skips the lag check, e.g. for H2 stand-ins
+    private List<Node> nodes = new ArrayList<>();
+
+    @Data
+    public static class Node {
+        private String name;
+        private String url;
+        private String username; // defaults to spring.datasource.username
+        private String password; // defaults to spring.datasource.password
+        private String driverClassName; // only needed when it differs from the primary's
+    }
+}
@@ -0,0 +1,46 @@
+package com.kkvat.automation.config;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Hands out replica connections for read-only work and primary connections otherwise. Application
+ * traffic goes to a replica inside {@code @Transactional(readOnly = true)}; it must sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy} so the connection is taken
+ * after the transaction is marked read-only. Report traffic is read-only by construction and always
+ * goes to a replica. Without a healthy replica, or when one refuses a connection, the primary serves.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+    private final DataSource primary;
+    private final ReplicaSet replicaSet;
+    private final boolean report;
+
+    public ReplicaRoutingDataSource(DataSource primary, ReplicaSet replicaSet, boolean report) {
+        this.primary = primary;
+        this.replicaSet = replicaSet;
+        this.report = report;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        ReplicaSet.Replica replica = report || TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                ? replicaSet.pick() : null;
+        if (replica == null) return primary.getConnection();
+        try {
+            return replica.pool(report).getConnection();
+        } catch (SQLException e) {
+            replicaSet.markDown(replica, e);
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        // explicit credentials are for the primary
+        return primary.getConnection(username, password);
+    }
+}
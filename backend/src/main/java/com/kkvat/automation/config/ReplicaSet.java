@@ -0,0 +1,224 @@
+package com.kkvat.automation.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The configured read replicas, each with an application pool and a report pool shaped like the
+ * primary's two pools. A health check connects to every replica on its own, outside the pools,
+ * and takes it out of rotation while it is unreachable or lags more than replicas.max-lag-seconds.
+ */
+@Slf4j
+public class ReplicaSet implements DisposableBean {
+    private final ReplicaProperties properties;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private final ExecutorService checker;
+
+    public static class Replica {
+        private final ReplicaProperties.Node node;
+        private final String username;
+        private final String password;
+        private final HikariDataSource appPool;
+        private final HikariDataSource reportPool;
+        private volatile boolean healthy;
+        private volatile Long lagSeconds;
+        private volatile String lastError;
+
+        Replica(ReplicaProperties.Node node, String username, String password, HikariDataSource appPool,
+                HikariDataSource reportPool) {
+            this.node = node;
+            this.username = username;
+            this.password = password;
+            this.appPool = appPool;
+            this.reportPool = reportPool;
+        }
+
+        public String getName() {
+            return node.getName();
+        }
+
+        public HikariDataSource pool(boolean report) {
+            return report ? reportPool : appPool;
+        }
+
+        public boolean isHealthy() {
+            return healthy;
+        }
+
+        public Long getLagSeconds() {
+            return lagSeconds;
+        }
+
+        public String getLastError() {
+            return lastError;
+        }
+    }
+
+    public ReplicaSet(ReplicaProperties properties, HikariDataSource primaryPool, HikariDataSource primaryReportPool,
+                      String defaultUsername, String defaultPassword) {
+        this.properties = properties;
+        if (properties.isEnabled()) {
+            int i = 0;
+            for (ReplicaProperties.Node node : properties.getNodes()) {
+                if (node.getUrl() == null || node.getUrl().isBlank()) continue;
+                if (node.getName() == null || node.getName().isBlank()) node.setName("replica-" + (++i));
+                String username = node.getUsername() != null ? node.getUsername() : defaultUsername;
+                String password = node.getPassword() != null ? node.getPassword() : defaultPassword;
+                replicas.add(new Replica(node, username, password,
+                        pool(primaryPool, node, username, password, "app-pool-" + node.getName()),
+                        pool(primaryReportPool, node, username, password, "report-pool-" + node.getName())));
+            }
+        }
+        checker = replicas.isEmpty() ? null : Executors.newFixedThreadPool(replicas.size(), r -> {
+            Thread t = new Thread(r, "replica-health");
+            t.setDaemon(true);
+            return t;
+        });
+        if (!replicas.isEmpty()) {
+            checkHealth();
+            log.info("Read replicas configured: {}", replicas.stream().map(Replica::getName).toList());
+        }
+    }
+
+    /**
+     * A pool on the replica with the limits of the matching primary pool. It opens lazily and never
+     * fails startup, so an unreachable replica only costs its place in the rotation.
+     */
+    private static HikariDataSource pool(HikariDataSource template, ReplicaProperties.Node node, String username,
+                                         String password, String poolName) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(poolName);
+        config.setJdbcUrl(node.getUrl());
+        config.setUsername(username);
+        config.setPassword(password);
+        if (node.getDriverClassName() != null) config.setDriverClassName(node.getDriverClassName());
+        // sizes are still unset (-1) on a pool that has not started, then Hikari's defaults apply
+        if (template.getMaximumPoolSize() > 0) config.setMaximumPoolSize(template.getMaximumPoolSize());
+        config.setMinimumIdle(Math.max(0, Math.min(template.getMinimumIdle(), 1)));
+        config.setConnectionTimeout(template.getConnectionTimeout());
+        config.setIdleTimeout(template.getIdleTimeout());
+        config.setMaxLifetime(template.getMaxLifetime());
+        config.setConnectionInitSql(template.getConnectionInitSql());
+        config.setDataSourceProperties(template.getDataSourceProperties());
+        config.setReadOnly(true);
+        config.setInitializationFailTimeout(-1);
+        return new HikariDataSource(config);
+    }
+
+    public boolean isEmpty() {
+        return replicas.isEmpty();
+    }
+
+    public List<Replica> getReplicas() {
+        return List.copyOf(replicas);
+    }
+
+    /**
+     * The next healthy replica in round-robin order, or null when none is.
+     */
+    public Replica pick() {
+        int size = replicas.size();
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get(Math.floorMod(next.getAndIncrement(), size));
+            if (replica.healthy) return replica;
+        }
+        return null;
+    }
+
+    /**
+     * Take a replica out of rotation after a failed connection; the next health check may bring it back.
+     */
+    public void markDown(Replica replica, Exception e) {
+        if (replica.healthy) log.warn("Read replica {} taken out of rotation: {}", replica.getName(), e.getMessage());
+        replica.healthy = false;
+        replica.lastError = e.getMessage();
+    }
+
+    @Scheduled(fixedDelayString = "${replicas.health-check-ms:5000}")
+    public void checkHealth() {
+        if (replicas.isEmpty()) return;
+        List<CompletableFuture<Void>> checks = new ArrayList<>();
+        for (Replica replica : replicas) {
+            checks.add(CompletableFuture.runAsync(() -> check(replica), checker)
+                    .orTimeout(properties.getHealthTimeoutMs(), TimeUnit.MILLISECONDS)
+                    .exceptionally(e -> {
+                        markDown(replica, new SQLException("health check timed out after " + properties.getHealthTimeoutMs() + " ms"));
+                        return null;
+                    }));
+        }
+        checks.forEach(CompletableFuture::join);
+    }
+
+    private void check(Replica replica) {
+        try (Connection conn = DriverManager.getConnection(replica.node.getUrl(), replica.username, replica.password);
+             Statement stmt = conn.createStatement()) {
+            stmt.setQueryTimeout((int) Math.max(1, properties.getHealthTimeoutMs() / 1000));
+            Long lag = null;
+            String lagQuery = properties.getLagQuery();
+            if (lagQuery != null && !lagQuery.isBlank()) {
+                try (ResultSet rs = stmt.executeQuery(lagQuery)) {
+                    // no row means replication is not configured there, as with a local stand-in
+                    if (rs.next()) {
+                        lag = lagOf(rs);
+                        if (lag == null) throw new SQLException("replication is not running");
+                    }
+                }
+            } else {
+                stmt.execute("SELECT 1");
+            }
+            if (lag != null && properties.getMaxLagSeconds() > 0 && lag > properties.getMaxLagSeconds()) {
+                throw new SQLException("lagging " + lag + " s behind the primary");
+            }
+            if (!replica.healthy) log.info("Read replica {} in rotation (lag {} s)", replica.getName(), lag);
+            replica.lagSeconds = lag;
+            replica.lastError = null;
+            replica.healthy = true;
+        } catch (Exception e) {
+            markDown(replica, e);
+        }
+    }
+
+    /**
+     * Seconds_Behind_Source (or _Master) from SHOW REPLICA/SLAVE STATUS, else the first column of a custom query.
+     */
+    private static Long lagOf(ResultSet rs) throws SQLException {
+        ResultSetMetaData meta = rs.getMetaData();
+        int column = 1;
+        for (int i = 1; i <= meta.getColumnCount(); i++) {
+            String label = meta.getColumnLabel(i);
+            if ("Seconds_Behind_Source".equalsIgnoreCase(label) || "Seconds_Behind_Master".equalsIgnoreCase(label)) {
+                column = i;
+                break;
+            }
+        }
+        long lag = rs.getLong(column);
+        return rs.wasNull() ? null : lag;
+    }
+
+    @Override
+    public void destroy() {
+        if (checker != null) checker.shutdownNow();
+        for (Replica replica : replicas) {
+            replica.appPool.close();
+            replica.reportPool.close();
+        }
+    }
+}
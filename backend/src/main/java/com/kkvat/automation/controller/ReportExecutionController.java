@@ -1,20 +1,32 @@
 package com.kkvat.automation.controller;
 
+import com.kkvat.automation.dto.ReportCostEstimateResponse;
 import com.kkvat.automation.dto.ReportExecutionResponse;
+import com.kkvat.automation.dto.ReportJobStatsResponse;
+import com.kkvat.automation.dto.ReportPageResponse;
+import com.kkvat.automation.dto.ReportPreviewResponse;
+import com.kkvat.automation.dto.ReportRequest;
+import com.kkvat.automation.service.ReportDownloadService;
 import com.kkvat.automation.service.ReportExecutionService;
+import com.kkvat.automation.service.ReportGenerationService;
+import com.kkvat.automation.service.ReportResultBuffer;
+import com.kkvat.automation.service.ReportStorageService;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.File;
-import java.nio.file.Files;
+import java.time.format.DateTimeFormatter;
 import java.util.Map;
 import java.util.List;
 
@@ -23,7 +35,11 @@ import java.util.List;
 @RequiredArgsConstructor
 @SecurityRequirement(name = "Bearer Authentication")
 public class ReportExecutionController {
+    private static final DateTimeFormatter DOWNLOAD_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
+
     private final ReportExecutionService reportExecutionService;
+    private final ReportDownloadService reportDownloadService;
+    private final ReportStorageService reportStorageService;
 
     @GetMapping("/report/{reportId}")
     @PreAuthorize("hasAnyRole('ADMIN', 'TEST_MANAGER', 'TESTER', 'VIEWER')")
@@ -39,6 +55,18 @@ public class ReportExecutionController {
         return ResponseEntity.ok(reportExecutionService.getExecutionById(id));
     }
 
+    @PostMapping("/{id}/cancel")
+    @PreAuthorize("hasAnyRole('ADMIN', 'TEST_MANAGER', 'TESTER')")
+    public ResponseEntity<ReportExecutionResponse> cancelExecution(@PathVariable Long id) {
+        return ResponseEntity.ok(reportExecutionService.cancelExecution(id));
+    }
+
+    @GetMapping(value = "/{id}/progress", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasAnyRole('ADMIN', 'TEST_MANAGER', 'TESTER', 'VIEWER')")
+    public SseEmitter streamProgress(@PathVariable Long id) {
+        return reportExecutionService.streamProgress(id);
+    }
+
     @GetMapping("/my-executions")
     @PreAuthorize("hasAnyRole('ADMIN', 'TEST_MANAGER', 'TESTER', 'VIEWER')")
     public ResponseEntity<Page<ReportExecutionResponse>> getMyExecutions(Pageable pageable) {
@@ -52,31 +80,45 @@ public class ReportExecutionController {
                 .body(reportExecutionService.generateReport(reportId));
     }
 
+    @GetMapping("/queue-stats")
+    @PreAuthorize("hasAnyRole('ADMIN', 'TEST_MANAGER')")
+    public ResponseEntity<ReportJobStatsResponse> getQueueStats() {
+        return ResponseEntity.ok(reportExecutionService.getJobStats());
+    }
+
     @GetMapping("/download/{executionId}")
     @PreAuthorize("hasAnyRole('ADMIN', 'TEST_MANAGER', 'TESTER', 'VIEWER')")
-    public ResponseEntity<byte[]> downloadReport(@PathVariable Long executionId) throws Exception {
+    public void downloadReport(@PathVariable Long executionId,
+                               HttpServletRequest request,
+                               HttpServletResponse response) throws Exception {
         ReportExecutionResponse execution = reportExecutionService.getExecutionById(executionId);
 
+        if (execution.getFilePath() == null && execution.getStatus().equals("COMPLETED")) {
+            // output removed by retention or quota; the report has to be run again
+            response.setStatus(HttpStatus.GONE.value());
+            return;
+        }
+
         if (execution.getFilePath() == null || execution.getStatus().equals("PENDING") || execution.getStatus().equals("GENERATING")) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+            response.setStatus(HttpStatus.BAD_REQUEST.value());
+            return;
         }
 
         if (execution.getStatus().equals("FAILED")) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+            response.setStatus(HttpStatus.INTERNAL_SERVER_ERROR.value());
+            return;
         }
 
         File file = new File(execution.getFilePath());
         if (!file.exists()) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
         }
 
-        byte[] fileContent = Files.readAllBytes(file.toPath());
-
-        return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType("text/csv"))
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + file.getName() + "\"")
-                .header(HttpHeaders.CONTENT_LENGTH, String.valueOf(fileContent.length))
-                .body(fileContent);
+        reportStorageService.touch(execution.getFilePath());
+        String csvName = "Report_" + execution.getReportId() + "_"
+                + (execution.getCreatedAt() != null ? execution.getCreatedAt().format(DOWNLOAD_TIMESTAMP) : execution.getId()) + ".csv";
+        reportDownloadService.sendReport(file, csvName, request, response);
     }
 
     @GetMapping("/download-list")
@@ -87,9 +129,77 @@ public class ReportExecutionController {
 
     @PostMapping("/run/{reportId}")
     @PreAuthorize("hasAnyRole('ADMIN', 'TEST_MANAGER', 'TESTER')")
-    public ResponseEntity<List<Map<String, Object>>> runReportNow(@PathVariable Long reportId,
+    public ResponseEntity<StreamingResponseBody> runReportNow(@PathVariable Long reportId,
+                                                              @RequestBody(required = false) Map<String, Object> filters) {
+        // Run the query on the request thread so errors still map to a status; the body pages through the result
+        ReportResultBuffer rows = reportExecutionService.runReportNow(reportId, filters);
+        StreamingResponseBody body = out -> reportExecutionService.writeRows(rows, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    @PostMapping("/run/{reportId}/estimate")
+    @PreAuthorize("hasAnyRole('ADMIN', 'TEST_MANAGER', 'TESTER')")
+    public ResponseEntity<ReportCostEstimateResponse> estimateRun(@PathVariable Long reportId,
                                                                   @RequestBody(required = false) Map<String, Object> filters) {
-        List<Map<String, Object>> rows = reportExecutionService.runReportNow(reportId, filters);
-        return ResponseEntity.ok(rows);
+        return ResponseEntity.ok(reportExecutionService.estimateRun(reportId, filters));
+    }
+
+    @PostMapping("/estimate")
+    @PreAuthorize("hasAnyRole('ADMIN', 'TEST_MANAGER', 'TESTER')")
+    public ResponseEntity<ReportCostEstimateResponse> estimateDefinition(@RequestBody ReportRequest request) {
+        return ResponseEntity.ok(reportExecutionService.estimateDefinition(request));
+    }
+
+    @PostMapping("/run/{reportId}/preview")
+    @PreAuthorize("hasAnyRole('ADMIN', 'TEST_MANAGER', 'TESTER')")
+    public ResponseEntity<ReportPreviewResponse> previewRun(@PathVariable Long reportId,
+                                                            @RequestParam(value = "mode", defaultValue = "first") String mode,
+                                                            @RequestParam(value = "limit", required = false) Integer limit,
+                                                            @RequestBody(required = false) Map<String, Object> filters) {
+        return ResponseEntity.ok(reportExecutionService.previewRun(reportId, filters, previewMode(mode), limit));
+    }
+
+    @PostMapping("/preview")
+    @PreAuthorize("hasAnyRole('ADMIN', 'TEST_MANAGER', 'TESTER')")
+    public ResponseEntity<ReportPreviewResponse> previewDefinition(@RequestParam(value = "mode", defaultValue = "first") String mode,
+                                                                   @RequestParam(value = "limit", required = false) Integer limit,
+                                                                   @RequestBody ReportRequest request) {
+        return ResponseEntity.ok(reportExecutionService.previewDefinition(request, previewMode(mode), limit));
+    }
+
+    @PostMapping("/run/{reportId}/page")
+    @PreAuthorize("hasAnyRole('ADMIN', 'TEST_MANAGER', 'TESTER')")
+    public ResponseEntity<ReportPageResponse> runReportPage(@PathVariable Long reportId,
+                                                            @RequestParam(value = "cursor", required = false) String cursor,
+                                                            @RequestParam(value = "size", defaultValue = "100") int size,
+                                                            @RequestBody(required = false) Map<String, Object> filters) {
+        return ResponseEntity.ok(reportExecutionService.runReportPage(reportId, filters, cursor, size));
+    }
+
+    @PostMapping("/run/{reportId}/stream")
+    @PreAuthorize("hasAnyRole('ADMIN', 'TEST_MANAGER', 'TESTER')")
+    public ResponseEntity<StreamingResponseBody> streamReportNow(@PathVariable Long reportId,
+                                                                 @RequestParam(value = "format", defaultValue = "ndjson") String format,
+                                                                 @RequestBody(required = false) Map<String, Object> filters) {
+        // Resolve the report on the request thread; only the JDBC streaming runs in the async body
+        ReportGenerationService.QuerySpec spec = reportExecutionService.resolveRunQuery(reportId, filters);
+        reportExecutionService.checkStreamCost(spec);
+        boolean jsonArray = "json".equalsIgnoreCase(format);
+        ReportGenerationService.StreamFormat streamFormat = jsonArray
+                ? ReportGenerationService.StreamFormat.JSON_ARRAY
+                : ReportGenerationService.StreamFormat.NDJSON;
+
+        StreamingResponseBody body = out -> reportExecutionService.streamReport(spec, streamFormat, out);
+        return ResponseEntity.ok()
+                .contentType(jsonArray ? MediaType.APPLICATION_JSON : MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    private static ReportGenerationService.PreviewMode previewMode(String mode) {
+        return "sample".equalsIgnoreCase(mode)
+                ? ReportGenerationService.PreviewMode.SAMPLE
+                : ReportGenerationService.PreviewMode.FIRST;
     }
 }
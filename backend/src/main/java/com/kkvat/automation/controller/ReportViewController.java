@@ -1,8 +1,14 @@
 package com.kkvat.automation.controller;
 
+import com.kkvat.automation.dto.ReportIndexAdviceResponse;
 import com.kkvat.automation.dto.ReportViewResponse;
+import com.kkvat.automation.dto.ReportViewSummaryRequest;
+import com.kkvat.automation.dto.ReportViewSummaryResponse;
+import com.kkvat.automation.service.ReportIndexAdvisor;
+import com.kkvat.automation.service.ReportSummaryService;
 import com.kkvat.automation.service.ReportViewService;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -17,12 +23,67 @@ import java.util.List;
 @SecurityRequirement(name = "Bearer Authentication")
 public class ReportViewController {
     private final ReportViewService reportViewService;
+    private final ReportIndexAdvisor reportIndexAdvisor;
+    private final ReportSummaryService reportSummaryService;
 
     @GetMapping
     public ResponseEntity<List<ReportViewResponse>> getAllViews() {
         return ResponseEntity.ok(reportViewService.getAllViews());
     }
 
+    @PostMapping("/refresh")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Void> refreshCatalog() {
+        reportViewService.refreshCatalog();
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/index-advice")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<ReportIndexAdviceResponse>> getIndexAdvice(@RequestParam(defaultValue = "false") boolean refresh) {
+        return ResponseEntity.ok(reportIndexAdvisor.getAdvice(refresh));
+    }
+
+    @GetMapping("/{viewId}/index-advice")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<ReportIndexAdviceResponse>> getViewIndexAdvice(@PathVariable Long viewId,
+                                                                             @RequestParam(defaultValue = "false") boolean refresh) {
+        return ResponseEntity.ok(reportIndexAdvisor.getAdvice(viewId, refresh));
+    }
+
+    @PostMapping("/index-advice/{indexName}/apply")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ReportIndexAdviceResponse> applyIndexAdvice(@PathVariable String indexName) {
+        return ResponseEntity.ok(reportIndexAdvisor.apply(indexName));
+    }
+
+    @GetMapping("/{viewId}/summaries")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<ReportViewSummaryResponse>> getSummaries(@PathVariable Long viewId) {
+        return ResponseEntity.ok(reportSummaryService.getSummaries(viewId));
+    }
+
+    @PostMapping("/{viewId}/summaries")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ReportViewSummaryResponse> createSummary(@PathVariable Long viewId,
+                                                                   @Valid @RequestBody ReportViewSummaryRequest request) {
+        return ResponseEntity.ok(reportSummaryService.createSummary(viewId, request));
+    }
+
+    @PostMapping("/summaries/{id}/refresh")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ReportViewSummaryResponse> refreshSummary(@PathVariable Long id,
+                                                                    @RequestParam(defaultValue = "false") boolean rebuild) {
+        return ResponseEntity.ok(reportSummaryService.refresh(id, rebuild));
+    }
+
+    @DeleteMapping("/summaries/{id}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Void> deleteSummary(@PathVariable Long id) {
+        reportSummaryService.deleteSummary(id);
+        return ResponseEntity.noContent().build();
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<ReportViewResponse> getViewById(@PathVariable Long id) {
         return ResponseEntity.ok(reportViewService.getViewById(id));
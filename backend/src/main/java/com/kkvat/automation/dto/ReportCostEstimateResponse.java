@@ -0,0 +1,19 @@
+package com.kkvat.automation.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReportCostEstimateResponse {
+    private Long estimatedRows; // optimizer estimate of rows examined, null when unknown
+    private Boolean fullScan;
+    private String indexUsed;
+    private Boolean filesort;
+    private String verdict; // ALLOW, ASYNC_ONLY, LOW_PRIORITY or REJECT
+    private String message;
+}
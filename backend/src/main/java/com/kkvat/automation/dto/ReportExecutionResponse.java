@@ -18,12 +18,14 @@ public class ReportExecutionResponse {
     private String reportName;
     private Long scheduleId;
     private String executionType; // MANUAL, SCHEDULED, API
-    private String status; // PENDING, GENERATING, COMPLETED, FAILED
+    private String status; // PENDING, GENERATING, COMPLETED, FAILED, CANCELLED
     private LocalDateTime startTime;
     private LocalDateTime endTime;
     private Long durationMs;
     private String filePath;
     private Long fileSize;
+    private Long compressedSize;
+    private Boolean lowPriority;
     private Integer rowCount;
     private String errorMessage;
     private String executedByUsername;
@@ -44,6 +46,8 @@ public class ReportExecutionResponse {
                 .durationMs(execution.getDurationMs())
                 .filePath(execution.getFilePath())
                 .fileSize(execution.getFileSize())
+                .compressedSize(execution.getCompressedSize())
+                .lowPriority(execution.getLowPriority())
                 .rowCount(execution.getRowCount())
                 .errorMessage(execution.getErrorMessage())
                 .executedByUsername(execution.getExecutedBy() != null ? execution.getExecutedBy().getUsername() : null)
@@ -0,0 +1,33 @@
+package com.kkvat.automation.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReportIndexAdviceResponse {
+    private String indexName;
+    private Long viewId;
+    private String viewName;
+    private String tableName;
+    private List<String> columns; // equality columns first, then one range or the sort columns, then covered columns
+    private Boolean covering; // also holds every selected column, so the table rows are never read
+    private String source; // WORKLOAD (recent report runs) or VIEW_FIELDS (filterable/sortable flags)
+    private List<Long> reportIds;
+    private Long recentRuns;
+    private Long tableRows;
+    private Long currentEstimatedRows; // optimizer estimate today, null when unknown
+    private Long estimatedRowsAfter;
+    private Double estimatedScanReduction; // 0..1, share of examined rows the index would save
+    private Boolean avoidsFilesort;
+    private String ddl;
+    private Boolean created;
+    private LocalDateTime analyzedAt;
+}
@@ -0,0 +1,26 @@
+package com.kkvat.automation.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReportJobStatsResponse {
+    private Integer workers;
+    private Integer activeJobs;
+    private Integer activeLowPriority; // running jobs from the cost guard's low-priority lane
+    private Long queuedManual; // PENDING MANUAL and API runs
+    private Long queuedScheduled;
+    private Map<Long, Integer> runningPerUser;
+    private Long completedJobs;
+    private Long failedJobs;
+    private Long averageWaitMs; // time from enqueue to a worker picking the job up
+    private Long maxWaitMs;
+    private Long lastWaitMs;
+}
@@ -0,0 +1,20 @@
+package com.kkvat.automation.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReportPageResponse {
+    private List<Map<String, Object>> rows;
+    private Integer pageSize;
+    private Boolean hasMore;
+    private String nextCursor; // opaque; pass back as ?cursor= to fetch the next page
+}
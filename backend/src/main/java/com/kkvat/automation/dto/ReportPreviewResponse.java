@@ -0,0 +1,25 @@
+package com.kkvat.automation.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReportPreviewResponse {
+    private List<Map<String, Object>> rows;
+    private String mode; // FIRST or SAMPLE
+    private String method; // LIMIT, HEAD (leading rows of the table) or RANDOM_RANGES (random primary key ranges) or SUMMARY (a summary table)
+    private Integer limit;
+    private Boolean truncated; // more rows exist beyond the limit
+    private Boolean approximate; // computed from part of the table; counts and sums cover only the sample
+    private Double sampleFraction; // estimated share of the table sampled, null when unknown
+    private Boolean timedOut; // the time limit stopped the query; rows is then empty
+    private Long elapsedMs;
+}
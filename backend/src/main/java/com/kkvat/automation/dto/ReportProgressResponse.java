@@ -0,0 +1,19 @@
+package com.kkvat.automation.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReportProgressResponse {
+    private Long executionId;
+    private String status;
+    private Long rowsWritten;
+    private Long bytesWritten; // uncompressed CSV bytes so far
+    private Long elapsedMs;
+    private String message; // cancel or failure reason
+}
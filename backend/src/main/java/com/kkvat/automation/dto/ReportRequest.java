@@ -1,5 +1,7 @@
 package com.kkvat.automation.dto;
 
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import com.fasterxml.jackson.annotation.JsonAlias;
@@ -27,7 +29,7 @@ public class ReportRequest {
 
     @NotNull(message = "Selected columns are required")
     @JsonAlias({"selected_columns"})
-    private List<String> selectedColumns; // column names to include
+    private List<String> selectedColumns; // column names to include, or COUNT/SUM/AVG/MIN/MAX(field), COUNT(DISTINCT field), COUNT(*)
 
     @JsonAlias({"filtered_conditions"})
     private Object filterConditions; // filter rules as JSON object
@@ -40,5 +42,12 @@ public class ReportRequest {
     @JsonAlias({"is_public"})
     private Boolean isPublic = false;
 
+    @Min(value = 1, message = "Parallelism must be at least 1")
+    @Max(value = 32, message = "Parallelism must be at most 32")
+    private Integer parallelism; // concurrent range scans for CSV generation
+
+    @Min(value = 1, message = "Timeout must be at least 1 second")
+    private Integer timeoutSeconds; // generation time limit, overrides the global default
+
     
 }
@@ -25,6 +25,8 @@ public class ReportResponse {
     private Object sortConfig;
     private String reportType;
     private Boolean isPublic;
+    private Integer parallelism;
+    private Integer timeoutSeconds;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     private String createdByUsername;
@@ -44,6 +46,8 @@ public class ReportResponse {
                 .sortConfig(parseJsonObject(report.getSortConfig()))
                 .reportType(report.getReportType().toString())
                 .isPublic(report.getIsPublic())
+                .parallelism(report.getParallelism())
+                .timeoutSeconds(report.getTimeoutSeconds())
                 .createdAt(report.getCreatedAt())
                 .updatedAt(report.getUpdatedAt())
                 .createdByUsername(report.getCreatedBy() != null ? report.getCreatedBy().getUsername() : null)
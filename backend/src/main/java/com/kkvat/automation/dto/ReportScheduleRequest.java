@@ -33,4 +33,6 @@ public class ReportScheduleRequest {
     private String emailRecipients; // comma-separated emails
 
     private Boolean isActive = true;
+
+    private String incrementalMode; // FULL, DELTA, MERGE
 }
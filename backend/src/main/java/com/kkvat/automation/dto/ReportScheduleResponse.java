@@ -26,6 +26,9 @@ public class ReportScheduleResponse {
     private Boolean isActive;
     private LocalDateTime lastExecuted;
     private LocalDateTime nextExecution;
+    private String incrementalMode;
+    private String watermarkColumn;
+    private String watermarkValue;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     private String createdByUsername;
@@ -47,6 +50,9 @@ public class ReportScheduleResponse {
                 .isActive(schedule.getIsActive())
                 .lastExecuted(schedule.getLastExecuted())
                 .nextExecution(schedule.getNextExecution())
+                .incrementalMode(schedule.getIncrementalMode() != null ? schedule.getIncrementalMode().toString() : null)
+                .watermarkColumn(schedule.getWatermarkColumn())
+                .watermarkValue(schedule.getWatermarkValue())
                 .createdAt(schedule.getCreatedAt())
                 .updatedAt(schedule.getUpdatedAt())
                 .createdByUsername(schedule.getCreatedBy() != null ? schedule.getCreatedBy().getUsername() : null)
@@ -0,0 +1,22 @@
+package com.kkvat.automation.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReportViewSummaryRequest {
+    @NotEmpty(message = "At least one group field is required")
+    private List<String> groupFields; // field or display names the summary groups by
+
+    private List<String> measureFields; // numeric fields kept as sum, count, min and max per group
+
+    private String watermarkColumn; // last-modified column of the base table, defaults to updated_at
+}
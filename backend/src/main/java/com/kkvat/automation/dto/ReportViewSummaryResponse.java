@@ -0,0 +1,29 @@
+package com.kkvat.automation.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReportViewSummaryResponse {
+    private Long id;
+    private Long viewId;
+    private String summaryTable;
+    private List<String> groupFields;
+    private List<String> measureFields;
+    private String watermarkColumn;
+    private String watermarkValue; // highest watermark folded in so far
+    private Long rowCount; // groups in the summary
+    private LocalDateTime lastRefreshedAt;
+    private LocalDateTime lastRebuiltAt;
+    private String lastError;
+    private Boolean isActive;
+    private LocalDateTime createdAt;
+}
@@ -4,6 +4,7 @@ import org.springframework.jdbc.core.BeanPropertyRowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Map;
@@ -32,6 +33,7 @@ public class GenericEntityRepository {
         return jdbc.update(sql, mp);
     }
 
+    @Transactional(readOnly = true)
     public List<Map<String, Object>> findAll(String table) {
         String sql = "SELECT * FROM " + table;
         return jdbc.queryForList(sql, Map.of());
@@ -41,6 +43,7 @@ public class GenericEntityRepository {
      * Find a paginated page of rows with optional text search across text columns and optional sort.
      * Returns a map with keys: total (long) and items (List<Map<String,Object>>)
      */
+    @Transactional(readOnly = true)
     public Map<String, Object> findPage(String table, int page, int size, String sortColumn, String sortDir, String q) {
         int offset = (page) * size;
         MapSqlParameterSource params = new MapSqlParameterSource();
@@ -80,6 +83,7 @@ public class GenericEntityRepository {
         return Map.of("total", total, "items", items);
     }
 
+    @Transactional(readOnly = true)
     public Map<String, Object> findById(String table, String pkName, Object id) {
         String sql = "SELECT * FROM " + table + " WHERE " + pkName + " = :id";
         List<Map<String, Object>> rows = jdbc.queryForList(sql, Map.of("id", id));
@@ -36,7 +36,7 @@ public class Report {
     
     @JdbcTypeCode(SqlTypes.JSON)
     @Column(name = "selected_columns", nullable = false, columnDefinition = "JSON")
-    private String selectedColumns; // JSON array: ["col1", "col2", "col3"]
+    private String selectedColumns; // JSON array: ["col1", "col2", "SUM(col3)"], aggregates group by the rest
     
     @JdbcTypeCode(SqlTypes.JSON)
     @Column(name = "filter_conditions", columnDefinition = "JSON")
@@ -50,6 +50,12 @@ public class Report {
     @Column(name = "report_type", nullable = false)
     private ReportType reportType;
     
+    @Column(name = "parallelism")
+    private Integer parallelism; // concurrent range scans for CSV generation, null = configured default
+
+    @Column(name = "timeout_seconds")
+    private Integer timeoutSeconds; // generation is cancelled after this long, null = configured default
+    
     @Column(name = "is_public", nullable = false)
     @Builder.Default
     private Boolean isPublic = false;
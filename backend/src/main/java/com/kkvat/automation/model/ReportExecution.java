@@ -36,7 +36,16 @@ public class ReportExecution {
 
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
-    private Status status; // PENDING, GENERATING, COMPLETED, FAILED
+    private Status status; // PENDING, GENERATING, COMPLETED, FAILED, CANCELLED
+
+    @Column(name = "low_priority")
+    private Boolean lowPriority; // expensive per the cost guard, runs in the low-priority lane
+
+    @Column(name = "owner_node", length = 100)
+    private String ownerNode; // node running the job while GENERATING
+
+    @Column(name = "lease_expires_at")
+    private LocalDateTime leaseExpiresAt; // renewed by the owner; past it, any node may requeue the job
 
     @Column(name = "start_time", nullable = false)
     private LocalDateTime startTime;
@@ -53,6 +62,9 @@ public class ReportExecution {
     @Column(name = "file_size")
     private Long fileSize; // size in bytes
 
+    @Column(name = "compressed_size")
+    private Long compressedSize; // bytes on disk when the file is gzipped
+
     @Column(name = "row_count")
     private Integer rowCount; // number of rows in report
 
@@ -72,6 +84,6 @@ public class ReportExecution {
     }
 
     public enum Status {
-        PENDING, GENERATING, COMPLETED, FAILED
+        PENDING, GENERATING, COMPLETED, FAILED, CANCELLED
     }
 }
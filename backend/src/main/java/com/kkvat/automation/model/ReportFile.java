@@ -0,0 +1,44 @@
+package com.kkvat.automation.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * One stored report output, shared by every execution whose output has the same content.
+ */
+@Entity
+@Table(name = "report_files")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReportFile {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "content_hash", nullable = false, unique = true, length = 64)
+    private String contentHash; // SHA-256 of the stored bytes
+
+    @Column(name = "file_path", nullable = false, length = 500)
+    private String filePath;
+
+    @Column(name = "size_bytes", nullable = false)
+    private Long sizeBytes; // bytes on disk
+
+    @Column(name = "ref_count", nullable = false)
+    private Integer refCount; // executions pointing at file_path
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "last_accessed_at", nullable = false)
+    private LocalDateTime lastAccessedAt;
+}
@@ -55,6 +55,20 @@ public class ReportSchedule {
     @Column(name = "next_execution")
     private LocalDateTime nextExecution;
 
+    @Enumerated(EnumType.STRING)
+    @Column(name = "incremental_mode", length = 10)
+    @Builder.Default
+    private IncrementalMode incrementalMode = IncrementalMode.FULL;
+
+    @Column(name = "watermark_column", length = 100)
+    private String watermarkColumn; // updated_at-style column, or the primary key of an append-only table
+
+    @Column(name = "watermark_value", length = 64)
+    private String watermarkValue; // highest watermark already exported
+
+    @Column(name = "watermark_report_version")
+    private LocalDateTime watermarkReportVersion; // report updatedAt the watermark was taken for
+
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -74,4 +88,10 @@ public class ReportSchedule {
     public enum Frequency {
         DAILY, WEEKLY, MONTHLY, QUARTERLY, ANNUALLY
     }
+
+    public enum IncrementalMode {
+        FULL, // re-export everything
+        DELTA, // only rows changed since the last run
+        MERGE // previous output with changed rows merged in
+    }
 }
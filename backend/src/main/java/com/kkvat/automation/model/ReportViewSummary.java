@@ -0,0 +1,70 @@
+package com.kkvat.automation.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+
+/**
+ * A materialized group-by over a report view, stored in its own table and refreshed from the base
+ * table's watermark column. Aggregate reports grouping and filtering on a subset of the group
+ * fields read it instead of the base table.
+ */
+@Entity
+@Table(name = "report_view_summaries")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReportViewSummary {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "view_id", nullable = false)
+    private Long viewId;
+
+    @Column(name = "summary_table", nullable = false, unique = true, length = 64)
+    private String summaryTable;
+
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "group_fields", nullable = false, columnDefinition = "JSON")
+    private String groupFields; // JSON array of physical column names
+
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "measure_fields", columnDefinition = "JSON")
+    private String measureFields; // JSON array of columns kept as sum_/count_/min_/max_ columns; a row count is always kept
+
+    @Column(name = "watermark_column", length = 100)
+    private String watermarkColumn; // e.g. updated_at; null only on legacy rows declared before watermarks were required
+
+    @Column(name = "watermark_value", length = 64)
+    private String watermarkValue; // highest watermark folded in so far
+
+    @Column(name = "last_refreshed_at")
+    private LocalDateTime lastRefreshedAt;
+
+    @Column(name = "last_rebuilt_at")
+    private LocalDateTime lastRebuiltAt;
+
+    @Column(name = "row_count")
+    private Long rowCount;
+
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+
+    @Column(name = "is_active", nullable = false)
+    @Builder.Default
+    private Boolean isActive = true;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
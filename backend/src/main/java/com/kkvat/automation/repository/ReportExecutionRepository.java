@@ -3,11 +3,18 @@ package com.kkvat.automation.repository;
 import com.kkvat.automation.model.ReportExecution;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ReportExecutionRepository extends JpaRepository<ReportExecution, Long> {
@@ -16,4 +23,138 @@ public interface ReportExecutionRepository extends JpaRepository<ReportExecution
     List<ReportExecution> findByScheduleId(Long scheduleId);
     List<ReportExecution> findByStatusAndCreatedAtBetween(ReportExecution.Status status, LocalDateTime start, LocalDateTime end);
     Page<ReportExecution> findByExecutedByIdOrderByCreatedAtDesc(Long userId, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"report", "report.view", "executedBy", "schedule"})
+    Optional<ReportExecution> findWithReportById(Long id);
+
+    Optional<ReportExecution> findFirstByScheduleIdAndStatusOrderByCreatedAtDesc(Long scheduleId, ReportExecution.Status status);
+
+    long countByStatus(ReportExecution.Status status);
+
+    long countByStatusAndExecutionType(ReportExecution.Status status, ReportExecution.ExecutionType executionType);
+
+    long countByStatusAndExecutedById(ReportExecution.Status status, Long userId);
+
+    /**
+     * Head of the job queue as (id, executedBy id, createdAt, lowPriority): foreground runs before the
+     * background type, low-priority runs last, then FIFO.
+     */
+    @Query("SELECT e.id, e.executedBy.id, e.createdAt, e.lowPriority FROM ReportExecution e WHERE e.status = :status " +
+            "ORDER BY CASE WHEN e.lowPriority = true THEN 2 WHEN e.executionType = :background THEN 1 ELSE 0 END, " +
+            "e.createdAt, e.id")
+    List<Object[]> findQueue(@Param("status") ReportExecution.Status status,
+                             @Param("background") ReportExecution.ExecutionType background, Pageable pageable);
+
+    /**
+     * Compare-and-set claim of a queued job for a node, with its first lease; returns 0 when another
+     * worker or node got there first.
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE ReportExecution e SET e.status = :to, e.startTime = :startTime, e.ownerNode = :node, " +
+            "e.leaseExpiresAt = :leaseExpiresAt WHERE e.id = :id AND e.status = :from")
+    int claim(@Param("id") Long id, @Param("from") ReportExecution.Status from,
+              @Param("to") ReportExecution.Status to, @Param("startTime") LocalDateTime startTime,
+              @Param("node") String node, @Param("leaseExpiresAt") LocalDateTime leaseExpiresAt);
+
+    /**
+     * Extend the leases of the jobs a node is still running.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE ReportExecution e SET e.leaseExpiresAt = :leaseExpiresAt " +
+            "WHERE e.id IN :ids AND e.status = :status AND e.ownerNode = :node")
+    int renewLeases(@Param("ids") Collection<Long> ids, @Param("status") ReportExecution.Status status,
+                    @Param("node") String node, @Param("leaseExpiresAt") LocalDateTime leaseExpiresAt);
+
+    /**
+     * Put running jobs back in the queue when their owner is the given node (restarted, so nothing of
+     * its own is running) or their lease has expired (the owner stopped renewing). Rows claimed without a
+     * lease count as expired. A null node matches expired leases only.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE ReportExecution e SET e.status = :to, e.ownerNode = NULL, e.leaseExpiresAt = NULL " +
+            "WHERE e.status = :from AND (e.ownerNode = :node OR e.leaseExpiresAt IS NULL OR e.leaseExpiresAt < :now)")
+    int requeueAbandoned(@Param("from") ReportExecution.Status from, @Param("to") ReportExecution.Status to,
+                         @Param("node") String node, @Param("now") LocalDateTime now);
+
+    /**
+     * Record a finished run, as long as the execution is still running on the given node. Returns 0 when
+     * it was cancelled meanwhile or its lease lapsed and it was requeued; the caller then discards its output.
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE ReportExecution e SET e.status = :to, e.endTime = :endTime, e.durationMs = :durationMs, " +
+            "e.filePath = :filePath, e.fileSize = :fileSize, e.compressedSize = :compressedSize, e.rowCount = :rowCount, " +
+            "e.errorMessage = :errorMessage, e.ownerNode = NULL, e.leaseExpiresAt = NULL " +
+            "WHERE e.id = :id AND e.status = :from AND e.ownerNode = :node")
+    int finish(@Param("id") Long id, @Param("node") String node, @Param("from") ReportExecution.Status from,
+               @Param("to") ReportExecution.Status to, @Param("endTime") LocalDateTime endTime,
+               @Param("durationMs") Long durationMs, @Param("filePath") String filePath,
+               @Param("fileSize") Long fileSize, @Param("compressedSize") Long compressedSize,
+               @Param("rowCount") Integer rowCount, @Param("errorMessage") String errorMessage);
+
+    /**
+     * Mark a queued or running execution CANCELLED; the node running it notices within a second.
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE ReportExecution e SET e.status = :cancelled, e.endTime = :endTime, e.errorMessage = :reason " +
+            "WHERE e.id = :id AND e.status IN :from")
+    int cancel(@Param("id") Long id, @Param("from") Collection<ReportExecution.Status> from,
+               @Param("cancelled") ReportExecution.Status cancelled, @Param("endTime") LocalDateTime endTime,
+               @Param("reason") String reason);
+
+    /**
+     * (id, filePath) of executions whose output is older than the cutoff, oldest first.
+     */
+    @Query("SELECT e.id, e.filePath FROM ReportExecution e WHERE e.filePath IS NOT NULL AND e.createdAt < :before " +
+            "ORDER BY e.createdAt, e.id")
+    List<Object[]> findStoredFilesCreatedBefore(@Param("before") LocalDateTime before, Pageable pageable);
+
+    /**
+     * (id, filePath, bytes on disk) of a user's stored outputs other than keepId, oldest first.
+     */
+    @Query("SELECT e.id, e.filePath, COALESCE(e.compressedSize, e.fileSize) FROM ReportExecution e " +
+            "WHERE e.executedBy.id = :userId AND e.filePath IS NOT NULL AND (:keepId IS NULL OR e.id <> :keepId) " +
+            "ORDER BY e.createdAt, e.id")
+    List<Object[]> findStoredFilesOfUser(@Param("userId") Long userId, @Param("keepId") Long keepId, Pageable pageable);
+
+    /**
+     * Ids of a user's stored outputs, most recently completed first.
+     */
+    @Query("SELECT e.id FROM ReportExecution e WHERE e.executedBy.id = :userId AND e.filePath IS NOT NULL " +
+            "ORDER BY e.endTime DESC, e.id DESC")
+    List<Long> findLatestStoredOfUser(@Param("userId") Long userId, Pageable pageable);
+
+    /**
+     * Bytes charged to a user: every output they hold counts in full, even when deduplicated.
+     */
+    @Query("SELECT COALESCE(SUM(COALESCE(e.compressedSize, e.fileSize)), 0) FROM ReportExecution e " +
+            "WHERE e.executedBy.id = :userId AND e.filePath IS NOT NULL")
+    long storedBytesOfUser(@Param("userId") Long userId);
+
+    @Query("SELECT e.executedBy.id FROM ReportExecution e WHERE e.filePath IS NOT NULL GROUP BY e.executedBy.id " +
+            "HAVING SUM(COALESCE(e.compressedSize, e.fileSize)) > :quota")
+    List<Long> findUsersOverQuota(@Param("quota") long quota);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE ReportExecution e SET e.filePath = NULL WHERE e.id = :id AND e.filePath = :path")
+    int clearFilePath(@Param("id") Long id, @Param("path") String path);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE ReportExecution e SET e.filePath = NULL WHERE e.filePath = :path")
+    int clearFilePath(@Param("path") String path);
+
+    /**
+     * (reportId, runs) since the given time, the workload the index advisor weighs suggestions by.
+     */
+    @Query("SELECT e.report.id, COUNT(e) FROM ReportExecution e WHERE e.createdAt >= :since GROUP BY e.report.id")
+    List<Object[]> countRunsByReportSince(@Param("since") LocalDateTime since);
+
+    @Query("SELECT e.id FROM ReportExecution e WHERE e.id IN :ids AND e.status = :status")
+    List<Long> findIdsByIdInAndStatus(@Param("ids") Collection<Long> ids, @Param("status") ReportExecution.Status status);
 }
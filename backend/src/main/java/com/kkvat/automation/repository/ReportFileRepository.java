@@ -0,0 +1,68 @@
+package com.kkvat.automation.repository;
+
+import com.kkvat.automation.model.ReportFile;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ReportFileRepository extends JpaRepository<ReportFile, Long> {
+    Optional<ReportFile> findByContentHash(String contentHash);
+
+    Optional<ReportFile> findByFilePath(String filePath);
+
+    boolean existsByFilePath(String filePath);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE ReportFile f SET f.refCount = f.refCount + 1, f.lastAccessedAt = :now WHERE f.contentHash = :hash")
+    int retainByHash(@Param("hash") String hash, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE ReportFile f SET f.refCount = f.refCount + 1, f.lastAccessedAt = :now WHERE f.filePath = :path")
+    int retainByPath(@Param("path") String path, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE ReportFile f SET f.refCount = f.refCount - 1 WHERE f.filePath = :path AND f.refCount > 0")
+    int release(@Param("path") String path);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE ReportFile f SET f.lastAccessedAt = :now WHERE f.filePath = :path")
+    int touch(@Param("path") String path, @Param("now") LocalDateTime now);
+
+    /**
+     * Remove the row if nothing references it any more; the caller deletes the file when this returns 1.
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ReportFile f WHERE f.id = :id AND f.refCount = 0")
+    int deleteIfUnreferenced(@Param("id") Long id);
+
+    /**
+     * Recompute reference counts from report_executions, repairing counts left behind by crashed writers.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE ReportFile f SET f.refCount = (SELECT COUNT(e) FROM ReportExecution e WHERE e.filePath = f.filePath)")
+    int recountReferences();
+
+    @Query("SELECT COALESCE(SUM(f.sizeBytes), 0) FROM ReportFile f")
+    long totalSize();
+
+    @Query("SELECT f FROM ReportFile f WHERE f.refCount = 0 AND f.lastAccessedAt < :before")
+    List<ReportFile> findUnreferenced(@Param("before") LocalDateTime before, Pageable pageable);
+
+    @Query("SELECT f FROM ReportFile f ORDER BY f.lastAccessedAt, f.id")
+    List<ReportFile> findLeastRecentlyUsed(Pageable pageable);
+}
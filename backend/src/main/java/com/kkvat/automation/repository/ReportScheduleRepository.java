@@ -2,7 +2,11 @@ package com.kkvat.automation.repository;
 
 import com.kkvat.automation.model.ReportSchedule;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -13,4 +17,27 @@ public interface ReportScheduleRepository extends JpaRepository<ReportSchedule,
     List<ReportSchedule> findByIsActiveTrue();
     List<ReportSchedule> findByIsActiveTrueAndNextExecutionBefore(LocalDateTime dateTime);
     List<ReportSchedule> findByCreatedById(Long createdById);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE ReportSchedule s SET s.watermarkColumn = :column, s.watermarkValue = :value, " +
+            "s.watermarkReportVersion = :reportVersion WHERE s.id = :id")
+    int updateWatermark(@Param("id") Long id, @Param("column") String column, @Param("value") String value,
+                        @Param("reportVersion") LocalDateTime reportVersion);
+
+    /**
+     * Id and nextExecution of active schedules due before {@code until}; served from idx_next_execution.
+     */
+    @Query("SELECT s.id, s.nextExecution FROM ReportSchedule s WHERE s.isActive = true AND s.nextExecution < :until")
+    List<Object[]> findActiveDueBefore(@Param("until") LocalDateTime until);
+
+    /**
+     * Claim a due run by moving nextExecution on; succeeds on exactly one node for a given due time.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE ReportSchedule s SET s.nextExecution = :next, s.lastExecuted = :now " +
+            "WHERE s.id = :id AND s.isActive = true AND s.nextExecution = :expected")
+    int claim(@Param("id") Long id, @Param("expected") LocalDateTime expected, @Param("next") LocalDateTime next,
+              @Param("now") LocalDateTime now);
 }
@@ -2,6 +2,7 @@ package com.kkvat.automation.repository;
 
 import com.kkvat.automation.model.ReportViewField;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -11,4 +12,7 @@ public interface ReportViewFieldRepository extends JpaRepository<ReportViewField
     List<ReportViewField> findByViewId(Long viewId);
     List<ReportViewField> findByViewIdAndIsFilterableTrue(Long viewId);
     List<ReportViewField> findByViewIdAndIsSortableTrue(Long viewId);
+
+    @Query("SELECT f FROM ReportViewField f JOIN FETCH f.view ORDER BY f.view.id, f.id")
+    List<ReportViewField> findAllWithView();
 }
@@ -0,0 +1,13 @@
+package com.kkvat.automation.repository;
+
+import com.kkvat.automation.model.ReportViewSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ReportViewSummaryRepository extends JpaRepository<ReportViewSummary, Long> {
+    List<ReportViewSummary> findByViewId(Long viewId);
+    List<ReportViewSummary> findByIsActiveTrue();
+}
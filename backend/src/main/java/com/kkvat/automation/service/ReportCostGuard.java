@@ -0,0 +1,124 @@
+package com.kkvat.automation.service;
+
+import com.kkvat.automation.dto.ReportCostEstimateResponse;
+import com.kkvat.automation.exception.BadRequestException;
+import com.kkvat.automation.model.Report;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Admission control for report queries based on the optimizer's estimate. Full scans are weighted
+ * up since they also evict the buffer pool. Expensive queries may not run interactively, very
+ * expensive ones are queued in the low-priority lane and the worst are rejected outright.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ReportCostGuard {
+    private final ReportGenerationService reportGenerationService;
+
+    @Value("${report.cost-guard.enabled:true}")
+    private boolean enabled;
+
+    @Value("${report.cost-guard.async-rows:500000}")
+    private long asyncRows;
+
+    @Value("${report.cost-guard.low-priority-rows:5000000}")
+    private long lowPriorityRows;
+
+    @Value("${report.cost-guard.reject-rows:100000000}")
+    private long rejectRows;
+
+    @Value("${report.cost-guard.full-scan-weight:2.0}")
+    private double fullScanWeight;
+
+    /** Ordered from cheapest to most restrictive. */
+    public enum Verdict {
+        ALLOW, ASYNC_ONLY, LOW_PRIORITY, REJECT
+    }
+
+    public static class Assessment {
+        private final ReportGenerationService.QueryCost cost;
+        private final Verdict verdict;
+        private final String message;
+
+        Assessment(ReportGenerationService.QueryCost cost, Verdict verdict, String message) {
+            this.cost = cost;
+            this.verdict = verdict;
+            this.message = message;
+        }
+
+        public Verdict getVerdict() {
+            return verdict;
+        }
+
+        public boolean isAtLeast(Verdict other) {
+            return verdict.compareTo(other) >= 0;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public ReportCostEstimateResponse toResponse() {
+            return ReportCostEstimateResponse.builder()
+                    .estimatedRows(cost != null ? cost.getEstimatedRows() : null)
+                    .fullScan(cost != null ? cost.getFullScan() : null)
+                    .indexUsed(cost != null ? cost.getIndexUsed() : null)
+                    .filesort(cost != null ? cost.getFilesort() : null)
+                    .verdict(verdict.name())
+                    .message(message)
+                    .build();
+        }
+    }
+
+    public Assessment assess(Report report) {
+        if (!enabled) return new Assessment(null, Verdict.ALLOW, null);
+        try {
+            return classify(reportGenerationService.explain(report));
+        } catch (Exception e) {
+            log.debug("Could not estimate report {}: {}", report.getId(), e.getMessage());
+            return new Assessment(null, Verdict.ALLOW, null);
+        }
+    }
+
+    public Assessment assess(ReportGenerationService.QuerySpec spec) {
+        if (!enabled) return new Assessment(null, Verdict.ALLOW, null);
+        return classify(reportGenerationService.explain(spec));
+    }
+
+    /**
+     * Throw unless the query may run in the given mode, e.g. ASYNC_ONLY for a queued run.
+     */
+    public void require(Assessment assessment, Verdict allowedUpTo) {
+        if (assessment.getVerdict().compareTo(allowedUpTo) > 0) {
+            throw new BadRequestException(assessment.getMessage());
+        }
+    }
+
+    private Assessment classify(ReportGenerationService.QueryCost cost) {
+        if (cost.getEstimatedRows() == null) {
+            // no estimate, nothing to judge on
+            return new Assessment(cost, Verdict.ALLOW, null);
+        }
+        long rows = cost.getEstimatedRows();
+        double weighted = Boolean.TRUE.equals(cost.getFullScan()) ? rows * fullScanWeight : rows;
+        String scan = Boolean.TRUE.equals(cost.getFullScan()) ? "a full table scan of ~" + rows + " rows"
+                : "~" + rows + " rows" + (cost.getIndexUsed() != null ? " via index " + cost.getIndexUsed() : "");
+        if (weighted >= rejectRows) {
+            return new Assessment(cost, Verdict.REJECT,
+                    "Report is too expensive to run (" + scan + "); add filters on indexed columns");
+        }
+        if (weighted >= lowPriorityRows) {
+            return new Assessment(cost, Verdict.LOW_PRIORITY,
+                    "Report needs " + scan + "; it can only be generated as a file and is queued at low priority");
+        }
+        if (weighted >= asyncRows) {
+            return new Assessment(cost, Verdict.ASYNC_ONLY,
+                    "Report needs " + scan + "; generate it as a file instead of running it interactively");
+        }
+        return new Assessment(cost, Verdict.ALLOW, null);
+    }
+}
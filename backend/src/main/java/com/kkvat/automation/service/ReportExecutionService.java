@@ -1,7 +1,15 @@
 package com.kkvat.automation.service;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.kkvat.automation.dto.ReportCostEstimateResponse;
 import com.kkvat.automation.dto.ReportExecutionResponse;
+import com.kkvat.automation.dto.ReportJobStatsResponse;
+import com.kkvat.automation.dto.ReportPageResponse;
+import com.kkvat.automation.dto.ReportPreviewResponse;
+import com.kkvat.automation.dto.ReportRequest;
+import com.kkvat.automation.exception.BadRequestException;
 import com.kkvat.automation.exception.ResourceNotFoundException;
+import com.kkvat.automation.exception.UnauthorizedException;
 import com.kkvat.automation.model.Report;
 import com.kkvat.automation.model.ReportExecution;
 import com.kkvat.automation.model.ReportSchedule;
@@ -14,15 +22,19 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Service
@@ -36,6 +48,12 @@ public class ReportExecutionService {
     private final ReportScheduleRepository reportScheduleRepository;
     private final UserRepository userRepository;
     private final ReportGenerationService reportGenerationService;
+    private final ReportQueryPlanner reportQueryPlanner;
+    private final ReportJobEngine reportJobEngine;
+    private final ReportRunTracker reportRunTracker;
+    private final ReportCostGuard reportCostGuard;
+    private final ReportResultCache reportResultCache;
+    private final ReportResultSpooler reportResultSpooler;
     private final AuditService auditService;
     private final com.fasterxml.jackson.databind.ObjectMapper objectMapper;
 
@@ -50,6 +68,43 @@ public class ReportExecutionService {
         return ReportExecutionResponse.from(execution);
     }
 
+    /**
+     * Cancel a queued or running execution. A running query is stopped on the server, on whichever node runs it.
+     * Only the user who started it, an admin or a test manager may cancel it.
+     */
+    public ReportExecutionResponse cancelExecution(Long id) {
+        ReportExecution execution = reportExecutionRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Execution not found with id: " + id));
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        boolean manager = authentication.getAuthorities().stream()
+                .anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN") || a.getAuthority().equals("ROLE_TEST_MANAGER"));
+        if (!manager && (execution.getExecutedBy() == null
+                || !execution.getExecutedBy().getId().equals(getCurrentUserId()))) {
+            throw new UnauthorizedException("Not allowed to cancel execution " + id);
+        }
+        String reason = "Cancelled by " + authentication.getName();
+        int updated = reportExecutionRepository.cancel(id,
+                List.of(ReportExecution.Status.PENDING, ReportExecution.Status.GENERATING),
+                ReportExecution.Status.CANCELLED, LocalDateTime.now(), reason);
+        if (updated == 0) {
+            throw new BadRequestException("Execution " + id + " is already " + execution.getStatus());
+        }
+        reportRunTracker.cancel(id, reason);
+        auditService.logSuccess("CANCEL", "REPORT_EXECUTION", id, reason);
+        return ReportExecutionResponse.from(reportExecutionRepository.findById(id).orElse(execution));
+    }
+
+    /**
+     * Live progress of an execution, pushed about once a second until it finishes.
+     */
+    @Transactional(readOnly = true)
+    public SseEmitter streamProgress(Long id) {
+        if (!reportExecutionRepository.existsById(id)) {
+            throw new ResourceNotFoundException("Execution not found with id: " + id);
+        }
+        return reportRunTracker.subscribe(id);
+    }
+
     public Page<ReportExecutionResponse> getMyExecutions(Pageable pageable) {
         Long userId = getCurrentUserId();
         Page<ReportExecution> executions = reportExecutionRepository.findByExecutedByIdOrderByCreatedAtDesc(userId, pageable);
@@ -63,6 +118,7 @@ public class ReportExecutionService {
         Long userId = getCurrentUserId();
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        reportJobEngine.checkQueueCapacity(userId);
 
         ReportExecution execution = ReportExecution.builder()
                 .report(report)
@@ -72,11 +128,30 @@ public class ReportExecutionService {
                 .executedBy(user)
                 .build();
 
+        // identical output for unchanged data is already on disk: complete without queueing
+        ReportGenerationService.ReportResult cached = cachedResult(report, user);
+        if (cached != null) {
+            LocalDateTime now = LocalDateTime.now();
+            execution.setStatus(ReportExecution.Status.COMPLETED);
+            execution.setEndTime(now);
+            execution.setDurationMs(java.time.temporal.ChronoUnit.MILLIS.between(execution.getStartTime(), now));
+            execution.setFilePath(cached.getFilePath());
+            execution.setFileSize(cached.getFileSize());
+            execution.setCompressedSize(cached.getCompressedSize());
+            execution.setRowCount(cached.getRowCount());
+        } else {
+            ReportCostGuard.Assessment cost = reportCostGuard.assess(report);
+            reportCostGuard.require(cost, ReportCostGuard.Verdict.LOW_PRIORITY);
+            execution.setLowPriority(cost.isAtLeast(ReportCostGuard.Verdict.LOW_PRIORITY));
+        }
+
         ReportExecution saved = reportExecutionRepository.save(execution);
-        
-        // Trigger async report generation
-        generateReportAsync(saved.getId(), report, user);
-        
+
+        if (cached == null) {
+            // Queued as PENDING; a report worker picks it up once this transaction commits
+            reportJobEngine.wakeAfterCommit();
+        }
+
         auditService.logSuccess("EXECUTE", "REPORT", reportId, "Triggered manual report generation");
         return ReportExecutionResponse.from(saved);
     }
@@ -99,55 +174,32 @@ public class ReportExecutionService {
                 .executedBy(user)
                 .build();
 
+        ReportCostGuard.Assessment cost = reportCostGuard.assess(report);
+        if (cost.isAtLeast(ReportCostGuard.Verdict.REJECT)) {
+            // nobody is waiting on a scheduled run, so the refusal is recorded on the execution
+            execution.setStatus(ReportExecution.Status.FAILED);
+            execution.setEndTime(LocalDateTime.now());
+            execution.setErrorMessage(cost.getMessage());
+        } else {
+            execution.setLowPriority(cost.isAtLeast(ReportCostGuard.Verdict.LOW_PRIORITY));
+        }
+
         ReportExecution saved = reportExecutionRepository.save(execution);
-        
-        // Update schedule's last executed time
-        schedule.setLastExecuted(LocalDateTime.now());
-        reportScheduleRepository.save(schedule);
-        
-        // Trigger async report generation
-        generateReportAsync(saved.getId(), report, user);
-        
+        // lastExecuted and nextExecution were already moved on by the dispatcher's claim
+        if (saved.getStatus() == ReportExecution.Status.PENDING) {
+            reportJobEngine.wakeAfterCommit();
+        }
+
         auditService.logSuccess("EXECUTE", "REPORT_SCHEDULE", scheduleId, "Triggered scheduled report generation");
         return ReportExecutionResponse.from(saved);
     }
 
-    @Async
-    public void generateReportAsync(Long executionId, Report report, User user) {
+    private ReportGenerationService.ReportResult cachedResult(Report report, User user) {
         try {
-            ReportExecution execution = reportExecutionRepository.findById(executionId)
-                    .orElseThrow();
-
-            execution.setStatus(ReportExecution.Status.GENERATING);
-            reportExecutionRepository.save(execution);
-
-            // Generate CSV report
-            ReportGenerationService.ReportResult result = reportGenerationService.generateCsvReport(report, user);
-
-            // Update execution with results
-            execution.setStatus(ReportExecution.Status.COMPLETED);
-            execution.setEndTime(LocalDateTime.now());
-            long durationMs = java.time.temporal.ChronoUnit.MILLIS.between(execution.getStartTime(), execution.getEndTime());
-            execution.setDurationMs(durationMs);
-            execution.setFilePath(result.getFilePath());
-            execution.setFileSize(result.getFileSize());
-            execution.setRowCount(result.getRowCount());
-
-            reportExecutionRepository.save(execution);
-            
-            auditService.logSuccess("GENERATE", "REPORT", report.getId(), 
-                    "Report generated successfully: " + result.getRowCount() + " rows");
-
+            return reportGenerationService.cachedCsvReport(report, user).orElse(null);
         } catch (Exception e) {
-            log.error("Error generating report", e);
-            ReportExecution execution = reportExecutionRepository.findById(executionId).orElse(null);
-            if (execution != null) {
-                execution.setStatus(ReportExecution.Status.FAILED);
-                execution.setEndTime(LocalDateTime.now());
-                execution.setErrorMessage(e.getMessage());
-                reportExecutionRepository.save(execution);
-            }
-            auditService.logFailure("GENERATE", "REPORT", report.getId(), e.getMessage());
+            log.warn("Result cache lookup failed for report {}: {}", report.getId(), e.getMessage());
+            return null;
         }
     }
 
@@ -160,10 +212,190 @@ public class ReportExecutionService {
         reportExecutionRepository.save(execution);
     }
 
-    public List<Map<String, Object>> runReportNow(Long reportId, Map<String, Object> overrides) {
+    public ReportJobStatsResponse getJobStats() {
+        return reportJobEngine.getStats();
+    }
+
+    /**
+     * Run a report on the request thread. Rows beyond the memory budget are spilled to disk; write the
+     * result with writeRows, which releases it.
+     */
+    public ReportResultBuffer runReportNow(Long reportId, Map<String, Object> overrides) {
+        ReportGenerationService.QuerySpec spec = resolveRunQuery(reportId, overrides);
+        try {
+            String cacheKey = reportResultCache.rowsKey(spec);
+            Optional<List<Map<String, Object>>> cached = reportResultCache.getRows(cacheKey);
+            if (cached.isPresent()) {
+                return ReportResultBuffer.of(ReportRowSet.of(cached.get()));
+            }
+            // interactive runs hold a request thread, refuse anything the guard sends to the queue
+            reportCostGuard.require(reportCostGuard.assess(spec), ReportCostGuard.Verdict.ALLOW);
+            ReportResultBuffer rows = reportGenerationService.bufferRawQuery(spec.getViewId(), spec.getTableName(), spec.getColumns(), spec.getFilters(), spec.getSortConfig());
+            // spilled results are past any cache tier's entry size
+            if (!rows.isSpilled() && !reportGenerationService.answeredFromSummary(spec)) {
+                reportResultCache.putRows(cacheKey, rows.inMemoryRows());
+            }
+            return rows;
+        } catch (BadRequestException e) {
+            throw e;
+        } catch (IllegalArgumentException e) {
+            // filter values that do not fit the field type, or a result past report.result-buffer.max-spill-bytes
+            throw new BadRequestException(e.getMessage());
+        } catch (Exception e) {
+            log.error("Error running report sync", e);
+            throw new RuntimeException("Failed to execute report: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Write a runReportNow result as a JSON array, page by page, and release its buffer.
+     * Runs outside a transaction so no JPA connection is held while the response is written.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long writeRows(ReportResultBuffer rows, OutputStream out) throws IOException {
+        return reportResultSpooler.writeJson(rows, out);
+    }
+
+    /**
+     * Fetch one keyset-paginated page of an ad-hoc run.
+     */
+    @Transactional(readOnly = true)
+    public ReportPageResponse runReportPage(Long reportId, Map<String, Object> overrides, String cursor, int pageSize) {
+        ReportGenerationService.QuerySpec spec = resolveRunQuery(reportId, overrides);
+        try {
+            // a page is a bounded seek, only refuse queries the guard rejects outright
+            reportCostGuard.require(reportCostGuard.assess(spec), ReportCostGuard.Verdict.LOW_PRIORITY);
+            return reportGenerationService.executePage(spec.getViewId(), spec.getTableName(), spec.getColumns(), spec.getFilters(), spec.getSortConfig(), cursor, pageSize);
+        } catch (BadRequestException e) {
+            throw e;
+        } catch (IllegalArgumentException e) {
+            // filter values that do not fit the field type
+            throw new BadRequestException(e.getMessage());
+        } catch (Exception e) {
+            log.error("Error running report page", e);
+            throw new RuntimeException("Failed to execute report: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Stream an ad-hoc run straight to the output without materialising the rows.
+     * Runs outside a transaction so no JPA connection is held while the response is written.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long streamReport(ReportGenerationService.QuerySpec spec, ReportGenerationService.StreamFormat format, OutputStream out) {
+        try {
+            return reportGenerationService.streamRawQuery(spec.getViewId(), spec.getTableName(), spec.getColumns(), spec.getFilters(), spec.getSortConfig(), format, out);
+        } catch (Exception e) {
+            log.error("Error streaming report", e);
+            throw new RuntimeException("Failed to stream report: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Refuse to stream a query the cost guard rejects. Called on the request thread before the body is written.
+     */
+    public void checkStreamCost(ReportGenerationService.QuerySpec spec) {
+        try {
+            reportCostGuard.require(reportCostGuard.assess(spec), ReportCostGuard.Verdict.LOW_PRIORITY);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage());
+        }
+    }
+
+    /**
+     * Optimizer estimate for an ad-hoc run of a saved report, with the same overrides as a run.
+     */
+    @Transactional(readOnly = true)
+    public ReportCostEstimateResponse estimateRun(Long reportId, Map<String, Object> overrides) {
+        try {
+            return reportCostGuard.assess(resolveRunQuery(reportId, overrides)).toResponse();
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage());
+        }
+    }
+
+    /**
+     * Optimizer estimate for a report definition that has not been saved yet, for the report builder.
+     */
+    @Transactional(readOnly = true)
+    public ReportCostEstimateResponse estimateDefinition(ReportRequest request) {
+        ReportGenerationService.QuerySpec spec = definitionQuery(request);
+        try {
+            return reportCostGuard.assess(spec).toResponse();
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage());
+        }
+    }
+
+    /**
+     * Bounded preview of a saved report with the same overrides as a run. Not cached and not cost-guarded:
+     * the preview limits its own work.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ReportPreviewResponse previewRun(Long reportId, Map<String, Object> overrides,
+                                            ReportGenerationService.PreviewMode mode, Integer limit) {
+        return preview(resolveRunQuery(reportId, overrides), mode, limit);
+    }
+
+    /**
+     * Bounded preview of a report definition that has not been saved yet, for the report builder.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ReportPreviewResponse previewDefinition(ReportRequest request, ReportGenerationService.PreviewMode mode,
+                                                   Integer limit) {
+        return preview(definitionQuery(request), mode, limit);
+    }
+
+    private ReportPreviewResponse preview(ReportGenerationService.QuerySpec spec, ReportGenerationService.PreviewMode mode,
+                                          Integer limit) {
+        try {
+            return reportGenerationService.executePreview(spec, mode, limit);
+        } catch (BadRequestException e) {
+            throw e;
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage());
+        } catch (Exception e) {
+            log.error("Error previewing report", e);
+            throw new RuntimeException("Failed to preview report: " + e.getMessage(), e);
+        }
+    }
+
+    private ReportGenerationService.QuerySpec definitionQuery(ReportRequest request) {
+        if (request.getViewId() == null) throw new BadRequestException("View ID is required");
+        if (request.getSelectedColumns() == null || request.getSelectedColumns().isEmpty()) {
+            throw new BadRequestException("Selected columns are required");
+        }
+        com.kkvat.automation.model.ReportView view = reportViewRepository.findById(request.getViewId())
+                .orElseThrow(() -> new ResourceNotFoundException("Report view not found with id: " + request.getViewId()));
+        return ReportGenerationService.QuerySpec.builder()
+                .viewId(view.getId())
+                .tableName(view.getTableName())
+                .columns(request.getSelectedColumns())
+                .filters(toMap(request.getFilterConditions()))
+                .sortConfig(toMap(request.getSortConfig()))
+                .build();
+    }
+
+    private Map<String, Object> toMap(Object value) {
+        if (value == null) return new java.util.HashMap<>();
+        try {
+            if (value instanceof Map) return objectMapper.convertValue(value, new TypeReference<Map<String, Object>>() {});
+            return objectMapper.readValue(String.valueOf(value), new TypeReference<Map<String, Object>>() {});
+        } catch (Exception e) {
+            throw new BadRequestException("Invalid JSON object: " + value);
+        }
+    }
+
+    /**
+     * Resolve the effective view, columns, filters and sort for an ad-hoc run of a report.
+     */
+    public ReportGenerationService.QuerySpec resolveRunQuery(Long reportId, Map<String, Object> overrides) {
         Report report = reportRepository.findById(reportId)
                 .orElseThrow(() -> new ResourceNotFoundException("Report not found"));
         try {
+            // parsed report JSON is cached by the planner until the report changes
+            ReportQueryPlanner.ReportDefinition definition = reportQueryPlanner.definitionFor(report);
+
             // Determine columns
             List<String> columns;
             if (overrides != null && (overrides.containsKey("select_columns") || overrides.containsKey("selectColumns"))) {
@@ -176,7 +408,7 @@ public class ReportExecutionService {
                     columns = objectMapper.readValue(String.valueOf(colsObj), List.class);
                 }
             } else {
-                columns = reportGenerationService.parseColumns(report.getSelectedColumns());
+                columns = definition.getColumns();
             }
 
             // Determine table name and view id
@@ -198,7 +430,7 @@ public class ReportExecutionService {
             // Determine filters: prefer explicit filter_condition / filterConditions payload, else merge overrides into report filters
             Map<String, Object> filters = new java.util.HashMap<>();
             // start with report's saved filters
-            Map<String, Object> baseFilters = reportGenerationService.parseFilters(report.getFilterConditions());
+            Map<String, Object> baseFilters = definition.getFilters();
             if (baseFilters != null) filters.putAll(baseFilters);
 
             if (overrides != null && (overrides.containsKey("filter_condition") || overrides.containsKey("filterConditions") || overrides.containsKey("filters"))) {
@@ -228,7 +460,7 @@ public class ReportExecutionService {
             }
 
             // sort config: prefer overrides.sortConfig else report
-            Map<String,Object> sortConfig = reportGenerationService.parseSort(report.getSortConfig());
+            Map<String,Object> sortConfig = definition.getSortConfig();
             if (overrides != null && (overrides.containsKey("sortConfig") || overrides.containsKey("sort_config"))) {
                 Object s = overrides.containsKey("sortConfig") ? overrides.get("sortConfig") : overrides.get("sort_config");
                 try {
@@ -237,9 +469,17 @@ public class ReportExecutionService {
                 } catch (Exception ex) { /* ignore */ }
             }
 
-            return reportGenerationService.executeRawQuery(effectiveViewId, tableName, columns, filters, sortConfig);
+            return ReportGenerationService.QuerySpec.builder()
+                    .viewId(effectiveViewId)
+                    .tableName(tableName)
+                    .columns(columns)
+                    .filters(filters)
+                    .sortConfig(sortConfig)
+                    .build();
+        } catch (ResourceNotFoundException e) {
+            throw e;
         } catch (Exception e) {
-            log.error("Error running report sync", e);
+            log.error("Error resolving report run", e);
             throw new RuntimeException("Failed to execute report: " + e.getMessage(), e);
         }
     }
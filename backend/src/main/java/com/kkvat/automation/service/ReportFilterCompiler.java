@@ -0,0 +1,257 @@
+package com.kkvat.automation.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Compiles one report filter into sargable, parameterised predicates typed by the view field's
+ * {@code fieldType}. Accepted filter values:
+ * <ul>
+ *   <li>a scalar: equality, e.g. {@code "status": "PASSED"}; a date on a date-time field matches the whole day</li>
+ *   <li>a list: {@code IN}, e.g. {@code "status": ["PASSED", "FAILED"]}</li>
+ *   <li>an object of operators, combined with AND: {@code eq}, {@code in}, {@code gt}, {@code gte}, {@code lt},
+ *       {@code lte}, {@code prefix} and {@code contains}, e.g. {@code {"gte": "2024-01-01", "lt": "2024-02-01"}}</li>
+ *   <li>null: {@code IS NULL}</li>
+ * </ul>
+ * Only {@code contains} compiles to a leading-wildcard LIKE; everything else can use an index on the column.
+ * The SQL depends on the value's {@link #shape} and never on the value itself, so plans stay shareable.
+ */
+final class ReportFilterCompiler {
+    static final int MAX_IN_VALUES = 1000;
+
+    private static final Pattern DATE_ONLY = Pattern.compile("\\d{4}-\\d{2}-\\d{2}");
+    private static final List<String> OPERATORS = List.of("eq", "in", "gt", "gte", "lt", "lte", "prefix", "contains");
+
+    enum FieldKind { STRING, NUMBER, DATE, DATE_TIME, BOOLEAN }
+
+    /** How an index on the column can serve a filter: a lookup, a range scan, or not at all. */
+    enum Access { EQUALITY, RANGE, NONE }
+
+    private ReportFilterCompiler() {
+    }
+
+    static FieldKind kindOf(String fieldType) {
+        String type = fieldType != null ? fieldType.toUpperCase(Locale.ROOT) : "STRING";
+        if (type.contains("BOOL") || type.equals("BIT")) return FieldKind.BOOLEAN;
+        if (type.contains("TIME")) return FieldKind.DATE_TIME;
+        if (type.contains("DATE")) return FieldKind.DATE;
+        if (type.contains("INT") || type.contains("NUM") || type.contains("DEC") || type.contains("DOUBLE")
+                || type.contains("FLOAT") || type.contains("LONG") || type.contains("REAL")) {
+            return FieldKind.NUMBER;
+        }
+        return FieldKind.STRING;
+    }
+
+    /**
+     * What the compiled SQL depends on: the operators used, IN list sizes rounded up to a power of
+     * two and whether date values carry a time.
+     */
+    static String shape(Object value) {
+        if (value == null) return "null";
+        if (value instanceof Collection<?> values) return "in" + inSlots(values.size());
+        if (value instanceof Map<?, ?> operators) {
+            TreeMap<String, String> shape = new TreeMap<>();
+            for (Map.Entry<?, ?> e : operators.entrySet()) {
+                shape.put(String.valueOf(e.getKey()), shape(e.getValue()));
+            }
+            return shape.toString();
+        }
+        return isDateOnly(value) ? "day" : "val";
+    }
+
+    static Access accessOf(String fieldType, Object value) {
+        if (value == null || value instanceof Collection<?>) return Access.EQUALITY;
+        if (value instanceof Map<?, ?> operators) {
+            Access access = Access.NONE;
+            for (Map.Entry<?, ?> e : operators.entrySet()) {
+                String op = String.valueOf(e.getKey()).toLowerCase(Locale.ROOT);
+                if ("contains".equals(op)) continue;
+                Access single = "eq".equals(op) || "in".equals(op) ? accessOf(fieldType, e.getValue()) : Access.RANGE;
+                if (single.ordinal() < access.ordinal()) access = single;
+            }
+            return access;
+        }
+        return kindOf(fieldType) == FieldKind.DATE_TIME && isDateOnly(value) ? Access.RANGE : Access.EQUALITY;
+    }
+
+    /**
+     * Append the predicates for one filter and one binder per placeholder, in placeholder order.
+     */
+    static void compile(String key, String column, String fieldType, Object value, List<String> conditions,
+                        List<ReportQueryPlan.ParameterBinder> binders) {
+        FieldKind kind = kindOf(fieldType);
+        if (value == null) {
+            conditions.add(column + " IS NULL");
+        } else if (value instanceof Collection<?> values) {
+            in(key, column, kind, values.size(), v -> v, conditions, binders);
+        } else if (value instanceof Map<?, ?> operators) {
+            for (Map.Entry<?, ?> e : operators.entrySet()) {
+                String op = String.valueOf(e.getKey()).toLowerCase(Locale.ROOT);
+                if (!OPERATORS.contains(op)) {
+                    throw new IllegalArgumentException("Unknown filter operator '" + e.getKey() + "' on " + key
+                            + ", expected one of " + OPERATORS);
+                }
+                Object operand = e.getValue();
+                Object operandKey = e.getKey();
+                Function<Object, Object> operandOf = v -> v instanceof Map<?, ?> m ? m.get(operandKey) : null;
+                operator(key, column, kind, op, operand, operandOf, conditions, binders);
+            }
+        } else {
+            operator(key, column, kind, "eq", value, v -> v, conditions, binders);
+        }
+    }
+
+    private static void operator(String key, String column, FieldKind kind, String op, Object operand,
+                                 Function<Object, Object> operandOf, List<String> conditions,
+                                 List<ReportQueryPlan.ParameterBinder> binders) {
+        if ("in".equals(op)) {
+            if (!(operand instanceof Collection<?> values)) {
+                throw new IllegalArgumentException("Filter operator 'in' on " + key + " needs a list");
+            }
+            in(key, column, kind, values.size(), operandOf, conditions, binders);
+            return;
+        }
+        if (operand == null) {
+            if (!"eq".equals(op)) throw new IllegalArgumentException("Filter operator '" + op + "' on " + key + " needs a value");
+            conditions.add(column + " IS NULL");
+            return;
+        }
+        if (operand instanceof Collection<?> || operand instanceof Map<?, ?>) {
+            throw new IllegalArgumentException("Filter operator '" + op + "' on " + key + " needs a single value");
+        }
+        // a bare date against a date-time column means the whole day, as a half-open range
+        boolean day = kind == FieldKind.DATE_TIME && isDateOnly(operand);
+        switch (op) {
+            case "prefix", "contains" -> {
+                if (kind != FieldKind.STRING) {
+                    throw new IllegalArgumentException("Filter operator '" + op + "' on " + key + " needs a text field");
+                }
+                boolean prefix = "prefix".equals(op);
+                conditions.add(column + " LIKE ?");
+                binders.add(new ReportQueryPlan.ParameterBinder(key, v -> {
+                    String pattern = escapeLike(String.valueOf(operandOf.apply(v)));
+                    return prefix ? pattern + "%" : "%" + pattern + "%";
+                }));
+            }
+            case "eq" -> {
+                if (day) {
+                    conditions.add(column + " >= ?");
+                    conditions.add(column + " < ?");
+                    binders.add(binder(key, kind, operandOf, 0));
+                    binders.add(binder(key, kind, operandOf, 1));
+                } else {
+                    conditions.add(column + " = ?");
+                    binders.add(binder(key, kind, operandOf, 0));
+                }
+            }
+            case "gt" -> {
+                conditions.add(column + (day ? " >= ?" : " > ?"));
+                binders.add(binder(key, kind, operandOf, day ? 1 : 0));
+            }
+            case "gte" -> {
+                conditions.add(column + " >= ?");
+                binders.add(binder(key, kind, operandOf, 0));
+            }
+            case "lt" -> {
+                conditions.add(column + " < ?");
+                binders.add(binder(key, kind, operandOf, 0));
+            }
+            case "lte" -> {
+                conditions.add(column + (day ? " < ?" : " <= ?"));
+                binders.add(binder(key, kind, operandOf, day ? 1 : 0));
+            }
+            default -> throw new IllegalStateException(op);
+        }
+    }
+
+    /**
+     * IN list padded to a power-of-two size by repeating its last value, so list lengths share a few plans.
+     */
+    private static void in(String key, String column, FieldKind kind, int size, Function<Object, Object> listOf,
+                           List<String> conditions, List<ReportQueryPlan.ParameterBinder> binders) {
+        if (size == 0) {
+            conditions.add("1 = 0");
+            return;
+        }
+        if (size > MAX_IN_VALUES) {
+            throw new IllegalArgumentException("Filter " + key + " has more than " + MAX_IN_VALUES + " values");
+        }
+        int slots = inSlots(size);
+        List<String> placeholders = new ArrayList<>();
+        for (int i = 0; i < slots; i++) {
+            int slot = i;
+            placeholders.add("?");
+            binders.add(new ReportQueryPlan.ParameterBinder(key, v -> {
+                List<?> values = new ArrayList<>((Collection<?>) listOf.apply(v));
+                return convert(key, kind, values.get(Math.min(slot, values.size() - 1)), 0);
+            }));
+        }
+        conditions.add(slots == 1 ? column + " = ?" : column + " IN (" + String.join(", ", placeholders) + ")");
+    }
+
+    private static ReportQueryPlan.ParameterBinder binder(String key, FieldKind kind, Function<Object, Object> operandOf,
+                                                          int dayOffset) {
+        return new ReportQueryPlan.ParameterBinder(key, v -> convert(key, kind, operandOf.apply(v), dayOffset));
+    }
+
+    /**
+     * Convert a filter value to the JDBC type of the column so the comparison needs no implicit cast.
+     *
+     * @param dayOffset days to add to a bare date, 1 for the exclusive end of a whole-day range
+     */
+    static Object convert(String key, FieldKind kind, Object value, int dayOffset) {
+        if (value == null) return null;
+        try {
+            switch (kind) {
+                case NUMBER:
+                    if (value instanceof Number) return value;
+                    return new BigDecimal(String.valueOf(value).trim());
+                case BOOLEAN:
+                    if (value instanceof Boolean) return value;
+                    if (value instanceof Number n) return n.intValue() != 0;
+                    String text = String.valueOf(value).trim().toLowerCase(Locale.ROOT);
+                    if (List.of("true", "1", "yes", "y").contains(text)) return Boolean.TRUE;
+                    if (List.of("false", "0", "no", "n").contains(text)) return Boolean.FALSE;
+                    throw new IllegalArgumentException(text);
+                case DATE:
+                    return parseDate(value).plusDays(dayOffset);
+                case DATE_TIME:
+                    if (isDateOnly(value)) return parseDate(value).plusDays(dayOffset).atStartOfDay();
+                    return LocalDateTime.parse(String.valueOf(value).trim().replace(' ', 'T'));
+                default:
+                    return String.valueOf(value);
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Filter " + key + " expects a " + kind.name().toLowerCase(Locale.ROOT).replace('_', '-')
+                    + " value, got '" + value + "'");
+        }
+    }
+
+    private static LocalDate parseDate(Object value) {
+        String text = String.valueOf(value).trim();
+        // a date-time value against a DATE column compares on its date part
+        return LocalDate.parse(text.length() > 10 ? text.substring(0, 10) : text);
+    }
+
+    private static boolean isDateOnly(Object value) {
+        return value instanceof String s && DATE_ONLY.matcher(s.trim()).matches();
+    }
+
+    private static int inSlots(int size) {
+        return size <= 1 ? 1 : Integer.highestOneBit(size - 1) << 1;
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -1,368 +1,1429 @@
 package com.kkvat.automation.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.kkvat.automation.dto.ReportPageResponse;
+import com.kkvat.automation.dto.ReportPreviewResponse;
+import com.kkvat.automation.exception.BadRequestException;
 import com.kkvat.automation.model.Report;
+import com.kkvat.automation.model.ReportSchedule;
 import com.kkvat.automation.model.User;
+import com.kkvat.automation.util.CsvRecordReader;
+import com.kkvat.automation.util.CsvStreamWriter;
+import com.kkvat.automation.util.SortKeyCodec;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.Builder;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+
 import javax.sql.DataSource;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.sql.*;
+import java.text.Collator;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.LinkedHashMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 @Service
 @Transactional
 @RequiredArgsConstructor
 @Slf4j
 public class ReportGenerationService {
+    @Qualifier("reportDataSource")
     private final DataSource dataSource;
     private final ObjectMapper objectMapper;
-    private final com.kkvat.automation.repository.ReportViewFieldRepository reportViewFieldRepository;
+    private final ReportQueryPlanner reportQueryPlanner;
+    private final ReportResultCache reportResultCache;
+    private final ReportViewCatalog reportViewCatalog;
+    private final ReportRunTracker reportRunTracker;
+    private final ReportStorageService reportStorageService;
+    private final ReportSummaryService reportSummaryService;
+    private final ReportResultSpooler reportResultSpooler;
+    private final Map<String, List<String>> primaryKeyCache = new java.util.concurrent.ConcurrentHashMap<>();
+    private final Map<String, Set<String>> notNullColumnCache = new java.util.concurrent.ConcurrentHashMap<>();
 
     @Value("${report.output.directory:./reports}")
     private String reportOutputDirectory;
 
+    @Value("${report.export.fetch-size:0}")
+    private int exportFetchSize;
+
+    @Value("${report.export.buffer-size:65536}")
+    private int exportBufferSize;
+
+    @Value("${report.page.max-size:1000}")
+    private int maxPageSize;
+
+    @Value("${report.preview.default-rows:100}")
+    private int previewDefaultRows;
+
+    @Value("${report.preview.max-rows:1000}")
+    private int previewMaxRows;
+
+    @Value("${report.preview.timeout-ms:800}")
+    private long previewTimeoutMs;
+
+    @Value("${report.preview.sample-rows:10000}")
+    private int previewSampleRows;
+
+    @Value("${report.preview.sample-chunks:20}")
+    private int previewSampleChunks;
+
+    @Value("${report.output.gzip:false}")
+    private boolean gzipOutput;
+
+    @Value("${report.output.gzip-level:6}")
+    private int gzipLevel;
+
+    @Value("${report.parallel.default-degree:1}")
+    private int defaultParallelism;
+
+    @Value("${report.parallel.max-degree:8}")
+    private int maxParallelism;
+
+    @Value("${report.parallel.threads:4}")
+    private int parallelThreads;
+
+    @Value("${report.parallel.min-rows-per-part:100000}")
+    private long parallelMinRowsPerPart;
+
+    // range scans of parallel exports, shared by all jobs so total extra connections stay bounded
+    private ExecutorService partExecutor;
+    private final Map<String, CompletableFuture<ReportResult>> inFlight = new ConcurrentHashMap<>();
+
+    private static final int STREAM_FLUSH_INTERVAL = 1000;
+    public static final String GZIP_SUFFIX = ".gz";
+    private static final DateTimeFormatter WATERMARK_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSSSS");
+
+    public enum StreamFormat {
+        NDJSON, JSON_ARRAY
+    }
+
+    /** FIRST returns the leading rows as stored; SAMPLE reads random key ranges for approximate distributions. */
+    public enum PreviewMode {
+        FIRST, SAMPLE
+    }
+
+    @Data
+    @Builder
+    public static class QuerySpec {
+        private Long viewId;
+        private String tableName;
+        private List<String> columns;
+        private Map<String, Object> filters;
+        private Map<String, Object> sortConfig;
+    }
+
+    /**
+     * What the optimizer expects a report query to cost; all fields are null when it could not be asked.
+     */
+    @Data
+    @Builder
+    public static class QueryCost {
+        private Long estimatedRows; // rows examined, summed over the plan's steps
+        private Boolean fullScan; // some step reads the whole table
+        private String indexUsed; // index names from the plan, comma separated
+        private Boolean filesort;
+        private Boolean temporaryTable;
+    }
+
     @Data
     @Builder
     public static class ReportResult {
         private String filePath;
-        private Long fileSize;
+        private Long fileSize; // uncompressed CSV bytes
+        private Long compressedSize; // bytes on disk when gzipped, else null
         private Integer rowCount;
+        private Integer changedRows; // rows read past the watermark, for incremental runs
+        private String watermarkColumn;
+        private String watermarkValue;
     }
 
+    /**
+     * Watermark state a scheduled run resumes from.
+     */
+    @Data
+    @Builder
+    public static class IncrementalRequest {
+        private ReportSchedule.IncrementalMode mode;
+        private String watermarkColumn;
+        private String watermarkValue;
+        private LocalDateTime reportVersion;
+        private String previousFilePath; // output of the schedule's last completed run, for MERGE
+    }
+
+    /**
+     * Write the report to a CSV file. Runs outside any transaction: rows stream over a dedicated connection.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public ReportResult generateCsvReport(Report report, User user) throws Exception {
         // Ensure output directory exists
         Files.createDirectories(Paths.get(reportOutputDirectory));
 
-        // Parse report configuration
-        List<String> columns = parseColumns(report.getSelectedColumns());
-        Map<String, Object> filters = parseFilters(report.getFilterConditions());
-        Map<String, Object> sortConfig = parseSort(report.getSortConfig());
-        String tableName = report.getView().getTableName();
-
-        // Build and execute SQL query
-        String sql = buildSelectQuery(tableName, columns, filters, sortConfig);
-        log.info("Executing report SQL: {}", sql);
-
         // Generate CSV file
         String fileName = generateFileName(report, user);
         String filePath = reportOutputDirectory + File.separator + fileName;
 
-        int rowCount = 0;
-        try (Connection conn = dataSource.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql);
-             FileWriter csvWriter = new FileWriter(filePath)) {
+        // Compiled plan is cached per report, so repeated and scheduled runs skip parsing and SQL building
+        ReportQueryPlan plan = reportSummaryService.route(reportQueryPlanner.planFor(report));
 
-            ResultSetMetaData metadata = rs.getMetaData();
+        // key carries the table's data version, taken before the scan so later changes miss
+        String cacheKey = csvCacheKey(report, plan);
+        Optional<ReportResultCache.CachedCsv> cached = reportResultCache.getCsv(cacheKey, Paths.get(filePath));
+        if (cached.isPresent()) {
+            log.info("Report {} served from result cache", report.getId());
+            return buildResult(filePath, cached.get().getRowCount(), cached.get().getContentLength());
+        }
+
+        // identical runs started while this one is in flight wait for it and share its file
+        ReportRun run = reportRunTracker.current();
+        String flightKey = flightKey(plan);
+        while (true) {
+            CompletableFuture<ReportResult> flight = new CompletableFuture<>();
+            CompletableFuture<ReportResult> leader = flightKey != null ? inFlight.putIfAbsent(flightKey, flight) : null;
+            if (leader != null) {
+                log.info("Report {} joined an identical run already in flight", report.getId());
+                ReportResult shared = awaitFlight(leader, run);
+                if (shared != null) {
+                    // the leader's output is already in the store; this execution takes its own reference
+                    reportStorageService.retain(shared.getFilePath());
+                    return shared;
+                }
+                // the leader was cancelled, which says nothing about this run
+                continue;
+            }
+            try {
+                ReportResult result = writeCsvReport(report, plan, filePath, cacheKey, run);
+                flight.complete(result);
+                return result;
+            } catch (Exception e) {
+                flight.completeExceptionally(run.isCancelled() ? new CancellationException(run.getCancelReason()) : e);
+                throw e;
+            } finally {
+                if (flightKey != null) inFlight.remove(flightKey, flight);
+            }
+        }
+    }
+
+    private ReportResult writeCsvReport(Report report, ReportQueryPlan plan, String filePath, String cacheKey,
+                                        ReportRun run) throws Exception {
+        List<String> columns = plan.getHeaders();
+        log.info("Executing report SQL: {}", plan.getSql());
+
+        // never write through a hard link shared with the result cache
+        Files.deleteIfExists(Paths.get(filePath));
+        long startedAt = System.currentTimeMillis();
+        int degree = parallelismFor(report);
+        int rowCount;
+        long contentLength;
+        try (CsvStreamWriter csvWriter = new CsvStreamWriter(openOutput(filePath), exportBufferSize)) {
+            run.track(csvWriter);
 
             // Write header
-            StringBuilder header = new StringBuilder();
             for (String col : columns) {
-                if (header.length() > 0) header.append(",");
-                header.append("\"").append(escapeForCsv(col)).append("\"");
+                csvWriter.writeField(col);
+            }
+            csvWriter.endRow();
+
+            Integer partitionedRows = degree > 1 ? writePartitioned(plan, degree, csvWriter, run) : null;
+            rowCount = partitionedRows != null ? partitionedRows : writeSequential(plan, csvWriter, run);
+            contentLength = csvWriter.getBytesWritten();
+        }
+        log.info("Report {} written: {} rows, {} bytes in {} ms (parallelism {})", report.getId(), rowCount,
+                contentLength, System.currentTimeMillis() - startedAt, degree);
+
+        reportResultCache.putCsv(cacheKey, Paths.get(filePath), rowCount, contentLength);
+        return buildResult(filePath, rowCount, contentLength);
+    }
+
+    /**
+     * Identity of the query a saved report runs: headers, SQL and bound filter values against the current
+     * view version. Reports with the same definition share a key whatever their id.
+     */
+    private String flightKey(ReportQueryPlan plan) {
+        try {
+            int viewVersion = plan.getViewId() != null ? reportViewCatalog.getVersion(plan.getViewId()) : 0;
+            return objectMapper.writeValueAsString(List.of(String.valueOf(plan.getViewId()), viewVersion,
+                    plan.getHeaders(), plan.getSql(), new TreeMap<>(plan.getParameters())));
+        } catch (Exception e) {
+            log.debug("Report run not coalescable: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Wait for the leader's result while watching this run's own cancellation.
+     *
+     * @return null when the leader was cancelled and the caller should run the query itself
+     */
+    private ReportResult awaitFlight(CompletableFuture<ReportResult> leader, ReportRun run) throws Exception {
+        while (true) {
+            run.checkCancelled();
+            try {
+                return leader.get(1, TimeUnit.SECONDS);
+            } catch (TimeoutException e) {
+                // keep waiting
+            } catch (CancellationException e) {
+                return null;
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof Exception) throw (Exception) e.getCause();
+                throw e;
             }
-            csvWriter.write(header.toString());
-            csvWriter.write("\n");
+        }
+    }
 
-            // Write data rows
+    private int writeSequential(ReportQueryPlan plan, CsvStreamWriter csvWriter, ReportRun run) throws SQLException, IOException {
+        int rowCount = 0;
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = prepareStreamingStatement(conn, plan.getSql(), run);
+             ResultSet rs = executeBound(stmt, plan, plan.getParameters())) {
+
+            // Write data rows; columns are selected in order so read them by index
+            int colCount = plan.getColumns().size();
             while (rs.next()) {
-                StringBuilder row = new StringBuilder();
-                for (String col : columns) {
-                    if (row.length() > 0) row.append(",");
-                    Object value = rs.getObject(col);
-                    row.append("\"").append(escapeForCsv(value != null ? value.toString() : "")).append("\"");
+                for (int i = 1; i <= colCount; i++) {
+                    csvWriter.writeField(rs.getObject(i));
                 }
-                csvWriter.write(row.toString());
-                csvWriter.write("\n");
+                csvWriter.endRow();
                 rowCount++;
+                run.rowWritten();
             }
         }
+        return rowCount;
+    }
 
-        File csvFile = new File(filePath);
-        long fileSize = csvFile.length();
+    private int parallelismFor(Report report) {
+        int degree = report.getParallelism() != null ? report.getParallelism() : defaultParallelism;
+        return Math.max(1, Math.min(degree, maxParallelism));
+    }
 
-        return ReportResult.builder()
-                .filePath(filePath)
-                .fileSize(fileSize)
-                .rowCount(rowCount)
-                .build();
+    /**
+     * Split the table into ranges of its single integral primary key, scan the ranges concurrently on
+     * separate connections into part files, then concatenate them in key order, or k-way merge them
+     * on the report's sort keys. Returns null when the table cannot be split, so the caller scans it serially.
+     */
+    private Integer writePartitioned(ReportQueryPlan plan, int degree, CsvStreamWriter csvWriter, ReportRun run) throws Exception {
+        // groups would be split across key ranges
+        if (plan.isAggregated()) return null;
+        List<String> primaryKey = getPrimaryKeyColumns(plan.getTableName());
+        if (primaryKey.size() != 1) return null;
+        String key = primaryKey.get(0);
+
+        long min;
+        long max;
+        String boundsSql = plan.renderSelect(List.of("MIN(" + key + ")", "MAX(" + key + ")"), List.of(), null, null);
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(boundsSql)) {
+            run.register(stmt);
+            plan.bindDefaults(stmt);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next() || !isIntegral(rs.getObject(1)) || !isIntegral(rs.getObject(2))) return null;
+                min = rs.getLong(1);
+                max = rs.getLong(2);
+            }
+        }
+        // the key span over-estimates the row count when there are gaps, which only makes parts smaller
+        long span = max - min + 1;
+        int parts = (int) Math.min(degree, span / Math.max(1, parallelMinRowsPerPart));
+        if (parts < 2) return null;
+        long step = (span + parts - 1) / parts;
+
+        boolean sorted = !plan.getSortKeys().isEmpty();
+        Path workDir = Files.createTempDirectory(Paths.get(reportOutputDirectory), "parts-");
+        List<Path> partFiles = new ArrayList<>();
+        List<Future<Integer>> futures = new ArrayList<>();
+        AtomicBoolean aborted = new AtomicBoolean();
+        try {
+            for (int i = 0; i < parts; i++) {
+                long lo = min + i * step;
+                long hi = i == parts - 1 ? max : Math.min(max, lo + step - 1);
+                Path partFile = workDir.resolve("part-" + i);
+                partFiles.add(partFile);
+                futures.add(partExecutor.submit(() -> writePart(plan, key, lo, hi, partFile, sorted, aborted, run)));
+            }
+            int rowCount = 0;
+            for (Future<Integer> future : futures) {
+                rowCount += awaitPart(future, aborted);
+            }
+            if (sorted) {
+                mergeParts(plan.getSortKeys(), partFiles, csvWriter, run, exportBufferSize);
+            } else {
+                concatParts(partFiles, csvWriter, run);
+            }
+            return rowCount;
+        } finally {
+            aborted.set(true);
+            // parts must be finished before their files can be removed
+            for (Future<Integer> future : futures) {
+                try {
+                    future.get();
+                } catch (Exception ignored) {
+                    // already reported through awaitPart
+                }
+            }
+            for (Path partFile : partFiles) Files.deleteIfExists(partFile);
+            Files.deleteIfExists(workDir);
+        }
     }
 
-    private String buildSelectQuery(String tableName, List<String> columns, Map<String, Object> filters, Map<String, Object> sortConfig) {
-        StringBuilder sql = new StringBuilder("SELECT ");
-        
-        // Add columns (no identifier quoting)
-        for (int i = 0; i < columns.size(); i++) {
-            if (i > 0) sql.append(", ");
-            sql.append(columns.get(i));
+    private int awaitPart(Future<Integer> future, AtomicBoolean aborted) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            aborted.set(true);
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
         }
+    }
 
-        sql.append(" FROM ").append(tableName);
+    /**
+     * Scan one key range into a part file: plain CSV rows, or for sorted reports length-prefixed rows
+     * preceded by their encoded sort keys.
+     */
+    private int writePart(ReportQueryPlan plan, String key, long lo, long hi, Path partFile, boolean sorted,
+                          AtomicBoolean aborted, ReportRun run) throws SQLException, IOException {
+        List<String> sortColumns = new ArrayList<>();
+        List<String> orderBy = new ArrayList<>();
+        for (ReportQueryPlan.SortKey sortKey : plan.getSortKeys()) {
+            sortColumns.add(sortKey.getColumn());
+            orderBy.add(sortKey.toString());
+        }
+        String sql = plan.render(sorted ? sortColumns : List.of(), List.of(key + " >= ?", key + " <= ?"),
+                sorted ? orderBy : List.of(), null);
+        int colCount = plan.getColumns().size();
+        int rowCount = 0;
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = prepareStreamingStatement(conn, sql, run)) {
+            int index = plan.bindDefaults(stmt);
+            stmt.setLong(index++, lo);
+            stmt.setLong(index, hi);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!sorted) {
+                    try (CsvStreamWriter part = new CsvStreamWriter(Files.newOutputStream(partFile), exportBufferSize)) {
+                        while (rs.next() && !aborted.get()) {
+                            for (int i = 1; i <= colCount; i++) {
+                                part.writeField(rs.getObject(i));
+                            }
+                            part.endRow();
+                            rowCount++;
+                            run.rowWritten();
+                        }
+                    }
+                    return rowCount;
+                }
+
+                ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+                CsvStreamWriter lineWriter = new CsvStreamWriter(line, 8192);
+                try (DataOutputStream part = new DataOutputStream(
+                        new BufferedOutputStream(Files.newOutputStream(partFile), exportBufferSize))) {
+                    while (rs.next() && !aborted.get()) {
+                        for (int j = 0; j < sortColumns.size(); j++) {
+                            SortKeyCodec.write(part, rs.getObject(colCount + 1 + j));
+                        }
+                        for (int i = 1; i <= colCount; i++) {
+                            lineWriter.writeField(rs.getObject(i));
+                        }
+                        lineWriter.endRow();
+                        lineWriter.flush();
+                        part.writeInt(line.size());
+                        line.writeTo(part);
+                        line.reset();
+                        rowCount++;
+                        run.rowWritten();
+                    }
+                }
+            }
+        }
+        return rowCount;
+    }
+
+    private void concatParts(List<Path> partFiles, CsvStreamWriter csvWriter, ReportRun run) throws IOException {
+        byte[] chunk = new byte[exportBufferSize];
+        for (Path partFile : partFiles) {
+            try (InputStream in = Files.newInputStream(partFile)) {
+                int read;
+                while ((read = in.read(chunk)) != -1) {
+                    run.checkCancelled();
+                    csvWriter.writeRaw(chunk, 0, read);
+                }
+            }
+        }
+    }
 
-        // Add WHERE clause for filters
-        if (filters != null && !filters.isEmpty()) {
-            sql.append(" WHERE ");
-            List<String> conditions = new ArrayList<>();
-            for (Map.Entry<String, Object> entry : filters.entrySet()) {
-                conditions.add(entry.getKey() + " = '" + entry.getValue() + "'");
+    /**
+     * K-way merge of sorted part files into the output; rows with equal keys keep part order.
+     */
+    static void mergeParts(List<ReportQueryPlan.SortKey> sortKeys, List<Path> partFiles, CsvStreamWriter csvWriter,
+                           ReportRun run, int bufferSize) throws IOException {
+        Collator collator = SortKeyCodec.newCollator();
+        Comparator<PartCursor> order = (a, b) -> {
+            for (int i = 0; i < sortKeys.size(); i++) {
+                int c = SortKeyCodec.compare(a.keys[i], b.keys[i], collator);
+                if (c != 0) return sortKeys.get(i).isDescending() ? -c : c;
+            }
+            return Integer.compare(a.index, b.index);
+        };
+        PriorityQueue<PartCursor> heap = new PriorityQueue<>(order);
+        List<PartCursor> cursors = new ArrayList<>();
+        try {
+            for (int i = 0; i < partFiles.size(); i++) {
+                PartCursor cursor = new PartCursor(i, new DataInputStream(
+                        new BufferedInputStream(Files.newInputStream(partFiles.get(i)), bufferSize)), sortKeys.size());
+                cursors.add(cursor);
+                if (cursor.advance()) heap.add(cursor);
             }
-            sql.append(String.join(" AND ", conditions));
+            long merged = 0;
+            while (!heap.isEmpty()) {
+                if ((++merged & 1023) == 0) run.checkCancelled();
+                PartCursor cursor = heap.poll();
+                csvWriter.writeRaw(cursor.line, 0, cursor.lineLength);
+                if (cursor.advance()) heap.add(cursor);
+            }
+        } finally {
+            for (PartCursor cursor : cursors) cursor.in.close();
         }
+    }
 
-        // Add ORDER BY clause for sorting
-        if (sortConfig != null && !sortConfig.isEmpty()) {
-            sql.append(" ORDER BY ");
-            List<String> sortExpressions = new ArrayList<>();
-            
-            @SuppressWarnings("unchecked")
-            Map<String, Object> sorts = (Map<String, Object>) sortConfig;
-            
-            for (Map.Entry<String, Object> entry : sorts.entrySet()) {
-                sortExpressions.add(entry.getKey() + " " + entry.getValue().toString());
+    private static boolean isIntegral(Object value) {
+        return value instanceof Long || value instanceof Integer || value instanceof Short
+                || value instanceof Byte || value instanceof java.math.BigInteger;
+    }
+
+    /**
+     * Read position in a sorted part file during the k-way merge.
+     */
+    private static class PartCursor {
+        private final int index;
+        private final DataInputStream in;
+        private final Object[] keys;
+        private byte[] line = new byte[256];
+        private int lineLength;
+
+        PartCursor(int index, DataInputStream in, int keyCount) {
+            this.index = index;
+            this.in = in;
+            this.keys = new Object[keyCount];
+        }
+
+        boolean advance() throws IOException {
+            try {
+                keys[0] = SortKeyCodec.read(in);
+            } catch (EOFException e) {
+                return false;
+            }
+            for (int i = 1; i < keys.length; i++) {
+                keys[i] = SortKeyCodec.read(in);
             }
-            sql.append(String.join(", ", sortExpressions));
+            lineLength = in.readInt();
+            if (line.length < lineLength) {
+                line = new byte[Math.max(lineLength, line.length * 2)];
+            }
+            in.readFully(line, 0, lineLength);
+            return true;
         }
+    }
+
+    @PostConstruct
+    void startPartExecutor() {
+        AtomicInteger counter = new AtomicInteger();
+        partExecutor = Executors.newFixedThreadPool(Math.max(1, parallelThreads), r -> {
+            Thread t = new Thread(r, "report-part-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    void stopPartExecutor() {
+        partExecutor.shutdownNow();
+    }
 
-        return sql.toString();
+    /**
+     * Output stream for a report file, gzip-compressed on the fly for .gz files.
+     */
+    private OutputStream openOutput(String filePath) throws IOException {
+        OutputStream out = Files.newOutputStream(Paths.get(filePath));
+        if (!filePath.endsWith(GZIP_SUFFIX)) {
+            return out;
+        }
+        // the CSV encoder already buffers, so the deflater sees large writes and holds only its window
+        return new GZIPOutputStream(out, exportBufferSize) {
+            {
+                def.setLevel(gzipLevel);
+            }
+        };
     }
 
-    private String buildSelectQuery(String tableName, List<String> columns, Map<String, Object> filters, Map<String, Object> sortConfig, Map<String, String> fieldTypeMap) {
-        StringBuilder sql = new StringBuilder("SELECT ");
+    /**
+     * Scheduled run that only reads rows past the schedule's watermark: an updated_at-style column when the
+     * table has one, else its integral primary key (append-only tables). DELTA writes just the changed rows;
+     * MERGE copies the previous output, drops rows superseded by a changed row with the same key and appends
+     * the changed rows. The first run, a changed report or a missing previous output produce a full export
+     * bounded by the same watermark. Deleted rows are not detected; switch the schedule to FULL to re-baseline.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ReportResult generateIncrementalReport(Report report, User user, IncrementalRequest request) throws Exception {
+        ReportQueryPlan plan = reportQueryPlanner.planFor(report);
+        ReportRun run = reportRunTracker.current();
+        if (plan.isAggregated()) {
+            // groups summarise all matching rows, a watermark slice cannot be merged into them
+            log.info("Report {} is grouped, running a full export", report.getId());
+            return generateCsvReport(report, user);
+        }
+        String column = reportResultCache.versionColumnOf(plan.getTableName()).orElse(null);
+        if (column == null) {
+            List<String> primaryKey = getPrimaryKeyColumns(plan.getTableName());
+            column = primaryKey.size() == 1 ? primaryKey.get(0) : null;
+        }
+        Object upper = column != null ? maxValue(plan, column, run) : null;
+        boolean temporal = toDateTime(upper) != null;
+        if (upper == null || (!temporal && !isIntegral(upper))) {
+            // nothing to track: empty table or no usable watermark column
+            log.info("Report {} has no usable watermark, running a full export", report.getId());
+            return generateCsvReport(report, user);
+        }
 
-        // Add columns (no identifier quoting)
-        for (int i = 0; i < columns.size(); i++) {
-            if (i > 0) sql.append(", ");
-            sql.append(columns.get(i));
+        boolean resume = request.getWatermarkValue() != null
+                && column.equalsIgnoreCase(request.getWatermarkColumn())
+                && sameSecond(request.getReportVersion(), report.getUpdatedAt());
+        File previous = request.getPreviousFilePath() != null ? new File(request.getPreviousFilePath()) : null;
+        int keyIndex = -1;
+        if (resume && request.getMode() == ReportSchedule.IncrementalMode.MERGE) {
+            List<String> primaryKey = getPrimaryKeyColumns(plan.getTableName());
+            keyIndex = primaryKey.size() == 1 ? indexOfIgnoreCase(plan.getColumns(), primaryKey.get(0)) : -1;
+            // changed rows can only replace their old versions when the key is part of the output
+            boolean canMerge = previous != null && previous.isFile() && (!temporal || keyIndex >= 0);
+            resume = canMerge;
         }
 
-        sql.append(" FROM ").append(tableName);
+        Files.createDirectories(Paths.get(reportOutputDirectory));
+        String filePath = reportOutputDirectory + File.separator + generateFileName(report, user);
+        Files.deleteIfExists(Paths.get(filePath));
+        long startedAt = System.currentTimeMillis();
+        int rowCount;
+        int changedRows;
+        long contentLength;
+        try (CsvStreamWriter csvWriter = new CsvStreamWriter(openOutput(filePath), exportBufferSize)) {
+            run.track(csvWriter);
+            for (String col : plan.getHeaders()) {
+                csvWriter.writeField(col);
+            }
+            csvWriter.endRow();
 
-        // Add WHERE clause for filters
-        if (filters != null && !filters.isEmpty()) {
-            sql.append(" WHERE ");
-            List<String> conditions = new ArrayList<>();
-            for (Map.Entry<String, Object> entry : filters.entrySet()) {
-                String fname = entry.getKey();
-                Object val = entry.getValue();
-                String ftype = fieldTypeMap.getOrDefault(fname, "STRING");
-                if (val == null) {
-                    conditions.add(fname + " IS NULL");
-                } else if ("STRING".equalsIgnoreCase(ftype) || val instanceof String) {
-                    // use LIKE for string filters
-                    String escaped = String.valueOf(val).replace("%", "\\%").replace("'", "\\'");
-                    conditions.add(fname + " LIKE '%" + escaped + "%'");
+            if (!resume) {
+                rowCount = changedRows = writeRange(plan, List.of("(" + column + " <= ? OR " + column + " IS NULL)"),
+                        List.of(upper), csvWriter, null, -1, run);
+            } else {
+                Object lower = decodeWatermark(request.getWatermarkValue(), temporal);
+                List<String> range = List.of(column + " > ?", column + " <= ?");
+                if (request.getMode() == ReportSchedule.IncrementalMode.DELTA) {
+                    rowCount = changedRows = writeRange(plan, range, List.of(lower, upper), csvWriter, null, -1, run);
                 } else {
-                    // default to equality for non-strings
-                    conditions.add(fname + " = '" + String.valueOf(val) + "'");
+                    Path deltaFile = Files.createTempFile(Paths.get(reportOutputDirectory), "delta-", ".part");
+                    try {
+                        // append-only watermarks never revisit a row, so nothing is superseded
+                        Set<String> changedKeys = temporal ? new HashSet<>() : null;
+                        try (CsvStreamWriter delta = new CsvStreamWriter(Files.newOutputStream(deltaFile), exportBufferSize)) {
+                            changedRows = writeRange(plan, range, List.of(lower, upper), delta, changedKeys, keyIndex, run);
+                        }
+                        rowCount = copyPreviousRows(previous, csvWriter, changedKeys, keyIndex, run) + changedRows;
+                        concatParts(List.of(deltaFile), csvWriter, run);
+                    } finally {
+                        Files.deleteIfExists(deltaFile);
+                    }
+                }
+            }
+            contentLength = csvWriter.getBytesWritten();
+        }
+        log.info("Report {} {} run: {} changed rows, {} rows written in {} ms", report.getId(),
+                resume ? request.getMode() : "baseline", changedRows, rowCount, System.currentTimeMillis() - startedAt);
+
+        ReportResult result = buildResult(filePath, rowCount, contentLength);
+        result.setChangedRows(changedRows);
+        result.setWatermarkColumn(column);
+        result.setWatermarkValue(encodeWatermark(upper));
+        return result;
+    }
+
+    private Object maxValue(ReportQueryPlan plan, String column, ReportRun run) throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(plan.renderSelect(List.of("MAX(" + column + ")"), List.of(), null, null))) {
+            run.register(stmt);
+            plan.bindDefaults(stmt);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getObject(1) : null;
+            }
+        }
+    }
+
+    /**
+     * Stream the plan's rows restricted by extra conditions, in the report's sort order.
+     * When keys is given, the value of the column at keyIndex is collected for every row.
+     */
+    private int writeRange(ReportQueryPlan plan, List<String> conditions, List<Object> params, CsvStreamWriter writer,
+                           Set<String> keys, int keyIndex, ReportRun run) throws SQLException, IOException {
+        List<String> orderBy = new ArrayList<>();
+        for (ReportQueryPlan.SortKey sortKey : plan.getSortKeys()) orderBy.add(sortKey.toString());
+        String sql = plan.render(List.of(), conditions, orderBy, null);
+        int rowCount = 0;
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = prepareStreamingStatement(conn, sql, run)) {
+            int index = plan.bindDefaults(stmt);
+            for (Object param : params) {
+                stmt.setObject(index++, param);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                int colCount = plan.getColumns().size();
+                while (rs.next()) {
+                    for (int i = 1; i <= colCount; i++) {
+                        writer.writeField(rs.getObject(i));
+                    }
+                    writer.endRow();
+                    if (keys != null) keys.add(String.valueOf(rs.getObject(keyIndex + 1)));
+                    rowCount++;
+                    run.rowWritten();
                 }
             }
-            sql.append(String.join(" AND ", conditions));
         }
+        return rowCount;
+    }
 
-        // Add ORDER BY clause for sorting
-        if (sortConfig != null && !sortConfig.isEmpty()) {
-            sql.append(" ORDER BY ");
-            List<String> sortExpressions = new ArrayList<>();
-            @SuppressWarnings("unchecked")
-            Map<String, Object> sorts = (Map<String, Object>) sortConfig;
-            for (Map.Entry<String, Object> entry : sorts.entrySet()) {
-                sortExpressions.add(entry.getKey() + " " + entry.getValue().toString());
+    /**
+     * Copy the data rows of a previous output, skipping the header and rows whose key was changed.
+     */
+    private int copyPreviousRows(File previous, CsvStreamWriter writer, Set<String> changedKeys, int keyIndex,
+                                 ReportRun run) throws IOException {
+        InputStream in = Files.newInputStream(previous.toPath());
+        if (previous.getName().endsWith(GZIP_SUFFIX)) {
+            in = new GZIPInputStream(in, exportBufferSize);
+        }
+        int rowCount = 0;
+        try (CsvRecordReader reader = new CsvRecordReader(in, exportBufferSize)) {
+            if (!reader.next()) return 0;
+            while (reader.next()) {
+                if (changedKeys != null && changedKeys.contains(reader.field(keyIndex))) continue;
+                writer.writeRaw(reader.getRecord(), 0, reader.getRecordLength());
+                rowCount++;
+                run.rowWritten();
             }
-            sql.append(String.join(", ", sortExpressions));
         }
+        return rowCount;
+    }
+
+    private static LocalDateTime toDateTime(Object value) {
+        if (value instanceof LocalDateTime) return (LocalDateTime) value;
+        if (value instanceof Timestamp) return ((Timestamp) value).toLocalDateTime();
+        if (value instanceof java.sql.Date) return ((java.sql.Date) value).toLocalDate().atStartOfDay();
+        if (value instanceof java.time.LocalDate) return ((java.time.LocalDate) value).atStartOfDay();
+        return null;
+    }
 
-        return sql.toString();
+    private static boolean sameSecond(LocalDateTime a, LocalDateTime b) {
+        // TIMESTAMP columns may drop the fraction when the version is stored
+        return a != null && b != null
+                && a.truncatedTo(java.time.temporal.ChronoUnit.SECONDS).equals(b.truncatedTo(java.time.temporal.ChronoUnit.SECONDS));
+    }
+
+    private static String encodeWatermark(Object value) {
+        LocalDateTime dateTime = toDateTime(value);
+        return dateTime != null ? dateTime.format(WATERMARK_TIME) : value.toString();
+    }
+
+    private static Object decodeWatermark(String value, boolean temporal) {
+        return temporal ? LocalDateTime.parse(value, WATERMARK_TIME) : Long.valueOf(value);
+    }
+
+    /**
+     * EXPLAIN a saved report with its own filter values.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public QueryCost explain(Report report) throws Exception {
+        ReportQueryPlan plan = reportSummaryService.route(reportQueryPlanner.planFor(report));
+        return explain(plan, plan.getParameters());
+    }
+
+    /**
+     * EXPLAIN an ad-hoc run.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public QueryCost explain(QuerySpec spec) {
+        ReportQueryPlan plan = planFor(spec);
+        return explain(plan, spec.getFilters());
+    }
+
+    /**
+     * True when an ad-hoc run would read a summary table rather than the view's own table.
+     */
+    public boolean answeredFromSummary(QuerySpec spec) {
+        return !planFor(spec).getTableName().equals(spec.getTableName());
+    }
+
+    private ReportQueryPlan planFor(QuerySpec spec) {
+        return reportSummaryService.route(reportQueryPlanner.planFor(spec.getViewId(), spec.getTableName(), spec.getColumns(),
+                spec.getFilters(), spec.getSortConfig()));
+    }
+
+    /**
+     * Ask MySQL's optimizer for the plan's row estimate and access paths without running it.
+     * Databases without a compatible EXPLAIN yield an empty estimate.
+     */
+    private QueryCost explain(ReportQueryPlan plan, Map<String, Object> values) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("EXPLAIN " + plan.getSql())) {
+            plan.bind(stmt, values);
+            long rows = 0;
+            boolean fullScan = false;
+            boolean filesort = false;
+            boolean temporary = false;
+            Set<String> indexes = new LinkedHashSet<>();
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Object estimate = rs.getObject("rows");
+                    if (estimate instanceof Number) rows += ((Number) estimate).longValue();
+                    fullScan |= "ALL".equalsIgnoreCase(rs.getString("type"));
+                    String key = rs.getString("key");
+                    if (key != null) indexes.add(key);
+                    String extra = rs.getString("Extra");
+                    if (extra != null) {
+                        filesort |= extra.contains("Using filesort");
+                        temporary |= extra.contains("Using temporary");
+                    }
+                }
+            }
+            return QueryCost.builder()
+                    .estimatedRows(rows)
+                    .fullScan(fullScan)
+                    .indexUsed(indexes.isEmpty() ? null : String.join(",", indexes))
+                    .filesort(filesort)
+                    .temporaryTable(temporary)
+                    .build();
+        } catch (SQLException e) {
+            log.debug("EXPLAIN unavailable for report query: {}", e.getMessage());
+            return QueryCost.builder().build();
+        }
+    }
+
+    /**
+     * Serve a saved report's CSV from the result cache without touching the source table, if possible.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Optional<ReportResult> cachedCsvReport(Report report, User user) throws Exception {
+        String cacheKey = csvCacheKey(report, reportSummaryService.route(reportQueryPlanner.planFor(report)));
+        if (cacheKey == null) return Optional.empty();
+        Files.createDirectories(Paths.get(reportOutputDirectory));
+        String filePath = reportOutputDirectory + File.separator + generateFileName(report, user);
+        Optional<ReportResultCache.CachedCsv> cached = reportResultCache.getCsv(cacheKey, Paths.get(filePath));
+        if (cached.isEmpty()) return Optional.empty();
+        return Optional.of(buildResult(filePath, cached.get().getRowCount(), cached.get().getContentLength()));
+    }
+
+    /**
+     * Result cache key for a saved report's CSV, or null when it is not cacheable. Plans routed to a summary
+     * are never cached: a summary lags its base table, whose data version the key carries.
+     */
+    private String csvCacheKey(Report report, ReportQueryPlan plan) {
+        if (report.getView() != null && !plan.getTableName().equals(report.getView().getTableName())) return null;
+        Long viewId = report.getView() != null ? report.getView().getId() : null;
+        String tableName = report.getView() != null ? report.getView().getTableName() : null;
+        String key = reportResultCache.csvKey(report.getId(), report.getUpdatedAt(), viewId, tableName);
+        return key != null && gzipOutput ? key + "|gz" : key;
+    }
+
+    /**
+     * Hand the written file to the output store, which may replace it with an identical stored copy.
+     */
+    private ReportResult buildResult(String filePath, int rowCount, long contentLength) throws IOException {
+        File csvFile = new File(filePath);
+        long fileSize = csvFile.length();
+        boolean compressed = filePath.endsWith(GZIP_SUFFIX);
+        String storedPath = reportStorageService.store(filePath);
+
+        return ReportResult.builder()
+                .filePath(storedPath)
+                .fileSize(compressed ? contentLength : fileSize)
+                .compressedSize(compressed ? fileSize : null)
+                .rowCount(rowCount)
+                .build();
+    }
+
+    /**
+     * Create a forward-only statement that streams rows instead of buffering the whole result set.
+     */
+    private PreparedStatement prepareStreamingStatement(Connection conn, String sql) throws SQLException {
+        PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        String product = conn.getMetaData().getDatabaseProductName();
+        if (exportFetchSize <= 0 && product != null && product.toLowerCase().contains("mysql")) {
+            // Connector/J only streams row-by-row when the fetch size is Integer.MIN_VALUE
+            stmt.setFetchSize(Integer.MIN_VALUE);
+        } else if (exportFetchSize > 0) {
+            stmt.setFetchSize(exportFetchSize);
+        }
+        return stmt;
+    }
+
+    /**
+     * Streaming statement that the run can cancel from another thread.
+     */
+    private PreparedStatement prepareStreamingStatement(Connection conn, String sql, ReportRun run) throws SQLException {
+        PreparedStatement stmt = prepareStreamingStatement(conn, sql);
+        run.register(stmt);
+        return stmt;
+    }
+
+    private ResultSet executeBound(PreparedStatement stmt, ReportQueryPlan plan, Map<String, Object> values) throws SQLException {
+        plan.bind(stmt, values);
+        return stmt.executeQuery();
     }
 
     public List<String> parseColumns(String columnsJson) throws Exception {
-        return objectMapper.readValue(columnsJson, List.class);
+        return reportQueryPlanner.parseColumns(columnsJson);
     }
 
     public Map<String, Object> parseFilters(String filtersJson) throws Exception {
-        if (filtersJson == null || filtersJson.isEmpty()) {
-            return new HashMap<>();
-        }
-
-        String trimmed = filtersJson.trim();
-        // Accept either an object (e.g. {"email":"admin"}) or an array (e.g. ["email"]).
-        if (trimmed.startsWith("{")) {
-            return objectMapper.readValue(filtersJson, Map.class);
-        } else if (trimmed.startsWith("[")) {
-            // Array of field names -> convert to map with null values
-            List<String> keys = objectMapper.readValue(filtersJson, List.class);
-            Map<String, Object> result = new LinkedHashMap<>();
-            for (String k : keys) {
-                result.put(k, null);
-            }
-            return result;
-        } else {
-            // Fallback: attempt to parse as a map
-            return objectMapper.readValue(filtersJson, Map.class);
-        }
+        return reportQueryPlanner.parseFilters(filtersJson);
     }
 
     public Map<String, Object> parseSort(String sortJson) throws Exception {
-        if (sortJson == null || sortJson.isEmpty()) {
-            return new HashMap<>();
-        }
-        String trimmed = sortJson.trim();
-        // If sort config accidentally stored as an array, treat as no-sort
-        if (trimmed.startsWith("[")) {
-            return new HashMap<>();
-        }
-        return objectMapper.readValue(sortJson, Map.class);
+        return reportQueryPlanner.parseSort(sortJson);
     }
 
     private String generateFileName(Report report, User user) {
         LocalDateTime now = LocalDateTime.now();
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
-        return String.format("Report_%s_%s_%s.csv", 
+        return String.format("Report_%s_%s_%s.csv%s",
                 report.getId(), 
                 now.format(formatter),
-                user.getId());
-    }
-
-    private String escapeForCsv(String value) {
-        if (value == null) return "";
-        return value.replace("\"", "\"\"");
+                user.getId(),
+                gzipOutput ? GZIP_SUFFIX : "");
     }
 
     public List<Map<String, Object>> executeQuery(Report report, Map<String, Object> overrideFilters) throws Exception {
-        List<String> logicalColumns = parseColumns(report.getSelectedColumns());
-        Map<String, Object> filters = parseFilters(report.getFilterConditions());
+        ReportQueryPlanner.ReportDefinition definition = reportQueryPlanner.definitionFor(report);
+        Map<String, Object> filters = definition.getFilters();
         if (overrideFilters != null) {
             filters.putAll(overrideFilters);
         }
-        Map<String, Object> sortConfig = parseSort(report.getSortConfig());
-        String tableName = report.getView().getTableName();
-
-        // Build mapping information if view is present so we can use type-aware filtering
         Long viewId = report.getView() != null ? report.getView().getId() : null;
-        java.util.Map<String, String> logicalToPhysical = new java.util.HashMap<>();
-        java.util.Map<String, String> fieldTypeMap = new java.util.HashMap<>();
-        if (viewId != null) {
-            List<com.kkvat.automation.model.ReportViewField> fields = reportViewFieldRepository.findByViewId(viewId);
-            for (com.kkvat.automation.model.ReportViewField f : fields) {
-                if (f.getDisplayName() != null) logicalToPhysical.put(f.getDisplayName().toLowerCase(), f.getFieldName());
-                if (f.getFieldName() != null) logicalToPhysical.put(f.getFieldName().toLowerCase(), f.getFieldName());
-                fieldTypeMap.put(f.getFieldName(), f.getFieldType());
-            }
+        ReportQueryPlan plan = reportSummaryService.route(reportQueryPlanner.planFor(viewId, report.getView().getTableName(),
+                definition.getColumns(), filters, definition.getSortConfig()));
+        log.info("Executing report SQL (direct): {}", plan.getSql());
+        return fetchRows(plan, filters);
+    }
+
+    /**
+     * Execute a query using explicit parameters (table name, columns, filters, sortConfig).
+     */
+    public List<Map<String, Object>> executeRawQuery(Long viewId, String tableName, List<String> columns, Map<String, Object> filters, Map<String, Object> sortConfig) throws Exception {
+        ReportQueryPlan plan = reportSummaryService.route(reportQueryPlanner.planFor(viewId, tableName, columns, filters, sortConfig));
+        log.info("Executing raw report SQL: {}", plan.getSql());
+        return fetchRows(plan, filters);
+    }
+
+    /**
+     * Run a raw query into a memory-budgeted buffer: rows past report.result-buffer.memory-budget-bytes
+     * are spilled to a temporary file instead of the heap. The caller must release the buffer.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ReportResultBuffer bufferRawQuery(Long viewId, String tableName, List<String> columns, Map<String, Object> filters,
+                                             Map<String, Object> sortConfig) throws Exception {
+        ReportQueryPlan plan = reportSummaryService.route(reportQueryPlanner.planFor(viewId, tableName, columns, filters, sortConfig));
+        log.info("Executing buffered report SQL: {}", plan.getSql());
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = prepareStreamingStatement(conn, plan.getSql());
+             ResultSet rs = executeBound(stmt, plan, filters)) {
+            return reportResultSpooler.spool(rs);
         }
+    }
 
-        // Map logical columns to physical columns for the query
-        List<String> physicalColumns = new ArrayList<>();
-        for (String col : logicalColumns) {
-            String mapped = logicalToPhysical.getOrDefault(col.toLowerCase(), col);
-            physicalColumns.add(mapped);
+    private ReportRowSet fetchRows(ReportQueryPlan plan, Map<String, Object> filters) throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(plan.getSql());
+             ResultSet rs = executeBound(stmt, plan, filters)) {
+            return ReportRowSet.from(rs);
         }
+    }
 
-        // Map filter keys to physical names
-        Map<String, Object> physicalFilters = new java.util.HashMap<>();
-        if (filters != null) {
-            for (Map.Entry<String, Object> e : filters.entrySet()) {
-                String key = e.getKey();
-                String mappedKey = logicalToPhysical.getOrDefault(key.toLowerCase(), key);
-                physicalFilters.put(mappedKey, e.getValue());
+    /**
+     * Quick look at an ad-hoc run for the report builder. Work is bounded whatever the table size:
+     * plain reports read the first rows with a hard LIMIT and no ORDER BY, grouped reports and SAMPLE
+     * mode aggregate over at most report.preview.sample-rows rows, and every statement carries a short
+     * execution time limit.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ReportPreviewResponse executePreview(QuerySpec spec, PreviewMode mode, Integer limit) throws Exception {
+        ReportQueryPlan plan = planFor(spec);
+        int size = Math.max(1, Math.min(limit != null ? limit : previewDefaultRows, previewMaxRows));
+        long startedAt = System.currentTimeMillis();
+
+        String sql;
+        // each random range repeats the plan's conditions, followed by its start key
+        List<Long> rangeStarts = new ArrayList<>();
+        String method;
+        Double fraction = null;
+        if (!plan.getTableName().equals(spec.getTableName())) {
+            // a summary answers the grouped query exactly and cheaply, no sampling needed
+            method = "SUMMARY";
+            List<String> orderBy = new ArrayList<>();
+            for (ReportQueryPlan.SortKey key : plan.getSortKeys()) orderBy.add(key.toString());
+            sql = plan.render(List.of(), List.of(), orderBy, "LIMIT " + (size + 1));
+        } else if (mode == PreviewMode.FIRST && !plan.isAggregated()) {
+            method = "LIMIT";
+            sql = plan.render(List.of(), List.of(), null, "LIMIT " + (size + 1));
+        } else {
+            List<String> orderBy = new ArrayList<>();
+            for (ReportQueryPlan.SortKey key : plan.getSortKeys()) orderBy.add(key.toString());
+            long[] bounds = primaryKeyBounds(plan);
+            long span = bounds != null ? bounds[1] - bounds[0] + 1 : -1;
+            String source;
+            if (mode == PreviewMode.SAMPLE && span > previewSampleRows) {
+                method = "RANDOM_RANGES";
+                String key = getPrimaryKeyColumns(plan.getTableName()).get(0);
+                int chunks = Math.max(1, previewSampleChunks);
+                int chunkRows = (previewSampleRows + chunks - 1) / chunks;
+                long[] starts = ThreadLocalRandom.current().longs(chunks, bounds[0], bounds[1] + 1).sorted().toArray();
+                List<String> ranges = new ArrayList<>();
+                for (long start : starts) {
+                    ranges.add("(" + plan.renderSelect(List.of("*"), List.of(key + " >= ?"), List.of(key + " ASC"),
+                            "LIMIT " + chunkRows) + ")");
+                    rangeStarts.add(start);
+                }
+                source = "(" + String.join(" UNION ALL ", ranges) + ") sample_rows";
+                fraction = Math.min(1.0, (double) chunks * chunkRows / span);
+            } else {
+                method = "HEAD";
+                source = "(" + plan.renderSelect(List.of("*"), List.of(), null, "LIMIT " + previewSampleRows) + ") sample_rows";
+                fraction = span > 0 ? Math.min(1.0, (double) previewSampleRows / span) : null;
+            }
+            sql = plan.renderOver(source, orderBy, "LIMIT " + (size + 1));
+        }
+        log.info("Executing report preview SQL ({}): {}", method, sql);
+
+        ReportRowSet rows;
+        boolean truncated = false;
+        boolean timedOut = false;
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(withExecutionLimit(conn, sql, previewTimeoutMs))) {
+            stmt.setQueryTimeout((int) Math.max(1, (previewTimeoutMs + 999) / 1000));
+            if (rangeStarts.isEmpty()) {
+                plan.bind(stmt, spec.getFilters());
+            }
+            int index = 1;
+            for (Long start : rangeStarts) {
+                index = plan.bind(stmt, spec.getFilters(), index);
+                stmt.setObject(index++, start);
             }
+            try (ResultSet rs = stmt.executeQuery()) {
+                ReportRowSet.Builder builder = ReportRowSet.builder(
+                        ReportRowSet.labelsOf(rs.getMetaData(), plan.getColumns().size()));
+                while (rs.next()) {
+                    if (builder.size() == size) {
+                        truncated = true;
+                        break;
+                    }
+                    builder.add(rs);
+                }
+                rows = builder.build();
+            }
+        } catch (SQLException e) {
+            if (!isTimeout(e)) throw e;
+            log.info("Report preview stopped after {} ms: {}", previewTimeoutMs, e.getMessage());
+            timedOut = true;
+            rows = ReportRowSet.builder(List.of()).build();
         }
 
-        String sql = buildSelectQuery(tableName, physicalColumns, physicalFilters, sortConfig != null ? sortConfig : new HashMap<>(), fieldTypeMap);
-        log.info("Executing report SQL (direct): {}", sql);
+        boolean approximate = !"LIMIT".equals(method) && !"SUMMARY".equals(method) && (fraction == null || fraction < 1.0);
+        return ReportPreviewResponse.builder()
+                .rows(rows)
+                .mode(mode.name())
+                .method(method)
+                .limit(size)
+                .truncated(truncated)
+                .approximate(approximate)
+                .sampleFraction(approximate ? fraction : null)
+                .timedOut(timedOut)
+                .elapsedMs(System.currentTimeMillis() - startedAt)
+                .build();
+    }
 
-        List<Map<String, Object>> rows = new ArrayList<>();
+    /**
+     * MIN and MAX of the table's single integral primary key, read from the index ends; null when there is none.
+     */
+    private long[] primaryKeyBounds(ReportQueryPlan plan) throws SQLException {
+        List<String> primaryKey = getPrimaryKeyColumns(plan.getTableName());
+        if (primaryKey.size() != 1) return null;
+        String key = primaryKey.get(0);
         try (Connection conn = dataSource.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+             PreparedStatement stmt = conn.prepareStatement("SELECT MIN(" + key + "), MAX(" + key + ") FROM " + plan.getTableName());
+             ResultSet rs = stmt.executeQuery()) {
+            if (!rs.next() || !isIntegral(rs.getObject(1)) || !isIntegral(rs.getObject(2))) return null;
+            return new long[]{rs.getLong(1), rs.getLong(2)};
+        }
+    }
+
+    /**
+     * MySQL stops a SELECT carrying MAX_EXECUTION_TIME server-side; other databases rely on the JDBC query timeout.
+     */
+    private static String withExecutionLimit(Connection conn, String sql, long timeoutMs) throws SQLException {
+        String product = conn.getMetaData().getDatabaseProductName();
+        if (product == null || !product.toLowerCase().contains("mysql") || !sql.startsWith("SELECT ")) return sql;
+        return "SELECT /*+ MAX_EXECUTION_TIME(" + timeoutMs + ") */ " + sql.substring("SELECT ".length());
+    }
+
+    private static boolean isTimeout(SQLException e) {
+        // 3024: maximum statement execution time exceeded; 1317: query execution was interrupted
+        return e instanceof SQLTimeoutException || e.getErrorCode() == 3024 || e.getErrorCode() == 1317;
+    }
+
+    /**
+     * Stream a raw query straight from the ResultSet to the output as NDJSON or a JSON array.
+     * Rows are never materialised, so heap use and time-to-first-byte do not depend on result size.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long streamRawQuery(Long viewId, String tableName, List<String> columns, Map<String, Object> filters,
+                               Map<String, Object> sortConfig, StreamFormat format, OutputStream out) throws Exception {
+        ReportQueryPlan plan = reportSummaryService.route(reportQueryPlanner.planFor(viewId, tableName, columns, filters, sortConfig));
+        log.info("Streaming raw report SQL ({}): {}", format, plan.getSql());
+
+        ObjectWriter valueWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        long rowCount = 0;
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = prepareStreamingStatement(conn, plan.getSql());
+             ResultSet rs = executeBound(stmt, plan, filters);
+             JsonGenerator gen = objectMapper.getFactory().createGenerator(out)) {
 
             ResultSetMetaData metadata = rs.getMetaData();
             int colCount = metadata.getColumnCount();
+            String[] labels = new String[colCount];
+            for (int i = 0; i < colCount; i++) {
+                labels[i] = metadata.getColumnLabel(i + 1);
+            }
 
+            if (format == StreamFormat.JSON_ARRAY) {
+                gen.writeStartArray();
+            }
             while (rs.next()) {
-                Map<String, Object> row = new LinkedHashMap<>();
-                for (int i = 1; i <= colCount; i++) {
-                    String colLabel = metadata.getColumnLabel(i);
-                    Object value = rs.getObject(i);
-                    row.put(colLabel, value);
+                gen.writeStartObject();
+                for (int i = 0; i < colCount; i++) {
+                    gen.writeFieldName(labels[i]);
+                    writeJsonValue(gen, valueWriter, rs.getObject(i + 1));
+                }
+                gen.writeEndObject();
+                if (format == StreamFormat.NDJSON) {
+                    gen.writeRaw('\n');
+                }
+                rowCount++;
+                // push the first row out immediately, then flush in batches
+                if (rowCount == 1 || rowCount % STREAM_FLUSH_INTERVAL == 0) {
+                    gen.flush();
                 }
-                rows.add(row);
+            }
+            if (format == StreamFormat.JSON_ARRAY) {
+                gen.writeEndArray();
             }
         }
+        return rowCount;
+    }
 
-        return rows;
+    private void writeJsonValue(JsonGenerator gen, ObjectWriter valueWriter, Object value) throws java.io.IOException {
+        if (value == null) {
+            gen.writeNull();
+        } else if (value instanceof String) {
+            gen.writeString((String) value);
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            gen.writeNumber(((Number) value).intValue());
+        } else if (value instanceof Long) {
+            gen.writeNumber((Long) value);
+        } else if (value instanceof java.math.BigDecimal) {
+            gen.writeNumber((java.math.BigDecimal) value);
+        } else if (value instanceof Boolean) {
+            gen.writeBoolean((Boolean) value);
+        } else {
+            // dates and anything else go through the configured ObjectMapper
+            valueWriter.writeValue(gen, value);
+        }
     }
 
     /**
-     * Execute a query using explicit parameters (table name, columns, filters, sortConfig).
+     * Fetch one page of an ad-hoc run using keyset (seek) pagination over the sort keys plus the primary key.
+     * The cursor holds the key values of the last row returned, so every page is an index range scan.
      */
-    public List<Map<String, Object>> executeRawQuery(Long viewId, String tableName, List<String> columns, Map<String, Object> filters, Map<String, Object> sortConfig) throws Exception {
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ReportPageResponse executePage(Long viewId, String tableName, List<String> columns, Map<String, Object> filters,
+                                          Map<String, Object> sortConfig, String cursor, int pageSize) throws Exception {
         if (columns == null || columns.isEmpty()) throw new IllegalArgumentException("Columns must be provided");
         if (tableName == null || tableName.isEmpty()) throw new IllegalArgumentException("tableName must be provided");
+        int size = Math.max(1, Math.min(pageSize, maxPageSize));
+
+        ReportQueryPlan plan = reportSummaryService.route(reportQueryPlanner.planFor(viewId, tableName, columns, filters, sortConfig));
+        List<String> physicalColumns = plan.getColumns();
+        List<ReportQueryPlan.SortKey> keys = resolveSortKeys(plan);
+        String fingerprint = Integer.toHexString(keys.toString().hashCode());
+        List<Object> after = decodeCursor(cursor, fingerprint, keys.size());
 
-        // If viewId provided, map requested logical column names and filter keys to actual field names
-        java.util.Map<String, String> logicalToPhysical = new java.util.HashMap<>();
-        java.util.Map<String, String> fieldTypeMap = new java.util.HashMap<>();
-        if (viewId != null) {
-            List<com.kkvat.automation.model.ReportViewField> fields = reportViewFieldRepository.findByViewId(viewId);
-            for (com.kkvat.automation.model.ReportViewField f : fields) {
-                if (f.getDisplayName() != null) logicalToPhysical.put(f.getDisplayName().toLowerCase(), f.getFieldName());
-                if (f.getFieldName() != null) logicalToPhysical.put(f.getFieldName().toLowerCase(), f.getFieldName());
-                fieldTypeMap.put(f.getFieldName(), f.getFieldType());
+        // Sort keys that are not part of the selection are fetched as trailing columns and stripped again
+        List<String> extraColumns = new ArrayList<>();
+        int[] keyIndexes = new int[keys.size()];
+        for (int k = 0; k < keys.size(); k++) {
+            int idx = indexOfIgnoreCase(physicalColumns, keys.get(k).getColumn());
+            if (idx < 0) {
+                extraColumns.add(keys.get(k).getColumn());
+                idx = physicalColumns.size() + extraColumns.size() - 1;
             }
+            keyIndexes[k] = idx;
         }
 
-        // Map columns
-        List<String> physicalColumns = new ArrayList<>();
-        for (String col : columns) {
-            String mapped = logicalToPhysical.getOrDefault(col.toLowerCase(), col);
-            physicalColumns.add(mapped);
+        List<Object> params = new ArrayList<>();
+        List<String> seek = after != null
+                ? List.of(buildSeekPredicate(keys, after, getNotNullColumns(plan.getTableName()), params))
+                : List.of();
+        List<String> orderBy = new ArrayList<>();
+        for (ReportQueryPlan.SortKey key : keys) {
+            orderBy.add(key.toString());
         }
+        String sql = plan.render(extraColumns, seek, orderBy, "LIMIT " + (size + 1));
+        log.info("Executing report page SQL: {}", sql);
 
-        // Map filters: convert keys to physical names
-        Map<String, Object> physicalFilters = new java.util.HashMap<>();
-        if (filters != null) {
-            for (Map.Entry<String, Object> e : filters.entrySet()) {
-                String key = e.getKey();
-                String mappedKey = logicalToPhysical.getOrDefault(key.toLowerCase(), key);
-                physicalFilters.put(mappedKey, e.getValue());
+        ReportRowSet rows;
+        Object[] lastKey = null;
+        boolean hasMore = false;
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int index = plan.bind(stmt, filters);
+            for (Object param : params) {
+                stmt.setObject(index++, param);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                // the trailing sort key columns are read for the cursor only
+                ReportRowSet.Builder builder = ReportRowSet.builder(
+                        ReportRowSet.labelsOf(rs.getMetaData(), physicalColumns.size()));
+                while (rs.next()) {
+                    if (builder.size() == size) {
+                        hasMore = true;
+                        break;
+                    }
+                    builder.add(rs);
+                    lastKey = new Object[keys.size()];
+                    for (int k = 0; k < keys.size(); k++) {
+                        lastKey[k] = rs.getObject(keyIndexes[k] + 1);
+                    }
+                }
+                rows = builder.build();
             }
         }
 
-        String sql = buildSelectQuery(tableName, physicalColumns, physicalFilters, sortConfig != null ? sortConfig : new HashMap<>(), fieldTypeMap);
-        log.info("Executing raw report SQL: {}", sql);
+        return ReportPageResponse.builder()
+                .rows(rows)
+                .pageSize(size)
+                .hasMore(hasMore)
+                .nextCursor(hasMore ? encodeCursor(fingerprint, lastKey) : null)
+                .build();
+    }
 
-        List<Map<String, Object>> rows = new ArrayList<>();
-        try (Connection conn = dataSource.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+    /**
+     * Sort keys for keyset pagination: the configured sort columns that the view marks sortable,
+     * followed by the primary key columns as a unique tie-breaker. Grouped reports use their group columns.
+     */
+    private List<ReportQueryPlan.SortKey> resolveSortKeys(ReportQueryPlan plan) throws SQLException {
+        List<ReportQueryPlan.SortKey> keys = new ArrayList<>();
+        if (plan.isAggregated()) {
+            // a grouped row is identified by its group columns; aggregates cannot be seeked on in WHERE
+            for (ReportQueryPlan.SortKey key : plan.getSortKeys()) {
+                if (plan.getGroupBy().contains(key.getColumn())) keys.add(key);
+            }
+            for (String column : plan.getGroupBy()) {
+                boolean present = keys.stream().anyMatch(k -> k.getColumn().equals(column));
+                if (!present) keys.add(new ReportQueryPlan.SortKey(column, false));
+            }
+            return keys;
+        }
+        for (ReportQueryPlan.SortKey key : plan.getSortKeys()) {
+            if (!plan.getSortableFields().isEmpty() && !plan.getSortableFields().contains(key.getColumn())) {
+                log.debug("Ignoring non-sortable column {} for keyset pagination", key.getColumn());
+                continue;
+            }
+            keys.add(key);
+        }
+        List<String> primaryKey = getPrimaryKeyColumns(plan.getTableName());
+        if (primaryKey.isEmpty()) {
+            throw new BadRequestException("Table " + plan.getTableName() + " has no primary key; keyset pagination is not available");
+        }
+        for (String pk : primaryKey) {
+            boolean present = keys.stream().anyMatch(k -> k.getColumn().equalsIgnoreCase(pk));
+            if (!present) keys.add(new ReportQueryPlan.SortKey(pk, false));
+        }
+        return keys;
+    }
 
-            ResultSetMetaData metadata = rs.getMetaData();
-            int colCount = metadata.getColumnCount();
+    /**
+     * Build "rows after the cursor" for the given key order. NULLs sort first ascending and last descending,
+     * as in MySQL. A row-value comparison is used when every key is ascending, or every key is descending and
+     * NOT NULL (MySQL turns it into a single range scan): descending, the NULLs still to come compare as
+     * unknown and would be skipped. Anything else, and NULL cursor values, use the expanded OR-of-ANDs form.
+     */
+    private String buildSeekPredicate(List<ReportQueryPlan.SortKey> keys, List<Object> after, Set<String> notNullColumns,
+                                      List<Object> params) {
+        boolean uniform = keys.stream().allMatch(k -> k.isDescending() == keys.get(0).isDescending());
+        boolean nullsBehind = !keys.get(0).isDescending()
+                || keys.stream().allMatch(k -> notNullColumns.contains(k.getColumn().toLowerCase()));
+        if (uniform && nullsBehind && after.stream().noneMatch(java.util.Objects::isNull)) {
+            List<String> cols = new ArrayList<>();
+            List<String> marks = new ArrayList<>();
+            for (int i = 0; i < keys.size(); i++) {
+                cols.add(keys.get(i).getColumn());
+                marks.add("?");
+                params.add(after.get(i));
+            }
+            return "(" + String.join(", ", cols) + ") " + (keys.get(0).isDescending() ? "<" : ">")
+                    + " (" + String.join(", ", marks) + ")";
+        }
+
+        List<String> branches = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i++) {
+            List<String> parts = new ArrayList<>();
+            for (int j = 0; j < i; j++) {
+                Object v = after.get(j);
+                if (v == null) {
+                    parts.add(keys.get(j).getColumn() + " IS NULL");
+                } else {
+                    parts.add(keys.get(j).getColumn() + " = ?");
+                    params.add(v);
+                }
+            }
+            ReportQueryPlan.SortKey key = keys.get(i);
+            Object v = after.get(i);
+            if (v == null) {
+                parts.add(key.isDescending() ? "1 = 0" : key.getColumn() + " IS NOT NULL");
+            } else if (key.isDescending()) {
+                parts.add("(" + key.getColumn() + " < ? OR " + key.getColumn() + " IS NULL)");
+                params.add(v);
+            } else {
+                parts.add(key.getColumn() + " > ?");
+                params.add(v);
+            }
+            branches.add("(" + String.join(" AND ", parts) + ")");
+        }
+        return "(" + String.join(" OR ", branches) + ")";
+    }
 
+    /**
+     * Lower-cased names of the table's NOT NULL columns.
+     */
+    private Set<String> getNotNullColumns(String tableName) throws SQLException {
+        Set<String> cached = notNullColumnCache.get(tableName.toLowerCase());
+        if (cached != null) return cached;
+        Set<String> notNull = new java.util.HashSet<>();
+        try (Connection conn = dataSource.getConnection();
+             ResultSet rs = conn.getMetaData().getColumns(conn.getCatalog(), null, tableName, null)) {
             while (rs.next()) {
-                Map<String, Object> row = new LinkedHashMap<>();
-                for (int i = 1; i <= colCount; i++) {
-                    String colLabel = metadata.getColumnLabel(i);
-                    Object value = rs.getObject(i);
-                    row.put(colLabel, value);
+                if (rs.getInt("NULLABLE") == java.sql.DatabaseMetaData.columnNoNulls) {
+                    notNull.add(rs.getString("COLUMN_NAME").toLowerCase());
                 }
-                rows.add(row);
             }
         }
+        Set<String> columns = Set.copyOf(notNull);
+        notNullColumnCache.put(tableName.toLowerCase(), columns);
+        return columns;
+    }
 
-        return rows;
+    private List<String> getPrimaryKeyColumns(String tableName) throws SQLException {
+        List<String> cached = primaryKeyCache.get(tableName.toLowerCase());
+        if (cached != null) return cached;
+        java.util.TreeMap<Short, String> ordered = new java.util.TreeMap<>();
+        try (Connection conn = dataSource.getConnection();
+             ResultSet rs = conn.getMetaData().getPrimaryKeys(conn.getCatalog(), null, tableName)) {
+            while (rs.next()) {
+                ordered.put(rs.getShort("KEY_SEQ"), rs.getString("COLUMN_NAME"));
+            }
+        }
+        List<String> pk = List.copyOf(ordered.values());
+        primaryKeyCache.put(tableName.toLowerCase(), pk);
+        return pk;
+    }
+
+    private String encodeCursor(String fingerprint, Object[] lastKey) throws Exception {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("s", fingerprint);
+        Object[] values = new Object[lastKey.length];
+        for (int i = 0; i < lastKey.length; i++) {
+            values[i] = toCursorValue(lastKey[i]);
+        }
+        payload.put("k", values);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(objectMapper.writeValueAsBytes(payload));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object> decodeCursor(String cursor, String fingerprint, int keyCount) {
+        if (cursor == null || cursor.isBlank()) return null;
+        try {
+            // keep decimals exact so the seek predicate compares against the same value
+            Map<String, Object> payload = objectMapper.readerFor(Map.class)
+                    .with(com.fasterxml.jackson.databind.DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS)
+                    .readValue(Base64.getUrlDecoder().decode(cursor));
+            List<Object> values = (List<Object>) payload.get("k");
+            if (!fingerprint.equals(payload.get("s")) || values == null || values.size() != keyCount) {
+                throw new BadRequestException("Cursor does not match the report's sort order");
+            }
+            return values;
+        } catch (BadRequestException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new BadRequestException("Invalid page cursor");
+        }
+    }
+
+    /**
+     * Temporal key values go into the cursor as SQL literals so they bind back without timezone suffixes.
+     */
+    private static Object toCursorValue(Object value) {
+        if (value instanceof Timestamp) value = ((Timestamp) value).toLocalDateTime();
+        if (value instanceof java.sql.Date) value = ((java.sql.Date) value).toLocalDate();
+        if (value instanceof java.time.LocalDateTime) return value.toString().replace('T', ' ');
+        if (value instanceof java.time.temporal.Temporal || value instanceof java.util.Date) return value.toString();
+        return value;
+    }
+
+    private static int indexOfIgnoreCase(List<String> values, String value) {
+        for (int i = 0; i < values.size(); i++) {
+            if (values.get(i).equalsIgnoreCase(value)) return i;
+        }
+        return -1;
     }
 }
@@ -0,0 +1,441 @@
+package com.kkvat.automation.service;
+
+import com.kkvat.automation.dto.ReportIndexAdviceResponse;
+import com.kkvat.automation.exception.BadRequestException;
+import com.kkvat.automation.exception.ResourceNotFoundException;
+import com.kkvat.automation.model.Report;
+import com.kkvat.automation.model.ReportView;
+import com.kkvat.automation.model.ReportViewField;
+import com.kkvat.automation.repository.ReportExecutionRepository;
+import com.kkvat.automation.repository.ReportRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.ToLongFunction;
+import java.util.regex.Pattern;
+
+/**
+ * Suggests indexes for report views. The workload is the saved reports run recently, weighted by
+ * run count, plus the views' filterable and sortable fields; both are checked against the indexes
+ * in INFORMATION_SCHEMA.STATISTICS. A suggestion puts equality columns first (most selective
+ * first), then one range column or the sort columns, then the remaining selected columns when the
+ * index can cover the query. Suggestions can be created online with ALGORITHM=INPLACE, LOCK=NONE.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReportIndexAdvisor {
+    private final ReportExecutionRepository reportExecutionRepository;
+    private final ReportRepository reportRepository;
+    private final ReportQueryPlanner reportQueryPlanner;
+    private final ReportViewCatalog reportViewCatalog;
+    private final ReportGenerationService reportGenerationService;
+    private final NamedParameterJdbcTemplate jdbc;
+
+    @Value("${report.index-advisor.enabled:true}")
+    private boolean enabled;
+
+    @Value("${report.index-advisor.lookback-days:7}")
+    private int lookbackDays;
+
+    @Value("${report.index-advisor.max-columns:5}")
+    private int maxColumns;
+
+    @Value("${report.index-advisor.sample-rows:100000}")
+    private long sampleRows;
+
+    @Value("${report.index-advisor.auto-create:false}")
+    private boolean autoCreate;
+
+    @Value("${report.index-advisor.auto-create-min-reduction:0.9}")
+    private double autoCreateMinReduction;
+
+    @Value("${report.index-advisor.auto-create-min-runs:10}")
+    private long autoCreateMinRuns;
+
+    @Value("${report.index-advisor.auto-create-max-per-run:1}")
+    private int autoCreateMaxPerRun;
+
+    /** Share of rows a range predicate is assumed to keep when nothing better is known. */
+    private static final double RANGE_SELECTIVITY = 0.3;
+    private static final int MAX_INDEX_NAME = 64;
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+    private static final Set<String> UNINDEXABLE_TYPES = Set.of("text", "tinytext", "mediumtext", "longtext", "blob",
+            "tinyblob", "mediumblob", "longblob", "json", "geometry");
+
+    private volatile List<ReportIndexAdviceResponse> latest = List.of();
+
+    /**
+     * The latest suggestions, analysing first when asked to or when nothing has been analysed yet.
+     */
+    public List<ReportIndexAdviceResponse> getAdvice(boolean refresh) {
+        if (refresh || latest.isEmpty()) analyze();
+        return latest;
+    }
+
+    public List<ReportIndexAdviceResponse> getAdvice(Long viewId, boolean refresh) {
+        return getAdvice(refresh).stream().filter(a -> Objects.equals(a.getViewId(), viewId)).toList();
+    }
+
+    /**
+     * Create a suggested index online. The table stays readable and writable while it builds.
+     */
+    public ReportIndexAdviceResponse apply(String indexName) {
+        ReportIndexAdviceResponse advice = latest.stream()
+                .filter(a -> a.getIndexName().equals(indexName))
+                .findFirst()
+                .orElseThrow(() -> new ResourceNotFoundException("No index suggestion named " + indexName));
+        if (Boolean.TRUE.equals(advice.getCreated())) return advice;
+        TableStats stats = loadTableStats(advice.getTableName());
+        if (stats == null) throw new BadRequestException("Table " + advice.getTableName() + " cannot be inspected");
+        if (stats.indexes.containsKey(indexName.toLowerCase(Locale.ROOT))) {
+            throw new BadRequestException("Index " + indexName + " already exists on " + advice.getTableName());
+        }
+        log.info("Creating report index: {}", advice.getDdl());
+        long startedAt = System.currentTimeMillis();
+        try {
+            jdbc.getJdbcTemplate().execute(advice.getDdl());
+        } catch (DataAccessException e) {
+            throw new BadRequestException("Could not create index " + indexName + ": " + e.getMostSpecificCause().getMessage());
+        }
+        log.info("Report index {} created in {} ms", indexName, System.currentTimeMillis() - startedAt);
+        advice.setCreated(true);
+        return advice;
+    }
+
+    @Scheduled(fixedDelayString = "${report.index-advisor.interval-ms:86400000}",
+            initialDelayString = "${report.index-advisor.initial-delay-ms:600000}")
+    public void scheduledAnalysis() {
+        if (!enabled) return;
+        try {
+            analyze();
+            if (!autoCreate) return;
+            int created = 0;
+            for (ReportIndexAdviceResponse advice : latest) {
+                if (created >= autoCreateMaxPerRun) break;
+                if (advice.getRecentRuns() < autoCreateMinRuns
+                        || advice.getEstimatedScanReduction() < autoCreateMinReduction) continue;
+                apply(advice.getIndexName());
+                created++;
+            }
+        } catch (Exception e) {
+            log.error("Report index analysis failed", e);
+        }
+    }
+
+    /**
+     * Rebuild the suggestions from the recent workload and the current indexes.
+     */
+    public synchronized List<ReportIndexAdviceResponse> analyze() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Candidate> candidates = new ArrayList<>();
+
+        Map<Long, Long> runsByReport = new HashMap<>();
+        for (Object[] row : reportExecutionRepository.countRunsByReportSince(now.minusDays(lookbackDays))) {
+            runsByReport.put((Long) row[0], ((Number) row[1]).longValue());
+        }
+        for (Report report : reportRepository.findAllById(runsByReport.keySet())) {
+            Candidate candidate = fromReport(report, runsByReport.get(report.getId()));
+            if (candidate != null) candidates.add(candidate);
+        }
+        for (ReportView view : reportViewCatalog.getActiveViews()) {
+            for (ReportViewField field : reportViewCatalog.getFields(view.getId())) {
+                if (Boolean.TRUE.equals(field.getIsFilterable()) || Boolean.TRUE.equals(field.getIsSortable())) {
+                    Candidate candidate = new Candidate(view.getId(), view.getTableName(), "VIEW_FIELDS");
+                    candidate.equality.add(field.getFieldName());
+                    candidates.add(candidate);
+                }
+            }
+        }
+
+        Map<String, TableStats> tables = new HashMap<>();
+        Map<String, Candidate> merged = new LinkedHashMap<>();
+        for (Candidate candidate : candidates) {
+            if (candidate.tableName == null || !IDENTIFIER.matcher(candidate.tableName).matches()) continue;
+            TableStats stats = tables.computeIfAbsent(candidate.tableName.toLowerCase(Locale.ROOT), this::loadTableStats);
+            if (stats == null || !candidate.resolve(stats, maxColumns)) continue;
+            candidate.orderEquality(column -> distinctValues(stats, column));
+            if (stats.servedByExistingIndex(candidate)) continue;
+            merged.merge(candidate.tableName.toLowerCase(Locale.ROOT) + "|" + candidate.columns(), candidate, Candidate::absorb);
+        }
+
+        // an index also serves every query its leading columns serve
+        List<Candidate> kept = new ArrayList<>();
+        for (Candidate candidate : merged.values()) {
+            Candidate wider = merged.values().stream()
+                    .filter(other -> other != candidate && other.hasPrefix(candidate))
+                    .max(Comparator.comparingInt(other -> other.columns().size())).orElse(null);
+            if (wider != null) wider.absorb(candidate);
+            else kept.add(candidate);
+        }
+
+        List<ReportIndexAdviceResponse> advice = new ArrayList<>();
+        for (Candidate candidate : kept) {
+            TableStats stats = tables.get(candidate.tableName.toLowerCase(Locale.ROOT));
+            advice.add(toAdvice(candidate, stats, now));
+        }
+        advice.sort(Comparator.comparingDouble((ReportIndexAdviceResponse a) -> -a.getRecentRuns() * a.getEstimatedScanReduction())
+                .thenComparingDouble(a -> -a.getEstimatedScanReduction()));
+        latest = List.copyOf(advice);
+        log.info("Report index analysis: {} suggestions from {} recently run reports", advice.size(), runsByReport.size());
+        return latest;
+    }
+
+    private Candidate fromReport(Report report, long runs) {
+        if (report.getView() == null) return null;
+        try {
+            ReportQueryPlan plan = reportQueryPlanner.planFor(report);
+            Candidate candidate = new Candidate(report.getView().getId(), report.getView().getTableName(), "WORKLOAD");
+            candidate.reportIds.add(report.getId());
+            candidate.runs = runs;
+            for (Map.Entry<String, ReportFilterCompiler.Access> e : reportQueryPlanner.filterAccess(report).entrySet()) {
+                if (e.getValue() == ReportFilterCompiler.Access.EQUALITY) candidate.equality.add(e.getKey());
+                else if (e.getValue() == ReportFilterCompiler.Access.RANGE && candidate.range == null) candidate.range = e.getKey();
+            }
+            // rows come back in index order only when every key runs the same direction
+            List<String> order = new ArrayList<>(plan.getGroupBy());
+            if (order.isEmpty() && plan.getSortKeys().stream().map(ReportQueryPlan.SortKey::isDescending).distinct().count() == 1) {
+                plan.getSortKeys().forEach(k -> order.add(k.getColumn()));
+            }
+            candidate.order.addAll(order);
+            if (!plan.isAggregated()) {
+                for (String column : plan.getColumns()) {
+                    if (IDENTIFIER.matcher(column).matches()) candidate.selected.add(column);
+                }
+            }
+            ReportGenerationService.QueryCost cost = reportGenerationService.explain(report);
+            candidate.currentRows = cost.getEstimatedRows();
+            return candidate;
+        } catch (Exception e) {
+            log.debug("Report {} skipped by the index advisor: {}", report.getId(), e.getMessage());
+            return null;
+        }
+    }
+
+    private ReportIndexAdviceResponse toAdvice(Candidate candidate, TableStats stats, LocalDateTime now) {
+        List<String> columns = candidate.columns();
+        double selectivity = 1.0;
+        for (String column : candidate.equality) selectivity /= Math.max(1, distinctValues(stats, column));
+        if (candidate.range != null) selectivity *= RANGE_SELECTIVITY;
+        long tableRows = stats.rows;
+        long after = candidate.equality.isEmpty() && candidate.range == null ? tableRows : Math.max(1, Math.round(tableRows * selectivity));
+        long before = candidate.currentRows != null && candidate.currentRows > 0 ? candidate.currentRows : tableRows;
+        after = Math.min(after, before);
+        double reduction = before > 0 ? 1.0 - (double) after / before : 0.0;
+
+        String indexName = indexName(columns);
+        StringBuilder ddl = new StringBuilder("ALTER TABLE `").append(candidate.tableName).append("` ADD INDEX `")
+                .append(indexName).append("` (");
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) ddl.append(", ");
+            ddl.append('`').append(columns.get(i)).append('`');
+        }
+        ddl.append("), ALGORITHM=INPLACE, LOCK=NONE");
+
+        return ReportIndexAdviceResponse.builder()
+                .indexName(indexName)
+                .viewId(candidate.viewId)
+                .viewName(reportViewCatalog.getView(candidate.viewId).map(ReportView::getName).orElse(null))
+                .tableName(candidate.tableName)
+                .columns(columns)
+                .covering(candidate.covering)
+                .source(candidate.source)
+                .reportIds(new ArrayList<>(new TreeSet<>(candidate.reportIds)))
+                .recentRuns(candidate.runs)
+                .tableRows(tableRows)
+                .currentEstimatedRows(candidate.currentRows)
+                .estimatedRowsAfter(after)
+                .estimatedScanReduction(Math.round(reduction * 1000) / 1000.0)
+                .avoidsFilesort(candidate.range == null && !candidate.order.isEmpty())
+                .ddl(ddl.toString())
+                .created(false)
+                .analyzedAt(now)
+                .build();
+    }
+
+    private static String indexName(List<String> columns) {
+        String name = "idx_rpt_" + String.join("_", columns).toLowerCase(Locale.ROOT);
+        if (name.length() <= MAX_INDEX_NAME) return name;
+        String hash = Integer.toHexString(name.hashCode());
+        return name.substring(0, MAX_INDEX_NAME - hash.length() - 1) + "_" + hash;
+    }
+
+    /**
+     * Distinct values of a column: the index statistics when an index leads with it, otherwise a
+     * sample of the table, scaled up for columns that look unique.
+     */
+    private long distinctValues(TableStats stats, String column) {
+        String key = column.toLowerCase(Locale.ROOT);
+        Long known = stats.cardinality.get(key);
+        if (known != null && known > 0) return known;
+        try {
+            Long sampled = jdbc.queryForObject("SELECT COUNT(DISTINCT `" + column + "`) FROM (SELECT `" + column
+                    + "` FROM `" + stats.tableName + "` LIMIT :limit) s", Map.of("limit", sampleRows), Long.class);
+            long distinct = sampled != null ? sampled : 1;
+            if (stats.rows > sampleRows && distinct > sampleRows * 0.9) {
+                distinct = stats.rows;
+            }
+            stats.cardinality.put(key, distinct);
+            return distinct;
+        } catch (DataAccessException e) {
+            log.debug("Could not sample {}.{}: {}", stats.tableName, column, e.getMessage());
+            return 1;
+        }
+    }
+
+    private TableStats loadTableStats(String tableName) {
+        try {
+            TableStats stats = new TableStats(tableName);
+            Map<String, Object> params = Map.of("table", tableName);
+            Long rows = jdbc.queryForObject("SELECT TABLE_ROWS FROM INFORMATION_SCHEMA.TABLES "
+                    + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = :table", params, Long.class);
+            stats.rows = rows != null ? rows : 0;
+            jdbc.query("SELECT COLUMN_NAME, DATA_TYPE FROM INFORMATION_SCHEMA.COLUMNS "
+                    + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = :table", params, rs -> {
+                stats.columnTypes.put(rs.getString(1).toLowerCase(Locale.ROOT), rs.getString(2).toLowerCase(Locale.ROOT));
+            });
+            jdbc.query("SELECT INDEX_NAME, COLUMN_NAME, CARDINALITY FROM INFORMATION_SCHEMA.STATISTICS "
+                    + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = :table ORDER BY INDEX_NAME, SEQ_IN_INDEX", params, rs -> {
+                String column = rs.getString(2);
+                if (column == null) return; // functional key part
+                List<String> index = stats.indexes.computeIfAbsent(rs.getString(1).toLowerCase(Locale.ROOT), k -> new ArrayList<>());
+                index.add(column.toLowerCase(Locale.ROOT));
+                long cardinality = rs.getLong(3);
+                if (index.size() == 1 && cardinality > 0) stats.cardinality.put(column.toLowerCase(Locale.ROOT), cardinality);
+            });
+            return stats.columnTypes.isEmpty() ? null : stats;
+        } catch (DataAccessException e) {
+            log.warn("Could not read index statistics for {}: {}", tableName, e.getMessage());
+            return null;
+        }
+    }
+
+    private static class TableStats {
+        private final String tableName;
+        private long rows;
+        private final Map<String, String> columnTypes = new HashMap<>();
+        private final Map<String, List<String>> indexes = new LinkedHashMap<>();
+        private final Map<String, Long> cardinality = new HashMap<>();
+
+        TableStats(String tableName) {
+            this.tableName = tableName;
+        }
+
+        boolean indexable(String column) {
+            String type = columnTypes.get(column.toLowerCase(Locale.ROOT));
+            return type != null && !UNINDEXABLE_TYPES.contains(type);
+        }
+
+        /**
+         * True when an existing index leads with the candidate's equality columns, in any order, followed by the rest in order.
+         */
+        boolean servedByExistingIndex(Candidate candidate) {
+            List<String> wanted = candidate.columns().stream().map(c -> c.toLowerCase(Locale.ROOT)).toList();
+            int equality = candidate.equality.size();
+            for (List<String> index : indexes.values()) {
+                if (index.size() < wanted.size()) continue;
+                if (!new HashSet<>(index.subList(0, equality)).equals(new HashSet<>(wanted.subList(0, equality)))) continue;
+                if (index.subList(equality, wanted.size()).equals(wanted.subList(equality, wanted.size()))) return true;
+            }
+            return false;
+        }
+    }
+
+    private static class Candidate {
+        private final Long viewId;
+        private final String tableName;
+        private final String source;
+        private final Set<Long> reportIds = new HashSet<>();
+        private long runs;
+        private Long currentRows;
+        private List<String> equality = new ArrayList<>();
+        private String range;
+        private final List<String> order = new ArrayList<>();
+        private final Set<String> selected = new LinkedHashSet<>();
+        private final List<String> included = new ArrayList<>();
+        private boolean covering;
+
+        Candidate(Long viewId, String tableName, String source) {
+            this.viewId = viewId;
+            this.tableName = tableName;
+            this.source = source;
+        }
+
+        /**
+         * Drop columns the table cannot index and decide whether the index can also cover the select list.
+         *
+         * @return false when nothing indexable is left
+         */
+        boolean resolve(TableStats stats, int maxColumns) {
+            equality = new ArrayList<>(new LinkedHashSet<>(equality.stream().filter(stats::indexable).toList()));
+            if (range != null && (!stats.indexable(range) || equality.contains(range))) range = null;
+            order.removeIf(c -> !stats.indexable(c));
+            while (equality.size() > maxColumns) equality.remove(equality.size() - 1);
+            List<String> key = columns();
+            while (key.size() > maxColumns) {
+                if (range == null && !order.isEmpty()) order.remove(order.size() - 1);
+                else range = null;
+                key = columns();
+            }
+            if (key.isEmpty()) return false;
+            List<String> rest = selected.stream()
+                    .filter(c -> !columns().contains(c))
+                    .toList();
+            if (!selected.isEmpty() && rest.stream().allMatch(stats::indexable) && key.size() + rest.size() <= maxColumns) {
+                included.addAll(rest);
+                covering = true;
+            }
+            return true;
+        }
+
+        void orderEquality(ToLongFunction<String> distinct) {
+            // most selective first, so the index is useful to queries filtering on a prefix of them
+            equality.sort(Comparator.comparingLong(distinct).reversed());
+        }
+
+        List<String> columns() {
+            List<String> columns = new ArrayList<>(equality);
+            if (range != null) {
+                columns.add(range);
+            } else {
+                for (String column : order) if (!columns.contains(column)) columns.add(column);
+            }
+            for (String column : included) if (!columns.contains(column)) columns.add(column);
+            return columns;
+        }
+
+        boolean hasPrefix(Candidate other) {
+            if (!tableName.equalsIgnoreCase(other.tableName)) return false;
+            List<String> mine = columns();
+            List<String> theirs = other.columns();
+            return mine.size() > theirs.size() && mine.subList(0, theirs.size()).equals(theirs);
+        }
+
+        Candidate absorb(Candidate other) {
+            reportIds.addAll(other.reportIds);
+            runs += other.runs;
+            if (currentRows == null || (other.currentRows != null && other.currentRows > currentRows)) {
+                currentRows = other.currentRows;
+            }
+            return this;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.kkvat.automation.service;
+
+import com.kkvat.automation.dto.ReportJobStatsResponse;
+import com.kkvat.automation.exception.BadRequestException;
+import com.kkvat.automation.model.ReportExecution;
+import com.kkvat.automation.repository.ReportExecutionRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs report generation jobs on a bounded worker pool, separate from the servlet threads.
+ * report_executions is the queue: jobs are inserted as PENDING, claimed with a conditional
+ * status update and picked interactive-first, with a cap on concurrent jobs per user.
+ * A claimed job records the node running it and a lease the node keeps renewing; jobs whose
+ * lease runs out, e.g. because their node died, go back to the queue.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ReportJobEngine {
+    private final ReportExecutionRepository reportExecutionRepository;
+    private final ReportJobRunner reportJobRunner;
+
+    @Value("${report.jobs.workers:4}")
+    private int workerCount;
+
+    @Value("${report.jobs.max-running-per-user:2}")
+    private int maxRunningPerUser;
+
+    @Value("${report.jobs.max-queued-per-user:20}")
+    private int maxQueuedPerUser;
+
+    @Value("${report.jobs.scan-size:50}")
+    private int scanSize;
+
+    @Value("${report.jobs.max-running-low-priority:1}")
+    private int maxRunningLowPriority;
+
+    @Value("${report.jobs.node-id:}")
+    private String configuredNodeId;
+
+    @Value("${report.jobs.lease-seconds:60}")
+    private long leaseSeconds;
+
+    private final AtomicInteger activeJobs = new AtomicInteger();
+    private final AtomicInteger activeLowPriority = new AtomicInteger();
+    private final Map<Long, Integer> runningPerUser = new ConcurrentHashMap<>();
+    private final Set<Long> running = ConcurrentHashMap.newKeySet();
+    private volatile String nodeId;
+    private final AtomicLong completedJobs = new AtomicLong();
+    private final AtomicLong failedJobs = new AtomicLong();
+    private final AtomicLong waitCount = new AtomicLong();
+    private final AtomicLong totalWaitMs = new AtomicLong();
+    private final AtomicLong maxWaitMs = new AtomicLong();
+    private final AtomicLong lastWaitMs = new AtomicLong();
+
+    private volatile ThreadPoolExecutor workers;
+    // single dispatcher thread; a queue of one coalesces bursts of wake-ups into one scan
+    private final ThreadPoolExecutor dispatcher = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(1), namedThreads("report-dispatcher"), new ThreadPoolExecutor.DiscardPolicy());
+
+    /**
+     * Reject a new manual run when the user already has too many jobs waiting.
+     */
+    public void checkQueueCapacity(Long userId) {
+        long queued = reportExecutionRepository.countByStatusAndExecutedById(ReportExecution.Status.PENDING, userId);
+        if (queued >= maxQueuedPerUser) {
+            throw new BadRequestException("Too many queued reports (" + queued + "), wait for some to finish");
+        }
+    }
+
+    /**
+     * Dispatch as soon as the surrounding transaction has committed the PENDING row.
+     */
+    public void wakeAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    wake();
+                }
+            });
+        } else {
+            wake();
+        }
+    }
+
+    public void wake() {
+        dispatcher.execute(this::dispatch);
+    }
+
+    @Scheduled(fixedDelayString = "${report.jobs.poll-interval-ms:5000}")
+    public void poll() {
+        if (nodeId != null) {
+            // jobs of nodes that stopped renewing their lease
+            int requeued = reportExecutionRepository.requeueAbandoned(ReportExecution.Status.GENERATING,
+                    ReportExecution.Status.PENDING, null, LocalDateTime.now());
+            if (requeued > 0) {
+                log.warn("Requeued {} report executions whose lease expired", requeued);
+            }
+        }
+        // picks up rows queued by other nodes or while every worker was busy
+        wake();
+    }
+
+    @Scheduled(fixedDelayString = "${report.jobs.heartbeat-ms:15000}")
+    public void renewLeases() {
+        if (running.isEmpty()) return;
+        try {
+            reportExecutionRepository.renewLeases(Set.copyOf(running), ReportExecution.Status.GENERATING, nodeId,
+                    LocalDateTime.now().plusSeconds(leaseSeconds));
+        } catch (Exception e) {
+            log.error("Could not renew report job leases", e);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        nodeId = resolveNodeId();
+        workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), namedThreads("report-worker"));
+        // this node's jobs from before the restart, and jobs of nodes that are gone, go back to the queue;
+        // jobs other nodes are still running keep their live lease
+        int requeued = reportExecutionRepository.requeueAbandoned(ReportExecution.Status.GENERATING,
+                ReportExecution.Status.PENDING, nodeId, LocalDateTime.now());
+        if (requeued > 0) {
+            log.warn("Requeued {} report executions interrupted by a restart", requeued);
+        }
+        log.info("Report job engine started on node {} with {} workers", nodeId, workerCount);
+        wake();
+    }
+
+    private String resolveNodeId() {
+        if (configuredNodeId != null && !configuredNodeId.isBlank()) return configuredNodeId.trim();
+        // must stay the same across restarts, so a node recognises its own interrupted jobs
+        String host = System.getenv("HOSTNAME");
+        if (host == null || host.isBlank()) {
+            try {
+                host = InetAddress.getLocalHost().getHostName();
+            } catch (UnknownHostException e) {
+                host = "localhost";
+            }
+        }
+        return host;
+    }
+
+    @PreDestroy
+    public void stop() {
+        dispatcher.shutdownNow();
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+    }
+
+    private void dispatch() {
+        if (workers == null || workers.isShutdown()) return;
+        try {
+            int free = workerCount - activeJobs.get();
+            if (free <= 0) return;
+            List<Object[]> pending = reportExecutionRepository.findQueue(ReportExecution.Status.PENDING,
+                    ReportExecution.ExecutionType.SCHEDULED, PageRequest.of(0, scanSize));
+            for (Object[] row : pending) {
+                if (free <= 0) break;
+                Long executionId = (Long) row[0];
+                Long userId = (Long) row[1];
+                LocalDateTime queuedAt = (LocalDateTime) row[2];
+                boolean lowPriority = Boolean.TRUE.equals(row[3]);
+                if (runningPerUser.getOrDefault(userId, 0) >= maxRunningPerUser) continue;
+                // expensive runs never take more than their lane's share of the workers
+                if (lowPriority && activeLowPriority.get() >= maxRunningLowPriority) continue;
+
+                LocalDateTime now = LocalDateTime.now();
+                if (reportExecutionRepository.claim(executionId, ReportExecution.Status.PENDING,
+                        ReportExecution.Status.GENERATING, now, nodeId, now.plusSeconds(leaseSeconds)) == 0) {
+                    continue;
+                }
+                recordWait(queuedAt != null ? Duration.between(queuedAt, now).toMillis() : 0);
+                running.add(executionId);
+                runningPerUser.merge(userId, 1, Integer::sum);
+                activeJobs.incrementAndGet();
+                if (lowPriority) activeLowPriority.incrementAndGet();
+                free--;
+                workers.execute(() -> runJob(executionId, userId, lowPriority));
+            }
+        } catch (Exception e) {
+            log.error("Report job dispatch failed", e);
+        }
+    }
+
+    private void runJob(Long executionId, Long userId, boolean lowPriority) {
+        try {
+            if (reportJobRunner.run(executionId, nodeId)) {
+                completedJobs.incrementAndGet();
+            } else {
+                failedJobs.incrementAndGet();
+            }
+        } finally {
+            running.remove(executionId);
+            runningPerUser.computeIfPresent(userId, (k, n) -> n > 1 ? n - 1 : null);
+            if (lowPriority) activeLowPriority.decrementAndGet();
+            activeJobs.decrementAndGet();
+            wake();
+        }
+    }
+
+    private void recordWait(long waitMs) {
+        waitCount.incrementAndGet();
+        totalWaitMs.addAndGet(waitMs);
+        lastWaitMs.set(waitMs);
+        maxWaitMs.accumulateAndGet(waitMs, Math::max);
+    }
+
+    public ReportJobStatsResponse getStats() {
+        long waits = waitCount.get();
+        long pending = reportExecutionRepository.countByStatus(ReportExecution.Status.PENDING);
+        long scheduled = reportExecutionRepository.countByStatusAndExecutionType(ReportExecution.Status.PENDING, ReportExecution.ExecutionType.SCHEDULED);
+        return ReportJobStatsResponse.builder()
+                .workers(workerCount)
+                .activeJobs(activeJobs.get())
+                .activeLowPriority(activeLowPriority.get())
+                .queuedManual(pending - scheduled)
+                .queuedScheduled(scheduled)
+                .runningPerUser(Map.copyOf(runningPerUser))
+                .completedJobs(completedJobs.get())
+                .failedJobs(failedJobs.get())
+                .averageWaitMs(waits > 0 ? totalWaitMs.get() / waits : 0)
+                .maxWaitMs(maxWaitMs.get())
+                .lastWaitMs(lastWaitMs.get())
+                .build();
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
@@ -0,0 +1,110 @@
+package com.kkvat.automation.service;
+
+import com.kkvat.automation.model.ReportExecution;
+import com.kkvat.automation.model.ReportSchedule;
+import com.kkvat.automation.repository.ReportExecutionRepository;
+import com.kkvat.automation.repository.ReportScheduleRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Executes one claimed report job on a worker thread. Deliberately not transactional:
+ * generation streams from its own JDBC connection and only the status writes touch JPA.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReportJobRunner {
+    private final ReportExecutionRepository reportExecutionRepository;
+    private final ReportScheduleRepository reportScheduleRepository;
+    private final ReportGenerationService reportGenerationService;
+    private final ReportRunTracker reportRunTracker;
+    private final ReportStorageService reportStorageService;
+    private final AuditService auditService;
+
+    private ReportGenerationService.IncrementalRequest incrementalRequest(ReportSchedule schedule) {
+        String previousFile = reportExecutionRepository
+                .findFirstByScheduleIdAndStatusOrderByCreatedAtDesc(schedule.getId(), ReportExecution.Status.COMPLETED)
+                .map(ReportExecution::getFilePath)
+                .orElse(null);
+        return ReportGenerationService.IncrementalRequest.builder()
+                .mode(schedule.getIncrementalMode())
+                .watermarkColumn(schedule.getWatermarkColumn())
+                .watermarkValue(schedule.getWatermarkValue())
+                .reportVersion(schedule.getWatermarkReportVersion())
+                .previousFilePath(previousFile)
+                .build();
+    }
+
+    /**
+     * @param nodeId the node that claimed the execution; the outcome is only recorded while it still owns it
+     * @return true when the report was generated
+     */
+    public boolean run(Long executionId, String nodeId) {
+        ReportExecution execution = reportExecutionRepository.findWithReportById(executionId).orElse(null);
+        if (execution == null) {
+            log.warn("Report execution {} disappeared before it could run", executionId);
+            return false;
+        }
+        if (execution.getStatus() == ReportExecution.Status.CANCELLED) {
+            log.info("Report execution {} was cancelled before it started", executionId);
+            return false;
+        }
+        Long reportId = execution.getReport().getId();
+        ReportRun run = reportRunTracker.begin(executionId, execution.getReport().getTimeoutSeconds());
+        try {
+            ReportSchedule schedule = execution.getSchedule();
+            boolean incremental = schedule != null && schedule.getIncrementalMode() != null
+                    && schedule.getIncrementalMode() != ReportSchedule.IncrementalMode.FULL;
+            ReportGenerationService.ReportResult result = incremental
+                    ? reportGenerationService.generateIncrementalReport(execution.getReport(), execution.getExecutedBy(),
+                            incrementalRequest(schedule))
+                    : reportGenerationService.generateCsvReport(execution.getReport(), execution.getExecutedBy());
+
+            LocalDateTime endTime = LocalDateTime.now();
+            // conditional, so a cancel that landed while the file was being finished is not overwritten
+            if (reportExecutionRepository.finish(executionId, nodeId, ReportExecution.Status.GENERATING,
+                    ReportExecution.Status.COMPLETED, endTime, ChronoUnit.MILLIS.between(execution.getStartTime(), endTime),
+                    result.getFilePath(), result.getFileSize(), result.getCompressedSize(), result.getRowCount(), null) == 0) {
+                log.info("Report execution {} was cancelled or reassigned before it completed, discarding its output", executionId);
+                reportStorageService.discard(result.getFilePath());
+                return false;
+            }
+            reportStorageService.enforceUserQuota(execution.getExecutedBy().getId(), executionId);
+            if (incremental && result.getWatermarkValue() != null) {
+                // only advanced once the output is safely recorded
+                reportScheduleRepository.updateWatermark(schedule.getId(), result.getWatermarkColumn(),
+                        result.getWatermarkValue(), execution.getReport().getUpdatedAt());
+            }
+
+            auditService.logSuccess("GENERATE", "REPORT", reportId,
+                    "Report generated successfully: " + result.getRowCount() + " rows");
+            return true;
+        } catch (Exception e) {
+            ReportExecution.Status status;
+            String errorMessage;
+            if (run.isCancelled()) {
+                // a cancelled query surfaces as whatever the driver throws; the run knows why it stopped
+                log.warn("Report execution {} stopped: {}", executionId, run.getCancelReason());
+                status = run.isTimedOut() ? ReportExecution.Status.FAILED : ReportExecution.Status.CANCELLED;
+                errorMessage = run.getCancelReason();
+            } else {
+                log.error("Error generating report for execution {}", executionId, e);
+                status = ReportExecution.Status.FAILED;
+                errorMessage = e.getMessage();
+            }
+            LocalDateTime endTime = LocalDateTime.now();
+            // a user cancel has already set CANCELLED, which this leaves alone
+            reportExecutionRepository.finish(executionId, nodeId, ReportExecution.Status.GENERATING, status, endTime,
+                    ChronoUnit.MILLIS.between(execution.getStartTime(), endTime), null, null, null, null, errorMessage);
+            auditService.logFailure("GENERATE", "REPORT", reportId, errorMessage);
+            return false;
+        } finally {
+            reportRunTracker.end(run);
+        }
+    }
+}
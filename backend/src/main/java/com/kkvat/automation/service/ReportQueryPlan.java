@@ -0,0 +1,198 @@
+package com.kkvat.automation.service;
+
+import lombok.Getter;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Compiled form of a report query: a parameterised SQL template plus the binders that
+ * fill its placeholders from filter values. Plans are immutable and shared through
+ * ReportQueryPlanner's cache, so repeated runs skip JSON parsing and SQL building.
+ */
+@Getter
+public class ReportQueryPlan {
+    private final Long viewId;
+    private final String tableName;
+    private final List<String> headers;
+    private final List<String> columns;
+    private final List<String> conditions;
+    private final List<String> filterColumns;
+    private final List<ParameterBinder> binders;
+    private final boolean aggregated;
+    private final List<String> groupBy;
+    private final List<SortKey> sortKeys;
+    private final Set<String> sortableFields;
+    private final Map<String, Object> parameters;
+    private final String sql;
+
+    ReportQueryPlan(Long viewId, String tableName, List<String> headers, List<String> columns, List<String> conditions,
+                    List<String> filterColumns, List<ParameterBinder> binders, boolean aggregated, List<String> groupBy,
+                    List<SortKey> sortKeys, Set<String> sortableFields, Map<String, Object> parameters) {
+        this.viewId = viewId;
+        this.tableName = tableName;
+        this.headers = List.copyOf(headers);
+        this.columns = List.copyOf(columns);
+        this.conditions = List.copyOf(conditions);
+        this.filterColumns = List.copyOf(filterColumns);
+        this.binders = List.copyOf(binders);
+        this.aggregated = aggregated;
+        this.groupBy = List.copyOf(groupBy);
+        this.sortKeys = List.copyOf(sortKeys);
+        this.sortableFields = Set.copyOf(sortableFields);
+        this.parameters = parameters != null ? Collections.unmodifiableMap(parameters) : Map.of();
+        List<String> orderBy = new ArrayList<>();
+        for (SortKey key : this.sortKeys) orderBy.add(key.toString());
+        this.sql = render(List.of(), List.of(), orderBy, null);
+    }
+
+    /**
+     * The same query over another table with the same column names, e.g. a summary table, with its own
+     * select list and sort keys. Conditions, binders and grouping are kept.
+     */
+    ReportQueryPlan withSource(String source, List<String> sourceColumns, List<SortKey> sourceSortKeys) {
+        return new ReportQueryPlan(viewId, source, headers, sourceColumns, conditions, filterColumns, binders, aggregated,
+                groupBy, sourceSortKeys, sortableFields, parameters);
+    }
+
+    /**
+     * True when the report selects aggregate columns; rows are then groups over the
+     * plain columns, not table rows.
+     */
+    public boolean isAggregated() {
+        return aggregated;
+    }
+
+    /**
+     * Render a variant of the template, e.g. with extra seek conditions, a different order or a LIMIT.
+     * Extra conditions must only add placeholders after the plan's own.
+     */
+    public String render(List<String> extraColumns, List<String> extraConditions, List<String> orderBy, String suffix) {
+        List<String> select = new ArrayList<>(columns);
+        select.addAll(extraColumns);
+        return build(select, extraConditions, groupBy, orderBy, suffix);
+    }
+
+    /**
+     * Render with a select list of its own, e.g. aggregates over the plan's filtered rows.
+     * The plan's grouping is not applied.
+     */
+    public String renderSelect(List<String> select, List<String> extraConditions, List<String> orderBy, String suffix) {
+        return build(select, extraConditions, List.of(), orderBy, suffix);
+    }
+
+    /**
+     * Render the plan's select list, grouping and order over another row source, e.g. a derived table of
+     * sampled rows that already had the plan's conditions applied. Adds no placeholders.
+     */
+    public String renderOver(String source, List<String> orderBy, String suffix) {
+        return build(columns, source, List.of(), groupBy, orderBy, suffix);
+    }
+
+    private String build(List<String> select, List<String> extraConditions, List<String> group, List<String> orderBy,
+                         String suffix) {
+        List<String> where = new ArrayList<>(conditions);
+        where.addAll(extraConditions);
+        return build(select, tableName, where, group, orderBy, suffix);
+    }
+
+    private String build(List<String> select, String source, List<String> where, List<String> group, List<String> orderBy,
+                         String suffix) {
+        StringBuilder sql = new StringBuilder("SELECT ");
+        sql.append(String.join(", ", select));
+        sql.append(" FROM ").append(source);
+
+        if (!where.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", where));
+        }
+        if (aggregated && !group.isEmpty()) {
+            sql.append(" GROUP BY ").append(String.join(", ", group));
+        }
+        if (orderBy != null && !orderBy.isEmpty()) {
+            sql.append(" ORDER BY ").append(String.join(", ", orderBy));
+        }
+        if (suffix != null && !suffix.isEmpty()) {
+            sql.append(' ').append(suffix);
+        }
+        return sql.toString();
+    }
+
+    /**
+     * Bind filter values to the plan's placeholders, starting at parameter 1.
+     *
+     * @return the next free parameter index
+     */
+    public int bind(PreparedStatement stmt, Map<String, Object> values) throws SQLException {
+        return bind(stmt, values, 1);
+    }
+
+    /**
+     * Bind filter values starting at the given parameter, for statements that repeat the plan's conditions.
+     *
+     * @return the next free parameter index
+     */
+    public int bind(PreparedStatement stmt, Map<String, Object> values, int firstIndex) throws SQLException {
+        int index = firstIndex;
+        for (ParameterBinder binder : binders) {
+            stmt.setObject(index++, binder.valueFrom(values));
+        }
+        return index;
+    }
+
+    /**
+     * Bind the filter values captured when the plan was compiled from a saved report.
+     */
+    public int bindDefaults(PreparedStatement stmt) throws SQLException {
+        return bind(stmt, parameters);
+    }
+
+    /**
+     * Supplies one placeholder value from the runtime filter map.
+     */
+    public static class ParameterBinder {
+        private final String filterKey;
+        private final Function<Object, Object> converter;
+
+        ParameterBinder(String filterKey, Function<Object, Object> converter) {
+            this.filterKey = filterKey;
+            this.converter = converter;
+        }
+
+        public String getFilterKey() {
+            return filterKey;
+        }
+
+        Object valueFrom(Map<String, Object> values) {
+            return converter.apply(values != null ? values.get(filterKey) : null);
+        }
+    }
+
+    public static class SortKey {
+        private final String column;
+        private final boolean descending;
+
+        SortKey(String column, boolean descending) {
+            this.column = column;
+            this.descending = descending;
+        }
+
+        public String getColumn() {
+            return column;
+        }
+
+        public boolean isDescending() {
+            return descending;
+        }
+
+        @Override
+        public String toString() {
+            return column + (descending ? " DESC" : " ASC");
+        }
+    }
+}
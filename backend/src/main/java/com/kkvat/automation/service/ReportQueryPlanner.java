@@ -0,0 +1,376 @@
+package com.kkvat.automation.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kkvat.automation.model.Report;
+import com.kkvat.automation.model.ReportViewField;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compiles report definitions into {@link ReportQueryPlan}s and caches them.
+ * Saved reports are cached per report (keyed on id and updatedAt); ad-hoc runs are cached per
+ * override shape, i.e. the columns, filter keys and sort, never the filter values themselves.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ReportQueryPlanner {
+    private final ObjectMapper objectMapper;
+    private final ReportViewCatalog reportViewCatalog;
+
+    @Value("${report.plan-cache.max-entries:500}")
+    private int maxEntries;
+
+    @Value("${report.plan-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private final Map<String, CachedEntry> cache = new LinkedHashMap<>(64, 0.75f, true);
+
+    /** Aggregate column syntax, e.g. {@code SUM(amount)}, {@code COUNT(*)} or {@code COUNT(DISTINCT status)}. */
+    private static final Pattern AGGREGATE = Pattern.compile(
+            "^\\s*(COUNT|SUM|AVG|MIN|MAX)\\s*\\(\\s*(DISTINCT\\s+)?([^()]+?)\\s*\\)\\s*$", Pattern.CASE_INSENSITIVE);
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+
+    /**
+     * Parsed JSON of a saved report: logical columns, filters and sort.
+     */
+    public static class ReportDefinition {
+        private final List<String> columns;
+        private final Map<String, Object> filters;
+        private final Map<String, Object> sortConfig;
+
+        ReportDefinition(List<String> columns, Map<String, Object> filters, Map<String, Object> sortConfig) {
+            this.columns = List.copyOf(columns);
+            this.filters = new LinkedHashMap<>(filters);
+            this.sortConfig = new LinkedHashMap<>(sortConfig);
+        }
+
+        public List<String> getColumns() {
+            return columns;
+        }
+
+        /** A fresh mutable copy, callers merge overrides into it. */
+        public Map<String, Object> getFilters() {
+            return new HashMap<>(filters);
+        }
+
+        public Map<String, Object> getSortConfig() {
+            return new LinkedHashMap<>(sortConfig);
+        }
+    }
+
+    public ReportDefinition definitionFor(Report report) throws Exception {
+        String key = "def|" + report.getId() + "|" + report.getUpdatedAt();
+        ReportDefinition cached = get(key, ReportDefinition.class);
+        if (cached != null) return cached;
+        ReportDefinition definition = new ReportDefinition(
+                parseColumns(report.getSelectedColumns()),
+                parseFilters(report.getFilterConditions()),
+                parseSort(report.getSortConfig()));
+        put(key, report.getId(), viewIdOf(report), definition);
+        return definition;
+    }
+
+    /**
+     * Plan for a saved report with its own filter values bound as defaults.
+     */
+    public ReportQueryPlan planFor(Report report) throws Exception {
+        String key = "report|" + report.getId() + "|" + report.getUpdatedAt();
+        ReportQueryPlan cached = get(key, ReportQueryPlan.class);
+        if (cached != null) return cached;
+        ReportDefinition definition = definitionFor(report);
+        ReportQueryPlan plan = compile(viewIdOf(report), report.getView().getTableName(), definition.getColumns(),
+                definition.getFilters(), definition.getSortConfig(), true);
+        put(key, report.getId(), viewIdOf(report), plan);
+        return plan;
+    }
+
+    /**
+     * Plan for an ad-hoc run; the filter values are bound at execution time.
+     */
+    public ReportQueryPlan planFor(Long viewId, String tableName, List<String> columns, Map<String, Object> filters,
+                                   Map<String, Object> sortConfig) {
+        if (columns == null || columns.isEmpty()) throw new IllegalArgumentException("Columns must be provided");
+        if (tableName == null || tableName.isEmpty()) throw new IllegalArgumentException("tableName must be provided");
+        String key = "adhoc|" + viewId + "|" + tableName + "|" + columns + "|" + filterShape(filters) + "|" + sortConfig;
+        ReportQueryPlan cached = get(key, ReportQueryPlan.class);
+        if (cached != null) return cached;
+        ReportQueryPlan plan = compile(viewId, tableName, columns, filters, sortConfig, false);
+        put(key, null, viewId, plan);
+        return plan;
+    }
+
+    /**
+     * Physical filter columns of a saved report with how an index can serve each, for the index advisor.
+     */
+    Map<String, ReportFilterCompiler.Access> filterAccess(Report report) throws Exception {
+        ViewMapping mapping = resolveViewMapping(viewIdOf(report));
+        Map<String, ReportFilterCompiler.Access> access = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> e : definitionFor(report).getFilters().entrySet()) {
+            String column = mapping.toPhysical(e.getKey());
+            access.put(column, ReportFilterCompiler.accessOf(mapping.fieldTypeMap.get(column), e.getValue()));
+        }
+        return access;
+    }
+
+    public void invalidateReport(Long reportId) {
+        synchronized (cache) {
+            cache.values().removeIf(e -> Objects.equals(e.reportId, reportId));
+        }
+    }
+
+    public void invalidateView(Long viewId) {
+        synchronized (cache) {
+            cache.values().removeIf(e -> Objects.equals(e.viewId, viewId));
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    private ReportQueryPlan compile(Long viewId, String tableName, List<String> columns, Map<String, Object> filters,
+                                    Map<String, Object> sortConfig, boolean captureValues) {
+        ViewMapping mapping = resolveViewMapping(viewId);
+
+        List<String> conditions = new ArrayList<>();
+        List<String> filterColumns = new ArrayList<>();
+        List<ReportQueryPlan.ParameterBinder> binders = new ArrayList<>();
+        if (filters != null) {
+            for (Map.Entry<String, Object> entry : filters.entrySet()) {
+                String key = entry.getKey();
+                if (AGGREGATE.matcher(key).matches()) {
+                    throw new IllegalArgumentException("Filters on aggregate columns are not supported: " + key);
+                }
+                String column = mapping.column(key);
+                if (column == null) {
+                    throw new IllegalArgumentException("Unknown filter field: " + key);
+                }
+                filterColumns.add(column);
+                String fieldType = mapping.fieldTypeMap.getOrDefault(column, "STRING");
+                ReportFilterCompiler.compile(key, column, fieldType, entry.getValue(), conditions, binders);
+            }
+        }
+
+        // any aggregate column turns the report into a grouped one over its plain columns
+        List<String> physicalColumns = new ArrayList<>();
+        List<String> groupBy = new ArrayList<>();
+        boolean aggregated = false;
+        for (String name : columns) {
+            String aggregate = toAggregate(name, mapping);
+            if (aggregate != null) {
+                aggregated = true;
+                physicalColumns.add(aggregate);
+            } else {
+                String column = mapping.column(name);
+                if (column == null) {
+                    throw new IllegalArgumentException("Unknown column: " + name);
+                }
+                physicalColumns.add(column);
+                groupBy.add(column);
+            }
+        }
+
+        List<ReportQueryPlan.SortKey> sortKeys = new ArrayList<>();
+        if (sortConfig != null) {
+            for (Map.Entry<String, Object> e : sortConfig.entrySet()) {
+                boolean descending = e.getValue() != null && "DESC".equalsIgnoreCase(e.getValue().toString().trim());
+                String aggregate = toAggregate(e.getKey(), mapping);
+                if (aggregate != null && !aggregated) {
+                    throw new IllegalArgumentException("Sorting on " + e.getKey() + " needs an aggregate column");
+                }
+                String column = aggregate != null ? aggregate : mapping.column(e.getKey());
+                if (column == null) {
+                    throw new IllegalArgumentException("Unknown sort field: " + e.getKey());
+                }
+                if (aggregated && aggregate == null && !groupBy.contains(column)) {
+                    throw new IllegalArgumentException("Grouped reports can only sort on selected columns: " + e.getKey());
+                }
+                sortKeys.add(new ReportQueryPlan.SortKey(column, descending));
+            }
+        }
+
+        ReportQueryPlan plan = new ReportQueryPlan(viewId, tableName, columns, physicalColumns, conditions, filterColumns,
+                binders, aggregated, aggregated ? groupBy : List.of(), sortKeys, mapping.sortableFields,
+                captureValues ? filters : null);
+        log.debug("Compiled report plan: {}", plan.getSql());
+        return plan;
+    }
+
+    /**
+     * SQL for an aggregate column over a view field, or null for a plain column.
+     */
+    private static String toAggregate(String name, ViewMapping mapping) {
+        Matcher m = AGGREGATE.matcher(name);
+        if (!m.matches()) return null;
+        String function = m.group(1).toUpperCase();
+        boolean distinct = m.group(2) != null;
+        String argument = m.group(3).trim();
+        if ("*".equals(argument)) {
+            if (!"COUNT".equals(function) || distinct) throw new IllegalArgumentException("Invalid aggregate column: " + name);
+            return "COUNT(*)";
+        }
+        if (distinct && !"COUNT".equals(function)) throw new IllegalArgumentException("DISTINCT is only supported with COUNT: " + name);
+        String column = mapping.column(argument);
+        if (column == null) {
+            throw new IllegalArgumentException("Unknown field in aggregate column: " + name);
+        }
+        return function + "(" + (distinct ? "DISTINCT " : "") + column + ")";
+    }
+
+    private String filterShape(Map<String, Object> filters) {
+        if (filters == null || filters.isEmpty()) return "{}";
+        // values do not matter, only which keys are present and which predicates each one compiles to
+        TreeMap<String, String> shape = new TreeMap<>();
+        for (Map.Entry<String, Object> e : filters.entrySet()) {
+            shape.put(e.getKey(), ReportFilterCompiler.shape(e.getValue()));
+        }
+        return shape.toString();
+    }
+
+    private ViewMapping resolveViewMapping(Long viewId) {
+        ViewMapping mapping = new ViewMapping();
+        if (viewId != null) {
+            List<ReportViewField> fields = reportViewCatalog.getFields(viewId);
+            for (ReportViewField f : fields) {
+                if (f.getDisplayName() != null) mapping.logicalToPhysical.put(f.getDisplayName().toLowerCase(), f.getFieldName());
+                if (f.getFieldName() != null) mapping.logicalToPhysical.put(f.getFieldName().toLowerCase(), f.getFieldName());
+                mapping.fieldTypeMap.put(f.getFieldName(), f.getFieldType());
+                if (Boolean.TRUE.equals(f.getIsSortable())) mapping.sortableFields.add(f.getFieldName());
+            }
+        }
+        return mapping;
+    }
+
+    /**
+     * Columns are field names or aggregates over them, e.g. {@code "SUM(amount)"} or {@code "COUNT(DISTINCT status)"}.
+     */
+    public List<String> parseColumns(String columnsJson) throws Exception {
+        return objectMapper.readValue(columnsJson, List.class);
+    }
+
+    public Map<String, Object> parseFilters(String filtersJson) throws Exception {
+        if (filtersJson == null || filtersJson.isEmpty()) {
+            return new HashMap<>();
+        }
+
+        String trimmed = filtersJson.trim();
+        // Accept either an object (e.g. {"email":"admin"}) or an array (e.g. ["email"]).
+        if (trimmed.startsWith("{")) {
+            return objectMapper.readValue(filtersJson, Map.class);
+        } else if (trimmed.startsWith("[")) {
+            // Array of field names -> convert to map with null values
+            List<String> keys = objectMapper.readValue(filtersJson, List.class);
+            Map<String, Object> result = new LinkedHashMap<>();
+            for (String k : keys) {
+                result.put(k, null);
+            }
+            return result;
+        } else {
+            // Fallback: attempt to parse as a map
+            return objectMapper.readValue(filtersJson, Map.class);
+        }
+    }
+
+    public Map<String, Object> parseSort(String sortJson) throws Exception {
+        if (sortJson == null || sortJson.isEmpty()) {
+            return new HashMap<>();
+        }
+        String trimmed = sortJson.trim();
+        // If sort config accidentally stored as an array, treat as no-sort
+        if (trimmed.startsWith("[")) {
+            return new HashMap<>();
+        }
+        return objectMapper.readValue(sortJson, Map.class);
+    }
+
+    private static Long viewIdOf(Report report) {
+        return report.getView() != null ? report.getView().getId() : null;
+    }
+
+    private <T> T get(String key, Class<T> type) {
+        synchronized (cache) {
+            CachedEntry entry = cache.get(key);
+            if (entry == null) return null;
+            // a changed view version means the fields were edited since the plan was compiled
+            boolean viewChanged = entry.viewId != null && reportViewCatalog.getVersion(entry.viewId) != entry.viewVersion;
+            if (viewChanged || System.currentTimeMillis() - entry.createdAt > ttlSeconds * 1000) {
+                cache.remove(key);
+                return null;
+            }
+            return type.cast(entry.value);
+        }
+    }
+
+    private void put(String key, Long reportId, Long viewId, Object value) {
+        synchronized (cache) {
+            int viewVersion = viewId != null ? reportViewCatalog.getVersion(viewId) : 0;
+            cache.put(key, new CachedEntry(reportId, viewId, viewVersion, value));
+            if (cache.size() > maxEntries) {
+                // access-ordered map: the first entry is the least recently used
+                cache.remove(cache.keySet().iterator().next());
+            }
+        }
+    }
+
+    private static class CachedEntry {
+        private final Long reportId;
+        private final Long viewId;
+        private final int viewVersion;
+        private final Object value;
+        private final long createdAt = System.currentTimeMillis();
+
+        CachedEntry(Long reportId, Long viewId, int viewVersion, Object value) {
+            this.reportId = reportId;
+            this.viewId = viewId;
+            this.viewVersion = viewVersion;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Logical (display or field name) to physical column mapping for a view.
+     */
+    private static class ViewMapping {
+        private final Map<String, String> logicalToPhysical = new HashMap<>();
+        private final Map<String, String> fieldTypeMap = new HashMap<>();
+        private final Set<String> sortableFields = new HashSet<>();
+
+        String toPhysical(String name) {
+            return logicalToPhysical.getOrDefault(name.toLowerCase(), name);
+        }
+
+        /**
+         * Physical column of a field of the view, or null when the name is not one; names reach the SQL
+         * as identifiers, so this is what keeps request JSON out of it. A view without declared fields
+         * accepts any plain identifier.
+         */
+        String column(String name) {
+            boolean known = logicalToPhysical.isEmpty() || logicalToPhysical.containsKey(name.trim().toLowerCase());
+            String column = toPhysical(name.trim());
+            return known && IDENTIFIER.matcher(column).matches() ? column : null;
+        }
+
+        List<String> toPhysical(List<String> names) {
+            List<String> physical = new ArrayList<>();
+            for (String name : names) physical.add(toPhysical(name));
+            return physical;
+        }
+    }
+}
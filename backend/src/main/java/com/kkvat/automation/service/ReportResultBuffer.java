@@ -0,0 +1,377 @@
+package com.kkvat.automation.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Result of a synchronous report run held within a memory budget. Rows stay on the heap, by column,
+ * until the budget is used up; the rest go to a temporary file that is memory-mapped for reading.
+ * Callers read it in pages, so the whole result is never on the heap, and close it when done, which
+ * deletes the file. Spilled values keep the Java type the driver returned.
+ */
+@Slf4j
+public final class ReportResultBuffer implements AutoCloseable {
+    private static final int INDEX_INTERVAL = 1024;
+
+    private static final byte NULL = 0;
+    private static final byte INTEGER = 1;
+    private static final byte LONG = 2;
+    private static final byte SHORT = 3;
+    private static final byte BYTE = 4;
+    private static final byte BOOLEAN = 5;
+    private static final byte DOUBLE = 6;
+    private static final byte FLOAT = 7;
+    private static final byte DECIMAL = 8;
+    private static final byte BIG_INTEGER = 9;
+    private static final byte LOCAL_DATE_TIME = 10;
+    private static final byte TIMESTAMP = 11;
+    private static final byte LOCAL_DATE = 12;
+    private static final byte SQL_DATE = 13;
+    private static final byte LOCAL_TIME = 14;
+    private static final byte SQL_TIME = 15;
+    private static final byte BYTES = 16;
+    private static final byte TEXT = 17;
+
+    private final List<String> labels;
+    private final ReportRowSet head;
+    private final Path spillFile;
+    private final int[] index; // file offset of spilled rows 0, INDEX_INTERVAL, 2 * INDEX_INTERVAL, ...
+    private final long spilledRows;
+    private final int spillBytes;
+    private volatile long lastAccessedAt = System.currentTimeMillis();
+    private int readers; // writes in progress, guarded by this
+
+    private MappedByteBuffer mapped;
+    private long cursorRow = -1; // spilled row the last page stopped before, and its file offset
+    private int cursorPosition;
+    private boolean closed;
+
+    private ReportResultBuffer(List<String> labels, ReportRowSet head, Path spillFile, int[] index, long spilledRows,
+                               int spillBytes) {
+        this.labels = labels;
+        this.head = head;
+        this.spillFile = spillFile;
+        this.index = index;
+        this.spilledRows = spilledRows;
+        this.spillBytes = spillBytes;
+    }
+
+    /**
+     * A buffer over rows already on the heap, e.g. a cached result.
+     */
+    public static ReportResultBuffer of(ReportRowSet rows) {
+        return new ReportResultBuffer(rows.columnLabels(), rows, null, new int[0], 0, 0);
+    }
+
+    /**
+     * Read the rest of the result set: rows up to memoryBudgetBytes on the heap, the remainder into a
+     * temporary file in directory.
+     *
+     * @throws IllegalArgumentException when the spilled rows would exceed maxSpillBytes
+     */
+    public static ReportResultBuffer read(ResultSet rs, long memoryBudgetBytes, long maxSpillBytes, Path directory)
+            throws SQLException, IOException {
+        int columnCount = rs.getMetaData().getColumnCount();
+        List<String> labels = ReportRowSet.labelsOf(rs.getMetaData(), columnCount);
+        ReportRowSet.Builder builder = ReportRowSet.builder(labels);
+        boolean more = true;
+        while (builder.estimatedBytes() < memoryBudgetBytes && (more = rs.next())) {
+            builder.add(rs);
+        }
+        ReportRowSet head = builder.build();
+        if (!more || !rs.next()) {
+            return new ReportResultBuffer(labels, head, null, new int[0], 0, 0);
+        }
+
+        // int offsets, so the file can be mapped in one piece
+        long limit = Math.min(maxSpillBytes, Integer.MAX_VALUE);
+        Path file = Files.createTempFile(directory, "result-", ".spill");
+        int[] index = new int[16];
+        long rows = 0;
+        int bytes;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 65536))) {
+            do {
+                if (rows % INDEX_INTERVAL == 0) {
+                    int slot = (int) (rows / INDEX_INTERVAL);
+                    if (slot == index.length) index = Arrays.copyOf(index, slot * 2);
+                    index[slot] = out.size();
+                }
+                for (int i = 1; i <= columnCount; i++) {
+                    writeValue(out, rs.getObject(i));
+                }
+                rows++;
+                if (out.size() >= limit) {
+                    throw new IllegalArgumentException("Report result exceeds " + (limit >> 20)
+                            + " MB; add filters or use the streaming or paged run");
+                }
+            } while (rs.next());
+            out.flush();
+            bytes = out.size();
+        } catch (IOException | SQLException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        log.info("Report result spilled to disk: {} rows in memory, {} rows ({} bytes) in {}", head.size(), rows, bytes, file);
+        return new ReportResultBuffer(labels, head, file, Arrays.copyOf(index, (int) ((rows + INDEX_INTERVAL - 1) / INDEX_INTERVAL)),
+                rows, bytes);
+    }
+
+    public List<String> getLabels() {
+        return labels;
+    }
+
+    public long size() {
+        return head.size() + spilledRows;
+    }
+
+    public boolean isSpilled() {
+        return spillFile != null;
+    }
+
+    public long getSpillBytes() {
+        return spillBytes;
+    }
+
+    /**
+     * Mark the buffer in use by a writer, so it is not swept while a slow client is still reading it.
+     *
+     * @throws IllegalStateException when it was already closed
+     */
+    synchronized void beginRead() {
+        if (closed) throw new IllegalStateException("Report result buffer is closed");
+        readers++;
+        lastAccessedAt = System.currentTimeMillis();
+    }
+
+    synchronized void endRead() {
+        readers--;
+        lastAccessedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Close the buffer if nobody is reading it and it was last read before cutoff (epoch ms).
+     *
+     * @return whether it was closed by this call
+     */
+    synchronized boolean closeIfIdle(long cutoff) {
+        if (closed || readers > 0 || lastAccessedAt >= cutoff) return false;
+        close();
+        return true;
+    }
+
+    /**
+     * All rows when they fit the memory budget, else null.
+     */
+    public ReportRowSet inMemoryRows() {
+        return spillFile == null ? head : null;
+    }
+
+    /**
+     * Rows offset to offset + limit, or fewer at the end. Reading pages in order costs no seeking.
+     */
+    public synchronized ReportRowSet page(long offset, int limit) throws IOException {
+        if (closed) throw new IllegalStateException("Report result buffer is closed");
+        lastAccessedAt = System.currentTimeMillis();
+        long end = Math.min(size(), offset + Math.max(0, limit));
+        if (offset == 0 && end == head.size() && spillFile == null) return head;
+
+        ReportRowSet.Builder page = ReportRowSet.builder(labels);
+        Object[] values = new Object[labels.size()];
+        long row = Math.max(0, offset);
+        for (; row < end && row < head.size(); row++) {
+            for (int i = 0; i < values.length; i++) values[i] = head.getValue((int) row, i);
+            page.add(values);
+        }
+        if (row < end) {
+            ByteBuffer in = mapped();
+            long spilled = row - head.size();
+            if (spilled == cursorRow) {
+                in.position(cursorPosition);
+            } else {
+                int slot = (int) (spilled / INDEX_INTERVAL);
+                in.position(index[slot]);
+                for (long skip = spilled - (long) slot * INDEX_INTERVAL; skip > 0; skip--) {
+                    for (int i = 0; i < values.length; i++) readValue(in);
+                }
+            }
+            for (; row < end; row++) {
+                for (int i = 0; i < values.length; i++) values[i] = readValue(in);
+                page.add(values);
+            }
+            cursorRow = end - head.size();
+            cursorPosition = in.position();
+        }
+        return page.build();
+    }
+
+    private ByteBuffer mapped() throws IOException {
+        if (mapped == null) {
+            try (FileChannel channel = FileChannel.open(spillFile, StandardOpenOption.READ)) {
+                mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, spillBytes);
+            }
+        }
+        return mapped.duplicate();
+    }
+
+    /**
+     * Delete the spill file. Idempotent; pages can no longer be read afterwards.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        mapped = null;
+        if (spillFile == null) return;
+        try {
+            Files.deleteIfExists(spillFile);
+        } catch (IOException e) {
+            // a mapping that is still live blocks deletion on some platforms
+            log.warn("Could not delete report spill file {}: {}", spillFile, e.getMessage());
+            spillFile.toFile().deleteOnExit();
+        }
+    }
+
+    private static void writeValue(DataOutput out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof Integer v) {
+            out.writeByte(INTEGER);
+            out.writeInt(v);
+        } else if (value instanceof Long v) {
+            out.writeByte(LONG);
+            out.writeLong(v);
+        } else if (value instanceof Short v) {
+            out.writeByte(SHORT);
+            out.writeShort(v);
+        } else if (value instanceof Byte v) {
+            out.writeByte(BYTE);
+            out.writeByte(v);
+        } else if (value instanceof Boolean v) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean(v);
+        } else if (value instanceof Double v) {
+            out.writeByte(DOUBLE);
+            out.writeDouble(v);
+        } else if (value instanceof Float v) {
+            out.writeByte(FLOAT);
+            out.writeFloat(v);
+        } else if (value instanceof BigDecimal v) {
+            out.writeByte(DECIMAL);
+            writeText(out, v.toString());
+        } else if (value instanceof BigInteger v) {
+            out.writeByte(BIG_INTEGER);
+            writeText(out, v.toString());
+        } else if (value instanceof LocalDateTime v) {
+            out.writeByte(LOCAL_DATE_TIME);
+            out.writeLong(v.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(v.getNano());
+        } else if (value instanceof Timestamp v) {
+            out.writeByte(TIMESTAMP);
+            out.writeLong(v.getTime());
+            out.writeInt(v.getNanos());
+        } else if (value instanceof LocalDate v) {
+            out.writeByte(LOCAL_DATE);
+            out.writeLong(v.toEpochDay());
+        } else if (value instanceof java.sql.Date v) {
+            out.writeByte(SQL_DATE);
+            out.writeLong(v.getTime());
+        } else if (value instanceof LocalTime v) {
+            out.writeByte(LOCAL_TIME);
+            out.writeLong(v.toNanoOfDay());
+        } else if (value instanceof Time v) {
+            out.writeByte(SQL_TIME);
+            out.writeLong(v.getTime());
+        } else if (value instanceof byte[] v) {
+            out.writeByte(BYTES);
+            out.writeInt(v.length);
+            out.write(v);
+        } else {
+            out.writeByte(TEXT);
+            writeText(out, value.toString());
+        }
+    }
+
+    private static Object readValue(ByteBuffer in) throws IOException {
+        byte tag = in.get();
+        switch (tag) {
+            case NULL:
+                return null;
+            case INTEGER:
+                return in.getInt();
+            case LONG:
+                return in.getLong();
+            case SHORT:
+                return in.getShort();
+            case BYTE:
+                return in.get();
+            case BOOLEAN:
+                return in.get() != 0;
+            case DOUBLE:
+                return in.getDouble();
+            case FLOAT:
+                return in.getFloat();
+            case DECIMAL:
+                return new BigDecimal(readText(in));
+            case BIG_INTEGER:
+                return new BigInteger(readText(in));
+            case LOCAL_DATE_TIME:
+                long seconds = in.getLong();
+                return LocalDateTime.ofEpochSecond(seconds, in.getInt(), ZoneOffset.UTC);
+            case TIMESTAMP:
+                Timestamp timestamp = new Timestamp(in.getLong());
+                timestamp.setNanos(in.getInt());
+                return timestamp;
+            case LOCAL_DATE:
+                return LocalDate.ofEpochDay(in.getLong());
+            case SQL_DATE:
+                return new java.sql.Date(in.getLong());
+            case LOCAL_TIME:
+                return LocalTime.ofNanoOfDay(in.getLong());
+            case SQL_TIME:
+                return new Time(in.getLong());
+            case BYTES:
+                byte[] bytes = new byte[in.getInt()];
+                in.get(bytes);
+                return bytes;
+            case TEXT:
+                return readText(in);
+            default:
+                throw new IOException("Corrupt report spill file, unknown tag " + tag);
+        }
+    }
+
+    private static void writeText(DataOutput out, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readText(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,463 @@
+package com.kkvat.automation.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Two-tier LRU cache of report results. Keys combine the effective query with the view version
+ * and a data-version token of the source table, so a hit is only served while the table is unchanged.
+ * Tokens are probed in the background, never on the request path, and are at most
+ * report.result-cache.version-refresh-ms old.
+ * Small ad-hoc results live on the heap; large ones and generated CSV files live on disk.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ReportResultCache {
+    private static final List<String> VERSION_COLUMNS = List.of("updated_at", "modified_at", "last_modified_at");
+
+    @Qualifier("reportJdbcTemplate")
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final ReportViewCatalog reportViewCatalog;
+
+    @Value("${report.result-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${report.result-cache.memory-max-bytes:33554432}")
+    private long memoryMaxBytes;
+
+    @Value("${report.result-cache.memory-entry-max-bytes:2097152}")
+    private long memoryEntryMaxBytes;
+
+    @Value("${report.result-cache.disk-max-bytes:1073741824}")
+    private long diskMaxBytes;
+
+    @Value("${report.result-cache.directory:./reports/cache}")
+    private String directory;
+
+    @Value("${report.result-cache.version-refresh-ms:2000}")
+    private long versionRefreshMs;
+
+    @Value("${report.result-cache.version-idle-seconds:600}")
+    private long versionIdleSeconds;
+
+    @Value("${report.result-cache.unversioned-ttl-seconds:60}")
+    private long unversionedTtlSeconds;
+
+    private final Map<String, MemoryEntry> memory = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<String, DiskEntry> disk = new LinkedHashMap<>(64, 0.75f, true);
+    private long memoryBytes;
+    private long diskBytes;
+
+    private final Map<String, Optional<String>> versionColumns = new ConcurrentHashMap<>();
+    private final Map<String, Optional<String>> indexedVersionColumns = new ConcurrentHashMap<>();
+    private final Map<String, DataVersion> dataVersions = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() throws IOException {
+        Path dir = Paths.get(directory);
+        Files.createDirectories(dir);
+        // the index is in memory only, so files from a previous run are orphans
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*.cache")) {
+            for (Path file : files) Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Key for an ad-hoc run, or null when caching is disabled or the table's data version is not known yet.
+     */
+    public String rowsKey(ReportGenerationService.QuerySpec spec) {
+        if (!enabled) return null;
+        try {
+            String query = objectMapper.writeValueAsString(List.of(
+                    String.valueOf(spec.getViewId()), spec.getTableName(), spec.getColumns(),
+                    spec.getFilters() != null ? new TreeMap<>(spec.getFilters()) : Map.of(),
+                    spec.getSortConfig() != null ? spec.getSortConfig() : Map.of()));
+            String version = versionOf(spec.getViewId(), spec.getTableName());
+            return version != null ? "rows|" + version + "|" + query : null;
+        } catch (Exception e) {
+            log.debug("Report result not cacheable: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Key for a saved report's CSV output; its definition is identified by id and updatedAt.
+     */
+    public String csvKey(Long reportId, Object updatedAt, Long viewId, String tableName) {
+        if (!enabled) return null;
+        try {
+            String version = versionOf(viewId, tableName);
+            return version != null ? "csv|" + version + "|" + reportId + "|" + updatedAt : null;
+        } catch (Exception e) {
+            log.debug("Report CSV not cacheable: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    public Optional<List<Map<String, Object>>> getRows(String key) {
+        if (key == null) return Optional.empty();
+        synchronized (memory) {
+            MemoryEntry entry = memory.get(key);
+            if (entry != null) {
+                if (!entry.isExpired()) return Optional.of(entry.rows);
+                removeMemory(key);
+            }
+        }
+        DiskEntry entry = getDisk(key);
+        if (entry == null) return Optional.empty();
+        try {
+            return Optional.of(objectMapper.readValue(entry.path.toFile(), new TypeReference<List<Map<String, Object>>>() {}));
+        } catch (IOException e) {
+            log.warn("Dropping unreadable cached report result {}: {}", entry.path, e.getMessage());
+            removeDisk(key);
+            return Optional.empty();
+        }
+    }
+
+    public void putRows(String key, List<Map<String, Object>> rows) {
+        if (key == null) return;
+        // held by column: a fraction of the heap of map rows, and immutable
+        ReportRowSet rowSet = ReportRowSet.of(rows);
+        long size = rowSet.sizeInBytes();
+        if (size <= memoryEntryMaxBytes) {
+            synchronized (memory) {
+                removeMemory(key);
+                memory.put(key, new MemoryEntry(rowSet, size, expiresAt(key)));
+                memoryBytes += size;
+                while (memoryBytes > memoryMaxBytes && !memory.isEmpty()) {
+                    removeMemory(memory.keySet().iterator().next());
+                }
+            }
+            return;
+        }
+        try {
+            Path file = fileFor(key, ".json.cache");
+            objectMapper.writeValue(file.toFile(), rowSet);
+            putDisk(key, new DiskEntry(file, Files.size(file), rows.size(), Files.size(file), expiresAt(key)));
+        } catch (IOException e) {
+            log.warn("Could not cache report result on disk: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Materialise a cached CSV at target (hard link when possible).
+     */
+    public Optional<CachedCsv> getCsv(String key, Path target) {
+        if (key == null) return Optional.empty();
+        DiskEntry entry = getDisk(key);
+        if (entry == null) return Optional.empty();
+        try {
+            linkOrCopy(entry.path, target);
+            return Optional.of(new CachedCsv(entry.rowCount, entry.contentLength));
+        } catch (IOException e) {
+            log.warn("Dropping cached report file {}: {}", entry.path, e.getMessage());
+            removeDisk(key);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @param contentLength uncompressed length of the CSV, which differs from the file size when gzipped
+     */
+    public void putCsv(String key, Path source, int rowCount, long contentLength) {
+        if (key == null) return;
+        try {
+            Path file = fileFor(key, ".csv.cache");
+            linkOrCopy(source, file);
+            putDisk(key, new DiskEntry(file, Files.size(file), rowCount, contentLength, expiresAt(key)));
+        } catch (IOException e) {
+            log.warn("Could not cache report file {}: {}", source, e.getMessage());
+        }
+    }
+
+    private String versionOf(Long viewId, String tableName) {
+        String token = dataVersion(tableName);
+        if (token == null) return null;
+        int viewVersion = viewId != null ? reportViewCatalog.getVersion(viewId) : 0;
+        return viewVersion + "|" + token;
+    }
+
+    /**
+     * Last data version seen by the background probe, or null when there is none yet, it is stale, or the
+     * table changed too recently to tell further changes apart. Never touches the table itself; the first
+     * lookup of a table only registers it for probing.
+     */
+    private String dataVersion(String tableName) {
+        long now = System.currentTimeMillis();
+        DataVersion version = dataVersions.computeIfAbsent(tableName, k -> new DataVersion());
+        version.usedAt = now;
+        // a probe that keeps failing must not leave an old token in use
+        if (version.token == null || now - version.probedAt > 5 * versionRefreshMs) return null;
+        return version.token;
+    }
+
+    /**
+     * Re-probe the data version of every table looked up recently; tables idle for
+     * report.result-cache.version-idle-seconds are dropped.
+     */
+    @Scheduled(fixedDelayString = "${report.result-cache.version-refresh-ms:2000}")
+    public void refreshDataVersions() {
+        if (!enabled) return;
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, DataVersion> entry : dataVersions.entrySet()) {
+            DataVersion version = entry.getValue();
+            if (now - version.usedAt > versionIdleSeconds * 1000) {
+                dataVersions.remove(entry.getKey(), version);
+                continue;
+            }
+            try {
+                version.token = probeDataVersion(entry.getKey());
+                version.probedAt = now;
+            } catch (Exception e) {
+                log.debug("Data version probe of {} failed: {}", entry.getKey(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Change token without scanning the table. On MySQL it is the table's UPDATE_TIME, which moves on every
+     * committed insert, update and delete; it has one-second resolution, so a table written within the last
+     * two seconds gets no token. Elsewhere it falls back to MAX of an indexed updated_at-style column, which
+     * misses deletes, so those tokens are weak (prefixed ~) and their entries age out like unversioned ones.
+     */
+    private String probeDataVersion(String tableName) {
+        Map<String, Object> updated = tableUpdateTime(tableName);
+        if (updated != null) {
+            if (Boolean.TRUE.equals(toBoolean(updated.get("recent")))) return null;
+            Object time = updated.get("t");
+            return "t" + (time != null ? time : "0");
+        }
+        Optional<String> column = indexedVersionColumnOf(tableName);
+        if (column.isPresent()) {
+            return "~" + jdbcTemplate.queryForObject("SELECT MAX(" + column.get() + ") FROM " + tableName, Object.class);
+        }
+        // no change signal, see expiresAt
+        return "~-";
+    }
+
+    /**
+     * (t, recent) from information_schema, or null when the database does not track it. Statistics caching is
+     * switched off for the session first, MySQL 8 would otherwise serve UPDATE_TIME up to a day old.
+     */
+    private Map<String, Object> tableUpdateTime(String tableName) {
+        try {
+            return jdbcTemplate.execute((ConnectionCallback<Map<String, Object>>) conn -> {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("SET SESSION information_schema_stats_expiry = 0");
+                }
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "SELECT UPDATE_TIME AS t, UPDATE_TIME > NOW() - INTERVAL 2 SECOND AS recent " +
+                                "FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?")) {
+                    stmt.setString(1, tableName);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (!rs.next()) return null;
+                        Map<String, Object> row = new HashMap<>();
+                        row.put("t", rs.getObject(1));
+                        row.put("recent", rs.getObject(2));
+                        return row;
+                    }
+                }
+            });
+        } catch (DataAccessException e) {
+            return null;
+        }
+    }
+
+    private Optional<String> indexedVersionColumnOf(String tableName) {
+        return indexedVersionColumns.computeIfAbsent(tableName, table -> versionColumnOf(table).filter(column -> {
+            try {
+                Integer leading = jdbcTemplate.queryForObject(
+                        "SELECT COUNT(*) FROM INFORMATION_SCHEMA.STATISTICS WHERE TABLE_SCHEMA = DATABASE() " +
+                                "AND TABLE_NAME = ? AND LOWER(COLUMN_NAME) = ? AND SEQ_IN_INDEX = 1",
+                        Integer.class, table, column);
+                return leading != null && leading > 0;
+            } catch (DataAccessException e) {
+                return false;
+            }
+        }));
+    }
+
+    private static Boolean toBoolean(Object value) {
+        if (value instanceof Boolean b) return b;
+        if (value instanceof Number n) return n.intValue() != 0;
+        return null;
+    }
+
+    /**
+     * The table's updated_at-style column, if it has one; incremental exports use it as their watermark.
+     */
+    public Optional<String> versionColumnOf(String tableName) {
+        return versionColumns.computeIfAbsent(tableName, this::findVersionColumn);
+    }
+
+    private Optional<String> findVersionColumn(String tableName) {
+        List<String> columns = jdbcTemplate.queryForList(
+                "SELECT LOWER(COLUMN_NAME) FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?",
+                String.class, tableName);
+        return VERSION_COLUMNS.stream().filter(columns::contains).findFirst();
+    }
+
+    private long expiresAt(String key) {
+        // weak tokens cannot see every change, so their entries age out
+        String[] parts = key.split("\\|", 4);
+        return parts.length > 2 && parts[2].startsWith("~")
+                ? System.currentTimeMillis() + unversionedTtlSeconds * 1000
+                : Long.MAX_VALUE;
+    }
+
+    private DiskEntry getDisk(String key) {
+        synchronized (disk) {
+            DiskEntry entry = disk.get(key);
+            if (entry == null) return null;
+            if (entry.isExpired() || !Files.exists(entry.path)) {
+                removeDisk(key);
+                return null;
+            }
+            return entry;
+        }
+    }
+
+    private void putDisk(String key, DiskEntry entry) {
+        synchronized (disk) {
+            DiskEntry previous = disk.put(key, entry);
+            if (previous != null) diskBytes -= previous.size;
+            diskBytes += entry.size;
+            while (diskBytes > diskMaxBytes && disk.size() > 1) {
+                removeDisk(disk.keySet().iterator().next());
+            }
+        }
+    }
+
+    private void removeMemory(String key) {
+        MemoryEntry entry = memory.remove(key);
+        if (entry != null) memoryBytes -= entry.size;
+    }
+
+    private void removeDisk(String key) {
+        synchronized (disk) {
+            DiskEntry entry = disk.remove(key);
+            if (entry == null) return;
+            diskBytes -= entry.size;
+            try {
+                Files.deleteIfExists(entry.path);
+            } catch (IOException e) {
+                log.debug("Could not delete cached report file {}: {}", entry.path, e.getMessage());
+            }
+        }
+    }
+
+    private Path fileFor(String key, String suffix) {
+        return Paths.get(directory).resolve(sha256(key) + suffix);
+    }
+
+    private static void linkOrCopy(Path source, Path target) throws IOException {
+        Files.deleteIfExists(target);
+        try {
+            Files.createLink(target, source);
+        } catch (UnsupportedOperationException | IOException e) {
+            Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class MemoryEntry {
+        private final List<Map<String, Object>> rows;
+        private final long size;
+        private final long expiresAt;
+
+        MemoryEntry(List<Map<String, Object>> rows, long size, long expiresAt) {
+            this.rows = rows;
+            this.size = size;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() > expiresAt;
+        }
+    }
+
+    private static class DiskEntry {
+        private final Path path;
+        private final long size;
+        private final int rowCount;
+        private final long contentLength;
+        private final long expiresAt;
+
+        DiskEntry(Path path, long size, int rowCount, long contentLength, long expiresAt) {
+            this.path = path;
+            this.size = size;
+            this.rowCount = rowCount;
+            this.contentLength = contentLength;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() > expiresAt;
+        }
+    }
+
+    public static class CachedCsv {
+        private final int rowCount;
+        private final long contentLength;
+
+        CachedCsv(int rowCount, long contentLength) {
+            this.rowCount = rowCount;
+            this.contentLength = contentLength;
+        }
+
+        public int getRowCount() {
+            return rowCount;
+        }
+
+        public long getContentLength() {
+            return contentLength;
+        }
+    }
+
+    private static class DataVersion {
+        private volatile String token;
+        private volatile long probedAt;
+        private volatile long usedAt;
+    }
+}
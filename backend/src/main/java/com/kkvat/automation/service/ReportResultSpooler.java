@@ -0,0 +1,112 @@
+package com.kkvat.automation.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reads synchronous report results into memory-budgeted buffers and writes them out page by page.
+ * Buffers are released once written; any left open and unread for report.result-buffer.ttl-ms, e.g.
+ * by a client that never read its response, are closed. A buffer being written is never swept.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ReportResultSpooler {
+    private static final int WRITE_PAGE_ROWS = 1000;
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${report.result-buffer.memory-budget-bytes:16777216}")
+    private long memoryBudgetBytes;
+
+    @Value("${report.result-buffer.max-spill-bytes:1073741824}")
+    private long maxSpillBytes;
+
+    @Value("${report.result-buffer.ttl-ms:600000}")
+    private long ttlMs;
+
+    @Value("${report.result-buffer.directory:./reports/spool}")
+    private String directory;
+
+    private final Set<ReportResultBuffer> open = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    void init() throws IOException {
+        Path dir = Paths.get(directory);
+        Files.createDirectories(dir);
+        // buffers do not outlive the process, so files from a previous run are orphans
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*.spill")) {
+            for (Path file : files) Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Read the remaining rows of the result set, spilling past the memory budget.
+     */
+    public ReportResultBuffer spool(ResultSet rs) throws SQLException, IOException {
+        ReportResultBuffer buffer = ReportResultBuffer.read(rs, memoryBudgetBytes, maxSpillBytes, Paths.get(directory));
+        if (buffer.isSpilled()) open.add(buffer);
+        return buffer;
+    }
+
+    /**
+     * Write the buffer as one JSON array, a page at a time, then release it.
+     */
+    public long writeJson(ReportResultBuffer buffer, OutputStream out) throws IOException {
+        buffer.beginRead();
+        try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out)) {
+            gen.writeStartArray();
+            long written = 0;
+            while (written < buffer.size()) {
+                ReportRowSet page = buffer.page(written, WRITE_PAGE_ROWS);
+                ReportRowSet.Serializer.writeRows(page, gen, objectMapper.getSerializerProviderInstance());
+                gen.flush();
+                written += page.size();
+            }
+            gen.writeEndArray();
+            return written;
+        } finally {
+            buffer.endRead();
+            release(buffer);
+        }
+    }
+
+    public void release(ReportResultBuffer buffer) {
+        open.remove(buffer);
+        buffer.close();
+    }
+
+    @Scheduled(fixedDelayString = "${report.result-buffer.sweep-ms:60000}")
+    public void sweep() {
+        long cutoff = System.currentTimeMillis() - ttlMs;
+        for (ReportResultBuffer buffer : open) {
+            if (buffer.closeIfIdle(cutoff)) {
+                open.remove(buffer);
+                log.warn("Released report result buffer of {} rows not read within {} ms", buffer.size(), ttlMs);
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        open.forEach(this::release);
+    }
+}
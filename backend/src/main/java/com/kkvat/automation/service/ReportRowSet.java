@@ -0,0 +1,537 @@
+package com.kkvat.automation.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Immutable report result held by column instead of one map per row. Labels are shared, integral,
+ * boolean and date/time values sit in long arrays, floating point values in double arrays, strings
+ * are dictionary-encoded and nulls are bitmaps. Values come back as the same Java types the JDBC
+ * driver returned.
+ * <p>
+ * It is a {@code List<Map<String, Object>>} whose rows are read-only views over the columns, so
+ * existing callers keep working; JSON is written straight from the columns by {@link Serializer}.
+ */
+@JsonSerialize(using = ReportRowSet.Serializer.class)
+public final class ReportRowSet extends AbstractList<Map<String, Object>> {
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    /** Java type of a column's values; the first group is stored as longs, then doubles, strings and objects. */
+    private enum Kind {
+        INTEGER, LONG, SHORT, BYTE, BOOLEAN, LOCAL_DATE_TIME, TIMESTAMP, LOCAL_DATE, SQL_DATE,
+        DOUBLE, FLOAT, STRING, OBJECT;
+
+        boolean isLong() {
+            return ordinal() <= SQL_DATE.ordinal();
+        }
+
+        static Kind of(Object value) {
+            Class<?> type = value.getClass();
+            if (type == Integer.class) return INTEGER;
+            if (type == Long.class) return LONG;
+            if (type == Short.class) return SHORT;
+            if (type == Byte.class) return BYTE;
+            if (type == Boolean.class) return BOOLEAN;
+            if (type == LocalDateTime.class) return LOCAL_DATE_TIME;
+            if (type == Timestamp.class) return TIMESTAMP;
+            if (type == LocalDate.class) return LOCAL_DATE;
+            if (type == java.sql.Date.class) return SQL_DATE;
+            if (type == Double.class) return DOUBLE;
+            if (type == Float.class) return FLOAT;
+            if (type == String.class) return STRING;
+            return OBJECT;
+        }
+    }
+
+    private final List<String> columnLabels;
+    private final String[] labels; // distinct labels in output order
+    private final int[] columnOf; // column read for each label; a repeated label shows its last column
+    private final Map<String, Integer> labelIndex;
+    private final Column[] columns;
+    private final int size;
+
+    private ReportRowSet(List<String> columnLabels, Column[] columns, int size) {
+        this.columnLabels = columnLabels;
+        Map<String, Integer> index = new LinkedHashMap<>();
+        // same precedence as put() into a LinkedHashMap: first position, last value
+        for (int i = 0; i < columnLabels.size(); i++) index.put(columnLabels.get(i), i);
+        this.labels = index.keySet().toArray(new String[0]);
+        this.columnOf = new int[labels.length];
+        this.labelIndex = new HashMap<>();
+        for (int i = 0; i < labels.length; i++) {
+            columnOf[i] = index.get(labels[i]);
+            labelIndex.put(labels[i], i);
+        }
+        this.columns = columns;
+        this.size = size;
+    }
+
+    public static Builder builder(List<String> columnLabels) {
+        return new Builder(columnLabels);
+    }
+
+    /**
+     * Read every remaining row of the result set.
+     */
+    public static ReportRowSet from(ResultSet rs) throws SQLException {
+        return from(rs, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Read at most limit rows of the result set.
+     */
+    public static ReportRowSet from(ResultSet rs, int limit) throws SQLException {
+        Builder builder = builder(labelsOf(rs.getMetaData(), rs.getMetaData().getColumnCount()));
+        while (builder.size() < limit && rs.next()) builder.add(rs);
+        return builder.build();
+    }
+
+    /**
+     * Columnar copy of map rows, e.g. a result read back from JSON. Columns are the keys in order of first appearance.
+     */
+    public static ReportRowSet of(List<Map<String, Object>> rows) {
+        if (rows instanceof ReportRowSet rowSet) return rowSet;
+        List<String> columnLabels = new ArrayList<>();
+        for (Map<String, Object> row : rows) {
+            for (String label : row.keySet()) {
+                if (!columnLabels.contains(label)) columnLabels.add(label);
+            }
+        }
+        Builder builder = builder(columnLabels);
+        Object[] values = new Object[columnLabels.size()];
+        for (Map<String, Object> row : rows) {
+            for (int i = 0; i < values.length; i++) values[i] = row.get(columnLabels.get(i));
+            builder.add(values);
+        }
+        return builder.build();
+    }
+
+    static List<String> labelsOf(ResultSetMetaData metadata, int columnCount) throws SQLException {
+        List<String> columnLabels = new ArrayList<>(columnCount);
+        for (int i = 1; i <= columnCount; i++) columnLabels.add(metadata.getColumnLabel(i));
+        return columnLabels;
+    }
+
+    @Override
+    public Map<String, Object> get(int row) {
+        if (row < 0 || row >= size) throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+        return new RowView(row);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    public List<String> getLabels() {
+        return List.of(labels);
+    }
+
+    /**
+     * Value of a column by label, or null when there is no such column.
+     */
+    public Object getValue(int row, String label) {
+        Integer i = labelIndex.get(label);
+        return i != null ? columns[columnOf[i]].get(row) : null;
+    }
+
+    /**
+     * Value by column position, counting repeated labels, in the order the rows were built with.
+     */
+    Object getValue(int row, int column) {
+        return columns[column].get(row);
+    }
+
+    /**
+     * Labels of the columns as built, repeats included; getValue(row, column) indexes into these.
+     */
+    List<String> columnLabels() {
+        return columnLabels;
+    }
+
+    /**
+     * Approximate heap footprint of the columns, for cache accounting.
+     */
+    public long sizeInBytes() {
+        long bytes = 64 + 48L * labels.length;
+        for (Column column : columns) bytes += column.sizeInBytes();
+        return bytes;
+    }
+
+    private final class RowView extends AbstractMap<String, Object> {
+        private final int row;
+
+        RowView(int row) {
+            this.row = row;
+        }
+
+        @Override
+        public Object get(Object key) {
+            Integer i = labelIndex.get(key);
+            return i != null ? columns[columnOf[i]].get(row) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return labelIndex.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return labels.length;
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    return new Iterator<>() {
+                        private int i;
+
+                        @Override
+                        public boolean hasNext() {
+                            return i < labels.length;
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            if (i >= labels.length) throw new NoSuchElementException();
+                            int label = i++;
+                            return new SimpleImmutableEntry<>(labels[label], columns[columnOf[label]].get(row));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return labels.length;
+                }
+            };
+        }
+    }
+
+    /**
+     * One column. The kind is taken from the first non-null value; a later value of another type turns
+     * the column into plain objects.
+     */
+    private static final class Column {
+        private Kind kind;
+        private long[] longs;
+        private double[] doubles;
+        private int[] codes; // dictionary index of each string
+        private String[] dictionary;
+        private Map<String, Integer> codeOf; // only while building
+        private Object[] objects;
+        private BitSet nulls = new BitSet();
+        private int count;
+
+        Object get(int row) {
+            if (kind == null || nulls.get(row)) return null;
+            if (kind.isLong()) return decode(kind, longs[row]);
+            return switch (kind) {
+                case DOUBLE -> doubles[row];
+                case FLOAT -> (float) doubles[row];
+                case STRING -> dictionary[codes[row]];
+                default -> objects[row];
+            };
+        }
+
+        void add(Object value) {
+            int row = count++;
+            if (value == null) {
+                nulls.set(row);
+                return;
+            }
+            if (kind == null) start(Kind.of(value), row);
+            else if (kind != Kind.OBJECT && Kind.of(value) != kind) toObjects(row);
+            ensureCapacity(row);
+            if (kind.isLong()) {
+                Long encoded = encode(kind, value);
+                if (encoded != null) {
+                    longs[row] = encoded;
+                    return;
+                }
+                // outside the range a long can carry
+                toObjects(row);
+                ensureCapacity(row);
+            }
+            switch (kind) {
+                case DOUBLE, FLOAT -> doubles[row] = ((Number) value).doubleValue();
+                case STRING -> {
+                    String s = (String) value;
+                    Integer code = codeOf.get(s);
+                    if (code == null) {
+                        code = codeOf.size();
+                        codeOf.put(s, code);
+                    }
+                    codes[row] = code;
+                }
+                default -> objects[row] = value;
+            }
+        }
+
+        /** The first non-null value fixes the kind; rows before it are all null. */
+        private void start(Kind first, int row) {
+            kind = first;
+            int capacity = Math.max(16, row + 1);
+            if (kind.isLong()) longs = new long[capacity];
+            else if (kind == Kind.DOUBLE || kind == Kind.FLOAT) doubles = new double[capacity];
+            else if (kind == Kind.STRING) {
+                codes = new int[capacity];
+                codeOf = new HashMap<>();
+            } else objects = new Object[capacity];
+        }
+
+        private void toObjects(int row) {
+            Object[] values = new Object[Math.max(16, row + 1)];
+            if (kind == Kind.STRING) dictionary = dictionaryOf(codeOf);
+            for (int i = 0; i < row; i++) values[i] = get(i);
+            kind = Kind.OBJECT;
+            objects = values;
+            longs = null;
+            doubles = null;
+            codes = null;
+            dictionary = null;
+            codeOf = null;
+        }
+
+        /** Null rows do not grow the arrays, so a non-null row may be well past the end. */
+        private void ensureCapacity(int row) {
+            if (kind.isLong() && row >= longs.length) longs = Arrays.copyOf(longs, grown(longs.length, row));
+            else if ((kind == Kind.DOUBLE || kind == Kind.FLOAT) && row >= doubles.length) doubles = Arrays.copyOf(doubles, grown(doubles.length, row));
+            else if (kind == Kind.STRING && row >= codes.length) codes = Arrays.copyOf(codes, grown(codes.length, row));
+            else if (kind == Kind.OBJECT && row >= objects.length) objects = Arrays.copyOf(objects, grown(objects.length, row));
+        }
+
+        private static int grown(int length, int row) {
+            return Math.max(length * 2, row + 1);
+        }
+
+        private static String[] dictionaryOf(Map<String, Integer> codeOf) {
+            String[] dictionary = new String[codeOf.size()];
+            for (Map.Entry<String, Integer> e : codeOf.entrySet()) dictionary[e.getValue()] = e.getKey();
+            return dictionary;
+        }
+
+        /** Trim to the row count and drop the build-time dictionary map. */
+        void seal() {
+            if (kind == null) return;
+            if (kind.isLong()) longs = Arrays.copyOf(longs, count);
+            else if (kind == Kind.DOUBLE || kind == Kind.FLOAT) doubles = Arrays.copyOf(doubles, count);
+            else if (kind == Kind.STRING) {
+                codes = Arrays.copyOf(codes, count);
+                dictionary = dictionaryOf(codeOf);
+                codeOf = null;
+            } else objects = Arrays.copyOf(objects, count);
+            BitSet trimmed = new BitSet(count);
+            trimmed.or(nulls);
+            nulls = trimmed;
+        }
+
+        long sizeInBytes() {
+            long bytes = 48 + nulls.size() / 8;
+            if (kind == null) return bytes;
+            if (kind.isLong() || kind == Kind.DOUBLE || kind == Kind.FLOAT) return bytes + 8L * count;
+            if (kind == Kind.STRING) {
+                bytes += 4L * count;
+                for (String s : dictionary) bytes += 48 + s.length();
+                return bytes;
+            }
+            bytes += 8L * count;
+            for (Object o : objects) {
+                if (o != null) bytes += o instanceof String s ? 48 + s.length() : 32;
+            }
+            return bytes;
+        }
+
+        private static Long encode(Kind kind, Object value) {
+            try {
+                return switch (kind) {
+                    case INTEGER, LONG, SHORT, BYTE -> ((Number) value).longValue();
+                    case BOOLEAN -> (Boolean) value ? 1L : 0L;
+                    case LOCAL_DATE_TIME -> {
+                        LocalDateTime t = (LocalDateTime) value;
+                        yield Math.addExact(Math.multiplyExact(t.toEpochSecond(ZoneOffset.UTC), NANOS_PER_SECOND), t.getNano());
+                    }
+                    case TIMESTAMP -> {
+                        Timestamp t = (Timestamp) value;
+                        yield Math.addExact(Math.multiplyExact(Math.floorDiv(t.getTime(), 1000L), NANOS_PER_SECOND), t.getNanos());
+                    }
+                    case LOCAL_DATE -> ((LocalDate) value).toEpochDay();
+                    case SQL_DATE -> ((java.sql.Date) value).toLocalDate().toEpochDay();
+                    default -> null;
+                };
+            } catch (ArithmeticException e) {
+                return null;
+            }
+        }
+
+        private static Object decode(Kind kind, long value) {
+            return switch (kind) {
+                case INTEGER -> (int) value;
+                case LONG -> value;
+                case SHORT -> (short) value;
+                case BYTE -> (byte) value;
+                case BOOLEAN -> value != 0;
+                case LOCAL_DATE_TIME -> LocalDateTime.ofEpochSecond(Math.floorDiv(value, NANOS_PER_SECOND),
+                        (int) Math.floorMod(value, NANOS_PER_SECOND), ZoneOffset.UTC);
+                case TIMESTAMP -> {
+                    Timestamp t = new Timestamp(Math.floorDiv(value, NANOS_PER_SECOND) * 1000L);
+                    t.setNanos((int) Math.floorMod(value, NANOS_PER_SECOND));
+                    yield t;
+                }
+                case LOCAL_DATE -> LocalDate.ofEpochDay(value);
+                case SQL_DATE -> java.sql.Date.valueOf(LocalDate.ofEpochDay(value));
+                default -> throw new IllegalStateException(kind.name());
+            };
+        }
+    }
+
+    public static final class Builder {
+        private final List<String> columnLabels;
+        private final Column[] columns;
+        private int size;
+        private long estimatedBytes;
+
+        private Builder(List<String> columnLabels) {
+            this.columnLabels = List.copyOf(columnLabels);
+            this.columns = new Column[columnLabels.size()];
+            for (int i = 0; i < columns.length; i++) columns[i] = new Column();
+        }
+
+        /**
+         * Append the current row of the result set; its first columns map to this builder's labels.
+         */
+        public Builder add(ResultSet rs) throws SQLException {
+            for (int i = 0; i < columns.length; i++) add(i, rs.getObject(i + 1));
+            size++;
+            return this;
+        }
+
+        public Builder add(Object[] values) {
+            for (int i = 0; i < columns.length; i++) add(i, values[i]);
+            size++;
+            return this;
+        }
+
+        private void add(int column, Object value) {
+            columns[column].add(value);
+            // strings counted in full although repeats share a dictionary entry, so this errs high
+            estimatedBytes += value == null ? 0 : value instanceof String s ? 8 + s.length() : 8;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Heap taken by the rows added so far, roughly; for memory budgets while building.
+         */
+        public long estimatedBytes() {
+            return estimatedBytes;
+        }
+
+        public ReportRowSet build() {
+            for (Column column : columns) column.seal();
+            return new ReportRowSet(columnLabels, columns, size);
+        }
+    }
+
+    /**
+     * Writes rows as JSON objects straight from the columns. Numbers, booleans and strings are written
+     * directly; dates and other objects go through the configured serializers, so the output matches
+     * that of map rows, including the default inclusion of null values.
+     */
+    static final class Serializer extends StdSerializer<ReportRowSet> {
+        private static final long serialVersionUID = 1L;
+
+        Serializer() {
+            super(ReportRowSet.class);
+        }
+
+        @Override
+        public void serialize(ReportRowSet rows, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartArray(rows, rows.size);
+            writeRows(rows, gen, provider);
+            gen.writeEndArray();
+        }
+
+        /**
+         * Write each row as a JSON object, without the enclosing array, e.g. to continue an array across pages.
+         */
+        static void writeRows(ReportRowSet rows, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            JsonInclude.Include inclusion = provider.getConfig().getDefaultPropertyInclusion(Map.class).getContentInclusion();
+            boolean skipNulls = inclusion == JsonInclude.Include.NON_NULL || inclusion == JsonInclude.Include.NON_ABSENT
+                    || inclusion == JsonInclude.Include.NON_EMPTY;
+            boolean skipEmpty = inclusion == JsonInclude.Include.NON_EMPTY;
+            for (int row = 0; row < rows.size; row++) {
+                gen.writeStartObject();
+                for (int i = 0; i < rows.labels.length; i++) {
+                    Column column = rows.columns[rows.columnOf[i]];
+                    if (column.kind == null || column.nulls.get(row)) {
+                        if (!skipNulls) {
+                            gen.writeFieldName(rows.labels[i]);
+                            gen.writeNull();
+                        }
+                        continue;
+                    }
+                    switch (column.kind) {
+                        case INTEGER, LONG, SHORT, BYTE -> {
+                            gen.writeFieldName(rows.labels[i]);
+                            gen.writeNumber(column.longs[row]);
+                        }
+                        case BOOLEAN -> {
+                            gen.writeFieldName(rows.labels[i]);
+                            gen.writeBoolean(column.longs[row] != 0);
+                        }
+                        case DOUBLE -> {
+                            gen.writeFieldName(rows.labels[i]);
+                            gen.writeNumber(column.doubles[row]);
+                        }
+                        case FLOAT -> {
+                            gen.writeFieldName(rows.labels[i]);
+                            gen.writeNumber((float) column.doubles[row]);
+                        }
+                        case STRING -> {
+                            String value = column.dictionary[column.codes[row]];
+                            if (skipEmpty && value.isEmpty()) continue;
+                            gen.writeFieldName(rows.labels[i]);
+                            gen.writeString(value);
+                        }
+                        default -> {
+                            gen.writeFieldName(rows.labels[i]);
+                            provider.defaultSerializeValue(column.get(row), gen);
+                        }
+                    }
+                }
+                gen.writeEndObject();
+            }
+        }
+    }
+}
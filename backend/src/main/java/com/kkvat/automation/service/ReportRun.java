@@ -0,0 +1,118 @@
+package com.kkvat.automation.service;
+
+import com.kkvat.automation.util.CsvStreamWriter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Handle on one running report job: the statements it has open, so it can be cancelled from another
+ * thread, and its progress. Shared with the part scans of a parallel run.
+ */
+@Slf4j
+public class ReportRun {
+    private static final int CHECK_INTERVAL = 1024;
+
+    private final Long executionId;
+    private final long startedAt = System.currentTimeMillis();
+    private final long deadline; // epoch ms, 0 for none
+    private final List<Statement> statements = new CopyOnWriteArrayList<>();
+    private final AtomicLong rows = new AtomicLong();
+    private volatile CsvStreamWriter output;
+    private volatile String cancelReason;
+    private volatile boolean timedOut;
+
+    ReportRun(Long executionId, long timeoutSeconds) {
+        this.executionId = executionId;
+        this.deadline = timeoutSeconds > 0 ? startedAt + timeoutSeconds * 1000 : 0;
+    }
+
+    public Long getExecutionId() {
+        return executionId;
+    }
+
+    /**
+     * Statement to cancel when the run is stopped; cancelled at once if that already happened.
+     */
+    public void register(Statement statement) throws SQLException {
+        statements.add(statement);
+        if (cancelReason != null) {
+            statement.cancel();
+        }
+    }
+
+    /** The writer whose byte count is reported as progress. */
+    public void track(CsvStreamWriter writer) {
+        this.output = writer;
+    }
+
+    /**
+     * Count one output row; every so often also stops the writer thread if the run was cancelled.
+     */
+    public void rowWritten() {
+        if ((rows.incrementAndGet() & (CHECK_INTERVAL - 1)) == 0) {
+            checkCancelled();
+        }
+    }
+
+    public void checkCancelled() {
+        if (cancelReason != null) {
+            throw new CancellationException(cancelReason);
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelReason != null;
+    }
+
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    public String getCancelReason() {
+        return cancelReason;
+    }
+
+    boolean isOverdue(long now) {
+        return deadline > 0 && now > deadline && cancelReason == null;
+    }
+
+    void timeout() {
+        timedOut = true;
+        cancel("Report timed out after " + (deadline - startedAt) / 1000 + " s");
+    }
+
+    /**
+     * Stop the run: in-flight queries are cancelled on the server and writer loops stop at their next check.
+     */
+    void cancel(String reason) {
+        if (cancelReason != null) return;
+        cancelReason = reason;
+        for (Statement statement : statements) {
+            try {
+                statement.cancel();
+            } catch (SQLException e) {
+                // already closed
+                log.debug("Could not cancel statement of report execution {}: {}", executionId, e.getMessage());
+            }
+        }
+    }
+
+    public long getRowsWritten() {
+        return rows.get();
+    }
+
+    public long getBytesWritten() {
+        CsvStreamWriter writer = output;
+        return writer != null ? writer.getBytesWritten() : 0;
+    }
+
+    public long getElapsedMs() {
+        return System.currentTimeMillis() - startedAt;
+    }
+}
@@ -0,0 +1,156 @@
+package com.kkvat.automation.service;
+
+import com.kkvat.automation.dto.ReportProgressResponse;
+import com.kkvat.automation.model.ReportExecution;
+import com.kkvat.automation.repository.ReportExecutionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Registry of the report jobs running on this node. Once a second it stops runs past their timeout,
+ * stops runs whose execution was marked CANCELLED (possibly from another node) and pushes progress
+ * to SSE subscribers.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ReportRunTracker {
+    private final ReportExecutionRepository reportExecutionRepository;
+
+    @Value("${report.jobs.query-timeout-seconds:1800}")
+    private long defaultTimeoutSeconds;
+
+    @Value("${report.progress.sse-timeout-ms:1800000}")
+    private long sseTimeoutMs;
+
+    private final Map<Long, ReportRun> runs = new ConcurrentHashMap<>();
+    private final ThreadLocal<ReportRun> current = new ThreadLocal<>();
+    private final Map<Long, List<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+
+    /**
+     * Register a run for the calling thread.
+     *
+     * @param timeoutSeconds the report's own timeout, null for the configured default
+     */
+    public ReportRun begin(Long executionId, Integer timeoutSeconds) {
+        ReportRun run = new ReportRun(executionId, timeoutSeconds != null ? timeoutSeconds : defaultTimeoutSeconds);
+        runs.put(executionId, run);
+        current.set(run);
+        return run;
+    }
+
+    public void end(ReportRun run) {
+        runs.remove(run.getExecutionId(), run);
+        current.remove();
+    }
+
+    /**
+     * The run bound to this thread, or a detached one for work outside a tracked job.
+     */
+    public ReportRun current() {
+        ReportRun run = current.get();
+        return run != null ? run : new ReportRun(null, 0);
+    }
+
+    /**
+     * Cancel a run if it executes on this node.
+     */
+    public void cancel(Long executionId, String reason) {
+        ReportRun run = runs.get(executionId);
+        if (run != null) {
+            run.cancel(reason);
+        }
+    }
+
+    public SseEmitter subscribe(Long executionId) {
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        subscribers.computeIfAbsent(executionId, k -> new CopyOnWriteArrayList<>()).add(emitter);
+        Runnable remove = () -> subscribers.computeIfPresent(executionId, (k, list) -> {
+            list.remove(emitter);
+            return list.isEmpty() ? null : list;
+        });
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(e -> remove.run());
+        publish(executionId);
+        return emitter;
+    }
+
+    @Scheduled(fixedDelayString = "${report.progress.interval-ms:1000}")
+    public void check() {
+        long now = System.currentTimeMillis();
+        for (ReportRun run : runs.values()) {
+            if (run.isOverdue(now)) {
+                log.warn("Report execution {} exceeded its timeout, cancelling", run.getExecutionId());
+                run.timeout();
+            }
+        }
+        if (!runs.isEmpty()) {
+            for (Long id : reportExecutionRepository.findIdsByIdInAndStatus(Set.copyOf(runs.keySet()), ReportExecution.Status.CANCELLED)) {
+                cancel(id, "Cancelled by user");
+            }
+        }
+        for (Long id : new ArrayList<>(subscribers.keySet())) {
+            publish(id);
+        }
+    }
+
+    private void publish(Long executionId) {
+        List<SseEmitter> emitters = subscribers.get(executionId);
+        if (emitters == null || emitters.isEmpty()) return;
+
+        ReportProgressResponse progress;
+        boolean finished = false;
+        ReportRun run = runs.get(executionId);
+        if (run != null) {
+            progress = ReportProgressResponse.builder()
+                    .executionId(executionId)
+                    .status(run.isCancelled() ? "CANCELLING" : ReportExecution.Status.GENERATING.name())
+                    .rowsWritten(run.getRowsWritten())
+                    .bytesWritten(run.getBytesWritten())
+                    .elapsedMs(run.getElapsedMs())
+                    .message(run.getCancelReason())
+                    .build();
+        } else {
+            // queued, finished or running on another node
+            ReportExecution execution = reportExecutionRepository.findById(executionId).orElse(null);
+            if (execution == null) {
+                progress = ReportProgressResponse.builder().executionId(executionId).status("NOT_FOUND").build();
+                finished = true;
+            } else {
+                ReportExecution.Status status = execution.getStatus();
+                finished = status != ReportExecution.Status.PENDING && status != ReportExecution.Status.GENERATING;
+                progress = ReportProgressResponse.builder()
+                        .executionId(executionId)
+                        .status(status.name())
+                        .rowsWritten(execution.getRowCount() != null ? execution.getRowCount().longValue() : null)
+                        .bytesWritten(execution.getFileSize())
+                        .elapsedMs(execution.getDurationMs())
+                        .message(execution.getErrorMessage())
+                        .build();
+            }
+        }
+
+        for (SseEmitter emitter : emitters) {
+            try {
+                emitter.send(SseEmitter.event().name("progress").data(progress));
+                if (finished) emitter.complete();
+            } catch (IOException | IllegalStateException e) {
+                // client went away
+                emitter.completeWithError(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.kkvat.automation.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published when a schedule is created, edited or deleted so the dispatcher can re-slot it.
+ */
+@Data
+@AllArgsConstructor
+public class ReportScheduleChangedEvent {
+    private Long scheduleId;
+    private LocalDateTime nextExecution; // null when deleted or deactivated
+}
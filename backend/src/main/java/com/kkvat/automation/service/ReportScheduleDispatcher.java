@@ -0,0 +1,204 @@
+package com.kkvat.automation.service;
+
+import com.kkvat.automation.model.ReportSchedule;
+import com.kkvat.automation.repository.ReportScheduleRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fires report schedules. Upcoming nextExecution times within a short horizon are kept in a hashed
+ * timing wheel with one-second slots, refreshed from the next_execution index, so a tick touches only
+ * the schedules due in that second. A due schedule is claimed by a compare-and-set on next_execution,
+ * which also moves it to its next slot; only one node wins, so several nodes can run the dispatcher.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ReportScheduleDispatcher {
+    private final ReportScheduleRepository reportScheduleRepository;
+    private final ReportScheduleService reportScheduleService;
+    private final ReportExecutionService reportExecutionService;
+
+    @Value("${report.scheduler.enabled:true}")
+    private boolean enabled;
+
+    @Value("${report.scheduler.horizon-seconds:600}")
+    private int horizonSeconds;
+
+    @Value("${report.scheduler.catch-up-window-minutes:360}")
+    private long catchUpWindowMinutes;
+
+    @Value("${report.scheduler.max-fires-per-tick:20}")
+    private int maxFiresPerTick;
+
+    private List<List<Slot>> wheel;
+    // expected nextExecution per slotted schedule; slots whose time no longer matches are dropped lazily
+    private final Map<Long, LocalDateTime> slotted = new ConcurrentHashMap<>();
+    private final ArrayDeque<Slot> due = new ArrayDeque<>();
+    private long lastTick;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        wheel = new ArrayList<>(horizonSeconds + 1);
+        for (int i = 0; i <= horizonSeconds; i++) {
+            wheel.add(new ArrayList<>());
+        }
+        lastTick = epochSecond(LocalDateTime.now()) - 1;
+        refresh();
+    }
+
+    /**
+     * Load schedules due before the end of the horizon, overdue ones included; the index on
+     * next_execution keeps this proportional to upcoming work rather than to the number of schedules.
+     */
+    @Scheduled(fixedDelayString = "${report.scheduler.refresh-ms:60000}", initialDelayString = "${report.scheduler.refresh-ms:60000}")
+    public synchronized void refresh() {
+        if (!enabled || wheel == null) return;
+        LocalDateTime until = LocalDateTime.now().plusSeconds(horizonSeconds);
+        int added = 0;
+        for (Object[] row : reportScheduleRepository.findActiveDueBefore(until)) {
+            if (add((Long) row[0], (LocalDateTime) row[1])) added++;
+        }
+        if (added > 0) {
+            log.debug("Slotted {} report schedules due before {}", added, until);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${report.scheduler.tick-ms:1000}")
+    public void tick() {
+        if (!enabled || wheel == null) return;
+        List<Slot> toFire = collectDue();
+        for (Slot slot : toFire) {
+            try {
+                fire(slot);
+            } catch (Exception e) {
+                log.error("Failed to fire report schedule {}", slot.scheduleId, e);
+            }
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public synchronized void onScheduleChanged(ReportScheduleChangedEvent event) {
+        if (event.getNextExecution() == null) {
+            slotted.remove(event.getScheduleId());
+        } else if (wheel != null) {
+            add(event.getScheduleId(), event.getNextExecution());
+        }
+    }
+
+    private synchronized List<Slot> collectDue() {
+        long now = epochSecond(LocalDateTime.now());
+        // after a long pause one turn of the wheel covers every slot
+        long from = Math.max(lastTick + 1, now - horizonSeconds);
+        for (long second = from; second <= now; second++) {
+            Iterator<Slot> it = wheel.get(slotIndex(second)).iterator();
+            while (it.hasNext()) {
+                Slot slot = it.next();
+                if (slot.dueSecond > now) continue; // a later turn of the wheel
+                it.remove();
+                if (slot.nextExecution.equals(slotted.get(slot.scheduleId))) {
+                    due.add(slot);
+                }
+            }
+        }
+        lastTick = now;
+
+        // bounded catch-up: a backlog after downtime drains a few schedules per tick
+        List<Slot> batch = new ArrayList<>();
+        while (!due.isEmpty() && batch.size() < maxFiresPerTick) {
+            batch.add(due.poll());
+        }
+        return batch;
+    }
+
+    private boolean add(Long scheduleId, LocalDateTime nextExecution) {
+        if (nextExecution == null) return false;
+        // next_execution is stored with second precision
+        nextExecution = nextExecution.truncatedTo(ChronoUnit.SECONDS);
+        LocalDateTime previous = slotted.put(scheduleId, nextExecution);
+        if (nextExecution.equals(previous)) return false;
+        Slot slot = new Slot(scheduleId, nextExecution, epochSecond(nextExecution));
+        long now = epochSecond(LocalDateTime.now());
+        if (slot.dueSecond <= now) {
+            due.add(slot);
+        } else if (slot.dueSecond - now <= horizonSeconds) {
+            wheel.get(slotIndex(slot.dueSecond)).add(slot);
+        } else {
+            // beyond the horizon; a later refresh slots it
+            slotted.remove(scheduleId);
+            return false;
+        }
+        return true;
+    }
+
+    private void fire(Slot slot) {
+        ReportSchedule schedule = reportScheduleRepository.findById(slot.scheduleId).orElse(null);
+        if (schedule == null || !Boolean.TRUE.equals(schedule.getIsActive())
+                || !Objects.equals(schedule.getNextExecution(), slot.nextExecution)) {
+            // deleted, paused or already claimed by another node
+            synchronized (this) {
+                slotted.remove(slot.scheduleId, slot.nextExecution);
+            }
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime next = reportScheduleService.nextExecutionFor(schedule, now);
+        if (reportScheduleRepository.claim(slot.scheduleId, slot.nextExecution, next, now) == 0) {
+            return;
+        }
+        synchronized (this) {
+            slotted.remove(slot.scheduleId, slot.nextExecution);
+            add(slot.scheduleId, next);
+        }
+
+        Duration late = Duration.between(slot.nextExecution, now);
+        if (late.toMinutes() > catchUpWindowMinutes) {
+            // missed runs older than the window are skipped, only the schedule is advanced
+            log.warn("Skipped report schedule {} due at {} ({} min late), next run {}", slot.scheduleId,
+                    slot.nextExecution, late.toMinutes(), next);
+            return;
+        }
+        log.info("Firing report schedule {} due at {}, next run {}", slot.scheduleId, slot.nextExecution, next);
+        reportExecutionService.generateScheduledReport(slot.scheduleId);
+    }
+
+    private int slotIndex(long epochSecond) {
+        return (int) Math.floorMod(epochSecond, (long) wheel.size());
+    }
+
+    private static long epochSecond(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toEpochSecond();
+    }
+
+    private static class Slot {
+        private final Long scheduleId;
+        private final LocalDateTime nextExecution;
+        private final long dueSecond;
+
+        Slot(Long scheduleId, LocalDateTime nextExecution, long dueSecond) {
+            this.scheduleId = scheduleId;
+            this.nextExecution = nextExecution;
+            this.dueSecond = dueSecond;
+        }
+    }
+}
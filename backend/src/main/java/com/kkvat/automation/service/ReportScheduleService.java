@@ -2,6 +2,7 @@ package com.kkvat.automation.service;
 
 import com.kkvat.automation.dto.ReportScheduleRequest;
 import com.kkvat.automation.dto.ReportScheduleResponse;
+import com.kkvat.automation.exception.BadRequestException;
 import com.kkvat.automation.exception.ResourceNotFoundException;
 import com.kkvat.automation.model.Report;
 import com.kkvat.automation.model.ReportSchedule;
@@ -11,6 +12,7 @@ import com.kkvat.automation.repository.ReportScheduleRepository;
 import com.kkvat.automation.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.Authentication;
@@ -35,6 +37,7 @@ public class ReportScheduleService {
     private final ReportRepository reportRepository;
     private final UserRepository userRepository;
     private final AuditService auditService;
+    private final ApplicationEventPublisher eventPublisher;
 
     public Page<ReportScheduleResponse> getAllSchedules(Pageable pageable) {
         // In a real app, you'd want pagination. For now, get all and convert
@@ -69,11 +72,13 @@ public class ReportScheduleService {
                 .timeOfDay(request.getTimeOfDay())
                 .emailRecipients(request.getEmailRecipients())
                 .isActive(request.getIsActive() != null ? request.getIsActive() : true)
+                .incrementalMode(parseIncrementalMode(request.getIncrementalMode()))
                 .createdBy(user)
                 .nextExecution(calculateNextExecution(request.getFrequency(), request.getTimeOfDay(), request.getDayOfWeek(), request.getDayOfMonth()))
                 .build();
 
         ReportSchedule saved = reportScheduleRepository.save(schedule);
+        publishChanged(saved);
         auditService.logSuccess("CREATE", "REPORT_SCHEDULE", saved.getId(), "Created schedule: " + request.getScheduleName());
         return ReportScheduleResponse.from(saved);
     }
@@ -93,10 +98,19 @@ public class ReportScheduleService {
         schedule.setTimeOfDay(request.getTimeOfDay());
         schedule.setEmailRecipients(request.getEmailRecipients());
         schedule.setIsActive(request.getIsActive());
+        ReportSchedule.IncrementalMode mode = parseIncrementalMode(request.getIncrementalMode());
+        if (mode != schedule.getIncrementalMode()) {
+            // the next run starts over with a full export
+            schedule.setIncrementalMode(mode);
+            schedule.setWatermarkColumn(null);
+            schedule.setWatermarkValue(null);
+            schedule.setWatermarkReportVersion(null);
+        }
         schedule.setUpdatedBy(user);
         schedule.setNextExecution(calculateNextExecution(request.getFrequency(), request.getTimeOfDay(), request.getDayOfWeek(), request.getDayOfMonth()));
 
         ReportSchedule updated = reportScheduleRepository.save(schedule);
+        publishChanged(updated);
         auditService.logSuccess("UPDATE", "REPORT_SCHEDULE", updated.getId(), "Updated schedule: " + request.getScheduleName());
         return ReportScheduleResponse.from(updated);
     }
@@ -106,6 +120,7 @@ public class ReportScheduleService {
                 .orElseThrow(() -> new ResourceNotFoundException("Schedule not found"));
         
         reportScheduleRepository.delete(schedule);
+        eventPublisher.publishEvent(new ReportScheduleChangedEvent(id, null));
         auditService.logSuccess("DELETE", "REPORT_SCHEDULE", id, "Deleted schedule: " + schedule.getScheduleName());
     }
 
@@ -113,8 +128,42 @@ public class ReportScheduleService {
         return reportScheduleRepository.findByIsActiveTrueAndNextExecutionBefore(LocalDateTime.now());
     }
 
+    /**
+     * The run after the one due now, for the dispatcher's claim. Computed from {@code now} so that a
+     * schedule that was down for a while resumes at its next regular time instead of replaying every
+     * missed one.
+     */
+    @Transactional(readOnly = true)
+    public LocalDateTime nextExecutionFor(ReportSchedule schedule, LocalDateTime now) {
+        LocalDateTime due = schedule.getNextExecution();
+        // never hand back the slot that is being claimed
+        LocalDateTime from = due != null && !now.isAfter(due) ? due.plusSeconds(1) : now;
+        return calculateNextExecution(schedule.getFrequency().name(), schedule.getTimeOfDay(),
+                schedule.getDayOfWeek(), schedule.getDayOfMonth(), from);
+    }
+
+    private void publishChanged(ReportSchedule schedule) {
+        eventPublisher.publishEvent(new ReportScheduleChangedEvent(schedule.getId(),
+                Boolean.TRUE.equals(schedule.getIsActive()) ? schedule.getNextExecution() : null));
+    }
+
+    private ReportSchedule.IncrementalMode parseIncrementalMode(String mode) {
+        if (mode == null || mode.isBlank()) {
+            return ReportSchedule.IncrementalMode.FULL;
+        }
+        try {
+            return ReportSchedule.IncrementalMode.valueOf(mode.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid incremental mode: " + mode);
+        }
+    }
+
     private LocalDateTime calculateNextExecution(String frequency, LocalTime timeOfDay, Integer dayOfWeek, Integer dayOfMonth) {
-        LocalDateTime now = LocalDateTime.now();
+        return calculateNextExecution(frequency, timeOfDay, dayOfWeek, dayOfMonth, LocalDateTime.now());
+    }
+
+    private LocalDateTime calculateNextExecution(String frequency, LocalTime timeOfDay, Integer dayOfWeek, Integer dayOfMonth,
+                                                 LocalDateTime now) {
         LocalDateTime nextExecution = now.with(timeOfDay);
 
         if (nextExecution.isBefore(now)) {
@@ -29,10 +29,11 @@ import java.util.stream.Collectors;
 public class ReportService {
     private final ReportRepository reportRepository;
     private final ReportViewRepository reportViewRepository;
-    private final com.kkvat.automation.repository.ReportViewFieldRepository reportViewFieldRepository;
+    private final ReportViewCatalog reportViewCatalog;
     private final UserRepository userRepository;
     private final AuditService auditService;
     private final ObjectMapper objectMapper;
+    private final ReportQueryPlanner reportQueryPlanner;
 
     public Page<ReportResponse> getAllReports(Pageable pageable) {
         Long userId = getCurrentUserId();
@@ -69,6 +70,8 @@ public class ReportService {
                     .sortConfig(request.getSortConfig() != null ? objectMapper.writeValueAsString(request.getSortConfig()) : null)
                     .reportType(Report.ReportType.valueOf(request.getReportType()))
                     .isPublic(request.getIsPublic() != null ? request.getIsPublic() : false)
+                    .parallelism(request.getParallelism())
+                    .timeoutSeconds(request.getTimeoutSeconds())
                     .createdBy(user)
                     .build();
 
@@ -113,9 +116,12 @@ public class ReportService {
             report.setSortConfig(request.getSortConfig() != null ? objectMapper.writeValueAsString(request.getSortConfig()) : null);
             report.setReportType(Report.ReportType.valueOf(request.getReportType()));
             report.setIsPublic(request.getIsPublic());
+            report.setParallelism(request.getParallelism());
+            report.setTimeoutSeconds(request.getTimeoutSeconds());
             report.setUpdatedBy(user);
 
             Report updated = reportRepository.save(report);
+            reportQueryPlanner.invalidateReport(updated.getId());
                 try {
                     log.debug("Updated report id={}, selectedColumns={}, filterConditions={}, sortConfig={}",
                             updated.getId(), updated.getSelectedColumns(), updated.getFilterConditions(), updated.getSortConfig());
@@ -136,6 +142,7 @@ public class ReportService {
                 .orElseThrow(() -> new ResourceNotFoundException("Report not found with id: " + id));
         
         reportRepository.delete(report);
+        reportQueryPlanner.invalidateReport(id);
         auditService.logSuccess("DELETE", "REPORT", id, "Deleted report: " + report.getName());
     }
 
@@ -203,7 +210,7 @@ public class ReportService {
     private String serializeFilterConditionKeys(Object filterConditions, ReportView view) {
         try {
             // Build mapping of possible incoming keys (displayName and fieldName) -> actual fieldName
-            java.util.List<com.kkvat.automation.model.ReportViewField> fields = reportViewFieldRepository.findByViewId(view.getId());
+            java.util.List<com.kkvat.automation.model.ReportViewField> fields = reportViewCatalog.getFields(view.getId());
             java.util.Map<String, String> keyToField = new java.util.HashMap<>();
             for (com.kkvat.automation.model.ReportViewField f : fields) {
                 if (f.getDisplayName() != null) keyToField.put(f.getDisplayName().toLowerCase(), f.getFieldName());
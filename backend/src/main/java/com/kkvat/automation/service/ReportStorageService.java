@@ -0,0 +1,284 @@
+package com.kkvat.automation.service;
+
+import com.kkvat.automation.model.ReportFile;
+import com.kkvat.automation.repository.ReportExecutionRepository;
+import com.kkvat.automation.repository.ReportFileRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Content-addressed store for report outputs. Files live under store/ab/cd/&lt;sha256&gt; so no directory
+ * grows large, identical outputs are kept once and reference-counted by the executions pointing at
+ * them, and a periodic sweep enforces age retention and the per-user and global size quotas.
+ * Deliberately not transactional: each step is a single conditional statement.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReportStorageService {
+    private final ReportFileRepository reportFileRepository;
+    private final ReportExecutionRepository reportExecutionRepository;
+
+    @Value("${report.output.directory:./reports}")
+    private String outputDirectory;
+
+    @Value("${report.storage.retention-days:30}")
+    private int retentionDays;
+
+    @Value("${report.storage.user-quota-mb:2048}")
+    private long userQuotaMb;
+
+    @Value("${report.storage.total-quota-mb:51200}")
+    private long totalQuotaMb;
+
+    @Value("${report.storage.orphan-grace-minutes:60}")
+    private long orphanGraceMinutes;
+
+    @Value("${report.storage.batch-size:500}")
+    private int batchSize;
+
+    private static final String STORE_DIR = "store";
+
+    /**
+     * Move a freshly written output into the store and take one reference to it. When identical
+     * content is already stored the new file is dropped and the stored one reused.
+     *
+     * @return the stored path to record on the execution
+     */
+    public String store(String filePath) throws IOException {
+        Path source = Paths.get(filePath);
+        if (isStored(source)) {
+            // e.g. the shared output of a coalesced run
+            retain(filePath);
+            return filePath;
+        }
+        String hash = sha256(source);
+        LocalDateTime now = LocalDateTime.now();
+        if (reportFileRepository.retainByHash(hash, now) > 0) {
+            Files.deleteIfExists(source);
+            return reportFileRepository.findByContentHash(hash).map(ReportFile::getFilePath).orElseThrow();
+        }
+
+        Path target = shardPath(hash, suffixOf(source));
+        Files.createDirectories(target.getParent());
+        long size = Files.size(source);
+        move(source, target);
+        try {
+            reportFileRepository.save(ReportFile.builder()
+                    .contentHash(hash)
+                    .filePath(target.toString())
+                    .sizeBytes(size)
+                    .refCount(1)
+                    .lastAccessedAt(now)
+                    .build());
+        } catch (DataIntegrityViolationException e) {
+            // another node stored the same content at the same moment
+            reportFileRepository.retainByHash(hash, now);
+        }
+        return target.toString();
+    }
+
+    /**
+     * Take another reference to an already stored file.
+     */
+    public void retain(String filePath) {
+        if (reportFileRepository.retainByPath(filePath, LocalDateTime.now()) == 0) {
+            log.warn("Report file {} is not in the store", filePath);
+        }
+    }
+
+    /**
+     * Drop the reference a run took on its output when the run could not be recorded, e.g. because it
+     * was cancelled while finishing. The file is deleted once nothing else references it.
+     */
+    public void discard(String filePath) {
+        if (filePath == null || reportFileRepository.release(filePath) == 0) return;
+        reportFileRepository.findByFilePath(filePath)
+                .filter(file -> reportFileRepository.deleteIfUnreferenced(file.getId()) > 0)
+                .ifPresent(file -> deleteFile(file.getFilePath()));
+    }
+
+    /**
+     * Record a download, which keeps the file at the young end of the LRU order.
+     */
+    public void touch(String filePath) {
+        if (filePath != null) {
+            reportFileRepository.touch(filePath, LocalDateTime.now());
+        }
+    }
+
+    /**
+     * Free a user's oldest outputs until their stored bytes fit the per-user quota, never the one of
+     * keepExecutionId: a run that just finished stays downloadable even when it alone exceeds the quota.
+     */
+    public void enforceUserQuota(Long userId, Long keepExecutionId) {
+        long quota = userQuotaMb * 1024 * 1024;
+        long used = reportExecutionRepository.storedBytesOfUser(userId);
+        while (used > quota) {
+            List<Object[]> oldest = reportExecutionRepository.findStoredFilesOfUser(userId, keepExecutionId,
+                    PageRequest.of(0, batchSize));
+            int detached = 0;
+            for (Object[] row : oldest) {
+                if (used <= quota) break;
+                if (detach((Long) row[0], (String) row[1])) {
+                    used -= row[2] != null ? ((Number) row[2]).longValue() : 0;
+                    detached++;
+                }
+            }
+            if (detached == 0) break;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${report.storage.cleanup-interval-ms:3600000}", initialDelayString = "${report.storage.cleanup-initial-delay-ms:300000}")
+    public void cleanup() {
+        try {
+            int expired = expireOldOutputs();
+            for (Long userId : reportExecutionRepository.findUsersOverQuota(userQuotaMb * 1024 * 1024)) {
+                // the latest output is kept, as when its run finished
+                List<Long> latest = reportExecutionRepository.findLatestStoredOfUser(userId, PageRequest.of(0, 1));
+                enforceUserQuota(userId, latest.isEmpty() ? null : latest.get(0));
+            }
+            reportFileRepository.recountReferences();
+            int orphans = deleteUnreferenced();
+            int evicted = enforceTotalQuota();
+            if (expired + orphans + evicted > 0) {
+                log.info("Report storage cleanup: {} outputs expired, {} files deleted, {} evicted for space",
+                        expired, orphans, evicted);
+            }
+        } catch (Exception e) {
+            log.error("Report storage cleanup failed", e);
+        }
+    }
+
+    private int expireOldOutputs() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
+        int expired = 0;
+        while (true) {
+            List<Object[]> batch = reportExecutionRepository.findStoredFilesCreatedBefore(cutoff, PageRequest.of(0, batchSize));
+            int detached = 0;
+            for (Object[] row : batch) {
+                if (detach((Long) row[0], (String) row[1])) detached++;
+            }
+            expired += detached;
+            if (batch.size() < batchSize || detached == 0) return expired;
+        }
+    }
+
+    /**
+     * Delete files no execution has referenced for the grace period; the grace covers a run that
+     * stored its output but has not recorded it on its execution yet.
+     */
+    private int deleteUnreferenced() {
+        LocalDateTime before = LocalDateTime.now().minusMinutes(orphanGraceMinutes);
+        int deleted = 0;
+        for (ReportFile file : reportFileRepository.findUnreferenced(before, PageRequest.of(0, batchSize))) {
+            if (reportFileRepository.deleteIfUnreferenced(file.getId()) > 0) {
+                deleteFile(file.getFilePath());
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Evict least recently used files, with every reference to them, until the store fits the global quota.
+     */
+    private int enforceTotalQuota() {
+        long quota = totalQuotaMb * 1024 * 1024;
+        long total = reportFileRepository.totalSize();
+        int evicted = 0;
+        while (total > quota) {
+            List<ReportFile> lru = reportFileRepository.findLeastRecentlyUsed(PageRequest.of(0, batchSize));
+            if (lru.isEmpty()) break;
+            for (ReportFile file : lru) {
+                if (total <= quota) break;
+                reportExecutionRepository.clearFilePath(file.getFilePath());
+                reportFileRepository.deleteById(file.getId());
+                deleteFile(file.getFilePath());
+                total -= file.getSizeBytes();
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Drop one execution's reference to its output; the file goes once nothing else references it.
+     */
+    private boolean detach(Long executionId, String filePath) {
+        if (reportExecutionRepository.clearFilePath(executionId, filePath) == 0) return false;
+        reportFileRepository.release(filePath);
+        return true;
+    }
+
+    private void deleteFile(String filePath) {
+        // a concurrent run may have stored the same content again under the same path
+        if (reportFileRepository.existsByFilePath(filePath)) return;
+        try {
+            Files.deleteIfExists(Paths.get(filePath));
+        } catch (IOException e) {
+            log.warn("Could not delete report file {}: {}", filePath, e.getMessage());
+        }
+    }
+
+    private boolean isStored(Path path) {
+        return path.toAbsolutePath().normalize().startsWith(storeRoot().toAbsolutePath().normalize());
+    }
+
+    private Path storeRoot() {
+        return Paths.get(outputDirectory, STORE_DIR);
+    }
+
+    private Path shardPath(String hash, String suffix) {
+        return storeRoot().resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash + suffix);
+    }
+
+    private static String suffixOf(Path path) {
+        String name = path.getFileName().toString();
+        int csv = name.lastIndexOf(".csv");
+        return csv >= 0 ? name.substring(csv) : "";
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static String sha256(Path path) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(path)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
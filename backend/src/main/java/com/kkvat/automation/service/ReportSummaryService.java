@@ -0,0 +1,505 @@
+package com.kkvat.automation.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kkvat.automation.dto.ReportViewSummaryRequest;
+import com.kkvat.automation.dto.ReportViewSummaryResponse;
+import com.kkvat.automation.exception.BadRequestException;
+import com.kkvat.automation.exception.ResourceNotFoundException;
+import com.kkvat.automation.model.ReportView;
+import com.kkvat.automation.model.ReportViewField;
+import com.kkvat.automation.model.ReportViewSummary;
+import com.kkvat.automation.repository.ReportViewSummaryRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Materialized summaries of report views. Each summary is a group-by over chosen view fields kept in
+ * its own table with a row count and sum/count/min/max columns per measure field. A background job
+ * folds in rows past the base table's watermark by recomputing only the groups they touch, and
+ * periodically rebuilds the table to pick up deletes and rows that moved to another group.
+ * Aggregate reports whose groups and filters fall within a summary's group fields, and whose
+ * aggregates can be rolled up from its columns, are routed to the summary instead of the base table.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReportSummaryService {
+    private final ReportViewSummaryRepository reportViewSummaryRepository;
+    private final ReportViewCatalog reportViewCatalog;
+    private final DataSource dataSource;
+    private final ObjectMapper objectMapper;
+
+    @Value("${report.summary.enabled:true}")
+    private boolean enabled;
+
+    @Value("${report.summary.max-staleness-seconds:900}")
+    private long maxStalenessSeconds;
+
+    @Value("${report.summary.rebuild-hours:24}")
+    private long rebuildHours;
+
+    @Value("${report.summary.overlap-seconds:5}")
+    private long overlapSeconds;
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+    private static final Pattern AGGREGATE = Pattern.compile("^(COUNT|SUM|AVG|MIN|MAX)\\((DISTINCT )?([^()]+)\\)$");
+    private static final String ROW_COUNT = "cnt";
+    private static final Set<String> TEMPORAL_TYPES = Set.of("timestamp", "datetime", "date");
+
+    /** Built, active summaries per view, smallest first. */
+    private volatile Map<Long, List<Route>> routes = Map.of();
+
+    private static class Route {
+        private final String table;
+        private final Set<String> groups;
+        private final Set<String> measures;
+        private final LocalDateTime refreshedAt;
+
+        Route(String table, Set<String> groups, Set<String> measures, LocalDateTime refreshedAt) {
+            this.table = table;
+            this.groups = groups;
+            this.measures = measures;
+            this.refreshedAt = refreshedAt;
+        }
+    }
+
+    @PostConstruct
+    void loadRoutes() {
+        try {
+            reloadRoutes();
+        } catch (Exception e) {
+            log.warn("Report summaries not loaded: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * The plan rewritten against a fresh summary that can answer it, or the plan itself.
+     */
+    public ReportQueryPlan route(ReportQueryPlan plan) {
+        if (!enabled || !plan.isAggregated() || plan.getViewId() == null) return plan;
+        LocalDateTime freshAfter = LocalDateTime.now().minusSeconds(maxStalenessSeconds);
+        for (Route route : routes.getOrDefault(plan.getViewId(), List.of())) {
+            if (route.refreshedAt.isBefore(freshAfter)) continue;
+            ReportQueryPlan routed = rewrite(plan, route);
+            if (routed != null) {
+                log.debug("Report query on {} answered from summary {}", plan.getTableName(), route.table);
+                return routed;
+            }
+        }
+        return plan;
+    }
+
+    private ReportQueryPlan rewrite(ReportQueryPlan plan, Route route) {
+        for (String column : plan.getGroupBy()) {
+            if (!route.groups.contains(column.toLowerCase(Locale.ROOT))) return null;
+        }
+        for (String column : plan.getFilterColumns()) {
+            if (!route.groups.contains(column.toLowerCase(Locale.ROOT))) return null;
+        }
+        List<String> columns = new ArrayList<>();
+        for (String column : plan.getColumns()) {
+            if (plan.getGroupBy().contains(column)) {
+                columns.add(column);
+                continue;
+            }
+            String rollup = rollup(column, route);
+            if (rollup == null) return null;
+            // keep the original label, result rows are keyed by it
+            columns.add(rollup + " AS `" + column + "`");
+        }
+        List<ReportQueryPlan.SortKey> sortKeys = new ArrayList<>();
+        for (ReportQueryPlan.SortKey key : plan.getSortKeys()) {
+            String column = plan.getGroupBy().contains(key.getColumn()) ? key.getColumn() : rollup(key.getColumn(), route);
+            if (column == null) return null;
+            sortKeys.add(new ReportQueryPlan.SortKey(column, key.isDescending()));
+        }
+        return plan.withSource(route.table, columns, sortKeys);
+    }
+
+    /**
+     * An aggregate over base rows expressed over the summary's partial aggregates; null when it cannot be.
+     */
+    private static String rollup(String aggregate, Route route) {
+        Matcher m = AGGREGATE.matcher(aggregate);
+        if (!m.matches() || m.group(2) != null) return null; // distinct counts do not roll up
+        String function = m.group(1);
+        String argument = m.group(3).trim().toLowerCase(Locale.ROOT);
+        if ("*".equals(argument)) return "COUNT".equals(function) ? "SUM(" + ROW_COUNT + ")" : null;
+        if (!route.measures.contains(argument)) return null;
+        return switch (function) {
+            case "COUNT" -> "SUM(count_" + argument + ")";
+            case "SUM" -> "SUM(sum_" + argument + ")";
+            case "MIN" -> "MIN(min_" + argument + ")";
+            case "MAX" -> "MAX(max_" + argument + ")";
+            case "AVG" -> "SUM(sum_" + argument + ") / NULLIF(SUM(count_" + argument + "), 0)";
+            default -> null;
+        };
+    }
+
+    public List<ReportViewSummaryResponse> getSummaries(Long viewId) {
+        return reportViewSummaryRepository.findByViewId(viewId).stream()
+                .map(this::toResponse)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Declare a summary. Its table is built by the next refresh, or at once through {@link #refresh}.
+     */
+    public ReportViewSummaryResponse createSummary(Long viewId, ReportViewSummaryRequest request) {
+        ReportView view = reportViewCatalog.getView(viewId)
+                .orElseThrow(() -> new ResourceNotFoundException("Report view not found with id: " + viewId));
+        if (request.getGroupFields() == null || request.getGroupFields().isEmpty()) {
+            throw new BadRequestException("At least one group field is required");
+        }
+        List<String> groups = resolveFields(viewId, request.getGroupFields());
+        List<String> measures = resolveFields(viewId, request.getMeasureFields() != null ? request.getMeasureFields() : List.of());
+        Map<String, String> types = columnTypes(view.getTableName());
+        String watermark = request.getWatermarkColumn();
+        if (watermark != null && !watermark.isBlank()) {
+            if (!TEMPORAL_TYPES.contains(types.get(watermark.toLowerCase(Locale.ROOT)))) {
+                throw new BadRequestException("Watermark column must be a date or timestamp column of " + view.getTableName());
+            }
+        } else if (types.containsKey("updated_at")) {
+            watermark = "updated_at";
+        } else {
+            // without one every refresh would have to rebuild from the whole base table
+            throw new BadRequestException("A watermark column is required: " + view.getTableName()
+                    + " has no updated_at column, name a date or timestamp column that moves when a row changes");
+        }
+
+        String base = view.getTableName().toLowerCase(Locale.ROOT);
+        // room for the _new/_old suffixes of a rebuild within MySQL's 64 character limit
+        String table = "rvs_" + (base.length() > 40 ? base.substring(0, 40) : base) + "_"
+                + UUID.randomUUID().toString().replace("-", "").substring(0, 8);
+        try {
+            ReportViewSummary summary = ReportViewSummary.builder()
+                    .viewId(viewId)
+                    .summaryTable(table)
+                    .groupFields(objectMapper.writeValueAsString(groups))
+                    .measureFields(objectMapper.writeValueAsString(measures))
+                    .watermarkColumn(watermark)
+                    .isActive(true)
+                    .build();
+            return toResponse(reportViewSummaryRepository.save(summary));
+        } catch (com.fasterxml.jackson.core.JsonProcessingException e) {
+            throw new BadRequestException("Invalid summary fields: " + e.getMessage());
+        }
+    }
+
+    public void deleteSummary(Long id) {
+        ReportViewSummary summary = reportViewSummaryRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Report summary not found with id: " + id));
+        summary.setIsActive(false);
+        reportViewSummaryRepository.save(summary);
+        reloadRoutes();
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS " + summary.getSummaryTable());
+        } catch (SQLException e) {
+            log.warn("Could not drop summary table {}: {}", summary.getSummaryTable(), e.getMessage());
+        }
+        reportViewSummaryRepository.delete(summary);
+    }
+
+    /**
+     * Refresh one summary now, incrementally unless a rebuild is asked for or due.
+     */
+    public ReportViewSummaryResponse refresh(Long id, boolean rebuild) {
+        ReportViewSummary summary = reportViewSummaryRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Report summary not found with id: " + id));
+        refresh(summary, rebuild);
+        reloadRoutes();
+        if (summary.getLastError() != null) throw new BadRequestException("Summary refresh failed: " + summary.getLastError());
+        return toResponse(summary);
+    }
+
+    @Scheduled(fixedDelayString = "${report.summary.refresh-ms:60000}", initialDelayString = "${report.summary.initial-delay-ms:120000}")
+    public void refreshAll() {
+        if (!enabled) return;
+        for (ReportViewSummary summary : reportViewSummaryRepository.findByIsActiveTrue()) {
+            refresh(summary, false);
+        }
+        reloadRoutes();
+    }
+
+    private synchronized void refresh(ReportViewSummary summary, boolean rebuild) {
+        ReportView view = reportViewCatalog.getView(summary.getViewId()).orElse(null);
+        if (view == null) return;
+        long startedAt = System.currentTimeMillis();
+        try {
+            boolean due = summary.getLastRebuiltAt() == null
+                    || summary.getLastRebuiltAt().isBefore(LocalDateTime.now().minusHours(rebuildHours));
+            if (!rebuild && !due && summary.getWatermarkColumn() == null) {
+                // declared before watermarks were required: rebuilt on the rebuild-hours schedule only,
+                // and not used for reports once older than max-staleness-seconds
+                return;
+            }
+            if (rebuild || due) {
+                rebuild(summary, view.getTableName());
+                log.info("Summary {} of {} rebuilt: {} groups in {} ms", summary.getSummaryTable(), view.getTableName(),
+                        summary.getRowCount(), System.currentTimeMillis() - startedAt);
+            } else {
+                int groups = foldIn(summary, view.getTableName());
+                if (groups > 0) {
+                    log.info("Summary {} refreshed: {} groups recomputed in {} ms", summary.getSummaryTable(), groups,
+                            System.currentTimeMillis() - startedAt);
+                }
+            }
+            summary.setLastError(null);
+        } catch (Exception e) {
+            log.error("Refreshing summary {} failed", summary.getSummaryTable(), e);
+            summary.setLastError(e.getMessage());
+        }
+        reportViewSummaryRepository.save(summary);
+    }
+
+    /**
+     * Build the summary into a new table and swap it in atomically, so readers never see a partial one.
+     */
+    private void rebuild(ReportViewSummary summary, String baseTable) throws Exception {
+        String table = summary.getSummaryTable();
+        List<String> groups = groups(summary);
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            LocalDateTime upper = summary.getWatermarkColumn() != null ? maxWatermark(conn, summary, baseTable) : null;
+            stmt.execute("DROP TABLE IF EXISTS " + table + "_new");
+            stmt.execute("CREATE TABLE " + table + "_new AS " + aggregateSelect(summary, baseTable, false));
+            try {
+                stmt.execute("ALTER TABLE " + table + "_new ADD INDEX idx_groups (" + String.join(", ", groups) + ")");
+            } catch (SQLException e) {
+                log.warn("Summary {} has no group index: {}", table, e.getMessage());
+            }
+            if (tableExists(conn, table)) {
+                stmt.execute("RENAME TABLE " + table + " TO " + table + "_old, " + table + "_new TO " + table);
+                stmt.execute("DROP TABLE " + table + "_old");
+            } else {
+                stmt.execute("RENAME TABLE " + table + "_new TO " + table);
+            }
+            summary.setRowCount(countRows(conn, table));
+            LocalDateTime now = LocalDateTime.now();
+            summary.setWatermarkValue(upper != null ? upper.toString() : null);
+            summary.setLastRebuiltAt(now);
+            summary.setLastRefreshedAt(now);
+        }
+    }
+
+    /**
+     * Recompute the groups touched by rows past the watermark, in one transaction. The window reaches back
+     * by the overlap so rows committed late with an older timestamp are still seen; recomputing a group twice
+     * is harmless.
+     *
+     * @return the number of groups recomputed
+     */
+    private int foldIn(ReportViewSummary summary, String baseTable) throws Exception {
+        String table = summary.getSummaryTable();
+        // null when the base table had no watermark values at the last rebuild
+        LocalDateTime previous = summary.getWatermarkValue() != null ? LocalDateTime.parse(summary.getWatermarkValue()) : null;
+        try (Connection conn = dataSource.getConnection()) {
+            LocalDateTime upper = maxWatermark(conn, summary, baseTable);
+            if (upper == null || (previous != null && !upper.isAfter(previous))) {
+                summary.setLastRefreshedAt(LocalDateTime.now());
+                return 0;
+            }
+            LocalDateTime lower = previous != null ? previous.minusSeconds(overlapSeconds) : LocalDateTime.of(1000, 1, 1, 0, 0);
+            List<String> groups = groups(summary);
+            String touched = "SELECT DISTINCT " + String.join(", ", groups) + " FROM " + baseTable + " WHERE "
+                    + summary.getWatermarkColumn() + " >= ? AND " + summary.getWatermarkColumn() + " <= ?";
+            String match = groups.stream().map(g -> "s." + g + " <=> t." + g).collect(Collectors.joining(" AND "));
+            List<String> targetColumns = new ArrayList<>(groups);
+            targetColumns.add(ROW_COUNT);
+            for (String measure : measures(summary)) {
+                targetColumns.addAll(List.of("sum_" + measure, "count_" + measure, "min_" + measure, "max_" + measure));
+            }
+
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                int groupsRemoved;
+                try (PreparedStatement delete = conn.prepareStatement("DELETE s FROM " + table + " s JOIN (" + touched + ") t ON " + match)) {
+                    delete.setObject(1, lower);
+                    delete.setObject(2, upper);
+                    groupsRemoved = delete.executeUpdate();
+                }
+                int groupsWritten;
+                try (PreparedStatement insert = conn.prepareStatement("INSERT INTO " + table + " (" + String.join(", ", targetColumns)
+                        + ") " + aggregateSelect(summary, baseTable, true))) {
+                    insert.setObject(1, lower);
+                    insert.setObject(2, upper);
+                    groupsWritten = insert.executeUpdate();
+                }
+                conn.commit();
+                summary.setRowCount((summary.getRowCount() != null ? summary.getRowCount() : 0) - groupsRemoved + groupsWritten);
+                summary.setWatermarkValue(upper.toString());
+                summary.setLastRefreshedAt(LocalDateTime.now());
+                return groupsWritten;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    /**
+     * The summary's group-by over the base table, optionally restricted to the groups of rows in a watermark window.
+     */
+    private String aggregateSelect(ReportViewSummary summary, String baseTable, boolean touchedOnly) throws Exception {
+        List<String> groups = groups(summary);
+        List<String> select = new ArrayList<>();
+        for (String g : groups) select.add("b." + g + " AS " + g);
+        select.add("COUNT(*) AS " + ROW_COUNT);
+        for (String measure : measures(summary)) {
+            select.add("SUM(b." + measure + ") AS sum_" + measure);
+            select.add("COUNT(b." + measure + ") AS count_" + measure);
+            select.add("MIN(b." + measure + ") AS min_" + measure);
+            select.add("MAX(b." + measure + ") AS max_" + measure);
+        }
+        StringBuilder sql = new StringBuilder("SELECT ").append(String.join(", ", select))
+                .append(" FROM ").append(baseTable).append(" b");
+        if (touchedOnly) {
+            sql.append(" JOIN (SELECT DISTINCT ").append(String.join(", ", groups)).append(" FROM ").append(baseTable)
+                    .append(" WHERE ").append(summary.getWatermarkColumn()).append(" >= ? AND ")
+                    .append(summary.getWatermarkColumn()).append(" <= ?) t ON ")
+                    .append(groups.stream().map(g -> "b." + g + " <=> t." + g).collect(Collectors.joining(" AND ")));
+        }
+        sql.append(" GROUP BY ").append(groups.stream().map(g -> "b." + g).collect(Collectors.joining(", ")));
+        return sql.toString();
+    }
+
+    private LocalDateTime maxWatermark(Connection conn, ReportViewSummary summary, String baseTable) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT MAX(" + summary.getWatermarkColumn() + ") FROM " + baseTable);
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getObject(1, LocalDateTime.class) : null;
+        }
+    }
+
+    private static boolean tableExists(Connection conn, String table) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?")) {
+            stmt.setString(1, table);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() && rs.getLong(1) > 0;
+            }
+        }
+    }
+
+    private static long countRows(Connection conn, String table) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM " + table);
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    private Map<String, String> columnTypes(String tableName) {
+        Map<String, String> types = new HashMap<>();
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT COLUMN_NAME, DATA_TYPE FROM INFORMATION_SCHEMA.COLUMNS "
+                     + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?")) {
+            stmt.setString(1, tableName);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) types.put(rs.getString(1).toLowerCase(Locale.ROOT), rs.getString(2).toLowerCase(Locale.ROOT));
+            }
+        } catch (SQLException e) {
+            throw new BadRequestException("Cannot read the columns of " + tableName + ": " + e.getMessage());
+        }
+        return types;
+    }
+
+    /**
+     * Physical column names for view fields given by field or display name.
+     */
+    private List<String> resolveFields(Long viewId, List<String> names) {
+        Map<String, String> byName = new HashMap<>();
+        for (ReportViewField f : reportViewCatalog.getFields(viewId)) {
+            byName.put(f.getFieldName().toLowerCase(Locale.ROOT), f.getFieldName());
+            if (f.getDisplayName() != null) byName.put(f.getDisplayName().toLowerCase(Locale.ROOT), f.getFieldName());
+        }
+        Set<String> fields = new LinkedHashSet<>();
+        for (String name : names) {
+            String field = name != null ? byName.get(name.toLowerCase(Locale.ROOT)) : null;
+            if (field == null || !IDENTIFIER.matcher(field).matches()) {
+                throw new BadRequestException("Unknown field for view " + viewId + ": " + name);
+            }
+            fields.add(field);
+        }
+        return new ArrayList<>(fields);
+    }
+
+    private void reloadRoutes() {
+        Map<Long, List<Route>> loaded = new HashMap<>();
+        List<ReportViewSummary> summaries = new ArrayList<>(reportViewSummaryRepository.findByIsActiveTrue());
+        summaries.sort(Comparator.comparingLong(s -> s.getRowCount() != null ? s.getRowCount() : Long.MAX_VALUE));
+        for (ReportViewSummary summary : summaries) {
+            if (summary.getLastRefreshedAt() == null || summary.getLastError() != null) continue;
+            try {
+                Set<String> groups = groups(summary).stream().map(g -> g.toLowerCase(Locale.ROOT)).collect(Collectors.toSet());
+                Set<String> measures = measures(summary).stream().map(m -> m.toLowerCase(Locale.ROOT)).collect(Collectors.toSet());
+                loaded.computeIfAbsent(summary.getViewId(), k -> new ArrayList<>())
+                        .add(new Route(summary.getSummaryTable(), groups, measures, summary.getLastRefreshedAt()));
+            } catch (Exception e) {
+                log.warn("Summary {} skipped: {}", summary.getSummaryTable(), e.getMessage());
+            }
+        }
+        routes = Map.copyOf(loaded);
+    }
+
+    private List<String> groups(ReportViewSummary summary) throws Exception {
+        return objectMapper.readValue(summary.getGroupFields(), new TypeReference<List<String>>() {});
+    }
+
+    private List<String> measures(ReportViewSummary summary) throws Exception {
+        if (summary.getMeasureFields() == null) return List.of();
+        return objectMapper.readValue(summary.getMeasureFields(), new TypeReference<List<String>>() {});
+    }
+
+    private ReportViewSummaryResponse toResponse(ReportViewSummary summary) {
+        List<String> groups;
+        List<String> measures;
+        try {
+            groups = groups(summary);
+            measures = measures(summary);
+        } catch (Exception e) {
+            groups = List.of();
+            measures = List.of();
+        }
+        return ReportViewSummaryResponse.builder()
+                .id(summary.getId())
+                .viewId(summary.getViewId())
+                .summaryTable(summary.getSummaryTable())
+                .groupFields(groups)
+                .measureFields(measures)
+                .watermarkColumn(summary.getWatermarkColumn())
+                .watermarkValue(summary.getWatermarkValue())
+                .rowCount(summary.getRowCount())
+                .lastRefreshedAt(summary.getLastRefreshedAt())
+                .lastRebuiltAt(summary.getLastRebuiltAt())
+                .lastError(summary.getLastError())
+                .isActive(summary.getIsActive())
+                .createdAt(summary.getCreatedAt())
+                .build();
+    }
+}
@@ -0,0 +1,186 @@
+package com.kkvat.automation.service;
+
+import com.kkvat.automation.dto.ColumnInfoResponse;
+import com.kkvat.automation.model.ReportView;
+import com.kkvat.automation.model.ReportViewField;
+import com.kkvat.automation.repository.ReportViewFieldRepository;
+import com.kkvat.automation.repository.ReportViewRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory catalog of report views, their fields and the physical column types of their tables.
+ * Everything is loaded in bulk (one query per kind) and served from an immutable snapshot that is
+ * rebuilt after the TTL or on {@link #refresh()}, so the report builder costs no DB round trips once warm.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ReportViewCatalog {
+    private final ReportViewRepository reportViewRepository;
+    private final ReportViewFieldRepository reportViewFieldRepository;
+    @Qualifier("reportNamedParameterJdbcTemplate")
+    private final NamedParameterJdbcTemplate jdbc;
+
+    @Value("${report.view-catalog.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private volatile Snapshot snapshot;
+
+    public List<ReportView> getActiveViews() {
+        return current().views.values().stream()
+                .filter(v -> Boolean.TRUE.equals(v.getIsActive()))
+                .collect(Collectors.toList());
+    }
+
+    public Optional<ReportView> getView(Long viewId) {
+        return Optional.ofNullable(current().views.get(viewId));
+    }
+
+    public Optional<ReportView> getViewByName(String name) {
+        return Optional.ofNullable(current().viewsByName.get(name));
+    }
+
+    public List<ReportViewField> getFields(Long viewId) {
+        return current().fieldsByView.getOrDefault(viewId, List.of());
+    }
+
+    /**
+     * Changes whenever the view row or any of its fields change; plans compiled against an
+     * older version are stale.
+     */
+    public int getVersion(Long viewId) {
+        return current().versions.getOrDefault(viewId, 0);
+    }
+
+    public List<ColumnInfoResponse> getColumns(Long viewId, String schema) {
+        Snapshot s = current();
+        ReportView view = s.views.get(viewId);
+        if (view == null) return List.of();
+        Map<String, List<ColumnInfoResponse>> tables = s.columnsBySchema.computeIfAbsent(schema, k -> loadColumns(k, s));
+        return tables.getOrDefault(view.getTableName().toLowerCase(), List.of());
+    }
+
+    /**
+     * Reload everything now, e.g. after report_views or report_view_fields were changed.
+     */
+    public synchronized void refresh() {
+        Snapshot previous = snapshot;
+        snapshot = load();
+        if (previous != null) {
+            Set<Long> changed = snapshot.versions.keySet().stream()
+                    .filter(id -> !Objects.equals(previous.versions.get(id), snapshot.versions.get(id)))
+                    .collect(Collectors.toSet());
+            if (!changed.isEmpty()) {
+                log.info("Report view catalog refreshed, changed views: {}", changed);
+            }
+        }
+    }
+
+    private Snapshot current() {
+        Snapshot s = snapshot;
+        if (s == null || System.currentTimeMillis() - s.loadedAt > ttlSeconds * 1000) {
+            synchronized (this) {
+                s = snapshot;
+                if (s == null || System.currentTimeMillis() - s.loadedAt > ttlSeconds * 1000) {
+                    refresh();
+                    s = snapshot;
+                }
+            }
+        }
+        return s;
+    }
+
+    private Snapshot load() {
+        List<ReportView> views = reportViewRepository.findAll();
+        List<ReportViewField> fields = reportViewFieldRepository.findAllWithView();
+
+        Map<Long, List<ReportViewField>> fieldsByView = new HashMap<>();
+        for (ReportViewField f : fields) {
+            fieldsByView.computeIfAbsent(f.getView().getId(), k -> new ArrayList<>()).add(f);
+        }
+
+        Map<Long, ReportView> byId = new LinkedHashMap<>();
+        Map<String, ReportView> byName = new HashMap<>();
+        Map<Long, Integer> versions = new HashMap<>();
+        for (ReportView v : views) {
+            byId.put(v.getId(), v);
+            byName.put(v.getName(), v);
+            List<ReportViewField> viewFields = fieldsByView.getOrDefault(v.getId(), List.of());
+            versions.put(v.getId(), Objects.hash(v.getTableName(), v.getUpdatedAt(), fingerprint(viewFields)));
+        }
+        fieldsByView.replaceAll((k, list) -> Collections.unmodifiableList(list));
+        log.debug("Loaded report view catalog: {} views, {} fields", views.size(), fields.size());
+        return new Snapshot(byId, byName, fieldsByView, versions);
+    }
+
+    private static int fingerprint(List<ReportViewField> fields) {
+        int hash = 1;
+        for (ReportViewField f : fields) {
+            hash = 31 * hash + Objects.hash(f.getId(), f.getFieldName(), f.getDisplayName(), f.getFieldType(),
+                    f.getIsFilterable(), f.getIsSortable());
+        }
+        return hash;
+    }
+
+    private Map<String, List<ColumnInfoResponse>> loadColumns(String schema, Snapshot s) {
+        Set<String> tables = s.views.values().stream()
+                .map(ReportView::getTableName)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<String, List<ColumnInfoResponse>> result = new HashMap<>();
+        if (tables.isEmpty()) return result;
+
+        String sql = "SELECT TABLE_NAME, COLUMN_NAME, DATA_TYPE, CHARACTER_MAXIMUM_LENGTH, IS_NULLABLE " +
+                "FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_SCHEMA = :schema AND TABLE_NAME IN (:tables) " +
+                "ORDER BY TABLE_NAME, ORDINAL_POSITION";
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("schema", schema)
+                .addValue("tables", tables);
+        jdbc.query(sql, params, rs -> {
+            Number charMax = (Number) rs.getObject("CHARACTER_MAXIMUM_LENGTH");
+            result.computeIfAbsent(rs.getString("TABLE_NAME").toLowerCase(), k -> new ArrayList<>())
+                    .add(new ColumnInfoResponse(
+                            rs.getString("COLUMN_NAME"),
+                            rs.getString("DATA_TYPE"),
+                            charMax != null ? charMax.intValue() : null,
+                            rs.getString("IS_NULLABLE")));
+        });
+        return result;
+    }
+
+    private static class Snapshot {
+        private final Map<Long, ReportView> views;
+        private final Map<String, ReportView> viewsByName;
+        private final Map<Long, List<ReportViewField>> fieldsByView;
+        private final Map<Long, Integer> versions;
+        // physical columns per schema, loaded for all view tables in one INFORMATION_SCHEMA query
+        private final Map<String, Map<String, List<ColumnInfoResponse>>> columnsBySchema = new ConcurrentHashMap<>();
+        private final long loadedAt = System.currentTimeMillis();
+
+        Snapshot(Map<Long, ReportView> views, Map<String, ReportView> viewsByName,
+                 Map<Long, List<ReportViewField>> fieldsByView, Map<Long, Integer> versions) {
+            this.views = views;
+            this.viewsByName = viewsByName;
+            this.fieldsByView = fieldsByView;
+            this.versions = versions;
+        }
+    }
+}
@@ -4,67 +4,60 @@ import com.kkvat.automation.dto.ReportViewResponse;
 import com.kkvat.automation.exception.ResourceNotFoundException;
 import com.kkvat.automation.model.ReportView;
 import com.kkvat.automation.model.ReportViewField;
-import com.kkvat.automation.repository.ReportViewRepository;
-import com.kkvat.automation.repository.ReportViewFieldRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.kkvat.automation.dto.ColumnInfoResponse;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.PersistenceContext;
-import java.math.BigInteger;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
 @Service
-@Transactional
+@Transactional(readOnly = true)
 @RequiredArgsConstructor
 @Slf4j
 public class ReportViewService {
-    private final ReportViewRepository reportViewRepository;
-    private final ReportViewFieldRepository reportViewFieldRepository;
-    @PersistenceContext
-    private EntityManager entityManager;
+    private final ReportViewCatalog reportViewCatalog;
 
     public List<ReportViewResponse> getAllViews() {
-        List<ReportView> views = reportViewRepository.findByIsActiveTrue();
+        List<ReportView> views = reportViewCatalog.getActiveViews();
         return views.stream()
                 .map(this::convertToResponse)
                 .collect(Collectors.toList());
     }
 
     public ReportViewResponse getViewById(Long id) {
-        ReportView view = reportViewRepository.findById(id)
+        ReportView view = reportViewCatalog.getView(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Report view not found with id: " + id));
         return convertToResponse(view);
     }
 
     public ReportViewResponse getViewByName(String name) {
-        ReportView view = reportViewRepository.findByName(name)
+        ReportView view = reportViewCatalog.getViewByName(name)
                 .orElseThrow(() -> new ResourceNotFoundException("Report view not found with name: " + name));
         return convertToResponse(view);
     }
 
     public List<ReportViewResponse.ReportViewFieldResponse> getViewFields(Long viewId) {
-        List<ReportViewField> fields = reportViewFieldRepository.findByViewId(viewId);
+        List<ReportViewField> fields = reportViewCatalog.getFields(viewId);
         return fields.stream()
                 .map(this::convertFieldToResponse)
                 .collect(Collectors.toList());
     }
 
     public List<ReportViewResponse.ReportViewFieldResponse> getFilterableFields(Long viewId) {
-        List<ReportViewField> fields = reportViewFieldRepository.findByViewIdAndIsFilterableTrue(viewId);
+        List<ReportViewField> fields = reportViewCatalog.getFields(viewId);
         return fields.stream()
+                .filter(f -> Boolean.TRUE.equals(f.getIsFilterable()))
                 .map(this::convertFieldToResponse)
                 .collect(Collectors.toList());
     }
 
     public List<ReportViewResponse.ReportViewFieldResponse> getSortableFields(Long viewId) {
-        List<ReportViewField> fields = reportViewFieldRepository.findByViewIdAndIsSortableTrue(viewId);
+        List<ReportViewField> fields = reportViewCatalog.getFields(viewId);
         return fields.stream()
+                .filter(f -> Boolean.TRUE.equals(f.getIsSortable()))
                 .map(this::convertFieldToResponse)
                 .collect(Collectors.toList());
     }
@@ -74,40 +67,17 @@ public class ReportViewService {
     }
 
     public List<ColumnInfoResponse> getColumnsForView(Long viewId, String schema) {
-        ReportView view = reportViewRepository.findById(viewId)
-                .orElseThrow(() -> new ResourceNotFoundException("Report view not found with id: " + viewId));
-
-        String tableName = view.getTableName();
-
-        String sql = "SELECT COLUMN_NAME, DATA_TYPE, CHARACTER_MAXIMUM_LENGTH, IS_NULLABLE " +
-                "FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_SCHEMA = :schema AND TABLE_NAME = :tableName " +
-                "ORDER BY ORDINAL_POSITION";
-
-        @SuppressWarnings("unchecked")
-        List<Object[]> rows = entityManager.createNativeQuery(sql)
-                .setParameter("schema", schema)
-                .setParameter("tableName", tableName)
-                .getResultList();
-
-        List<ColumnInfoResponse> cols = new ArrayList<>();
-        for (Object[] r : rows) {
-            String columnName = r[0] != null ? r[0].toString() : null;
-            String dataType = r[1] != null ? r[1].toString() : null;
-            Integer charMax = null;
-            if (r[2] != null) {
-                if (r[2] instanceof BigInteger) {
-                    charMax = ((BigInteger) r[2]).intValue();
-                } else if (r[2] instanceof Number) {
-                    charMax = ((Number) r[2]).intValue();
-                } else {
-                    try { charMax = Integer.parseInt(r[2].toString()); } catch (Exception ignored) {}
-                }
-            }
-            String isNullable = r[3] != null ? r[3].toString() : null;
-            cols.add(new ColumnInfoResponse(columnName, dataType, charMax, isNullable));
+        if (reportViewCatalog.getView(viewId).isEmpty()) {
+            throw new ResourceNotFoundException("Report view not found with id: " + viewId);
         }
+        return reportViewCatalog.getColumns(viewId, schema);
+    }
 
-        return cols;
+    /**
+     * Reload the view catalog after report_views or report_view_fields were edited.
+     */
+    public void refreshCatalog() {
+        reportViewCatalog.refresh();
     }
 
     public List<ColumnInfoResponse> getColumnsForViewByName(String name) {
@@ -115,13 +85,13 @@ public class ReportViewService {
     }
 
     public List<ColumnInfoResponse> getColumnsForViewByName(String name, String schema) {
-        ReportView view = reportViewRepository.findByName(name)
+        ReportView view = reportViewCatalog.getViewByName(name)
                 .orElseThrow(() -> new ResourceNotFoundException("Report view not found with name: " + name));
         return getColumnsForView(view.getId(), schema);
     }
 
     private ReportViewResponse convertToResponse(ReportView view) {
-        List<ReportViewField> fields = reportViewFieldRepository.findByViewId(view.getId());
+        List<ReportViewField> fields = reportViewCatalog.getFields(view.getId());
         List<ReportViewResponse.ReportViewFieldResponse> fieldResponses = fields.stream()
                 .map(this::convertFieldToResponse)
                 .collect(Collectors.toList());
@@ -0,0 +1,130 @@
+package com.kkvat.automation.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads back files written by {@link CsvStreamWriter} one record at a time, keeping each record's
+ * raw bytes so it can be copied to another writer unchanged. Quoted fields may contain
+ * separators, doubled quotes and newlines.
+ */
+public class CsvRecordReader implements Closeable {
+    private final InputStream in;
+    private final byte[] chunk;
+    private int chunkPosition;
+    private int chunkLength;
+    private byte[] record = new byte[256];
+    private int recordLength;
+
+    public CsvRecordReader(InputStream in, int bufferSize) {
+        this.in = in;
+        this.chunk = new byte[Math.max(bufferSize, 16)];
+    }
+
+    /**
+     * Advance to the next record; false at end of input.
+     */
+    public boolean next() throws IOException {
+        recordLength = 0;
+        boolean quoted = false;
+        while (true) {
+            if (chunkPosition == chunkLength) {
+                chunkLength = in.read(chunk);
+                chunkPosition = 0;
+                if (chunkLength <= 0) {
+                    chunkLength = 0;
+                    return recordLength > 0;
+                }
+            }
+            byte b = chunk[chunkPosition++];
+            append(b);
+            if (b == '"') {
+                // a doubled quote flips twice, leaving the state unchanged
+                quoted = !quoted;
+            } else if (b == '\n' && !quoted) {
+                return true;
+            }
+        }
+    }
+
+    public byte[] getRecord() {
+        return record;
+    }
+
+    /**
+     * Length of the current record in bytes, including its trailing newline.
+     */
+    public int getRecordLength() {
+        return recordLength;
+    }
+
+    /**
+     * Unquoted value of the field at index in the current record, or null if the record is shorter.
+     */
+    public String field(int index) {
+        int field = 0;
+        int i = 0;
+        while (i < recordLength && field < index) {
+            if (record[i] == '"') {
+                i = skipQuoted(i);
+            } else {
+                if (record[i] == ',') field++;
+                i++;
+            }
+        }
+        if (field != index || i >= recordLength) return null;
+        if (record[i] != '"') {
+            int end = i;
+            while (end < recordLength && record[end] != ',' && record[end] != '\n') end++;
+            return new String(record, i, end - i, StandardCharsets.UTF_8);
+        }
+        StringBuilder value = new StringBuilder();
+        int start = i + 1;
+        int j = start;
+        while (j < recordLength) {
+            if (record[j] == '"') {
+                if (j + 1 < recordLength && record[j + 1] == '"') {
+                    value.append(new String(record, start, j + 1 - start, StandardCharsets.UTF_8));
+                    j += 2;
+                    start = j;
+                    continue;
+                }
+                break;
+            }
+            j++;
+        }
+        value.append(new String(record, start, j - start, StandardCharsets.UTF_8));
+        return value.toString();
+    }
+
+    private int skipQuoted(int i) {
+        int j = i + 1;
+        while (j < recordLength) {
+            if (record[j] == '"') {
+                if (j + 1 < recordLength && record[j + 1] == '"') {
+                    j += 2;
+                    continue;
+                }
+                return j + 1;
+            }
+            j++;
+        }
+        return j;
+    }
+
+    private void append(byte b) {
+        if (recordLength == record.length) {
+            byte[] grown = new byte[record.length * 2];
+            System.arraycopy(record, 0, grown, 0, recordLength);
+            record = grown;
+        }
+        record[recordLength++] = b;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,148 @@
+package com.kkvat.automation.util;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Byte-level CSV encoder that writes quoted UTF-8 fields through a fixed-size buffer.
+ * Characters are encoded straight into the buffer, so no per-cell String copies are made
+ * and quotes are only doubled when a value actually contains one.
+ */
+public class CsvStreamWriter implements Closeable, Flushable {
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private static final byte QUOTE = '"';
+    private static final byte SEPARATOR = ',';
+    private static final byte NEWLINE = '\n';
+
+    private final OutputStream out;
+    private final byte[] buffer;
+    private int position;
+    private long bytesWritten;
+    private boolean rowStarted;
+
+    public CsvStreamWriter(OutputStream out) {
+        this(out, DEFAULT_BUFFER_SIZE);
+    }
+
+    public CsvStreamWriter(OutputStream out, int bufferSize) {
+        this.out = out;
+        // 4 bytes is the longest UTF-8 sequence, keep room for one full code point
+        this.buffer = new byte[Math.max(bufferSize, 16)];
+    }
+
+    /**
+     * Write one quoted field; null is written as an empty quoted field.
+     */
+    public void writeField(Object value) throws IOException {
+        if (rowStarted) {
+            put(SEPARATOR);
+        }
+        rowStarted = true;
+        put(QUOTE);
+        if (value != null) {
+            CharSequence text = value instanceof CharSequence ? (CharSequence) value : value.toString();
+            writeEscaped(text);
+        }
+        put(QUOTE);
+    }
+
+    public void endRow() throws IOException {
+        put(NEWLINE);
+        rowStarted = false;
+    }
+
+    /**
+     * Append bytes that are already CSV-encoded, e.g. whole rows produced by another writer.
+     */
+    public void writeRaw(byte[] bytes, int offset, int length) throws IOException {
+        if (length > buffer.length - position) {
+            flushBuffer();
+            if (length >= buffer.length) {
+                out.write(bytes, offset, length);
+                bytesWritten += length;
+                return;
+            }
+        }
+        System.arraycopy(bytes, offset, buffer, position, length);
+        position += length;
+    }
+
+    /**
+     * Total bytes produced so far, including bytes still held in the buffer.
+     */
+    public long getBytesWritten() {
+        return bytesWritten + position;
+    }
+
+    private void writeEscaped(CharSequence text) throws IOException {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                // ASCII fast path: only a quote needs escaping
+                if (c == '"') {
+                    put(QUOTE);
+                }
+                put((byte) c);
+            } else if (c < 0x800) {
+                ensureCapacity(2);
+                buffer[position++] = (byte) (0xC0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                ensureCapacity(4);
+                buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // unpaired surrogate, same replacement the JDK encoder uses
+                put((byte) '?');
+            } else {
+                ensureCapacity(3);
+                buffer[position++] = (byte) (0xE0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    private void put(byte b) throws IOException {
+        if (position == buffer.length) {
+            flushBuffer();
+        }
+        buffer[position++] = b;
+    }
+
+    private void ensureCapacity(int bytes) throws IOException {
+        if (position + bytes > buffer.length) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            bytesWritten += position;
+            position = 0;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBuffer();
+        } finally {
+            out.close();
+        }
+    }
+}
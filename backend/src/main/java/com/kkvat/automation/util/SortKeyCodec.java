@@ -0,0 +1,129 @@
+package com.kkvat.automation.util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.text.Collator;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Locale;
+
+/**
+ * Compact binary form of JDBC sort-key values, so sorted report parts can be k-way merged
+ * without re-parsing CSV. Values decode to Long, BigDecimal, Double, LocalDateTime or String,
+ * and compare the way MySQL orders them: NULL first, strings accent- and case-insensitively.
+ */
+public final class SortKeyCodec {
+    private static final byte NULL = 0;
+    private static final byte INTEGER = 1;
+    private static final byte DECIMAL = 2;
+    private static final byte FLOAT = 3;
+    private static final byte TEMPORAL = 4;
+    private static final byte TEXT = 5;
+
+    private SortKeyCodec() {
+    }
+
+    public static void write(DataOutput out, Object value) throws IOException {
+        LocalDateTime dateTime = toDateTime(value);
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            out.writeByte(INTEGER);
+            out.writeLong(((Number) value).longValue());
+        } else if (value instanceof Boolean) {
+            out.writeByte(INTEGER);
+            out.writeLong((Boolean) value ? 1 : 0);
+        } else if (value instanceof BigDecimal || value instanceof BigInteger) {
+            out.writeByte(DECIMAL);
+            writeText(out, value.toString());
+        } else if (value instanceof Double || value instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeDouble(((Number) value).doubleValue());
+        } else if (dateTime != null) {
+            out.writeByte(TEMPORAL);
+            out.writeLong(dateTime.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(dateTime.getNano());
+        } else {
+            out.writeByte(TEXT);
+            writeText(out, value.toString());
+        }
+    }
+
+    public static Object read(DataInput in) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case INTEGER:
+                return in.readLong();
+            case DECIMAL:
+                return new BigDecimal(readText(in));
+            case FLOAT:
+                return in.readDouble();
+            case TEMPORAL:
+                long seconds = in.readLong();
+                return LocalDateTime.ofEpochSecond(seconds, in.readInt(), ZoneOffset.UTC);
+            case TEXT:
+                return readText(in);
+            default:
+                throw new IOException("Corrupt sort key, unknown tag " + tag);
+        }
+    }
+
+    /**
+     * Compare two decoded values of the same column; NULL sorts before everything, as in MySQL.
+     * The collator is not thread-safe to share across merges, so callers pass their own.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static int compare(Object a, Object b, Collator collator) {
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : -1) : 1;
+        }
+        if (a instanceof String && b instanceof String) {
+            return collator.compare((String) a, (String) b);
+        }
+        if (a instanceof Number && b instanceof Number && a.getClass() != b.getClass()) {
+            return new BigDecimal(a.toString()).compareTo(new BigDecimal(b.toString()));
+        }
+        return ((Comparable) a).compareTo(b);
+    }
+
+    /**
+     * Collator approximating MySQL's default accent- and case-insensitive collation.
+     */
+    public static Collator newCollator() {
+        Collator collator = Collator.getInstance(Locale.ROOT);
+        collator.setStrength(Collator.PRIMARY);
+        return collator;
+    }
+
+    private static LocalDateTime toDateTime(Object value) {
+        if (value instanceof LocalDateTime) return (LocalDateTime) value;
+        if (value instanceof java.sql.Timestamp) return ((java.sql.Timestamp) value).toLocalDateTime();
+        if (value instanceof java.sql.Date) return ((java.sql.Date) value).toLocalDate().atStartOfDay();
+        if (value instanceof java.sql.Time) return ((java.sql.Time) value).toLocalTime().atDate(LocalDate.EPOCH);
+        if (value instanceof LocalDate) return ((LocalDate) value).atStartOfDay();
+        if (value instanceof LocalTime) return ((LocalTime) value).atDate(LocalDate.EPOCH);
+        if (value instanceof OffsetDateTime) return ((OffsetDateTime) value).withOffsetSameInstant(ZoneOffset.UTC).toLocalDateTime();
+        return null;
+    }
+
+    private static void writeText(DataOutput out, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readText(DataInput in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,41 @@
+package com.kkvat.automation;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Boots the whole application against an in-memory H2 database in MySQL mode, with the background schedulers
+ * off or idle so tests drive them. Test classes using it share one application context and one database, so each
+ * test creates the rows it needs rather than assuming an empty table.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + H2ApplicationTest.URL,
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "report.datasource.hikari.connection-init-sql=SELECT 1",
+        "report.datasource.hikari.data-source-properties.netTimeoutForStreamingResults=",
+        "report.output.directory=target/h2-application-test/output",
+        "report.result-cache.enabled=false",
+        "report.result-cache.directory=target/h2-application-test/cache",
+        "report.result-buffer.directory=target/h2-application-test/spool",
+        "report.parallel.threads=4",
+        "report.parallel.min-rows-per-part=1000",
+        "report.storage.user-quota-mb=1",
+        "report.jobs.poll-interval-ms=86400000",
+        "report.jobs.heartbeat-ms=86400000",
+        "report.summary.enabled=false",
+        "report.scheduler.enabled=false",
+        "report.index-advisor.enabled=false"
+})
+public @interface H2ApplicationTest {
+    String URL = "jdbc:h2:mem:application;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+}
@@ -0,0 +1,125 @@
+package com.kkvat.automation.config;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Boots the application against two H2 databases standing in for the primary and one replica. Each holds a
+ * node_marker row naming it, so a query shows which database served it.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ReplicaRoutingDataSourceTest.PRIMARY_URL,
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "report.datasource.hikari.connection-init-sql=SELECT 1",
+        "report.datasource.hikari.data-source-properties.netTimeoutForStreamingResults=",
+        "replicas.enabled=true",
+        "replicas.lag-query=",
+        "replicas.nodes[0].name=replica-1",
+        "replicas.nodes[0].url=" + ReplicaRoutingDataSourceTest.REPLICA_URL,
+        "report.summary.enabled=false",
+        "report.scheduler.enabled=false",
+        "report.index-advisor.enabled=false"
+})
+class ReplicaRoutingDataSourceTest {
+    static final String PRIMARY_URL = "jdbc:h2:mem:primary;MODE=MySQL;DB_CLOSE_DELAY=-1";
+    static final String REPLICA_URL = "jdbc:h2:mem:replica;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    @Qualifier("reportJdbcTemplate")
+    private JdbcTemplate reportJdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ReplicaSet replicaSet;
+
+    @BeforeAll
+    static void createMarkers() throws Exception {
+        for (String[] node : new String[][] {{PRIMARY_URL, "primary"}, {REPLICA_URL, "replica"}}) {
+            try (Connection conn = DriverManager.getConnection(node[0], "sa", "");
+                 Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE TABLE IF NOT EXISTS node_marker (name VARCHAR(20))");
+                stmt.execute("DELETE FROM node_marker");
+                stmt.execute("INSERT INTO node_marker VALUES ('" + node[1] + "')");
+            }
+        }
+    }
+
+    @Test
+    void replicaIsHealthy() {
+        assertFalse(replicaSet.isEmpty());
+        assertTrue(replicaSet.getReplicas().get(0).isHealthy(), replicaSet.getReplicas().get(0).getLastError());
+    }
+
+    @Test
+    void readOnlyTransactionsUseTheReplica() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        assertEquals("replica", readOnly.execute(status -> node(jdbcTemplate)));
+    }
+
+    @Test
+    void readWriteTransactionsUseThePrimary() {
+        TransactionTemplate readWrite = new TransactionTemplate(transactionManager);
+        assertEquals("primary", readWrite.execute(status -> node(jdbcTemplate)));
+    }
+
+    @Test
+    void queriesOutsideTransactionsUseThePrimary() {
+        assertEquals("primary", node(jdbcTemplate));
+    }
+
+    @Test
+    void reportQueriesUseTheReplica() {
+        assertEquals("replica", node(reportJdbcTemplate));
+    }
+
+    @Test
+    void writesGoToThePrimary() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                jdbcTemplate.update("INSERT INTO node_marker VALUES ('written')"));
+        try {
+            assertEquals(1, count(PRIMARY_URL));
+            assertEquals(0, count(REPLICA_URL));
+        } finally {
+            jdbcTemplate.update("DELETE FROM node_marker WHERE name = 'written'");
+        }
+    }
+
+    private static String node(JdbcTemplate template) {
+        return template.queryForObject("SELECT name FROM node_marker WHERE name IN ('primary', 'replica')", String.class);
+    }
+
+    private static int count(String url) {
+        try (Connection conn = DriverManager.getConnection(url, "sa", "");
+             Statement stmt = conn.createStatement();
+             var rs = stmt.executeQuery("SELECT COUNT(*) FROM node_marker WHERE name = 'written'")) {
+            rs.next();
+            return rs.getInt(1);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.kkvat.automation.service;
+
+import com.kkvat.automation.H2ApplicationTest;
+import com.kkvat.automation.exception.UnauthorizedException;
+import com.kkvat.automation.model.Report;
+import com.kkvat.automation.model.ReportExecution;
+import com.kkvat.automation.model.User;
+import com.kkvat.automation.repository.ReportExecutionRepository;
+import com.kkvat.automation.repository.ReportFileRepository;
+import com.kkvat.automation.repository.ReportRepository;
+import com.kkvat.automation.repository.ReportViewRepository;
+import com.kkvat.automation.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Who may cancel an execution.
+ */
+@H2ApplicationTest
+class ReportExecutionServiceTest {
+    @Autowired
+    private ReportExecutionService reportExecutionService;
+
+    @Autowired
+    private ReportExecutionRepository reportExecutionRepository;
+
+    private ReportFixtures fixtures;
+    private User owner;
+    private ReportExecution execution;
+
+    @BeforeEach
+    void setUp(@Autowired UserRepository userRepository, @Autowired ReportViewRepository reportViewRepository,
+               @Autowired ReportRepository reportRepository, @Autowired ReportFileRepository reportFileRepository) {
+        fixtures = new ReportFixtures(userRepository, reportViewRepository, reportRepository, reportExecutionRepository,
+                reportFileRepository);
+        owner = fixtures.user(User.Role.TESTER);
+        Report report = fixtures.report(owner);
+        execution = fixtures.execution(report, owner, ReportExecution.Status.PENDING);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void ownerCancelsOwnExecution() {
+        signIn(owner);
+        assertEquals("CANCELLED", reportExecutionService.cancelExecution(execution.getId()).getStatus());
+    }
+
+    @Test
+    void otherUserCannotCancel() {
+        signIn(fixtures.user(User.Role.TESTER));
+        assertThrows(UnauthorizedException.class, () -> reportExecutionService.cancelExecution(execution.getId()));
+        assertEquals(ReportExecution.Status.PENDING,
+                reportExecutionRepository.findById(execution.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void managerCancelsAnyExecution() {
+        signIn(fixtures.user(User.Role.TEST_MANAGER));
+        assertEquals("CANCELLED", reportExecutionService.cancelExecution(execution.getId()).getStatus());
+    }
+
+    private static void signIn(User user) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(user.getUsername(),
+                null, List.of(new SimpleGrantedAuthority("ROLE_" + user.getRole().name()))));
+    }
+}
@@ -0,0 +1,210 @@
+package com.kkvat.automation.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ReportFilterCompilerTest {
+
+    private final List<String> conditions = new ArrayList<>();
+    private final List<ReportQueryPlan.ParameterBinder> binders = new ArrayList<>();
+    private final List<Object> compiledValues = new ArrayList<>();
+
+    @Test
+    void scalarIsEqualityWithTheColumnType() {
+        compile("VARCHAR", "PASSED");
+        compile("INT", "42");
+        compile("BOOLEAN", "yes");
+        compile("DATE", "2024-03-05T10:00:00");
+
+        assertEquals(List.of("c = ?", "c = ?", "c = ?", "c = ?"), conditions);
+        assertEquals(List.of("PASSED", new BigDecimal("42"), true, LocalDate.of(2024, 3, 5)), bind());
+    }
+
+    @Test
+    void nullIsIsNull() {
+        compile("VARCHAR", null);
+        compile("VARCHAR", ops("eq", null));
+
+        assertEquals(List.of("c IS NULL", "c IS NULL"), conditions);
+        assertEquals(List.of(), binders);
+    }
+
+    @Test
+    void bareDateOnADateTimeFieldMatchesTheWholeDay() {
+        compile("DATETIME", "2024-03-05");
+
+        assertEquals(List.of("c >= ?", "c < ?"), conditions);
+        assertEquals(List.of(LocalDateTime.of(2024, 3, 5, 0, 0), LocalDateTime.of(2024, 3, 6, 0, 0)), bind());
+    }
+
+    @Test
+    void rangeOperators() {
+        compile("INT", ops("gt", 1, "gte", 2, "lt", 3, "lte", 4));
+
+        assertEquals(List.of("c > ?", "c >= ?", "c < ?", "c <= ?"), conditions);
+        assertEquals(List.of(1, 2, 3, 4), bind());
+    }
+
+    @Test
+    void rangeOperatorsOnBareDatesCoverWholeDays() {
+        compile("TIMESTAMP", ops("gt", "2024-03-05", "gte", "2024-03-05", "lt", "2024-03-05", "lte", "2024-03-05"));
+
+        LocalDateTime day = LocalDateTime.of(2024, 3, 5, 0, 0);
+        LocalDateTime next = day.plusDays(1);
+        assertEquals(List.of("c >= ?", "c >= ?", "c < ?", "c < ?"), conditions);
+        assertEquals(List.of(next, day, day, next), bind());
+    }
+
+    @Test
+    void dateTimeValuesAreParsedWithASpaceOrT() {
+        compile("DATETIME", ops("gte", "2024-03-05 10:15:00", "lt", "2024-03-05T11:00"));
+
+        assertEquals(List.of(LocalDateTime.of(2024, 3, 5, 10, 15), LocalDateTime.of(2024, 3, 5, 11, 0)), bind());
+    }
+
+    @Test
+    void prefixAndContainsEscapeLikeWildcards() {
+        compile("VARCHAR", ops("prefix", "50%_a\\b", "contains", "x"));
+
+        assertEquals(List.of("c LIKE ?", "c LIKE ?"), conditions);
+        assertEquals(List.of("50\\%\\_a\\\\b%", "%x%"), bind());
+    }
+
+    @Test
+    void inListIsPaddedToAPowerOfTwoWithTheLastValue() {
+        compile("INT", List.of(1, 2, 3, 4, 5));
+
+        assertEquals(List.of("c IN (?, ?, ?, ?, ?, ?, ?, ?)"), conditions);
+        assertEquals(List.of(1, 2, 3, 4, 5, 5, 5, 5), bind());
+    }
+
+    @Test
+    void inListSharesItsPlanAcrossLengthsInTheSameBucket() {
+        for (int size = 5; size <= 8; size++) {
+            assertEquals("in8", ReportFilterCompiler.shape(Collections.nCopies(size, 1)));
+        }
+        assertEquals("in16", ReportFilterCompiler.shape(Collections.nCopies(9, 1)));
+        assertEquals("in1", ReportFilterCompiler.shape(List.of(1)));
+    }
+
+    @Test
+    void planCompiledForOneListBindsAnotherOfTheSameShape() {
+        compile("VARCHAR", ops("in", List.of("a", "b", "c")));
+
+        assertEquals(List.of("c IN (?, ?, ?, ?)"), conditions);
+        assertEquals(List.of("x", "y", "y", "y"), bind(ops("in", List.of("x", "y"))));
+    }
+
+    @Test
+    void singleValueInListIsEquality() {
+        compile("VARCHAR", List.of("only"));
+
+        assertEquals(List.of("c = ?"), conditions);
+        assertEquals(List.of("only"), bind());
+    }
+
+    @Test
+    void emptyInListMatchesNothing() {
+        compile("VARCHAR", List.of());
+
+        assertEquals(List.of("1 = 0"), conditions);
+        assertEquals(List.of(), binders);
+    }
+
+    @Test
+    void shapeDependsOnOperatorsNotValues() {
+        assertEquals(ReportFilterCompiler.shape(ops("gte", "2024-01-01", "lt", "2024-02-01")),
+                ReportFilterCompiler.shape(ops("lt", "2025-06-01", "gte", "2025-05-01")));
+        assertEquals("day", ReportFilterCompiler.shape("2024-01-01"));
+        assertEquals("val", ReportFilterCompiler.shape("2024-01-01 10:00:00"));
+    }
+
+    @Test
+    void accessReflectsIndexUse() {
+        assertEquals(ReportFilterCompiler.Access.EQUALITY, ReportFilterCompiler.accessOf("VARCHAR", "a"));
+        assertEquals(ReportFilterCompiler.Access.EQUALITY, ReportFilterCompiler.accessOf("VARCHAR", List.of("a")));
+        assertEquals(ReportFilterCompiler.Access.RANGE, ReportFilterCompiler.accessOf("DATETIME", "2024-01-01"));
+        assertEquals(ReportFilterCompiler.Access.RANGE, ReportFilterCompiler.accessOf("INT", ops("gt", 1)));
+        assertEquals(ReportFilterCompiler.Access.NONE, ReportFilterCompiler.accessOf("VARCHAR", ops("contains", "a")));
+        assertEquals(ReportFilterCompiler.Access.EQUALITY,
+                ReportFilterCompiler.accessOf("VARCHAR", ops("contains", "a", "eq", "b")));
+    }
+
+    @Test
+    void kindFollowsTheFieldType() {
+        assertEquals(ReportFilterCompiler.FieldKind.STRING, ReportFilterCompiler.kindOf(null));
+        assertEquals(ReportFilterCompiler.FieldKind.NUMBER, ReportFilterCompiler.kindOf("bigint"));
+        assertEquals(ReportFilterCompiler.FieldKind.NUMBER, ReportFilterCompiler.kindOf("DECIMAL"));
+        assertEquals(ReportFilterCompiler.FieldKind.DATE, ReportFilterCompiler.kindOf("date"));
+        assertEquals(ReportFilterCompiler.FieldKind.DATE_TIME, ReportFilterCompiler.kindOf("TIMESTAMP"));
+        assertEquals(ReportFilterCompiler.FieldKind.BOOLEAN, ReportFilterCompiler.kindOf("BIT"));
+    }
+
+    @Test
+    void rejectsInvalidFilters() {
+        assertThrows(IllegalArgumentException.class, () -> compile("VARCHAR", ops("between", 1)));
+        assertThrows(IllegalArgumentException.class, () -> compile("VARCHAR", ops("in", "a")));
+        assertThrows(IllegalArgumentException.class, () -> compile("VARCHAR", ops("gt", null)));
+        assertThrows(IllegalArgumentException.class, () -> compile("VARCHAR", ops("gt", List.of(1))));
+        assertThrows(IllegalArgumentException.class, () -> compile("INT", ops("prefix", "1")));
+        assertThrows(IllegalArgumentException.class,
+                () -> compile("INT", Collections.nCopies(ReportFilterCompiler.MAX_IN_VALUES + 1, 1)));
+    }
+
+    @Test
+    void rejectsValuesOfTheWrongTypeWhenBound() {
+        compile("INT", "abc");
+        compile("BOOLEAN", "maybe");
+        compile("DATE", "March 5");
+
+        for (ReportQueryPlan.ParameterBinder binder : binders) {
+            assertThrows(IllegalArgumentException.class, () -> binder.valueFrom(Map.of("c", "bad value")));
+        }
+    }
+
+    private void compile(String fieldType, Object value) {
+        ReportFilterCompiler.compile("c", "c", fieldType, value, conditions, binders);
+        while (compiledValues.size() < binders.size()) compiledValues.add(value);
+    }
+
+    /**
+     * Bind every placeholder from the value its filter was compiled for.
+     */
+    private List<Object> bind() {
+        List<Object> bound = new ArrayList<>();
+        for (int i = 0; i < binders.size(); i++) {
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("c", compiledValues.get(i));
+            bound.add(binders.get(i).valueFrom(values));
+        }
+        return bound;
+    }
+
+    /**
+     * Bind every placeholder from one runtime value, as a cached plan does.
+     */
+    private List<Object> bind(Object value) {
+        List<Object> bound = new ArrayList<>();
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("c", value);
+        for (ReportQueryPlan.ParameterBinder binder : binders) bound.add(binder.valueFrom(values));
+        return bound;
+    }
+
+    private static Map<String, Object> ops(Object... keysAndValues) {
+        Map<String, Object> ops = new LinkedHashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) ops.put((String) keysAndValues[i], keysAndValues[i + 1]);
+        return ops;
+    }
+}
@@ -0,0 +1,94 @@
+package com.kkvat.automation.service;
+
+import com.kkvat.automation.model.Report;
+import com.kkvat.automation.model.ReportExecution;
+import com.kkvat.automation.model.ReportFile;
+import com.kkvat.automation.model.ReportView;
+import com.kkvat.automation.model.User;
+import com.kkvat.automation.repository.ReportExecutionRepository;
+import com.kkvat.automation.repository.ReportFileRepository;
+import com.kkvat.automation.repository.ReportRepository;
+import com.kkvat.automation.repository.ReportViewRepository;
+import com.kkvat.automation.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Rows for tests against the shared H2 database, each with unique names so tests do not see each other's data.
+ */
+@RequiredArgsConstructor
+class ReportFixtures {
+    private final UserRepository userRepository;
+    private final ReportViewRepository reportViewRepository;
+    private final ReportRepository reportRepository;
+    private final ReportExecutionRepository reportExecutionRepository;
+    private final ReportFileRepository reportFileRepository;
+
+    User user(User.Role role) {
+        String name = unique();
+        return userRepository.save(User.builder()
+                .username(name)
+                .email(name + "@example.com")
+                .passwordHash("x")
+                .firstName("Test")
+                .lastName("User")
+                .role(role)
+                .build());
+    }
+
+    Report report(User owner) {
+        ReportView view = new ReportView();
+        view.setName(unique());
+        view.setDisplayName("Test view");
+        view.setTableName("test_table");
+        view = reportViewRepository.save(view);
+        return reportRepository.save(Report.builder()
+                .name("Test report")
+                .view(view)
+                .selectedColumns("[\"id\"]")
+                .reportType(Report.ReportType.CUSTOM)
+                .isPublic(false)
+                .createdBy(owner)
+                .build());
+    }
+
+    ReportExecution execution(Report report, User user, ReportExecution.Status status) {
+        return reportExecutionRepository.save(ReportExecution.builder()
+                .report(report)
+                .executedBy(user)
+                .executionType(ReportExecution.ExecutionType.MANUAL)
+                .status(status)
+                .startTime(LocalDateTime.now())
+                .build());
+    }
+
+    /**
+     * A completed execution holding one reference to a stored file of the given size.
+     */
+    ReportExecution completed(Report report, User user, long bytes, LocalDateTime endTime) {
+        String path = "store/" + unique() + ".csv";
+        reportFileRepository.save(ReportFile.builder()
+                .contentHash(UUID.randomUUID().toString().replace("-", ""))
+                .filePath(path)
+                .sizeBytes(bytes)
+                .refCount(1)
+                .lastAccessedAt(endTime)
+                .build());
+        return reportExecutionRepository.save(ReportExecution.builder()
+                .report(report)
+                .executedBy(user)
+                .executionType(ReportExecution.ExecutionType.MANUAL)
+                .status(ReportExecution.Status.COMPLETED)
+                .startTime(endTime.minusMinutes(1))
+                .endTime(endTime)
+                .filePath(path)
+                .fileSize(bytes)
+                .build());
+    }
+
+    private static String unique() {
+        return "t" + UUID.randomUUID().toString().replace("-", "").substring(0, 20);
+    }
+}
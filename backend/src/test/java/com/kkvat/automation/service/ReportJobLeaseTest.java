@@ -0,0 +1,107 @@
+package com.kkvat.automation.service;
+
+import com.kkvat.automation.H2ApplicationTest;
+import com.kkvat.automation.model.ReportExecution;
+import com.kkvat.automation.model.User;
+import com.kkvat.automation.repository.ReportExecutionRepository;
+import com.kkvat.automation.repository.ReportFileRepository;
+import com.kkvat.automation.repository.ReportRepository;
+import com.kkvat.automation.repository.ReportViewRepository;
+import com.kkvat.automation.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * The compare-and-set updates the job engine relies on when several workers or nodes race for a job.
+ */
+@H2ApplicationTest
+class ReportJobLeaseTest {
+    private static final ReportExecution.Status PENDING = ReportExecution.Status.PENDING;
+    private static final ReportExecution.Status GENERATING = ReportExecution.Status.GENERATING;
+
+    @Autowired
+    private ReportExecutionRepository reportExecutionRepository;
+
+    private ReportExecution execution;
+
+    @BeforeEach
+    void setUp(@Autowired UserRepository userRepository, @Autowired ReportViewRepository reportViewRepository,
+               @Autowired ReportRepository reportRepository, @Autowired ReportFileRepository reportFileRepository) {
+        ReportFixtures fixtures = new ReportFixtures(userRepository, reportViewRepository, reportRepository,
+                reportExecutionRepository, reportFileRepository);
+        User user = fixtures.user(User.Role.TESTER);
+        execution = fixtures.execution(fixtures.report(user), user, PENDING);
+    }
+
+    @Test
+    void onlyOneNodeClaimsAJob() {
+        LocalDateTime now = LocalDateTime.now();
+        assertEquals(1, claim("node-a", now.plusMinutes(1)));
+        assertEquals(0, claim("node-b", now.plusMinutes(1)));
+
+        ReportExecution claimed = reload();
+        assertEquals(GENERATING, claimed.getStatus());
+        assertEquals("node-a", claimed.getOwnerNode());
+    }
+
+    @Test
+    void finishLosesToCancel() {
+        claim("node-a", LocalDateTime.now().plusMinutes(1));
+        assertEquals(1, reportExecutionRepository.cancel(execution.getId(), List.of(PENDING, GENERATING),
+                ReportExecution.Status.CANCELLED, LocalDateTime.now(), "Cancelled by test"));
+
+        assertEquals(0, finish("node-a"));
+        assertEquals(ReportExecution.Status.CANCELLED, reload().getStatus());
+    }
+
+    @Test
+    void expiredLeaseIsRequeuedAndTheOldOwnerCannotFinish() {
+        LocalDateTime now = LocalDateTime.now();
+        claim("node-a", now.minusSeconds(1));
+
+        reportExecutionRepository.requeueAbandoned(GENERATING, PENDING, null, now);
+        ReportExecution requeued = reload();
+        assertEquals(PENDING, requeued.getStatus());
+        assertNull(requeued.getOwnerNode());
+        assertNull(requeued.getLeaseExpiresAt());
+
+        assertEquals(1, claim("node-b", now.plusMinutes(1)));
+        assertEquals(0, finish("node-a"));
+        assertEquals(1, finish("node-b"));
+        assertEquals(ReportExecution.Status.COMPLETED, reload().getStatus());
+    }
+
+    @Test
+    void liveLeaseIsNotRequeued() {
+        LocalDateTime now = LocalDateTime.now();
+        claim("node-a", now.plusMinutes(1));
+
+        reportExecutionRepository.requeueAbandoned(GENERATING, PENDING, null, now);
+        assertEquals(GENERATING, reload().getStatus());
+
+        // a restarted node requeues its own jobs whatever their lease
+        reportExecutionRepository.requeueAbandoned(GENERATING, PENDING, "node-a", now);
+        assertEquals(PENDING, reload().getStatus());
+    }
+
+    private int claim(String node, LocalDateTime leaseExpiresAt) {
+        return reportExecutionRepository.claim(execution.getId(), PENDING, GENERATING, LocalDateTime.now(), node,
+                leaseExpiresAt);
+    }
+
+    private int finish(String node) {
+        return reportExecutionRepository.finish(execution.getId(), node, GENERATING, ReportExecution.Status.COMPLETED,
+                LocalDateTime.now(), 1L, null, null, null, 0, null);
+    }
+
+    private ReportExecution reload() {
+        return reportExecutionRepository.findById(execution.getId()).orElseThrow();
+    }
+}
@@ -0,0 +1,105 @@
+package com.kkvat.automation.service;
+
+import com.kkvat.automation.H2ApplicationTest;
+import com.kkvat.automation.dto.ReportPageResponse;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Keyset pagination over sort keys that tie and hold NULLs: paging through must return every row exactly
+ * once, in the order a single unpaged query returns them.
+ */
+@H2ApplicationTest
+class ReportPagingTest {
+    private static final int ROWS = 103;
+    private static final int PAGE_SIZE = 7;
+    private static final List<String> COLUMNS = List.of("id", "grp", "score");
+
+    @Autowired
+    private ReportGenerationService reportGenerationService;
+
+    @BeforeAll
+    static void createTable() throws Exception {
+        try (Connection conn = DriverManager.getConnection(H2ApplicationTest.URL, "sa", "");
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS page_rows");
+            stmt.execute("CREATE TABLE page_rows (id BIGINT PRIMARY KEY, grp VARCHAR(10), score INT)");
+            try (PreparedStatement insert = conn.prepareStatement("INSERT INTO page_rows VALUES (?, ?, ?)")) {
+                for (int i = 1; i <= ROWS; i++) {
+                    // few distinct values, so pages split runs of ties; every fourth grp and third score is NULL
+                    insert.setLong(1, i * 2L);
+                    insert.setString(2, i % 4 == 0 ? null : "g" + i % 5);
+                    insert.setObject(3, i % 3 == 0 ? null : i % 7);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        }
+    }
+
+    @Test
+    void pagesAscendingOverNullableTiedKey() throws Exception {
+        assertPagesCoverAllRows(sort("grp", "ASC"));
+    }
+
+    @Test
+    void pagesDescendingOverNullableTiedKey() throws Exception {
+        assertPagesCoverAllRows(sort("grp", "DESC"));
+        // every key descending: NULLs still to come must not be lost to a row-value comparison
+        assertPagesCoverAllRows(sort("grp", "DESC", "id", "DESC"));
+    }
+
+    @Test
+    void pagesMixedDirectionsOverNullableTiedKeys() throws Exception {
+        assertPagesCoverAllRows(sort("grp", "DESC", "score", "ASC"));
+        assertPagesCoverAllRows(sort("score", "ASC", "grp", "DESC"));
+    }
+
+    private void assertPagesCoverAllRows(Map<String, Object> sortConfig) throws Exception {
+        List<Object> expected = ids(reportGenerationService.executePage(null, "page_rows", COLUMNS, Map.of(),
+                sortConfig, null, ROWS + 1));
+        assertEquals(ROWS, expected.size());
+
+        List<Object> paged = new ArrayList<>();
+        String cursor = null;
+        do {
+            ReportPageResponse page = reportGenerationService.executePage(null, "page_rows", COLUMNS, Map.of(),
+                    sortConfig, cursor, PAGE_SIZE);
+            assertTrue(page.getRows().size() <= PAGE_SIZE);
+            paged.addAll(ids(page));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(expected, paged, "pages sorted by " + sortConfig);
+    }
+
+    private static List<Object> ids(ReportPageResponse page) {
+        List<Object> ids = new ArrayList<>();
+        for (Map<String, Object> row : page.getRows()) {
+            ids.add(row.entrySet().stream().filter(e -> e.getKey().equalsIgnoreCase("id")).findFirst().orElseThrow()
+                    .getValue());
+        }
+        return ids;
+    }
+
+    private static Map<String, Object> sort(String... fieldsAndDirections) {
+        Map<String, Object> sort = new LinkedHashMap<>();
+        for (int i = 0; i < fieldsAndDirections.length; i += 2) {
+            sort.put(fieldsAndDirections[i], fieldsAndDirections[i + 1]);
+        }
+        return sort;
+    }
+}
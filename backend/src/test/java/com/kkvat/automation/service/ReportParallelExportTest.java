@@ -0,0 +1,178 @@
+package com.kkvat.automation.service;
+
+import com.kkvat.automation.H2ApplicationTest;
+import com.kkvat.automation.model.Report;
+import com.kkvat.automation.model.ReportView;
+import com.kkvat.automation.model.ReportViewField;
+import com.kkvat.automation.model.User;
+import com.kkvat.automation.repository.ReportViewFieldRepository;
+import com.kkvat.automation.repository.ReportViewRepository;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs CSV generation against an H2 table sequentially and range-partitioned, and checks both write the
+ * same file. With {@code -Dreport.benchmark=true} it also times the two paths and prints the speed-up:
+ * <pre>
+ * mvn -B test -Dtest=ReportParallelExportTest -Dreport.benchmark=true -Dreport.benchmark.rows=2000000
+ * </pre>
+ * H2 runs in-process, so the numbers show how well the app side scales; against MySQL the range scans also
+ * spread across the server's cores.
+ */
+@H2ApplicationTest
+class ReportParallelExportTest {
+    private static final int ROWS = Integer.getInteger("report.benchmark.rows", 20_000);
+    private static final int DEGREE = 4;
+
+    @Autowired
+    private ReportGenerationService reportGenerationService;
+
+    @Autowired
+    private ReportViewRepository reportViewRepository;
+
+    @Autowired
+    private ReportViewFieldRepository reportViewFieldRepository;
+
+    @Autowired
+    private ReportViewCatalog reportViewCatalog;
+
+    @Autowired
+    private ReportStorageService reportStorageService;
+
+    private ReportView view;
+
+    @BeforeAll
+    static void createTable() throws Exception {
+        try (Connection conn = DriverManager.getConnection(H2ApplicationTest.URL, "sa", "");
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS export_rows");
+            stmt.execute("CREATE TABLE export_rows (id BIGINT PRIMARY KEY, name VARCHAR(100), amount DECIMAL(12, 2), "
+                    + "created_at TIMESTAMP)");
+            conn.setAutoCommit(false);
+            try (PreparedStatement insert = conn.prepareStatement("INSERT INTO export_rows VALUES (?, ?, ?, ?)")) {
+                LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+                for (int i = 1; i <= ROWS; i++) {
+                    // ids with gaps, names that repeat and tie, some NULLs to sort first
+                    insert.setLong(1, i * 3L);
+                    insert.setString(2, i % 50 == 0 ? null : "name \"" + (i * 7919 % 997) + "\", é");
+                    insert.setBigDecimal(3, java.math.BigDecimal.valueOf(i * 37L % 100_000, 2));
+                    insert.setObject(4, start.plusSeconds(i * 13L));
+                    insert.addBatch();
+                    if (i % 10_000 == 0) insert.executeBatch();
+                }
+                insert.executeBatch();
+            }
+            conn.commit();
+        }
+    }
+
+    @BeforeEach
+    void createView() {
+        view = reportViewRepository.findAll().stream().filter(v -> "export_rows".equals(v.getName())).findFirst()
+                .orElseGet(() -> {
+                    ReportView v = new ReportView();
+                    v.setName("export_rows");
+                    v.setDisplayName("Export rows");
+                    v.setTableName("export_rows");
+                    v = reportViewRepository.save(v);
+                    field(v, "id", "BIGINT");
+                    field(v, "name", "VARCHAR");
+                    field(v, "amount", "DECIMAL");
+                    field(v, "created_at", "DATETIME");
+                    return v;
+                });
+        reportViewCatalog.refresh();
+    }
+
+    @Test
+    void partitionedExportMatchesSequential() throws Exception {
+        Report report = report(null);
+        assertArrayEquals(export(report, 1), export(report, DEGREE));
+    }
+
+    @Test
+    void mergedExportMatchesSequentialSort() throws Exception {
+        Report report = report("{\"name\": \"ASC\", \"created_at\": \"DESC\"}");
+        assertArrayEquals(export(report, 1), export(report, DEGREE));
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "report.benchmark", matches = "true")
+    void benchmark() throws Exception {
+        for (String sort : new String[] {null, "{\"name\": \"ASC\", \"created_at\": \"DESC\"}"}) {
+            Report report = report(sort);
+            long sequential = time(report, 1);
+            long parallel = time(report, DEGREE);
+            System.out.printf("%,d rows, %s: sequential %d ms, parallelism %d %d ms, speed-up %.2fx%n",
+                    ROWS, sort == null ? "unsorted" : "sorted", sequential, DEGREE, parallel,
+                    (double) sequential / parallel);
+        }
+    }
+
+    /**
+     * Best of three runs after one warm-up.
+     */
+    private long time(Report report, int degree) throws Exception {
+        export(report, degree);
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long started = System.nanoTime();
+            export(report, degree);
+            best = Math.min(best, (System.nanoTime() - started) / 1_000_000);
+        }
+        return best;
+    }
+
+    private byte[] export(Report report, int degree) throws Exception {
+        report.setParallelism(degree);
+        ReportGenerationService.ReportResult result = reportGenerationService.generateCsvReport(report, user());
+        assertEquals(ROWS, result.getRowCount());
+        try {
+            return Files.readAllBytes(Paths.get(result.getFilePath()));
+        } finally {
+            // output goes to the content-addressed store, so identical runs share one referenced file
+            reportStorageService.discard(result.getFilePath());
+        }
+    }
+
+    private Report report(String sortConfig) {
+        Report report = new Report();
+        report.setId(sortConfig == null ? 1L : 2L);
+        report.setName("parallel export");
+        report.setView(view);
+        report.setSelectedColumns("[\"id\", \"name\", \"amount\", \"created_at\"]");
+        report.setSortConfig(sortConfig);
+        report.setReportType(Report.ReportType.CUSTOM);
+        report.setUpdatedAt(LocalDateTime.now());
+        return report;
+    }
+
+    private static User user() {
+        User user = new User();
+        user.setId(1L);
+        return user;
+    }
+
+    private void field(ReportView view, String name, String type) {
+        ReportViewField field = new ReportViewField();
+        field.setView(view);
+        field.setFieldName(name);
+        field.setDisplayName(name);
+        field.setFieldType(type);
+        reportViewFieldRepository.save(field);
+    }
+}
@@ -0,0 +1,112 @@
+package com.kkvat.automation.service;
+
+import com.kkvat.automation.util.CsvStreamWriter;
+import com.kkvat.automation.util.SortKeyCodec;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ReportPartMergeTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void mergesPartsOnTheSortKeys() throws IOException {
+        List<ReportQueryPlan.SortKey> sortKeys = List.of(new ReportQueryPlan.SortKey("status", false),
+                new ReportQueryPlan.SortKey("id", true));
+        List<Path> parts = List.of(
+                part("p0", row(null, 3L, "3"), row("FAILED", 5L, "5"), row("passed", 1L, "1")),
+                part("p1", row(null, 4L, "4"), row("Failed", 2L, "2"), row("PASSED", 6L, "6")),
+                part("p2"));
+
+        assertEquals("\"4\"\n\"3\"\n\"5\"\n\"2\"\n\"6\"\n\"1\"\n", merge(sortKeys, parts));
+    }
+
+    @Test
+    void keepsPartOrderForEqualKeys() throws IOException {
+        List<ReportQueryPlan.SortKey> sortKeys = List.of(new ReportQueryPlan.SortKey("n", false));
+        List<Path> parts = List.of(
+                part("p0", row(1L, "a"), row(2L, "b")),
+                part("p1", row(1L, "c"), row(2L, "d")));
+
+        assertEquals("\"a\"\n\"c\"\n\"b\"\n\"d\"\n", merge(sortKeys, parts));
+    }
+
+    @Test
+    void mergesManyRowsLongerThanTheReadBuffer() throws IOException {
+        List<ReportQueryPlan.SortKey> sortKeys = List.of(new ReportQueryPlan.SortKey("n", false));
+        String wide = "x".repeat(1000);
+        List<Object[]> even = new ArrayList<>();
+        List<Object[]> odd = new ArrayList<>();
+        StringBuilder expected = new StringBuilder();
+        for (long n = 0; n < 2000; n++) {
+            (n % 2 == 0 ? even : odd).add(row(n, wide + n));
+            expected.append('"').append(wide).append(n).append("\"\n");
+        }
+        List<Path> parts = List.of(part("even", even.toArray(new Object[0][])), part("odd", odd.toArray(new Object[0][])));
+
+        assertEquals(expected.toString(), merge(sortKeys, parts));
+    }
+
+    @Test
+    void stopsWhenTheRunIsCancelled() throws IOException {
+        List<ReportQueryPlan.SortKey> sortKeys = List.of(new ReportQueryPlan.SortKey("n", false));
+        List<Object[]> rows = new ArrayList<>();
+        for (long n = 0; n < 5000; n++) rows.add(row(n, "r"));
+        Path part = part("p0", rows.toArray(new Object[0][]));
+        ReportRun run = new ReportRun(null, 0);
+        run.cancel("stopped");
+
+        assertThrows(CancellationException.class, () -> ReportGenerationService.mergeParts(sortKeys, List.of(part),
+                new CsvStreamWriter(new ByteArrayOutputStream(), 16), run, 64));
+    }
+
+    private String merge(List<ReportQueryPlan.SortKey> sortKeys, List<Path> parts) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (CsvStreamWriter writer = new CsvStreamWriter(out, 16)) {
+            // a read buffer smaller than a row exercises refills mid-record
+            ReportGenerationService.mergeParts(sortKeys, parts, writer, new ReportRun(null, 0), 64);
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Sort keys followed by the CSV value, the last element of the row.
+     */
+    private static Object[] row(Object... keysAndValue) {
+        return keysAndValue;
+    }
+
+    /**
+     * Part file in the format parallel export writes: encoded sort keys, then the length-prefixed CSV line.
+     */
+    private Path part(String name, Object[]... rows) throws IOException {
+        Path file = dir.resolve(name);
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+            for (Object[] row : rows) {
+                for (int i = 0; i < row.length - 1; i++) SortKeyCodec.write(out, row[i]);
+                ByteArrayOutputStream line = new ByteArrayOutputStream();
+                try (CsvStreamWriter writer = new CsvStreamWriter(line, 16)) {
+                    writer.writeField(row[row.length - 1]);
+                    writer.endRow();
+                }
+                out.writeInt(line.size());
+                line.writeTo(out);
+            }
+        }
+        return file;
+    }
+}
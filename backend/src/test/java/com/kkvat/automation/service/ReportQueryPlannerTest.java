@@ -0,0 +1,91 @@
+package com.kkvat.automation.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kkvat.automation.model.ReportViewField;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReportQueryPlannerTest {
+    private static final long VIEW_ID = 1L;
+
+    private ReportQueryPlanner planner;
+
+    @BeforeEach
+    void setUp() {
+        ReportViewCatalog catalog = mock(ReportViewCatalog.class);
+        when(catalog.getFields(VIEW_ID)).thenReturn(List.of(field("id", "Id", "BIGINT"), field("status", "Status", "VARCHAR"),
+                field("amount", "Amount", "DECIMAL")));
+        planner = new ReportQueryPlanner(new ObjectMapper(), catalog);
+        ReflectionTestUtils.setField(planner, "maxEntries", 500);
+        ReflectionTestUtils.setField(planner, "ttlSeconds", 300L);
+    }
+
+    @Test
+    void mapsDisplayNamesToColumns() {
+        ReportQueryPlan plan = plan(List.of("Id", "status", "SUM(Amount)"), Map.of("Status", "PASSED"), sort("Status", "DESC"));
+
+        assertEquals(List.of("id", "status", "SUM(amount)"), plan.getColumns());
+        assertEquals("status", plan.getSortKeys().get(0).getColumn());
+    }
+
+    @Test
+    void rejectsColumnsThatAreNotViewFields() {
+        for (String column : List.of("id, (SELECT password_hash FROM users LIMIT 1)", "secret", "1", "id--",
+                "SUM(amount) + 1")) {
+            assertThrows(IllegalArgumentException.class, () -> plan(List.of("id", column), Map.of(), Map.of()), column);
+        }
+    }
+
+    @Test
+    void rejectsSortKeysThatAreNotViewFields() {
+        for (String key : List.of("id; DROP TABLE users", "(CASE WHEN 1=1 THEN id END)", "secret", "SUM(secret)")) {
+            assertThrows(IllegalArgumentException.class, () -> plan(List.of("id"), Map.of(), sort(key, "ASC")), key);
+        }
+    }
+
+    @Test
+    void rejectsFiltersAndAggregatesOverUnknownFields() {
+        assertThrows(IllegalArgumentException.class, () -> plan(List.of("id"), Map.of("secret", 1), Map.of()));
+        assertThrows(IllegalArgumentException.class, () -> plan(List.of("id"), Map.of("id OR 1=1", 1), Map.of()));
+        assertThrows(IllegalArgumentException.class, () -> plan(List.of("COUNT(DISTINCT secret)"), Map.of(), Map.of()));
+    }
+
+    @Test
+    void viewWithoutFieldsAcceptsPlainIdentifiersOnly() {
+        ReportQueryPlan plan = planner.planFor(2L, "other", List.of("a", "b"), Map.of(), sort("b", "ASC"));
+        assertEquals(List.of("a", "b"), plan.getColumns());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> planner.planFor(2L, "other", List.of("a", "b FROM other; --"), Map.of(), Map.of()));
+        assertThrows(IllegalArgumentException.class,
+                () -> planner.planFor(2L, "other", List.of("a"), Map.of(), sort("a DESC, (SELECT 1)", "ASC")));
+    }
+
+    private ReportQueryPlan plan(List<String> columns, Map<String, Object> filters, Map<String, Object> sortConfig) {
+        return planner.planFor(VIEW_ID, "executions", columns, filters, sortConfig);
+    }
+
+    private static Map<String, Object> sort(String key, String direction) {
+        Map<String, Object> sort = new LinkedHashMap<>();
+        sort.put(key, direction);
+        return sort;
+    }
+
+    private static ReportViewField field(String name, String displayName, String type) {
+        ReportViewField field = new ReportViewField();
+        field.setFieldName(name);
+        field.setDisplayName(displayName);
+        field.setFieldType(type);
+        return field;
+    }
+}
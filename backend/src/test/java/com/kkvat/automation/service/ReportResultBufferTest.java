@@ -0,0 +1,222 @@
+package com.kkvat.automation.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReportResultBufferTest {
+    private static final int ROWS = 5000;
+    private static final String QUERY = "SELECT id, name, amount, ratio, flag, created_at, run_date, total FROM result_rows ORDER BY id";
+
+    private static Connection conn;
+    private static ReportRowSet all;
+
+    @TempDir
+    Path dir;
+
+    @BeforeAll
+    static void createTable() throws SQLException, IOException {
+        conn = DriverManager.getConnection("jdbc:h2:mem:result_buffer;DB_CLOSE_DELAY=-1", "sa", "");
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE result_rows AS SELECT CAST(X AS INT) AS id, "
+                    + "CASE WHEN MOD(X, 7) = 0 THEN NULL ELSE 'name ' || MOD(X, 13) || ' é' END AS name, "
+                    + "CAST(X AS DECIMAL(12, 2)) / 100 AS amount, CAST(X AS DOUBLE) / 3 AS ratio, MOD(X, 2) = 0 AS flag, "
+                    + "TIMESTAMP '2024-01-01 00:00:00.123456' + X * INTERVAL '17' SECOND AS created_at, "
+                    + "DATE '2024-01-01' + CAST(MOD(X, 365) AS INT) AS run_date, CAST(X AS BIGINT) * 1000000 AS total "
+                    + "FROM SYSTEM_RANGE(1, " + ROWS + ")");
+        }
+        all = query(ReportRowSet::from);
+    }
+
+    @AfterAll
+    static void closeConnection() throws SQLException {
+        conn.close();
+    }
+
+    @Test
+    void keepsSmallResultsInMemory() throws Exception {
+        try (ReportResultBuffer buffer = read(Long.MAX_VALUE, Long.MAX_VALUE)) {
+            assertFalse(buffer.isSpilled());
+            assertEquals(0, buffer.getSpillBytes());
+            assertEquals(all, buffer.inMemoryRows());
+            assertSame(buffer.inMemoryRows(), buffer.page(0, ROWS));
+            assertEquals(all.subList(10, 20), buffer.page(10, 10));
+            assertEquals(0, spillFiles());
+        }
+    }
+
+    @Test
+    void spillsPastTheMemoryBudget() throws Exception {
+        try (ReportResultBuffer buffer = read(20_000, Long.MAX_VALUE)) {
+            assertTrue(buffer.isSpilled());
+            assertTrue(buffer.getSpillBytes() > 0);
+            assertNull(buffer.inMemoryRows());
+            assertEquals(ROWS, buffer.size());
+            assertEquals(all.getLabels(), buffer.getLabels());
+            assertEquals(1, spillFiles());
+        }
+    }
+
+    @Test
+    void pagesInOrderAcrossTheMemoryAndSpilledRows() throws Exception {
+        try (ReportResultBuffer buffer = read(20_000, Long.MAX_VALUE)) {
+            for (int offset = 0; offset < ROWS; offset += 333) {
+                assertEquals(all.subList(offset, Math.min(ROWS, offset + 333)), buffer.page(offset, 333));
+            }
+        }
+    }
+
+    @Test
+    void pagesAtAnyOffset() throws Exception {
+        try (ReportResultBuffer buffer = read(20_000, Long.MAX_VALUE)) {
+            // backwards, across index intervals, past the end and empty
+            for (int offset : new int[] {4990, 3000, 1023, 2049, 0, 1024}) {
+                assertEquals(all.subList(offset, Math.min(ROWS, offset + 50)), buffer.page(offset, 50));
+            }
+            assertEquals(List.of(), buffer.page(ROWS, 10));
+            assertEquals(List.of(), buffer.page(10, 0));
+        }
+    }
+
+    @Test
+    void rejectsResultsPastTheSpillLimitAndLeavesNoFile() {
+        assertThrows(IllegalArgumentException.class, () -> read(20_000, 10_000));
+        assertEquals(0, spillFiles());
+    }
+
+    @Test
+    void closeDeletesTheSpillFile() throws Exception {
+        ReportResultBuffer buffer = read(20_000, Long.MAX_VALUE);
+        buffer.page(ROWS - 10, 10);
+        assertEquals(1, spillFiles());
+
+        buffer.close();
+        buffer.close();
+
+        assertEquals(0, spillFiles());
+        assertThrows(IllegalStateException.class, () -> buffer.page(0, 10));
+    }
+
+    @Test
+    void spoolerWritesOneJsonArrayAndReleasesTheBuffer() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        ReportResultSpooler spooler = spooler(objectMapper, 20_000, 600_000);
+        ReportResultBuffer buffer = query(spooler::spool);
+        assertTrue(buffer.isSpilled());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(ROWS, spooler.writeJson(buffer, out));
+
+        assertEquals(objectMapper.writeValueAsString(all), out.toString(StandardCharsets.UTF_8));
+        assertEquals(0, spillFiles());
+    }
+
+    @Test
+    void spoolerSweepsBuffersNotReadInTime() throws Exception {
+        ReportResultSpooler spooler = spooler(new ObjectMapper(), 20_000, 0);
+        ReportResultBuffer buffer = query(spooler::spool);
+        assertEquals(1, spillFiles());
+        Thread.sleep(5);
+
+        spooler.sweep();
+
+        assertEquals(0, spillFiles());
+        assertThrows(IllegalStateException.class, () -> buffer.page(0, 1));
+    }
+
+    @Test
+    void spoolerDoesNotSweepBuffersBeingWritten() throws Exception {
+        ReportResultSpooler spooler = spooler(new ObjectMapper(), 20_000, 0);
+        ReportResultBuffer buffer = query(spooler::spool);
+        buffer.beginRead();
+        Thread.sleep(5);
+
+        spooler.sweep();
+
+        assertEquals(1, spillFiles());
+        assertEquals(ROWS, buffer.page(0, ROWS).size());
+        buffer.endRead();
+        spooler.release(buffer);
+        assertEquals(0, spillFiles());
+    }
+
+    @Test
+    void spoolerSweepsOnlyAfterTheLastRead() throws Exception {
+        ReportResultSpooler spooler = spooler(new ObjectMapper(), 20_000, 60_000);
+        ReportResultBuffer buffer = query(spooler::spool);
+        ReflectionTestUtils.setField(buffer, "lastAccessedAt", System.currentTimeMillis() - 120_000);
+        buffer.page(0, 1);
+
+        spooler.sweep();
+
+        assertEquals(1, spillFiles());
+        ReflectionTestUtils.setField(buffer, "lastAccessedAt", System.currentTimeMillis() - 120_000);
+        spooler.sweep();
+        assertEquals(0, spillFiles());
+    }
+
+    @Test
+    void spoolerRemovesFilesLeftByAPreviousRun() throws Exception {
+        Files.createFile(dir.resolve("result-orphan.spill"));
+        spooler(new ObjectMapper(), 20_000, 600_000);
+        assertEquals(0, spillFiles());
+    }
+
+    private ReportResultSpooler spooler(ObjectMapper objectMapper, long memoryBudgetBytes, long ttlMs) throws IOException {
+        ReportResultSpooler spooler = new ReportResultSpooler(objectMapper);
+        ReflectionTestUtils.setField(spooler, "memoryBudgetBytes", memoryBudgetBytes);
+        ReflectionTestUtils.setField(spooler, "maxSpillBytes", Long.MAX_VALUE);
+        ReflectionTestUtils.setField(spooler, "ttlMs", ttlMs);
+        ReflectionTestUtils.setField(spooler, "directory", dir.toString());
+        spooler.init();
+        return spooler;
+    }
+
+    private ReportResultBuffer read(long memoryBudgetBytes, long maxSpillBytes) throws Exception {
+        return query(rs -> ReportResultBuffer.read(rs, memoryBudgetBytes, maxSpillBytes, dir));
+    }
+
+    private long spillFiles() {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(f -> f.getFileName().toString().endsWith(".spill")).count();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private interface ResultReader<T> {
+        T read(ResultSet rs) throws SQLException, IOException;
+    }
+
+    private static <T> T query(ResultReader<T> reader) throws SQLException, IOException {
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(QUERY)) {
+            return reader.read(rs);
+        }
+    }
+}
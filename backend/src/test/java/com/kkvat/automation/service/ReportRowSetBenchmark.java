@@ -0,0 +1,99 @@
+package com.kkvat.automation.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Columnar {@link ReportRowSet} against one LinkedHashMap per row, for building a result and writing it
+ * as JSON. Rows are shaped like an execution report: ids, a few repeating statuses and names, timestamps,
+ * decimals and nullable durations. Values are created once in setup, as a driver would hand them over,
+ * so only the container's own work is measured. Run with the GC profiler to compare allocation:
+ * <pre>
+ * mvn -B -q test-compile dependency:build-classpath -Dmdep.outputFile=target/test.classpath
+ * java -cp target/test-classes:target/classes:$(cat target/test.classpath) org.openjdk.jmh.Main ReportRowSetBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReportRowSetBenchmark {
+    private static final List<String> LABELS = List.of("id", "test_case", "status", "environment", "started_at",
+            "duration_ms", "cost", "passed");
+    private static final String[] STATUSES = {"PASSED", "FAILED", "SKIPPED", "ERROR"};
+    private static final String[] ENVIRONMENTS = {"dev", "staging", "production"};
+
+    @Param({"100000"})
+    private int rows;
+
+    private Object[][] values;
+    private ReportRowSet rowSet;
+    private List<Map<String, Object>> maps;
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void setUp() {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        values = new Object[rows][];
+        for (int i = 0; i < rows; i++) {
+            values[i] = new Object[] {(long) i, "Test case " + (i % 500), STATUSES[i % STATUSES.length],
+                    ENVIRONMENTS[i % ENVIRONMENTS.length], start.plusSeconds(i * 17L), i % 10 == 0 ? null : i % 60_000,
+                    BigDecimal.valueOf(i % 10_000, 2), i % 4 == 0};
+        }
+        rowSet = buildRowSet();
+        maps = buildMaps();
+        objectMapper = new ObjectMapper().registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    @Benchmark
+    public ReportRowSet buildRowSet() {
+        ReportRowSet.Builder builder = ReportRowSet.builder(LABELS);
+        for (Object[] row : values) builder.add(row);
+        return builder.build();
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> buildMaps() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Object[] row : values) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            for (int i = 0; i < LABELS.size(); i++) map.put(LABELS.get(i), row[i]);
+            result.add(map);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public void writeRowSetJson() throws Exception {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), rowSet);
+    }
+
+    @Benchmark
+    public void writeMapsJson() throws Exception {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), maps);
+    }
+}
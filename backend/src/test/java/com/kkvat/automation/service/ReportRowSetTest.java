@@ -0,0 +1,173 @@
+package com.kkvat.automation.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReportRowSetTest {
+
+    private static final List<String> LABELS = List.of("int", "long", "short", "byte", "bool", "dateTime", "timestamp",
+            "date", "sqlDate", "double", "float", "text", "decimal");
+
+    @Test
+    void returnsValuesAsTheTypesAdded() {
+        List<Object[]> rows = List.of(
+                new Object[] {1, 2L, (short) 3, (byte) 4, true, LocalDateTime.of(2024, 3, 5, 10, 15, 30, 123_456_789),
+                        Timestamp.valueOf("1960-01-01 00:00:00.5"), LocalDate.of(2024, 3, 5), java.sql.Date.valueOf("1969-12-31"),
+                        1.25d, 2.5f, "PASSED", new BigDecimal("12.30")},
+                new Object[] {null, null, null, null, null, null, null, null, null, null, null, null, null},
+                new Object[] {Integer.MIN_VALUE, Long.MAX_VALUE, Short.MIN_VALUE, Byte.MAX_VALUE, false,
+                        LocalDateTime.of(1900, 1, 1, 0, 0), new Timestamp(0), LocalDate.of(1, 1, 1), java.sql.Date.valueOf("2024-02-29"),
+                        -0.0d, Float.MAX_VALUE, "", new BigDecimal("-1")});
+
+        ReportRowSet rowSet = build(LABELS, rows);
+
+        assertEquals(maps(LABELS, rows), rowSet);
+        for (int row = 0; row < rows.size(); row++) {
+            for (int column = 0; column < LABELS.size(); column++) {
+                Object expected = rows.get(row)[column];
+                Object actual = rowSet.getValue(row, column);
+                assertEquals(expected, actual);
+                if (expected != null) assertEquals(expected.getClass(), actual.getClass());
+            }
+        }
+    }
+
+    @Test
+    void mixedOrOutOfRangeValuesFallBackToObjects() {
+        List<String> labels = List.of("mixed", "farFuture", "leadingNulls");
+        List<Object[]> rows = List.of(
+                new Object[] {1, LocalDateTime.of(2024, 1, 1, 0, 0), null},
+                new Object[] {"two", LocalDateTime.of(9999, 12, 31, 23, 59), null},
+                new Object[] {3L, null, "late"});
+
+        assertEquals(maps(labels, rows), build(labels, rows));
+    }
+
+    @Test
+    void rowsAreReadOnlyMapsInLabelOrder() {
+        ReportRowSet rowSet = build(List.of("b", "a"), List.<Object[]>of(new Object[] {1, null}));
+        Map<String, Object> row = rowSet.get(0);
+
+        assertEquals(List.of("b", "a"), new ArrayList<>(row.keySet()));
+        assertTrue(row.containsKey("a"));
+        assertNull(row.get("a"));
+        assertFalse(row.containsKey("c"));
+        assertEquals(1, rowSet.getValue(0, "b"));
+        assertThrows(UnsupportedOperationException.class, () -> row.put("a", 2));
+    }
+
+    @Test
+    void repeatedLabelKeepsItsFirstPositionAndLastValue() {
+        ReportRowSet rowSet = build(List.of("x", "y", "x"), List.<Object[]>of(new Object[] {1, 2, 3}));
+
+        Map<String, Object> expected = new LinkedHashMap<>();
+        expected.put("x", 1);
+        expected.put("y", 2);
+        expected.put("x", 3);
+        assertEquals(List.of(expected), rowSet);
+        assertEquals(List.of("x", "y"), new ArrayList<>(rowSet.get(0).keySet()));
+    }
+
+    @Test
+    void copiesMapRowsWithDifferingKeys() {
+        Map<String, Object> first = new LinkedHashMap<>();
+        first.put("a", 1);
+        Map<String, Object> second = new LinkedHashMap<>();
+        second.put("b", "x");
+        second.put("a", 2);
+
+        ReportRowSet rowSet = ReportRowSet.of(List.of(first, second));
+
+        assertEquals(List.of("a", "b"), rowSet.getLabels());
+        assertEquals(Arrays.asList(1, null), new ArrayList<>(rowSet.get(0).values()));
+        assertEquals(Arrays.asList(2, "x"), new ArrayList<>(rowSet.get(1).values()));
+        assertTrue(ReportRowSet.of(rowSet) == rowSet);
+    }
+
+    @Test
+    void repeatedStringsShareOneDictionaryEntry() {
+        List<Object[]> repeated = new ArrayList<>();
+        List<Object[]> distinct = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            repeated.add(new Object[] {"status value " + (i % 4)});
+            distinct.add(new Object[] {"status value " + i});
+        }
+
+        long shared = build(List.of("s"), repeated).sizeInBytes();
+        assertTrue(shared < 4 * 10_000 + 4096, "10k repeated strings took " + shared + " bytes");
+        assertTrue(shared * 10 < build(List.of("s"), distinct).sizeInBytes());
+    }
+
+    @Test
+    void writesTheSameJsonAsMapRows() throws Exception {
+        List<Object[]> rows = List.of(
+                new Object[] {1, 2L, (short) 3, (byte) 4, true, LocalDateTime.of(2024, 3, 5, 10, 15, 30),
+                        Timestamp.valueOf("2024-03-05 10:15:30"), LocalDate.of(2024, 3, 5), java.sql.Date.valueOf("2024-03-05"),
+                        1.25d, 2.5f, "say \"hi\"", new BigDecimal("12.30")},
+                new Object[] {null, null, null, null, null, null, null, null, null, null, null, "", null});
+        ReportRowSet rowSet = build(LABELS, rows);
+        List<Map<String, Object>> maps = maps(LABELS, rows);
+
+        ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        assertEquals(mapper.writeValueAsString(maps), mapper.writeValueAsString(rowSet));
+
+        for (JsonInclude.Include inclusion : List.of(JsonInclude.Include.NON_NULL, JsonInclude.Include.NON_EMPTY)) {
+            ObjectMapper skipping = mapper.copy().setDefaultPropertyInclusion(JsonInclude.Value.construct(inclusion, inclusion));
+            assertEquals(skipping.writeValueAsString(maps), skipping.writeValueAsString(rowSet));
+        }
+    }
+
+    @Test
+    void readsResultSetsByColumnLabel() throws Exception {
+        try (Connection conn = DriverManager.getConnection("jdbc:h2:mem:rowset", "sa", "");
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT X AS n, 'row ' || X AS label FROM SYSTEM_RANGE(1, 5)")) {
+            ReportRowSet rowSet = ReportRowSet.from(rs, 3);
+
+            assertEquals(List.of("N", "LABEL"), rowSet.getLabels());
+            assertEquals(3, rowSet.size());
+            assertEquals("row 3", rowSet.getValue(2, "LABEL"));
+            assertTrue(rs.next());
+        }
+    }
+
+    private static ReportRowSet build(List<String> labels, List<Object[]> rows) {
+        ReportRowSet.Builder builder = ReportRowSet.builder(labels);
+        for (Object[] row : rows) builder.add(row);
+        return builder.build();
+    }
+
+    private static List<Map<String, Object>> maps(List<String> labels, List<Object[]> rows) {
+        List<Map<String, Object>> maps = new ArrayList<>();
+        for (Object[] row : rows) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            for (int i = 0; i < labels.size(); i++) map.put(labels.get(i), row[i]);
+            maps.add(map);
+        }
+        return maps;
+    }
+}
@@ -0,0 +1,137 @@
+package com.kkvat.automation.service;
+
+import com.kkvat.automation.model.ReportSchedule;
+import com.kkvat.automation.repository.ReportScheduleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReportScheduleDispatcherTest {
+    private static final int HORIZON_SECONDS = 5;
+    private static final int MAX_FIRES_PER_TICK = 2;
+
+    private ReportScheduleRepository reportScheduleRepository;
+    private ReportScheduleService reportScheduleService;
+    private ReportExecutionService reportExecutionService;
+    private ReportScheduleDispatcher dispatcher;
+    private final Map<Long, ReportSchedule> schedules = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        reportScheduleRepository = mock(ReportScheduleRepository.class);
+        reportScheduleService = mock(ReportScheduleService.class);
+        reportExecutionService = mock(ReportExecutionService.class);
+        when(reportScheduleRepository.findActiveDueBefore(any())).thenAnswer(invocation -> {
+            List<Object[]> rows = new ArrayList<>();
+            for (ReportSchedule schedule : schedules.values()) {
+                rows.add(new Object[] {schedule.getId(), schedule.getNextExecution()});
+            }
+            return rows;
+        });
+        when(reportScheduleRepository.findById(anyLong()))
+                .thenAnswer(invocation -> Optional.ofNullable(schedules.get(invocation.<Long>getArgument(0))));
+        when(reportScheduleService.nextExecutionFor(any(), any()))
+                .thenAnswer(invocation -> invocation.<LocalDateTime>getArgument(1).plusDays(1));
+        // the claim moves nextExecution on, as the repository's compare-and-set does
+        when(reportScheduleRepository.claim(anyLong(), any(), any(), any())).thenAnswer(invocation -> {
+            ReportSchedule schedule = schedules.get(invocation.<Long>getArgument(0));
+            if (!schedule.getNextExecution().equals(invocation.getArgument(1))) return 0;
+            schedule.setNextExecution(invocation.getArgument(2));
+            return 1;
+        });
+
+        dispatcher = new ReportScheduleDispatcher(reportScheduleRepository, reportScheduleService, reportExecutionService);
+        ReflectionTestUtils.setField(dispatcher, "enabled", true);
+        ReflectionTestUtils.setField(dispatcher, "horizonSeconds", HORIZON_SECONDS);
+        ReflectionTestUtils.setField(dispatcher, "catchUpWindowMinutes", 60L);
+        ReflectionTestUtils.setField(dispatcher, "maxFiresPerTick", MAX_FIRES_PER_TICK);
+    }
+
+    @Test
+    void overdueSchedulesCatchUpAFewPerTick() {
+        LocalDateTime due = now().minusMinutes(5);
+        for (long id = 1; id <= 5; id++) schedule(id, due);
+        dispatcher.start();
+
+        dispatcher.tick();
+        verify(reportExecutionService, times(2)).generateScheduledReport(anyLong());
+        dispatcher.tick();
+        verify(reportExecutionService, times(4)).generateScheduledReport(anyLong());
+        dispatcher.tick();
+        verify(reportExecutionService, times(5)).generateScheduledReport(anyLong());
+        dispatcher.tick();
+        verify(reportExecutionService, times(5)).generateScheduledReport(anyLong());
+    }
+
+    @Test
+    void runsMissedBeyondTheCatchUpWindowAreSkipped() {
+        LocalDateTime due = now().minusHours(2);
+        schedule(1L, due);
+        dispatcher.start();
+
+        dispatcher.tick();
+
+        verify(reportExecutionService, never()).generateScheduledReport(anyLong());
+        // the schedule is still advanced past the missed run
+        assertTrue(schedules.get(1L).getNextExecution().isAfter(due));
+    }
+
+    @Test
+    void scheduleClaimedElsewhereIsNotFired() {
+        schedule(1L, now().minusSeconds(1));
+        dispatcher.start();
+        // another node claimed the run between the refresh and the tick
+        schedules.get(1L).setNextExecution(now().plusDays(1));
+
+        dispatcher.tick();
+
+        verify(reportExecutionService, never()).generateScheduledReport(anyLong());
+    }
+
+    @Test
+    void firesWhenDueWithinTheHorizonAndLeavesLaterSchedulesForARefresh() throws Exception {
+        schedule(1L, now().plusSeconds(2));
+        schedule(2L, now().plusSeconds(HORIZON_SECONDS * 10L));
+        dispatcher.start();
+
+        @SuppressWarnings("unchecked")
+        Map<Long, LocalDateTime> slotted = (Map<Long, LocalDateTime>) ReflectionTestUtils.getField(dispatcher, "slotted");
+        assertTrue(slotted.containsKey(1L));
+        assertFalse(slotted.containsKey(2L));
+
+        dispatcher.tick();
+        verify(reportExecutionService, never()).generateScheduledReport(anyLong());
+
+        Thread.sleep(3000);
+        dispatcher.tick();
+        verify(reportExecutionService).generateScheduledReport(1L);
+        verify(reportExecutionService, never()).generateScheduledReport(2L);
+    }
+
+    private void schedule(Long id, LocalDateTime nextExecution) {
+        ReportSchedule schedule = ReportSchedule.builder().id(id).nextExecution(nextExecution).isActive(true).build();
+        schedules.put(id, schedule);
+    }
+
+    private static LocalDateTime now() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+    }
+}
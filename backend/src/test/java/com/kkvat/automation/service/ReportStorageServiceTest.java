@@ -0,0 +1,96 @@
+package com.kkvat.automation.service;
+
+import com.kkvat.automation.H2ApplicationTest;
+import com.kkvat.automation.model.Report;
+import com.kkvat.automation.model.ReportExecution;
+import com.kkvat.automation.model.User;
+import com.kkvat.automation.repository.ReportExecutionRepository;
+import com.kkvat.automation.repository.ReportFileRepository;
+import com.kkvat.automation.repository.ReportRepository;
+import com.kkvat.automation.repository.ReportViewRepository;
+import com.kkvat.automation.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Per-user quota eviction; the shared test configuration sets the quota to 1 MB.
+ */
+@H2ApplicationTest
+class ReportStorageServiceTest {
+    private static final long MB = 1024 * 1024;
+
+    @Autowired
+    private ReportStorageService reportStorageService;
+
+    @Autowired
+    private ReportExecutionRepository reportExecutionRepository;
+
+    @Autowired
+    private ReportFileRepository reportFileRepository;
+
+    private ReportFixtures fixtures;
+    private User user;
+    private Report report;
+
+    @BeforeEach
+    void setUp(@Autowired UserRepository userRepository, @Autowired ReportViewRepository reportViewRepository,
+               @Autowired ReportRepository reportRepository) {
+        fixtures = new ReportFixtures(userRepository, reportViewRepository, reportRepository, reportExecutionRepository,
+                reportFileRepository);
+        user = fixtures.user(User.Role.TESTER);
+        report = fixtures.report(user);
+    }
+
+    @Test
+    void evictsOlderOutputsButKeepsTheRunThatJustFinished() {
+        LocalDateTime now = LocalDateTime.now();
+        ReportExecution older = fixtures.completed(report, user, MB / 2, now.minusHours(2));
+        ReportExecution old = fixtures.completed(report, user, MB / 2, now.minusHours(1));
+        ReportExecution oversized = fixtures.completed(report, user, 3 * MB, now);
+
+        reportStorageService.enforceUserQuota(user.getId(), oversized.getId());
+
+        assertNull(filePathOf(older));
+        assertNull(filePathOf(old));
+        assertEquals(oversized.getFilePath(), filePathOf(oversized));
+        assertEquals(0, reportFileRepository.findByFilePath(older.getFilePath()).orElseThrow().getRefCount());
+        assertEquals(1, reportFileRepository.findByFilePath(oversized.getFilePath()).orElseThrow().getRefCount());
+    }
+
+    @Test
+    void evictsOnlyAsMuchAsNeeded() {
+        LocalDateTime now = LocalDateTime.now();
+        ReportExecution oldest = fixtures.completed(report, user, MB / 2, now.minusHours(3));
+        ReportExecution middle = fixtures.completed(report, user, MB / 4, now.minusHours(2));
+        ReportExecution latest = fixtures.completed(report, user, MB / 2, now.minusHours(1));
+
+        reportStorageService.enforceUserQuota(user.getId(), latest.getId());
+
+        assertNull(filePathOf(oldest));
+        assertNotNull(filePathOf(middle));
+        assertNotNull(filePathOf(latest));
+    }
+
+    @Test
+    void scheduledCleanupKeepsTheLatestOutputOfEachUser() {
+        LocalDateTime now = LocalDateTime.now();
+        ReportExecution earlier = fixtures.completed(report, user, MB / 2, now.minusMinutes(10));
+        ReportExecution oversized = fixtures.completed(report, user, 3 * MB, now.minusMinutes(5));
+
+        reportStorageService.cleanup();
+
+        assertNull(filePathOf(earlier));
+        assertEquals(oversized.getFilePath(), filePathOf(oversized));
+    }
+
+    private String filePathOf(ReportExecution execution) {
+        return reportExecutionRepository.findById(execution.getId()).orElseThrow().getFilePath();
+    }
+}
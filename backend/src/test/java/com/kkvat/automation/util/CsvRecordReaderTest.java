@@ -0,0 +1,101 @@
+package com.kkvat.automation.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CsvRecordReaderTest {
+
+    @Test
+    void readsBackWhatTheWriterWrote() throws IOException {
+        List<List<Object>> rows = List.of(
+                Arrays.asList("id", "name", "note"),
+                Arrays.asList(1, "plain", null),
+                Arrays.asList(2, "say \"hi\", twice", "line one\nline two"),
+                Arrays.asList(3, "é 😀", "\"\""),
+                Arrays.asList(4, "x".repeat(1000), ","));
+        byte[] csv = write(rows);
+
+        try (CsvRecordReader reader = new CsvRecordReader(new ByteArrayInputStream(csv), 16)) {
+            for (List<Object> row : rows) {
+                assertTrue(reader.next());
+                for (int i = 0; i < row.size(); i++) {
+                    Object value = row.get(i);
+                    assertEquals(value == null ? "" : value.toString(), reader.field(i));
+                }
+                assertNull(reader.field(row.size()));
+            }
+            assertFalse(reader.next());
+        }
+    }
+
+    @Test
+    void keepsEachRecordsRawBytes() throws IOException {
+        List<List<Object>> rows = List.of(
+                Arrays.asList("a", "multi\nline"),
+                Arrays.asList("b", "y".repeat(600)),
+                Arrays.asList("c", "\"quoted\""));
+        byte[] csv = write(rows);
+
+        ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        List<Integer> lengths = new ArrayList<>();
+        try (CsvRecordReader reader = new CsvRecordReader(new ByteArrayInputStream(csv), 16);
+             CsvStreamWriter writer = new CsvStreamWriter(copy, 16)) {
+            while (reader.next()) {
+                lengths.add(reader.getRecordLength());
+                writer.writeRaw(reader.getRecord(), 0, reader.getRecordLength());
+            }
+        }
+
+        assertArrayEquals(csv, copy.toByteArray());
+        assertEquals(List.of(write(rows.subList(0, 1)).length, write(rows.subList(1, 2)).length,
+                write(rows.subList(2, 3)).length), lengths);
+    }
+
+    @Test
+    void readsUnquotedFieldsAndAFinalRecordWithoutNewline() throws IOException {
+        byte[] csv = "a,b,,\"c\"\n1,2".getBytes(StandardCharsets.UTF_8);
+
+        try (CsvRecordReader reader = new CsvRecordReader(new ByteArrayInputStream(csv), 16)) {
+            assertTrue(reader.next());
+            assertEquals("a", reader.field(0));
+            assertEquals("b", reader.field(1));
+            assertEquals("", reader.field(2));
+            assertEquals("c", reader.field(3));
+            assertTrue(reader.next());
+            assertEquals("2", reader.field(1));
+            assertEquals(3, reader.getRecordLength());
+            assertFalse(reader.next());
+        }
+    }
+
+    @Test
+    void emptyInputHasNoRecords() throws IOException {
+        try (CsvRecordReader reader = new CsvRecordReader(new ByteArrayInputStream(new byte[0]), 16)) {
+            assertFalse(reader.next());
+        }
+    }
+
+    private static byte[] write(List<List<Object>> rows) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (CsvStreamWriter writer = new CsvStreamWriter(out, 16)) {
+            for (List<Object> row : rows) {
+                for (Object value : row) writer.writeField(value);
+                writer.endRow();
+            }
+        }
+        return out.toByteArray();
+    }
+}
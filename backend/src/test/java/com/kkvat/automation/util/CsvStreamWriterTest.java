@@ -0,0 +1,150 @@
+package com.kkvat.automation.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CsvStreamWriterTest {
+
+    @Test
+    void quotesEveryFieldAndDoublesQuotes() throws IOException {
+        assertEquals("\"a\",\"say \"\"hi\"\"\",\"x,y\",\"line\nbreak\"\n\"\",\"42\",\"1.50\"\n",
+                write(16, new Object[][] {
+                        {"a", "say \"hi\"", "x,y", "line\nbreak"},
+                        {null, 42, new BigDecimal("1.50")}
+                }));
+    }
+
+    @Test
+    void encodesUtf8LikeTheJdk() throws IOException {
+        String text = "é ü ß € 日本語 😀 👍";
+        assertEquals("\"" + text + "\"\n", write(16, new Object[][] {{text}}));
+    }
+
+    @Test
+    void replacesUnpairedSurrogates() throws IOException {
+        assertEquals("\"a?b?\"\n", write(16, new Object[][] {{"a\uD800b\uDC00"}}));
+    }
+
+    @Test
+    void splitsNoCharacterAcrossTheBufferBoundary() throws IOException {
+        // every offset of 2-, 3- and 4-byte sequences against the 16-byte minimum buffer
+        for (int pad = 0; pad < 20; pad++) {
+            String text = "x".repeat(pad) + "é€😀\"é€😀";
+            String expected = "\"" + text.replace("\"", "\"\"") + "\"\n";
+            ChunkRecorder out = new ChunkRecorder();
+            try (CsvStreamWriter writer = new CsvStreamWriter(out, 16)) {
+                writer.writeField(text);
+                writer.endRow();
+            }
+            assertEquals(expected, out.toString(StandardCharsets.UTF_8));
+            assertTrue(out.everyChunkIsWholeUtf8, "a chunk ended inside a character at pad " + pad);
+        }
+    }
+
+    @Test
+    void countsBufferedAndFlushedBytes() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CsvStreamWriter writer = new CsvStreamWriter(out, 16);
+        for (int i = 0; i < 10; i++) {
+            writer.writeField("value-" + i);
+        }
+        writer.endRow();
+        // 10 fields of 9 bytes quoted, 9 commas and the newline, some still in the buffer
+        assertEquals(10 * 9 + 9 + 1, writer.getBytesWritten());
+        writer.flush();
+        assertEquals(out.size(), writer.getBytesWritten());
+    }
+
+    @Test
+    void appendsRawBytesSmallerAndLargerThanTheBuffer() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] small = "\"s\"\n".getBytes(StandardCharsets.UTF_8);
+        byte[] large = ("\"" + "L".repeat(100) + "\"\n").getBytes(StandardCharsets.UTF_8);
+        try (CsvStreamWriter writer = new CsvStreamWriter(out, 16)) {
+            writer.writeField("a");
+            writer.endRow();
+            writer.writeRaw(small, 0, small.length);
+            writer.writeRaw(large, 0, large.length);
+            writer.writeField("b");
+            writer.endRow();
+        }
+        assertEquals("\"a\"\n\"s\"\n\"" + "L".repeat(100) + "\"\n\"b\"\n", out.toString(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Memory ceiling of the encoder: writing ten times the rows allocates no more, so heap use does not
+     * grow with the export. Values are created once up front; only the writer's own allocations count.
+     */
+    @Test
+    void allocationDoesNotGrowWithRowCount() throws IOException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Object[] row = {"plain ascii text", "with \"quotes\", and commas", "ünïcödé €", "😀"};
+        // warm up so class loading and JIT do not count
+        encode(row, 50_000);
+
+        long before = threads.getCurrentThreadAllocatedBytes();
+        encode(row, 100_000);
+        long small = threads.getCurrentThreadAllocatedBytes() - before;
+
+        before = threads.getCurrentThreadAllocatedBytes();
+        encode(row, 1_000_000);
+        long large = threads.getCurrentThreadAllocatedBytes() - before;
+
+        // the fixed buffer plus noise; a per-row or per-cell copy would be tens of megabytes
+        long ceiling = CsvStreamWriter.DEFAULT_BUFFER_SIZE + 512 * 1024;
+        assertTrue(small < ceiling, "100k rows allocated " + small + " bytes");
+        assertTrue(large < ceiling, "1M rows allocated " + large + " bytes");
+    }
+
+    private static void encode(Object[] row, int rows) throws IOException {
+        try (CsvStreamWriter writer = new CsvStreamWriter(OutputStream.nullOutputStream())) {
+            for (int i = 0; i < rows; i++) {
+                for (Object value : row) writer.writeField(value);
+                writer.endRow();
+            }
+        }
+    }
+
+    private static String write(int bufferSize, Object[][] rows) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (CsvStreamWriter writer = new CsvStreamWriter(out, bufferSize)) {
+            for (Object[] row : rows) {
+                for (Object value : row) writer.writeField(value);
+                writer.endRow();
+            }
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Records whether every write handed to the stream ends on a character boundary.
+     */
+    private static class ChunkRecorder extends ByteArrayOutputStream {
+        private boolean everyChunkIsWholeUtf8 = true;
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            super.write(b, off, len);
+            if (len > 0 && !endsOnBoundary(b, off, len)) everyChunkIsWholeUtf8 = false;
+        }
+
+        private static boolean endsOnBoundary(byte[] b, int off, int len) {
+            // walk back over continuation bytes to the lead byte of the last character
+            int end = off + len;
+            int i = end - 1;
+            while (i > off && (b[i] & 0xC0) == 0x80) i--;
+            int lead = b[i] & 0xFF;
+            int expected = lead < 0x80 ? 1 : lead >= 0xF0 ? 4 : lead >= 0xE0 ? 3 : 2;
+            return end - i == expected;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.kkvat.automation.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Timestamp;
+import java.text.Collator;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SortKeyCodecTest {
+
+    private final Collator collator = SortKeyCodec.newCollator();
+
+    @Test
+    void roundTripsToTheDecodedTypes() throws IOException {
+        LocalDateTime dateTime = LocalDateTime.of(2024, 3, 5, 10, 15, 30, 123_456_789);
+        List<Object> written = Arrays.asList(null, 7, 7L, (short) 7, (byte) 7, true, false,
+                new BigDecimal("12.340"), BigInteger.TEN.pow(30), 1.5d, 2.5f,
+                dateTime, Timestamp.valueOf(dateTime), java.sql.Date.valueOf("2024-03-05"), LocalDate.of(2024, 3, 5),
+                LocalTime.of(10, 15), OffsetDateTime.of(dateTime, ZoneOffset.ofHours(2)), "héllo 😀", 'c');
+        List<Object> expected = Arrays.asList(null, 7L, 7L, 7L, 7L, 1L, 0L,
+                new BigDecimal("12.340"), new BigDecimal(BigInteger.TEN.pow(30)), 1.5d, 2.5d,
+                dateTime, dateTime, LocalDateTime.of(2024, 3, 5, 0, 0), LocalDateTime.of(2024, 3, 5, 0, 0),
+                LocalDateTime.of(1970, 1, 1, 10, 15), dateTime.minusHours(2), "héllo 😀", "c");
+
+        assertEquals(expected, roundTrip(written));
+    }
+
+    @Test
+    void rejectsAnUnknownTag() {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(new byte[] {99}));
+        assertThrows(IOException.class, () -> SortKeyCodec.read(in));
+    }
+
+    @Test
+    void nullSortsFirst() {
+        assertEquals(0, SortKeyCodec.compare(null, null, collator));
+        assertTrue(SortKeyCodec.compare(null, 1L, collator) < 0);
+        assertTrue(SortKeyCodec.compare("", null, collator) > 0);
+    }
+
+    @Test
+    void stringsCompareIgnoringCaseAndAccents() {
+        assertEquals(0, SortKeyCodec.compare("resume", "Résumé", collator));
+        assertTrue(SortKeyCodec.compare("apple", "Banana", collator) < 0);
+        assertTrue(SortKeyCodec.compare("Zebra", "apple", collator) > 0);
+    }
+
+    @Test
+    void numbersOfDifferentTypesCompareByValue() {
+        assertEquals(0, SortKeyCodec.compare(2L, new BigDecimal("2.00"), collator));
+        assertTrue(SortKeyCodec.compare(2L, 2.5d, collator) < 0);
+        assertTrue(SortKeyCodec.compare(new BigDecimal("10"), 9L, collator) > 0);
+    }
+
+    @Test
+    void decodedValuesSortLikeTheOriginals() throws IOException {
+        List<Object> dates = Arrays.asList(LocalDate.of(2024, 1, 2), null, Timestamp.valueOf("2024-01-01 23:59:59"),
+                LocalDateTime.of(2024, 1, 1, 0, 0));
+        List<Object> decoded = roundTrip(dates);
+        decoded.sort((a, b) -> SortKeyCodec.compare(a, b, collator));
+
+        assertEquals(Arrays.asList(null, LocalDateTime.of(2024, 1, 1, 0, 0), LocalDateTime.of(2024, 1, 1, 23, 59, 59),
+                LocalDateTime.of(2024, 1, 2, 0, 0)), decoded);
+    }
+
+    private static List<Object> roundTrip(List<Object> values) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            for (Object value : values) SortKeyCodec.write(out, value);
+        }
+        List<Object> decoded = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            for (int i = 0; i < values.size(); i++) decoded.add(SortKeyCodec.read(in));
+            assertEquals(-1, in.read());
+        }
+        return decoded;
+    }
+}
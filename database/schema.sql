@@ -216,6 +216,25 @@ CREATE TABLE IF NOT EXISTS report_view_fields (
     INDEX idx_view_id (view_id)
 ) ENGINE=InnoDB;
 
+-- Report View Summaries (materialized group-bys that aggregate reports are routed to)
+CREATE TABLE IF NOT EXISTS report_view_summaries (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    view_id BIGINT NOT NULL,
+    summary_table VARCHAR(64) NOT NULL UNIQUE,
+    group_fields JSON NOT NULL,
+    measure_fields JSON,
+    watermark_column VARCHAR(100),
+    watermark_value VARCHAR(64),
+    last_refreshed_at TIMESTAMP NULL,
+    last_rebuilt_at TIMESTAMP NULL,
+    row_count BIGINT,
+    last_error TEXT,
+    is_active BOOLEAN NOT NULL DEFAULT TRUE,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (view_id) REFERENCES report_views(id) ON DELETE CASCADE,
+    INDEX idx_view_id (view_id)
+) ENGINE=InnoDB;
+
 -- Report Templates (CRUD operations)
 CREATE TABLE IF NOT EXISTS reports (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
@@ -226,6 +245,8 @@ CREATE TABLE IF NOT EXISTS reports (
     filter_conditions JSON,
     sort_config JSON,
     report_type ENUM('EXECUTION', 'USER_ACTIVITY', 'CUSTOM') NOT NULL,
+    parallelism INT NULL,
+    timeout_seconds INT NULL,
     is_public BOOLEAN NOT NULL DEFAULT FALSE,
     created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
@@ -252,6 +273,10 @@ CREATE TABLE IF NOT EXISTS report_schedules (
     is_active BOOLEAN NOT NULL DEFAULT TRUE,
     last_executed TIMESTAMP NULL,
     next_execution TIMESTAMP NULL,
+    incremental_mode ENUM('FULL', 'DELTA', 'MERGE') NOT NULL DEFAULT 'FULL',
+    watermark_column VARCHAR(100) NULL,
+    watermark_value VARCHAR(64) NULL,
+    watermark_report_version TIMESTAMP NULL,
     created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     created_by BIGINT NOT NULL,
@@ -264,18 +289,35 @@ CREATE TABLE IF NOT EXISTS report_schedules (
     INDEX idx_next_execution (next_execution)
 ) ENGINE=InnoDB;
 
+-- Report Files (content-addressed output store, shared by executions with identical output)
+CREATE TABLE IF NOT EXISTS report_files (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    content_hash CHAR(64) NOT NULL UNIQUE,
+    file_path VARCHAR(500) NOT NULL,
+    size_bytes BIGINT NOT NULL,
+    ref_count INT NOT NULL DEFAULT 0,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    last_accessed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_file_path (file_path),
+    INDEX idx_last_accessed (last_accessed_at)
+) ENGINE=InnoDB;
+
 -- Report Executions (Download reports history)
 CREATE TABLE IF NOT EXISTS report_executions (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
     report_id BIGINT NOT NULL,
     schedule_id BIGINT NULL,
     execution_type ENUM('MANUAL', 'SCHEDULED', 'API') NOT NULL,
-    status ENUM('PENDING', 'GENERATING', 'COMPLETED', 'FAILED') NOT NULL,
+    status ENUM('PENDING', 'GENERATING', 'COMPLETED', 'FAILED', 'CANCELLED') NOT NULL,
+    low_priority BOOLEAN NULL,
+    owner_node VARCHAR(100) NULL,
+    lease_expires_at TIMESTAMP NULL,
     start_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
     end_time TIMESTAMP NULL,
     duration_ms BIGINT NULL,
     file_path VARCHAR(500),
     file_size BIGINT NULL,
+    compressed_size BIGINT NULL,
     row_count INT NULL,
     error_message TEXT,
     executed_by BIGINT NOT NULL,
@@ -287,7 +329,9 @@ CREATE TABLE IF NOT EXISTS report_executions (
     INDEX idx_schedule_id (schedule_id),
     INDEX idx_status (status),
     INDEX idx_created_at (created_at),
-    INDEX idx_executed_by (executed_by)
+    INDEX idx_executed_by (executed_by),
+    INDEX idx_file_path (file_path),
+    INDEX idx_status_lease (status, lease_expires_at)
 ) ENGINE=InnoDB;
 
 -- Roles table (for role-based access control)